@@ -24,6 +24,7 @@ import java.lang.instrument.Instrumentation;
 import java.security.ProtectionDomain;
 import javassist.ClassPool;
 import javassist.CtClass;
+import org.mvndaemon.mvnd.pump.AgentHelper;
 
 public class Agent {
 
@@ -38,6 +39,7 @@ public class Agent {
             + "}";
 
     public static void premain(String args, Instrumentation instrumentation) throws Exception {
+        AgentHelper.setInstrumentation(instrumentation);
         instrumentation.addTransformer(new ClassFileTransformer() {
             @Override
             public byte[] transform(
@@ -39,6 +39,12 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -51,6 +57,7 @@ import org.jline.utils.AttributedStyle;
 import org.mvndaemon.mvnd.common.DaemonException;
 import org.mvndaemon.mvnd.common.DaemonInfo;
 import org.mvndaemon.mvnd.common.DaemonRegistry;
+import org.mvndaemon.mvnd.common.DaemonState;
 import org.mvndaemon.mvnd.common.Environment;
 import org.mvndaemon.mvnd.common.Environment.Color;
 import org.mvndaemon.mvnd.common.Message;
@@ -59,6 +66,7 @@ import org.mvndaemon.mvnd.common.Message.BuildFinished;
 import org.mvndaemon.mvnd.common.OsUtils;
 import org.mvndaemon.mvnd.common.TimeUtils;
 import org.mvndaemon.mvnd.common.logging.ClientOutput;
+import org.mvndaemon.mvnd.common.logging.EventStreamOutput;
 import org.mvndaemon.mvnd.common.logging.TerminalOutput;
 import org.mvndaemon.mvnd.logging.slf4j.MvndLoggerFactory;
 import org.slf4j.Logger;
@@ -70,8 +78,10 @@ import static org.mvndaemon.mvnd.client.DaemonParameters.LOG_EXTENSION;
 public class DefaultClient implements Client {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultClient.class);
+    private static final Duration STATUS_TIMEOUT = Duration.ofSeconds(2);
 
     public static void main(String[] argv) throws Exception {
+        ClientTimings.reset();
         final List<String> args = new ArrayList<>(Arrays.asList(argv));
 
         // Log file
@@ -148,10 +158,23 @@ public class DefaultClient implements Client {
 
         // Install JUL -> SLF4j bridge
         SLF4JBridgeHandler.install();
+        ClientTimings.mark("parameters");
 
         int exitCode = 0;
         boolean noBuffering = batchMode || parameters.noBuffering();
-        try (TerminalOutput output = new TerminalOutput(noBuffering, parameters.rollingWindowSize(), logFile)) {
+        final String eventOutput = parameters.eventOutput();
+        try (ClientOutput output = eventOutput != null
+                ? new EventStreamOutput(EventStreamOutput.Format.of(eventOutput), parameters.eventOutputFile())
+                : new TerminalOutput(
+                        noBuffering,
+                        parameters.rollingWindowSize(),
+                        parameters.maxFrameRate(),
+                        logFile,
+                        parameters.daemonStorage(),
+                        parameters.logQueueSize(),
+                        parameters.logFileFsync(),
+                        parameters.logFileOverflow())) {
+            ClientTimings.mark("terminal");
             try {
                 // Color
                 // We need to defer this part until the terminal is created
@@ -160,14 +183,25 @@ public class DefaultClient implements Client {
                 if (styleColor == Color.auto) {
                     /* Translate from auto to either always or never */
                     /* stdout is not a terminal e.g. when stdout is redirected to a file */
-                    final boolean stdoutIsTerminal =
-                            ((TerminalExt) output.getTerminal()).getProvider().isSystemStream(SystemStream.Output);
+                    final boolean stdoutIsTerminal = output instanceof TerminalOutput terminalOutput
+                            && ((TerminalExt) terminalOutput.getTerminal())
+                                    .getProvider()
+                                    .isSystemStream(SystemStream.Output);
                     styleColor = (batchMode || logFile != null || !stdoutIsTerminal) ? Color.never : Color.always;
                 }
                 /* We cannot use Environment.addCommandLineOption() because that one would pass --color to the daemon
                  * and --color is not supported there yet. */
                 args.add("-D" + Environment.MAVEN_COLOR.getProperty() + "=" + styleColor.name());
 
+                /* The daemon can only hold back the project logs if they are displayed as tails and not written to
+                 * per-project files as they come */
+                Environment.MVND_LOG_TAILS.removeCommandLineOption(args);
+                final boolean logTails = parameters.logTails()
+                        && parameters.projectLogDirectory() == null
+                        && output instanceof TerminalOutput terminalOutput
+                        && terminalOutput.isBuffering();
+                Environment.MVND_LOG_TAILS.addCommandLineOption(args, Boolean.toString(logTails));
+
                 final ExecutionResult result = new DefaultClient(parameters).execute(output, args);
                 exitCode = result.getExitCode();
             } catch (DaemonException.InterruptedException e) {
@@ -177,6 +211,9 @@ public class DefaultClient implements Client {
                 exitCode = 130;
             }
         }
+        if (parameters.property(Environment.MVND_CLIENT_TIMINGS).asBoolean()) {
+            System.err.print(ClientTimings.report());
+        }
         System.exit(exitCode);
     }
 
@@ -294,27 +331,7 @@ public class DefaultClient implements Client {
 
         try (DaemonRegistry registry = new DaemonRegistry(parameters.registry())) {
             if (Environment.STATUS.removeCommandLineOption(args) != null) {
-                final String template = "%8s  %7s  %24s  %7s  %5s  %23s  %s";
-                output.accept(Message.out(String.format(
-                        template, "ID", "PID", "Address", "Status", "RSS", "Last activity", "Java home")));
-                for (DaemonInfo d : registry.getAll()) {
-                    if (ProcessHandle.of(d.getPid()).isEmpty()) {
-                        /* The process does not exist anymore - remove it from the registry */
-                        registry.remove(d.getId());
-                    } else {
-                        output.accept(Message.out(String.format(
-                                template,
-                                d.getId(),
-                                d.getPid(),
-                                d.getAddress(),
-                                d.getState(),
-                                OsUtils.kbToHumanReadable(OsUtils.findProcessRssInKb(d.getPid())),
-                                LocalDateTime.ofInstant(
-                                        Instant.ofEpochMilli(Math.max(d.getLastIdle(), d.getLastBusy())),
-                                        ZoneId.systemDefault()),
-                                d.getJavaHome())));
-                    }
-                }
+                status(output, registry);
                 return DefaultResult.success(argv);
             }
             if (Environment.STOP.removeCommandLineOption(args) != null) {
@@ -375,6 +392,7 @@ public class DefaultClient implements Client {
 
             final DaemonConnector connector = new DaemonConnector(parameters, registry);
             try (DaemonClientConnection daemon = connector.connect(output)) {
+                ClientTimings.mark("connect");
                 output.setDaemonId(daemon.getDaemon().getId());
                 output.setDaemonDispatch(daemon::dispatch);
                 output.setDaemonReceive(daemon::enqueue);
@@ -384,6 +402,7 @@ public class DefaultClient implements Client {
                         parameters.userDir().toString(),
                         parameters.multiModuleProjectDirectory().toString(),
                         buildRequestEnvironment()));
+                ClientTimings.mark("build request");
 
                 output.accept(Message.buildStatus(
                         "Connected to daemon " + daemon.getDaemon().getId() + ", scanning for projects..."));
@@ -398,9 +417,15 @@ public class DefaultClient implements Client {
                 purgeLog.setDaemon(true);
                 purgeLog.start();
 
-                try {
+                final Path projectLogDirectory = parameters.projectLogDirectory();
+                try (ProjectLogFiles projectLogs = projectLogDirectory != null
+                        ? new ProjectLogFiles(projectLogDirectory, parameters.projectLogMaxOpenFiles())
+                        : null) {
                     while (true) {
                         final List<Message> messages = daemon.receive();
+                        if (projectLogs != null) {
+                            projectLogs.accept(messages);
+                        }
                         output.accept(messages);
                         for (Message m : messages) {
                             switch (m.getType()) {
@@ -419,6 +444,8 @@ public class DefaultClient implements Client {
                             }
                         }
                     }
+                } catch (IOException e) {
+                    throw new DaemonException("Could not write the project logs to " + projectLogDirectory, e);
                 } finally {
                     String msg = purgeMessage.get();
                     if (msg != null) {
@@ -429,6 +456,102 @@ public class DefaultClient implements Client {
         }
     }
 
+    /**
+     * Print the status of the running daemons. The resident set sizes and the live metrics of the idle daemons are
+     * collected in parallel, so that the time taken does not grow with the number of daemons.
+     */
+    private void status(ClientOutput output, DaemonRegistry registry) {
+        final String template = "%8s  %7s  %24s  %7s  %5s  %23s  %11s  %6s  %10s  %s  %s";
+        output.accept(Message.out(String.format(
+                template,
+                "ID",
+                "PID",
+                "Address",
+                "Status",
+                "RSS",
+                "Last activity",
+                "Heap",
+                "Builds",
+                "Uptime",
+                "Java home",
+                "Caches")));
+        final List<DaemonInfo> daemons = new ArrayList<>();
+        for (DaemonInfo d : registry.getAll()) {
+            if (ProcessHandle.of(d.getPid()).isEmpty()) {
+                /* The process does not exist anymore - remove it from the registry */
+                registry.remove(d.getId());
+            } else {
+                daemons.add(d);
+            }
+        }
+        if (daemons.isEmpty()) {
+            return;
+        }
+        final DaemonConnector connector = new DaemonConnector(parameters, registry);
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(daemons.size(), 8), r -> {
+            Thread t = new Thread(r, "mvnd-status");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            final List<CompletableFuture<Long>> rss = new ArrayList<>();
+            final List<CompletableFuture<Message.DaemonStatus>> statuses = new ArrayList<>();
+            for (DaemonInfo d : daemons) {
+                rss.add(CompletableFuture.supplyAsync(() -> OsUtils.findProcessRssInKb(d.getPid()), executor));
+                statuses.add(
+                        d.getState() == DaemonState.Idle
+                                ? CompletableFuture.supplyAsync(() -> connector.queryStatus(d), executor)
+                                : CompletableFuture.completedFuture(null));
+            }
+            final long deadline = System.currentTimeMillis() + STATUS_TIMEOUT.toMillis();
+            for (int i = 0; i < daemons.size(); i++) {
+                final DaemonInfo d = daemons.get(i);
+                final long kb = await(rss.get(i), deadline, -1L);
+                final Message.DaemonStatus status = await(statuses.get(i), deadline, null);
+                output.accept(Message.out(String.format(
+                        template,
+                        d.getId(),
+                        d.getPid(),
+                        d.getAddress(),
+                        d.getState(),
+                        kb >= 0 ? OsUtils.kbToHumanReadable(kb) : "-",
+                        LocalDateTime.ofInstant(
+                                Instant.ofEpochMilli(Math.max(d.getLastIdle(), d.getLastBusy())),
+                                ZoneId.systemDefault()),
+                        status != null
+                                ? OsUtils.bytesToHumanReadable(status.getHeapUsed()) + "/"
+                                        + OsUtils.bytesToHumanReadable(status.getHeapMax())
+                                : "-",
+                        status != null ? status.getBuildsServed() : "-",
+                        status != null
+                                ? TimeUtils.printDuration(
+                                        status.getUptime() - status.getUptime() % TimeUtils.SECONDS_MILLIS)
+                                : "-",
+                        d.getJavaHome(),
+                        status != null
+                                ? status.getCacheSizes().entrySet().stream()
+                                        .map(e -> e.getKey() + "=" + e.getValue())
+                                        .collect(Collectors.joining(" "))
+                                : "")));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future, long deadline, T defaultValue) {
+        try {
+            T value = future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            return value != null ? value : defaultValue;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DaemonException.InterruptedException(e);
+        } catch (ExecutionException | TimeoutException e) {
+            LOGGER.debug("Could not collect daemon status", e);
+            return defaultValue;
+        }
+    }
+
     private String purgeLogs() {
         Path storage = parameters.daemonStorage();
         Duration purgeLogPeriod = parameters.purgeLogPeriod();
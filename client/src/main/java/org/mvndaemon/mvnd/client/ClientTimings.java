@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.client;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the time spent by the client in each of its startup phases, from the start of the process until the
+ * first message is received from the daemon. The timings are printed at the end of the build when
+ * {@code -Dmvnd.clientTimings=true} is passed, which helps to spot startup latency regressions.
+ */
+public final class ClientTimings {
+
+    private static final List<String> PHASES = new ArrayList<>();
+    private static final List<Long> TIMES = new ArrayList<>();
+    private static final Map<String, Long> ACCUMULATED = new LinkedHashMap<>();
+    private static long originNanos = System.nanoTime();
+    private static long originMillis = System.currentTimeMillis();
+
+    private ClientTimings() {}
+
+    /**
+     * Forget all recorded timings and take the current time as the origin of the next phases.
+     */
+    public static synchronized void reset() {
+        PHASES.clear();
+        TIMES.clear();
+        ACCUMULATED.clear();
+        originNanos = System.nanoTime();
+        originMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Record the end of the given phase.
+     */
+    public static synchronized void mark(String phase) {
+        PHASES.add(phase);
+        TIMES.add(System.nanoTime());
+    }
+
+    /**
+     * Record the end of the given phase unless it has already been recorded.
+     */
+    public static synchronized void markOnce(String phase) {
+        if (!PHASES.contains(phase)) {
+            mark(phase);
+        }
+    }
+
+    /**
+     * Add the given duration to the time spent in an activity which may happen several times during startup, such
+     * as reading property files.
+     */
+    public static synchronized void accumulate(String activity, long nanos) {
+        ACCUMULATED.merge(activity, nanos, Long::sum);
+    }
+
+    /**
+     * @return a human readable table of the recorded timings
+     */
+    public static synchronized String report() {
+        final String template = "  %-28s %8s %8s%n";
+        StringBuilder sb = new StringBuilder();
+        sb.append("Client timings:").append(System.lineSeparator());
+        sb.append(String.format(template, "Phase", "Delta", "Elapsed"));
+        Optional<Instant> start = ProcessHandle.current().info().startInstant();
+        if (start.isPresent()) {
+            long jvm = Math.max(0, originMillis - start.get().toEpochMilli());
+            sb.append(String.format(template, "jvm startup", jvm + "ms", ""));
+        }
+        long previous = originNanos;
+        for (int i = 0; i < PHASES.size(); i++) {
+            long time = TIMES.get(i);
+            sb.append(String.format(template, PHASES.get(i), toMillis(time - previous), toMillis(time - originNanos)));
+            previous = time;
+        }
+        ACCUMULATED.forEach((activity, nanos) -> sb.append(String.format(template, activity, toMillis(nanos), "")));
+        return sb.toString();
+    }
+
+    private static String toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos) + "ms";
+    }
+}
@@ -22,8 +22,6 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
@@ -53,7 +51,12 @@ public class DaemonClientConnection implements Closeable {
     private final boolean newDaemon;
     private boolean hasReceived;
     private final Lock dispatchLock = new ReentrantLock();
-    private final BlockingQueue<Message> queue = new ArrayBlockingQueue<>(16);
+    /** The maximum number of messages decoded before they are handed over to the renderer */
+    static final int RECEIVE_BATCH_SIZE = 4096;
+    /** The number of queued messages above which the receiver waits for the renderer */
+    static final int QUEUE_CAPACITY = 256 * 1024;
+
+    private final ReceiveQueue queue = new ReceiveQueue(QUEUE_CAPACITY);
     private final Thread receiver;
     private final AtomicBoolean running = new AtomicBoolean(true);
     private final AtomicReference<Exception> exception = new AtomicReference<>();
@@ -100,34 +103,36 @@ public class DaemonClientConnection implements Closeable {
         // in case we dispatch a cancelation request, also forward it to the main thread to exit asap
         try {
             if (message.getType() == Message.CANCEL_BUILD) {
-                queue.put(message);
+                queue.add(message);
             }
         } catch (InterruptedException e) {
             throw new DaemonException.InterruptedException(e);
         }
     }
 
+    /**
+     * @return all the messages received since the last call, waiting for at least one of them
+     */
     public List<Message> receive() throws ConnectException, StaleAddressException {
         while (true) {
             try {
-                final Message m = queue.poll(maxKeepAliveMs, TimeUnit.MILLISECONDS);
-                {
-                    Exception e = exception.get();
-                    if (e != null) {
-                        throw e;
-                    } else if (m == null) {
-                        throw new IOException("No message received within " + maxKeepAliveMs
-                                + "ms, daemon may have crashed. You may want to check its status using mvnd --status");
-                    }
-                }
-                final List<Message> result = new ArrayList<>(4);
-                result.add(m);
-                queue.drainTo(result);
+                final List<Message> result = new ArrayList<>();
+                final int count = queue.drainTo(result, maxKeepAliveMs, TimeUnit.MILLISECONDS);
                 Exception e = exception.get();
                 if (e != null) {
                     throw e;
+                } else if (count < 0) {
+                    throw new ConnectException("The connection to the daemon is closed");
+                } else if (count == 0) {
+                    throw new IOException("No message received within " + maxKeepAliveMs
+                            + "ms, daemon may have crashed. You may want to check its status using mvnd --status");
+                }
+                if (!hasReceived) {
+                    ClientTimings.markOnce("first message");
                 }
                 return result;
+            } catch (ConnectException e) {
+                throw e;
             } catch (Exception e) {
                 DaemonDiagnostics diag = new DaemonDiagnostics(daemon.getId(), parameters);
                 LOG.debug("Problem receiving message to the daemon. Performing 'on failure' operation...");
@@ -145,7 +150,7 @@ public class DaemonClientConnection implements Closeable {
 
     public void enqueue(Message message) {
         try {
-            queue.put(message);
+            queue.add(message);
         } catch (InterruptedException e) {
             throw new RuntimeException(e);
         }
@@ -153,16 +158,17 @@ public class DaemonClientConnection implements Closeable {
 
     protected void doReceive() {
         try {
-            while (running.get()) {
-                Message m = connection.receive();
-                if (m == null) {
-                    break;
-                }
-                queue.put(m);
+            final List<Message> batch = new ArrayList<>();
+            boolean open = true;
+            while (open && running.get()) {
+                open = connection.receive(batch, RECEIVE_BATCH_SIZE);
+                queue.addAll(batch);
+                batch.clear();
             }
         } catch (Exception e) {
             if (running.get()) {
                 exception.set(e);
+                queue.close();
             }
         }
     }
@@ -170,6 +176,7 @@ public class DaemonClientConnection implements Closeable {
     public void close() {
         LOG.debug("thread {}: connection stop", Thread.currentThread().getId());
         running.set(false);
+        queue.close();
         receiver.interrupt();
         connection.close();
     }
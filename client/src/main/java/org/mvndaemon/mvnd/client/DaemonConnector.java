@@ -38,7 +38,6 @@ import java.util.Optional;
 import java.util.Properties;
 import java.util.Random;
 import java.util.Scanner;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
@@ -47,6 +46,7 @@ import org.mvndaemon.mvnd.common.DaemonCompatibilitySpec;
 import org.mvndaemon.mvnd.common.DaemonCompatibilitySpec.Result;
 import org.mvndaemon.mvnd.common.DaemonConnection;
 import org.mvndaemon.mvnd.common.DaemonException;
+import org.mvndaemon.mvnd.common.DaemonHeartbeats;
 import org.mvndaemon.mvnd.common.DaemonInfo;
 import org.mvndaemon.mvnd.common.DaemonRegistry;
 import org.mvndaemon.mvnd.common.DaemonState;
@@ -55,6 +55,7 @@ import org.mvndaemon.mvnd.common.Environment;
 import org.mvndaemon.mvnd.common.Message;
 import org.mvndaemon.mvnd.common.Os;
 import org.mvndaemon.mvnd.common.SocketFamily;
+import org.mvndaemon.mvnd.common.TimeUtils;
 import org.mvndaemon.mvnd.common.logging.ClientOutput;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -70,6 +71,11 @@ public class DaemonConnector {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DaemonConnector.class);
 
+    /**
+     * The number of heartbeats a daemon can miss before being considered dead.
+     */
+    static final int MAX_LOST_HEARTBEATS = 3;
+
     private final DaemonRegistry registry;
     private final DaemonParameters parameters;
 
@@ -79,7 +85,7 @@ public class DaemonConnector {
     }
 
     public DaemonClientConnection maybeConnect(DaemonCompatibilitySpec constraint) {
-        return findConnection(getCompatibleDaemons(registry.getAll(), constraint));
+        return findConnection(getCompatibleDaemons(liveDaemons(registry.getAll()), constraint));
     }
 
     public DaemonClientConnection maybeConnect(DaemonInfo daemon) {
@@ -98,9 +104,11 @@ public class DaemonConnector {
 
         final DaemonCompatibilitySpec constraint =
                 new DaemonCompatibilitySpec(parameters.javaHome(), parameters.getDaemonOpts());
+        ClientTimings.mark("daemon options");
         output.accept(Message.buildStatus("Looking up daemon..."));
-        Map<Boolean, List<DaemonInfo>> idleBusy =
-                registry.getAll().stream().collect(Collectors.groupingBy(di -> di.getState() == DaemonState.Idle));
+        Map<Boolean, List<DaemonInfo>> idleBusy = liveDaemons(registry.getAll()).stream()
+                .collect(Collectors.groupingBy(di -> di.getState() == DaemonState.Idle));
+        ClientTimings.mark("registry");
         final Collection<DaemonInfo> idleDaemons = idleBusy.getOrDefault(true, Collections.emptyList());
         final Collection<DaemonInfo> busyDaemons = idleBusy.getOrDefault(false, Collections.emptyList());
 
@@ -182,17 +190,10 @@ public class DaemonConnector {
 
     private String handleStopEvents(
             String daemonId, Collection<DaemonInfo> idleDaemons, Collection<DaemonInfo> busyDaemons) {
-        final List<DaemonStopEvent> stopEvents = registry.getStopEvents();
-
-        // Clean up old stop events
-        long time = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1);
-
-        List<DaemonStopEvent> oldStopEvents =
-                stopEvents.stream().filter(e -> e.getTimestamp() < time).collect(Collectors.toList());
-        registry.removeStopEvents(oldStopEvents);
+        // Old stop events are cleaned up while reading
+        final List<DaemonStopEvent> stopEvents = registry.getStopEvents(parameters.stopEventsRetention());
 
         final List<DaemonStopEvent> recentStopEvents = stopEvents.stream()
-                .filter(e -> e.getTimestamp() >= time)
                 .collect(Collectors.groupingBy(DaemonStopEvent::getDaemonId, Collectors.minBy(this::compare)))
                 .values()
                 .stream()
@@ -271,7 +272,7 @@ public class DaemonConnector {
             while (connection == null && System.currentTimeMillis() < stop) {
                 try {
                     sleep(200);
-                    connection = connectToIdleDaemon(registry.getIdle(), constraint);
+                    connection = connectToIdleDaemon(liveDaemons(registry.getIdle()), constraint);
                 } catch (InterruptedException e) {
                     throw new DaemonException.InterruptedException(e);
                 }
@@ -280,6 +281,32 @@ public class DaemonConnector {
         return connection;
     }
 
+    /**
+     * Filter out the daemons which missed too many heartbeats so that no connect timeout is spent on them.
+     * Each daemon is judged with the heartbeat interval it recorded along with its heartbeats, the daemons which
+     * did not record any are kept. The registry entries of those whose process is gone are removed.
+     */
+    List<DaemonInfo> liveDaemons(Collection<DaemonInfo> daemons) {
+        final long now = System.currentTimeMillis();
+        final List<DaemonInfo> live = new ArrayList<>(daemons.size());
+        for (DaemonInfo daemon : daemons) {
+            DaemonHeartbeats.Heartbeat heartbeat = registry.getHeartbeat(daemon.getId());
+            if (heartbeat == null || !heartbeat.isStale(now, daemon.getLastHeartbeat(), MAX_LOST_HEARTBEATS)) {
+                live.add(daemon);
+            } else if (ProcessHandle.of(daemon.getPid()).isEmpty()) {
+                LOGGER.debug("Removing dead daemon {} from the registry", daemon.getId());
+                registry.storeStopEvent(new DaemonStopEvent(daemon.getId(), now, null, "by user or operating system"));
+                registry.remove(daemon.getId());
+            } else {
+                LOGGER.debug(
+                        "Ignoring daemon {} which did not send any heartbeat for {} ms",
+                        daemon.getId(),
+                        now - Math.max(heartbeat.getTimestamp(), daemon.getLastHeartbeat()));
+            }
+        }
+        return live;
+    }
+
     private List<DaemonInfo> getCompatibleDaemons(Iterable<DaemonInfo> daemons, DaemonCompatibilitySpec constraint) {
         List<DaemonInfo> compatibleDaemons = new LinkedList<>();
         for (DaemonInfo daemon : daemons) {
@@ -452,6 +479,8 @@ public class DaemonConnector {
                             .socketFamily()
                             .orElseGet(() -> getJavaVersion() >= 16.0f ? SocketFamily.unix : SocketFamily.inet)
                             .toString());
+            Environment.MVND_HEARTBEAT_INTERVAL.addSystemProperty(
+                    args, TimeUtils.printDuration(parameters.heartbeatInterval()));
             parameters.discriminatingSystemProperties(args);
             args.add("org.codehaus.plexus.classworlds.launcher.Launcher");
             command = String.join(" ", args);
@@ -563,6 +592,24 @@ public class DaemonConnector {
         }
     }
 
+    /**
+     * Ask the given daemon for its live metrics. Only idle daemons are able to answer, busy daemons will only
+     * handle the request once their current build is finished.
+     *
+     * @param  daemon the daemon to query
+     * @return        the status of the daemon or {@code null} if it could not be obtained
+     */
+    public Message.DaemonStatus queryStatus(DaemonInfo daemon) {
+        try (DaemonConnection connection = connect(daemon.getAddress(), daemon.getToken())) {
+            connection.dispatch(Message.BareMessage.STATUS_REQUEST_SINGLETON);
+            Message message = connection.receive();
+            return message instanceof Message.DaemonStatus status ? status : null;
+        } catch (DaemonException e) {
+            LOGGER.debug("Could not query the status of daemon {}", daemon.getId(), e);
+            return null;
+        }
+    }
+
     public DaemonConnection connect(String str, byte[] token) throws DaemonException.ConnectException {
         SocketAddress address = SocketFamily.fromString(str);
         try {
@@ -51,6 +51,7 @@ import org.mvndaemon.mvnd.common.Os;
 import org.mvndaemon.mvnd.common.OsUtils;
 import org.mvndaemon.mvnd.common.SocketFamily;
 import org.mvndaemon.mvnd.common.TimeUtils;
+import org.mvndaemon.mvnd.common.logging.AsyncLogWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -66,6 +67,12 @@ public class DaemonParameters {
     private static final String EXTENSIONS_FILENAME = ".mvn/extensions.xml";
     private static final String ENV_PREFIX = "env.";
 
+    /**
+     * Core extensions discriminators keyed by the paths, sizes and modification times of the
+     * {@code extensions.xml} files they have been computed from.
+     */
+    private static final Map<List<Object>, String> CORE_EXTENSIONS_DISCRIMINATORS = new ConcurrentHashMap<>();
+
     protected final Map<Path, Properties> mvndProperties = new ConcurrentHashMap<>();
     protected final Function<Path, Properties> provider =
             path -> mvndProperties.computeIfAbsent(path, p -> loadProperties(path));
@@ -388,6 +395,10 @@ public class DaemonParameters {
         return property(Environment.MVND_MAX_LOST_KEEP_ALIVE).orFail().asInt();
     }
 
+    public Duration heartbeatInterval() {
+        return property(Environment.MVND_HEARTBEAT_INTERVAL).orFail().asDuration();
+    }
+
     public boolean noBuffering() {
         return property(Environment.MVND_NO_BUFERING).orFail().asBoolean();
     }
@@ -396,10 +407,56 @@ public class DaemonParameters {
         return property(Environment.MVND_ROLLING_WINDOW_SIZE).orFail().asInt();
     }
 
+    public int maxFrameRate() {
+        return property(Environment.MVND_MAX_FRAME_RATE).orFail().asInt();
+    }
+
+    public int logQueueSize() {
+        return property(Environment.MVND_LOG_QUEUE_SIZE).orFail().asInt();
+    }
+
+    public AsyncLogWriter.Fsync logFileFsync() {
+        return AsyncLogWriter.Fsync.of(property(Environment.MVND_LOG_FILE_FSYNC).orFail().asString());
+    }
+
+    public AsyncLogWriter.Overflow logFileOverflow() {
+        return AsyncLogWriter.Overflow.of(property(Environment.MVND_LOG_FILE_OVERFLOW).orFail().asString());
+    }
+
+    /**
+     * @return the format of the events written instead of rendering the build on the terminal or {@code null}
+     */
+    public String eventOutput() {
+        return property(Environment.MVND_EVENT_OUTPUT).asString();
+    }
+
+    public Path eventOutputFile() {
+        return property(Environment.MVND_EVENT_OUTPUT_FILE).asPath();
+    }
+
+    /**
+     * @return the directory to write per-project log files to or {@code null}
+     */
+    public Path projectLogDirectory() {
+        return property(Environment.MVND_PROJECT_LOG_DIRECTORY).asPath();
+    }
+
+    public int projectLogMaxOpenFiles() {
+        return property(Environment.MVND_PROJECT_LOG_MAX_OPEN_FILES).orFail().asInt();
+    }
+
+    public boolean logTails() {
+        return property(Environment.MVND_LOG_TAILS).orFail().asBoolean();
+    }
+
     public Duration purgeLogPeriod() {
         return property(Environment.MVND_LOG_PURGE_PERIOD).orFail().asDuration();
     }
 
+    public Duration stopEventsRetention() {
+        return property(Environment.MVND_STOP_EVENTS_RETENTION).orFail().asDuration();
+    }
+
     public Optional<SocketFamily> socketFamily() {
         return property(Environment.MVND_SOCKET_FAMILY).asOptional().map(SocketFamily::valueOf);
     }
@@ -496,6 +553,19 @@ public class DaemonParameters {
                     .toAbsolutePath()
                     .normalize();
 
+            List<Object> key = new ArrayList<>();
+            for (Path path : List.of(projectExtensionsXml, userExtensionsXml, installationExtensionsXml)) {
+                key.add(path);
+                if (Files.exists(path)) {
+                    key.add(Files.size(path));
+                    key.add(Files.getLastModifiedTime(path));
+                }
+            }
+            String cached = CORE_EXTENSIONS_DISCRIMINATORS.get(key);
+            if (cached != null) {
+                return cached;
+            }
+
             String blob = "";
             if (Files.exists(projectExtensionsXml)) {
                 blob += projectExtensionsXml.toString();
@@ -511,13 +581,16 @@ public class DaemonParameters {
             }
             MessageDigest digest = MessageDigest.getInstance("SHA-1");
             digest.update(blob.getBytes(StandardCharsets.UTF_8));
-            return HexFormat.of().formatHex(digest.digest());
+            String discriminator = HexFormat.of().formatHex(digest.digest());
+            CORE_EXTENSIONS_DISCRIMINATORS.put(key, discriminator);
+            return discriminator;
         } catch (Exception e) {
             throw new IllegalStateException("Cannot calculate core extensions discriminator", e);
         }
     }
 
     private static Properties loadProperties(Path path) {
+        final long start = System.nanoTime();
         Properties result = new Properties();
         if (Files.exists(path)) {
             try (InputStream in = Files.newInputStream(path)) {
@@ -530,6 +603,7 @@ public class DaemonParameters {
                 throw new RuntimeException("Could not read " + path);
             }
         }
+        ClientTimings.accumulate("properties loading", System.nanoTime() - start);
         return result;
     }
 
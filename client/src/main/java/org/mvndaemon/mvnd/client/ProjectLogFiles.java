@@ -0,0 +1,475 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.client;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import org.jline.utils.AttributedString;
+import org.mvndaemon.mvnd.common.Message;
+import org.mvndaemon.mvnd.common.Message.ProjectEvent;
+import org.mvndaemon.mvnd.common.Message.StringMessage;
+
+/**
+ * Writes the output of each project of the build to its own file as the messages arrive, together with an index
+ * file listing the projects which produced some output as they stop, with their files, line counts and start and end
+ * times in milliseconds relative to the start of the build. The log files listed in the index of the previous build
+ * and that index are deleted when the build starts, other files of the directory are left alone. The times are taken
+ * when the messages are received rather than when they are written.
+ * <p>
+ * The files are written by a dedicated thread, so that a slow disk does not stall the thread receiving the messages
+ * from the daemon. Only a bounded number of files are kept open at the same time: the least recently written file is
+ * closed when another one has to be opened and reopened in append mode if needed. Each open file has a buffer taken
+ * from a pool shared by all the files, so that builds with thousands of modules neither exhaust the file descriptors
+ * nor the memory.
+ */
+public class ProjectLogFiles implements AutoCloseable {
+
+    public static final String INDEX_FILE = "index.tsv";
+    static final String INDEX_HEADER = "project\tfile\tstart_ms\tend_ms\tlines\n";
+    static final int BUFFER_SIZE = 16 * 1024;
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final Object CLOSE = new Object();
+
+    private final Path directory;
+    private final int maxOpenFiles;
+    private final long start;
+    /** The file of each project seen so far, assigned by the receiving thread */
+    private final Map<String, Path> files = new ConcurrentHashMap<>();
+    private final Set<String> fileNames = new HashSet<>();
+    private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread writer;
+    private volatile Exception failure;
+    private boolean closed;
+
+    /*
+     * The following fields are only accessed by the writer thread
+     */
+    /** All the projects seen so far, in the order they started */
+    private final Map<String, ProjectFile> projects = new LinkedHashMap<>();
+    /** The projects whose file is currently open, the least recently written first */
+    private final LinkedHashMap<String, ProjectFile> open = new LinkedHashMap<>(16, 0.75f, true);
+    private final ArrayDeque<ByteBuffer> buffers = new ArrayDeque<>();
+    private FileChannel index;
+
+    /**
+     * Messages received together, with the time they were received at relative to the start of the build.
+     */
+    static class Batch {
+        final long time;
+        final List<Message> messages;
+
+        Batch(long time, List<Message> messages) {
+            this.time = time;
+            this.messages = messages;
+        }
+    }
+
+    static class ProjectFile {
+        final String projectId;
+        final Path path;
+        final long start;
+        long end = -1;
+        long lines;
+        FileChannel channel;
+        ByteBuffer buffer;
+        boolean created;
+
+        ProjectFile(String projectId, Path path, long start) {
+            this.projectId = projectId;
+            this.path = path;
+            this.start = start;
+        }
+    }
+
+    /**
+     * @param directory    the directory to write the files to
+     * @param maxOpenFiles the maximum number of files open at the same time
+     */
+    public ProjectLogFiles(Path directory, int maxOpenFiles) {
+        this.directory = directory;
+        this.maxOpenFiles = Math.max(1, maxOpenFiles);
+        this.start = System.currentTimeMillis();
+        this.writer = new Thread(this::run, "mvnd-project-logs");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public void accept(List<Message> messages) {
+        List<Message> batch = null;
+        for (Message message : messages) {
+            if (prepare(message)) {
+                if (batch == null) {
+                    batch = new ArrayList<>();
+                }
+                batch.add(message);
+            }
+        }
+        if (batch != null) {
+            checkFailure();
+            put(new Batch(System.currentTimeMillis() - start, batch));
+        }
+    }
+
+    public void accept(Message message) {
+        if (prepare(message)) {
+            checkFailure();
+            put(new Batch(System.currentTimeMillis() - start, List.of(message)));
+        }
+    }
+
+    /**
+     * @return the file holding the output of the given project or {@code null} if the project has not been seen
+     */
+    public Path getFile(String projectId) {
+        return files.get(projectId);
+    }
+
+    /**
+     * Wait until the messages accepted so far are written.
+     */
+    void sync() {
+        if (closed) {
+            return;
+        }
+        final CountDownLatch latch = new CountDownLatch(1);
+        put(latch);
+        boolean interrupted = false;
+        while (latch.getCount() > 0) {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        checkFailure();
+    }
+
+    /**
+     * @return the number of files currently open, only meaningful after {@link #sync()}
+     */
+    int openFiles() {
+        synchronized (open) {
+            return open.size();
+        }
+    }
+
+    /**
+     * Write the pending messages, close all the files and add the projects which have not stopped to the index, with
+     * an end time of -1.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        put(CLOSE);
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        final Exception e = failure;
+        if (e != null) {
+            throw e instanceof IOException ioe ? ioe : new IOException("Could not write the project logs", e);
+        }
+    }
+
+    /**
+     * Assign the file of the project the given message is about, so that {@link #getFile(String)} does not depend on
+     * the progress of the writer.
+     *
+     * @return {@code true} if the message has to be passed to the writer
+     */
+    private boolean prepare(Message message) {
+        switch (message.getType()) {
+            case Message.PROJECT_STARTED:
+                assignFile(((StringMessage) message).getMessage());
+                return true;
+            case Message.PROJECT_LOG_MESSAGE:
+                assignFile(((ProjectEvent) message).getProjectId());
+                return true;
+            case Message.PROJECT_STOPPED:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void assignFile(String projectId) {
+        if (!files.containsKey(projectId)) {
+            files.put(projectId, directory.resolve(fileName(projectId)));
+        }
+    }
+
+    private String fileName(String projectId) {
+        final String base = projectId.replaceAll("[^A-Za-z0-9._-]", "_");
+        String name = base + ".log";
+        for (int i = 2; !fileNames.add(name) || INDEX_FILE.equals(name); i++) {
+            name = base + "-" + i + ".log";
+        }
+        return name;
+    }
+
+    /**
+     * Queue the given item, waiting for room if needed. Interrupts are deferred until the item is queued, so that
+     * a canceled build does not lose the end of its logs.
+     */
+    private void put(Object o) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(o);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void checkFailure() {
+        final Exception e = failure;
+        if (e != null) {
+            throw new RuntimeException("Could not write the project logs to " + directory, e);
+        }
+    }
+
+    private void run() {
+        try {
+            open();
+        } catch (IOException | RuntimeException e) {
+            failure = e;
+        }
+        final List<Object> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch);
+            for (Object o : batch) {
+                if (o instanceof Batch b) {
+                    if (failure == null) {
+                        try {
+                            for (Message message : b.messages) {
+                                write(message, b.time);
+                            }
+                        } catch (IOException | RuntimeException e) {
+                            failure = e;
+                        }
+                    }
+                } else if (o instanceof CountDownLatch latch) {
+                    latch.countDown();
+                } else if (o == CLOSE) {
+                    try {
+                        closeFiles();
+                    } catch (IOException | RuntimeException e) {
+                        if (failure == null) {
+                            failure = e;
+                        }
+                    }
+                    return;
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Delete the files listed in the index of the previous build and start the index.
+     */
+    private void open() throws IOException {
+        Files.createDirectories(directory);
+        final Path previous = directory.resolve(INDEX_FILE);
+        if (Files.isRegularFile(previous)) {
+            final List<String> lines = Files.readAllLines(previous, StandardCharsets.UTF_8);
+            for (String line : lines.subList(Math.min(1, lines.size()), lines.size())) {
+                final String[] columns = line.split("\t");
+                // only plain file names written by this class
+                if (columns.length > 1 && columns[1].endsWith(".log") && columns[1].matches("[A-Za-z0-9._-]+")) {
+                    Files.deleteIfExists(directory.resolve(columns[1]));
+                }
+            }
+        }
+        index = FileChannel.open(
+                directory.resolve(INDEX_FILE),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        writeFully(index, ByteBuffer.wrap(INDEX_HEADER.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private void write(Message message, long time) throws IOException {
+        switch (message.getType()) {
+            case Message.PROJECT_STARTED:
+                project(((StringMessage) message).getMessage(), time);
+                break;
+            case Message.PROJECT_LOG_MESSAGE: {
+                final ProjectEvent event = (ProjectEvent) message;
+                write(project(event.getProjectId(), time), event.getMessage());
+                break;
+            }
+            case Message.PROJECT_STOPPED: {
+                final ProjectFile project = projects.get(((StringMessage) message).getMessage());
+                if (project != null && project.end < 0) {
+                    project.end = time;
+                    close(project);
+                    writeIndex(project);
+                }
+                break;
+            }
+        }
+    }
+
+    private void closeFiles() throws IOException {
+        try {
+            for (ProjectFile project : projects.values()) {
+                if (project.end < 0) {
+                    close(project);
+                    writeIndex(project);
+                }
+            }
+        } finally {
+            if (index != null) {
+                index.close();
+            }
+        }
+    }
+
+    private void writeIndex(ProjectFile project) throws IOException {
+        if (project.lines == 0) {
+            return;
+        }
+        final String line = project.projectId + '\t' + project.path.getFileName() + '\t' + project.start + '\t'
+                + project.end + '\t' + project.lines + '\n';
+        writeFully(index, ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private ProjectFile project(String projectId, long time) {
+        ProjectFile project = projects.get(projectId);
+        if (project == null) {
+            project = new ProjectFile(projectId, files.get(projectId), time);
+            projects.put(projectId, project);
+        }
+        return project;
+    }
+
+    private void write(ProjectFile project, String message) throws IOException {
+        if (project.channel == null) {
+            openFile(project);
+        } else {
+            synchronized (open) {
+                // mark as the most recently used
+                open.get(project.projectId);
+            }
+        }
+        final byte[] bytes = (AttributedString.stripAnsi(message) + "\n").getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer buffer = project.buffer;
+        if (bytes.length > buffer.remaining()) {
+            flush(project);
+            if (bytes.length > buffer.capacity()) {
+                writeFully(project.channel, ByteBuffer.wrap(bytes));
+                project.lines++;
+                return;
+            }
+        }
+        buffer.put(bytes);
+        project.lines++;
+    }
+
+    private void openFile(ProjectFile project) throws IOException {
+        final ProjectFile eldest;
+        synchronized (open) {
+            eldest = open.size() >= maxOpenFiles ? open.values().iterator().next() : null;
+        }
+        if (eldest != null) {
+            close(eldest);
+        }
+        project.channel = FileChannel.open(
+                project.path,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                project.created ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+        project.created = true;
+        final ByteBuffer buffer = buffers.poll();
+        project.buffer = buffer != null ? buffer : ByteBuffer.allocateDirect(BUFFER_SIZE);
+        synchronized (open) {
+            open.put(project.projectId, project);
+        }
+    }
+
+    private void close(ProjectFile project) throws IOException {
+        if (project.channel != null) {
+            try {
+                flush(project);
+                project.channel.close();
+            } finally {
+                synchronized (open) {
+                    open.remove(project.projectId);
+                }
+                project.channel = null;
+                project.buffer.clear();
+                buffers.push(project.buffer);
+                project.buffer = null;
+            }
+        }
+    }
+
+    private static void flush(ProjectFile project) throws IOException {
+        project.buffer.flip();
+        writeFully(project.channel, project.buffer);
+        project.buffer.clear();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
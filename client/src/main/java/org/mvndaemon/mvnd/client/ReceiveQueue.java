@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.client;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.mvndaemon.mvnd.common.Message;
+
+/**
+ * The queue between the thread receiving messages from the daemon and the thread rendering them.
+ * <p>
+ * Messages are stored in fixed size chunks linked together, so that the queue grows without copying when the
+ * renderer falls behind and gives the memory back as soon as it catches up. Producers publish whole batches and the
+ * consumer takes everything available at once, so that the lock is acquired once per batch rather than once per
+ * message. Besides the receiver thread, a few other threads occasionally add messages (keyboard input, build
+ * cancelation), hence the lock. The queue only blocks producers when it holds more than {@code capacity} messages,
+ * to bound the memory used when the renderer cannot keep up at all.
+ */
+class ReceiveQueue {
+
+    static final int CHUNK_SIZE = 1024;
+
+    private static final class Chunk {
+        final Message[] messages = new Message[CHUNK_SIZE];
+        int tail;
+        Chunk next;
+    }
+
+    private final int capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private Chunk head = new Chunk();
+    private Chunk tail = head;
+    private int size;
+    private boolean closed;
+
+    ReceiveQueue(int capacity) {
+        this.capacity = capacity;
+    }
+
+    void add(Message message) throws InterruptedException {
+        lock.lock();
+        try {
+            awaitNotFull();
+            append(message);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void addAll(List<Message> messages) throws InterruptedException {
+        if (messages.isEmpty()) {
+            return;
+        }
+        lock.lock();
+        try {
+            awaitNotFull();
+            for (Message message : messages) {
+                append(message);
+            }
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait until at least one message is available, the queue is closed or the timeout elapses, then move all the
+     * available messages to the given list.
+     *
+     * @return the number of messages moved, {@code 0} if the timeout elapsed or {@code -1} if the queue is closed and
+     *         empty
+     */
+    int drainTo(List<Message> messages, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (size == 0) {
+                if (closed) {
+                    return -1;
+                }
+                if (nanos <= 0) {
+                    return 0;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            final int count = size;
+            while (size > 0) {
+                final Chunk c = head;
+                messages.addAll(Arrays.asList(c.messages).subList(0, c.tail));
+                size -= c.tail;
+                if (c.next != null) {
+                    head = c.next;
+                } else {
+                    // keep the last chunk for the next messages
+                    Arrays.fill(c.messages, 0, c.tail, null);
+                    c.tail = 0;
+                }
+            }
+            notFull.signalAll();
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wake up the consumer: once empty, the queue does not wait for more messages anymore.
+     */
+    void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void awaitNotFull() throws InterruptedException {
+        while (size >= capacity && !closed) {
+            notFull.await();
+        }
+    }
+
+    private void append(Message message) {
+        Chunk c = tail;
+        if (c.tail == CHUNK_SIZE) {
+            c = new Chunk();
+            tail.next = c;
+            tail = c;
+        }
+        c.messages[c.tail++] = message;
+        size++;
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.client;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.mvndaemon.mvnd.common.DaemonConnection;
+import org.mvndaemon.mvnd.common.DaemonException;
+import org.mvndaemon.mvnd.common.DaemonInfo;
+import org.mvndaemon.mvnd.common.DaemonState;
+import org.mvndaemon.mvnd.common.Message;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DaemonClientConnectionTest {
+
+    @Test
+    public void batching() throws Exception {
+        final int lines = 10_000;
+        final Received received = receive(lines, true);
+        assertEquals(lines, received.lines);
+        assertTrue(
+                received.batches < lines, "Expected the messages to be received in batches, got " + received.batches);
+    }
+
+    /**
+     * Measures how fast the log lines of a build go from the daemon to the client. Only runs with
+     * {@code -Dmvnd.benchmark=true}; the number of lines can be set using {@code -Dmvnd.benchmark.lines}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "mvnd.benchmark", matches = "true")
+    public void throughput() throws Exception {
+        final int lines = Integer.getInteger("mvnd.benchmark.lines", 1_000_000);
+        final long start = System.nanoTime();
+        final Received received = receive(lines, false);
+        final long nanos = System.nanoTime() - start;
+        assertEquals(lines, received.lines);
+        System.out.println(String.format(
+                "Received %d lines in %d batches in %d ms: %d lines/s",
+                lines,
+                received.batches,
+                TimeUnit.NANOSECONDS.toMillis(nanos),
+                lines * TimeUnit.SECONDS.toNanos(1) / nanos));
+    }
+
+    static class Received {
+        int lines;
+        int batches;
+    }
+
+    /**
+     * Send the given number of log lines from a daemon side connection and receive them on the client side.
+     *
+     * @param awaitSender whether to wait until all the lines are sent before receiving the first ones
+     */
+    private static Received receive(int count, boolean awaitSender) throws Exception {
+        final Received received = new Received();
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            final SocketChannel clientSocket = SocketChannel.open(server.getLocalAddress());
+            final DaemonConnection daemonSide = new DaemonConnection(server.accept());
+            final Thread sender = new Thread(() -> {
+                for (int i = 0; i < count; i++) {
+                    daemonSide.dispatch(Message.log("project", "[INFO] Compiling source file " + i));
+                }
+                daemonSide.dispatch(new Message.BuildFinished(0));
+            });
+            sender.start();
+            try (DaemonClientConnection client = new DaemonClientConnection(
+                    new DaemonConnection(clientSocket),
+                    daemon(),
+                    e -> true,
+                    false,
+                    parameters(Duration.ofSeconds(30)))) {
+                if (awaitSender) {
+                    sender.join();
+                }
+                loop:
+                while (true) {
+                    final List<Message> messages = client.receive();
+                    received.batches++;
+                    for (Message m : messages) {
+                        if (m.getType() == Message.BUILD_FINISHED) {
+                            break loop;
+                        }
+                        assertEquals(
+                                "[INFO] Compiling source file " + received.lines,
+                                ((Message.ProjectEvent) m).getMessage());
+                        received.lines++;
+                    }
+                }
+            } finally {
+                sender.join();
+                daemonSide.close();
+            }
+        }
+        return received;
+    }
+
+    @Test
+    public void keepAliveTimeout() throws Exception {
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            final SocketChannel clientSocket = SocketChannel.open(server.getLocalAddress());
+            final DaemonConnection daemonSide = new DaemonConnection(server.accept());
+            try (DaemonClientConnection client = new DaemonClientConnection(
+                    new DaemonConnection(clientSocket),
+                    daemon(),
+                    e -> true,
+                    false,
+                    parameters(Duration.ofMillis(100)))) {
+                daemonSide.dispatch(Message.BareMessage.KEEP_ALIVE_SINGLETON);
+                assertEquals(1, client.receive().size());
+                final long start = System.nanoTime();
+                assertThrows(DaemonException.StaleAddressException.class, client::receive);
+                assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+            } finally {
+                daemonSide.close();
+            }
+        }
+    }
+
+    @Test
+    public void receiveAfterClose() throws Exception {
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            final SocketChannel clientSocket = SocketChannel.open(server.getLocalAddress());
+            final DaemonConnection daemonSide = new DaemonConnection(server.accept());
+            try {
+                final DaemonClientConnection client = new DaemonClientConnection(
+                        new DaemonConnection(clientSocket),
+                        daemon(),
+                        e -> true,
+                        false,
+                        parameters(Duration.ofSeconds(30)));
+                daemonSide.dispatch(Message.BareMessage.KEEP_ALIVE_SINGLETON);
+                assertEquals(1, client.receive().size());
+                client.close();
+                final long start = System.nanoTime();
+                assertThrows(DaemonException.ConnectException.class, client::receive);
+                assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(30));
+            } finally {
+                daemonSide.close();
+            }
+        }
+    }
+
+    private static DaemonParameters parameters(Duration keepAlive) {
+        return new DaemonParameters() {
+            @Override
+            public Duration keepAlive() {
+                return keepAlive;
+            }
+
+            @Override
+            public int maxLostKeepAlive() {
+                return 2;
+            }
+
+            @Override
+            public Path daemonStorage() {
+                return Paths.get("target/daemon-client-connection-test");
+            }
+        };
+    }
+
+    private static DaemonInfo daemon() {
+        return new DaemonInfo(
+                "test",
+                "/java/home/",
+                "/data/reg/",
+                (int) ProcessHandle.current().pid(),
+                "inet:/127.0.0.1:7502",
+                new byte[DaemonInfo.TOKEN_SIZE],
+                Locale.getDefault().toLanguageTag(),
+                Collections.singletonList("-Xmx"),
+                DaemonState.Busy,
+                0,
+                0);
+    }
+}
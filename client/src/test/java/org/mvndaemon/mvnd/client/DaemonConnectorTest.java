@@ -18,10 +18,23 @@
  */
 package org.mvndaemon.mvnd.client;
 
+import java.io.File;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
 import org.junit.jupiter.api.Test;
+import org.mvndaemon.mvnd.common.DaemonInfo;
+import org.mvndaemon.mvnd.common.DaemonRegistry;
+import org.mvndaemon.mvnd.common.DaemonState;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 public class DaemonConnectorTest {
 
@@ -31,4 +44,55 @@ public class DaemonConnectorTest {
         assertNotNull(id);
         assertEquals(8, id.length());
     }
+
+    @Test
+    public void liveDaemons() throws Exception {
+        Path temp = File.createTempFile("reg", ".data").toPath();
+        long now = System.currentTimeMillis();
+        long stale = now - Duration.ofMinutes(1).toMillis();
+        long second = Duration.ofSeconds(1).toMillis();
+        int self = (int) ProcessHandle.current().pid();
+        // a pid that is very unlikely to exist
+        int dead = Integer.MAX_VALUE - 1;
+        try (DaemonRegistry registry = new DaemonRegistry(temp)) {
+            registry.store(daemon("alive", self, stale));
+            registry.heartbeat("alive", second, now);
+            registry.store(daemon("hung", self, stale));
+            registry.heartbeat("hung", second, stale);
+            registry.store(daemon("killed", dead, stale));
+            registry.heartbeat("killed", second, stale);
+            // judged with its own interval
+            registry.store(daemon("slow", dead, stale));
+            registry.heartbeat("slow", Duration.ofMinutes(10).toMillis(), stale);
+            // daemons without heartbeats cannot be judged
+            registry.store(daemon("unknown", dead, stale));
+            DaemonConnector connector = new DaemonConnector(new DaemonParameters(), registry);
+
+            List<DaemonInfo> live = connector.liveDaemons(registry.getAll());
+            assertEquals(
+                    Arrays.asList("alive", "slow", "unknown"),
+                    live.stream().map(DaemonInfo::getId).sorted().collect(Collectors.toList()));
+            // the entry of the hung daemon is kept as its process still exists
+            assertNotNull(registry.get("hung"));
+            assertNull(registry.get("killed"));
+            assertNull(registry.getHeartbeat("killed"));
+            assertEquals(1, registry.getStopEvents().size());
+        }
+    }
+
+    private static DaemonInfo daemon(String id, int pid, long heartbeat) {
+        return new DaemonInfo(
+                id,
+                "/java/home/",
+                "/data/reg/",
+                pid,
+                "inet:/127.0.0.1:7502",
+                new byte[DaemonInfo.TOKEN_SIZE],
+                Locale.getDefault().toLanguageTag(),
+                Collections.singletonList("-Xmx"),
+                DaemonState.Idle,
+                heartbeat,
+                heartbeat,
+                heartbeat);
+    }
 }
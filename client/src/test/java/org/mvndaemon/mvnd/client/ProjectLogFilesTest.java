@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.client;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mvndaemon.mvnd.common.Message;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ProjectLogFilesTest {
+
+    @Test
+    public void demultiplex(@TempDir Path tempDir) throws Exception {
+        final int projects = 50;
+        final Map<String, List<String>> expected = new HashMap<>();
+        final List<Path> files = new ArrayList<>();
+        try (ProjectLogFiles logs = new ProjectLogFiles(tempDir, 4)) {
+            for (int p = 0; p < projects; p++) {
+                logs.accept(Message.projectStarted("module:" + p));
+            }
+            for (int i = 0; i < 200; i++) {
+                for (int p = 0; p < projects; p++) {
+                    final String line = i % 50 == 0 ? "x".repeat(40_000) : "line " + i + " of " + p;
+                    logs.accept(Message.log("module:" + p, "\u001B[1m" + line + "\u001B[0m"));
+                    expected.computeIfAbsent("module:" + p, k -> new ArrayList<>()).add(line);
+                }
+                logs.sync();
+                assertTrue(logs.openFiles() <= 4);
+            }
+            for (int p = 0; p < projects - 1; p++) {
+                logs.accept(Message.projectStopped("module:" + p));
+            }
+            logs.sync();
+            assertEquals(1, logs.openFiles());
+            for (int p = 0; p < projects; p++) {
+                files.add(logs.getFile("module:" + p));
+            }
+        }
+        for (int p = 0; p < projects; p++) {
+            assertEquals(tempDir.resolve("module_" + p + ".log"), files.get(p));
+            assertEquals(expected.get("module:" + p), Files.readAllLines(files.get(p)));
+        }
+        final List<String> index = Files.readAllLines(tempDir.resolve(ProjectLogFiles.INDEX_FILE));
+        assertEquals(projects + 1, index.size());
+        assertEquals("project\tfile\tstart_ms\tend_ms\tlines", index.get(0));
+        assertEquals(Arrays.asList("module:0", "module_0.log"), Arrays.asList(index.get(1).split("\t")).subList(0, 2));
+        final String[] last = index.get(projects).split("\t");
+        assertEquals("module:" + (projects - 1), last[0]);
+        assertEquals("-1", last[3]);
+        assertEquals("200", last[4]);
+    }
+
+    @Test
+    public void previousBuildAndSilentProjects(@TempDir Path tempDir) throws Exception {
+        final Path dir = Files.createDirectories(tempDir.resolve("logs"));
+        final Path previous = Files.writeString(dir.resolve("removed_module.log"), "previous build");
+        Files.writeString(
+                dir.resolve(ProjectLogFiles.INDEX_FILE),
+                ProjectLogFiles.INDEX_HEADER + "removed:module\tremoved_module.log\t0\t10\t1\n"
+                        + "escaping\t../outside.log\t0\t10\t1\n");
+        final Path outside = Files.writeString(tempDir.resolve("outside.log"), "kept");
+        final Path other = Files.writeString(dir.resolve("notes.txt"), "kept");
+        final Path unlisted = Files.writeString(dir.resolve("application.log"), "kept");
+        try (ProjectLogFiles logs = new ProjectLogFiles(dir, 2)) {
+            logs.accept(Arrays.asList(
+                    Message.projectStarted("silent"),
+                    Message.projectStarted("verbose"),
+                    Message.log("verbose", "hello"),
+                    Message.projectStopped("silent"),
+                    Message.projectStopped("verbose")));
+        }
+        assertFalse(Files.exists(previous));
+        assertTrue(Files.exists(other));
+        assertTrue(Files.exists(unlisted));
+        assertTrue(Files.exists(outside));
+        assertFalse(Files.exists(dir.resolve("silent.log")));
+        assertEquals(Arrays.asList("hello"), Files.readAllLines(dir.resolve("verbose.log")));
+        final List<String> index = Files.readAllLines(dir.resolve(ProjectLogFiles.INDEX_FILE));
+        assertEquals(2, index.size());
+        assertEquals("verbose", index.get(1).split("\t")[0]);
+    }
+
+    @Test
+    public void fileNameCollisions(@TempDir Path tempDir) throws Exception {
+        try (ProjectLogFiles logs = new ProjectLogFiles(tempDir, 2)) {
+            logs.accept(Message.projectStarted("a:b"));
+            logs.accept(Message.projectStarted("a/b"));
+            logs.accept(Message.projectStarted("index.tsv"));
+            assertEquals(tempDir.resolve("a_b.log"), logs.getFile("a:b"));
+            assertEquals(tempDir.resolve("a_b-2.log"), logs.getFile("a/b"));
+            assertEquals(tempDir.resolve("index.tsv.log"), logs.getFile("index.tsv"));
+        }
+    }
+}
@@ -18,8 +18,15 @@
  */
 package org.mvndaemon.mvnd.common;
 
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Objects;
 import java.util.function.Supplier;
@@ -32,6 +39,7 @@ public class DaemonCompatibilitySpec {
 
     private final Path javaHome;
     private final List<String> options;
+    private final String discriminator;
 
     /**
      * @param javaHome make sure the Path is a result of {@link Path#toRealPath(java.nio.file.LinkOption...)}
@@ -40,6 +48,29 @@ public class DaemonCompatibilitySpec {
     public DaemonCompatibilitySpec(Path javaHome, List<String> options) {
         this.javaHome = Objects.requireNonNull(javaHome, "javaHome");
         this.options = Objects.requireNonNull(options, "options");
+        this.discriminator = discriminator(options);
+    }
+
+    /**
+     * Compute a hash of the given daemon options which does not depend on their order, so that checking whether
+     * a daemon is compatible only requires comparing two strings.
+     *
+     * @param options the daemon options
+     * @return the hex encoded SHA-256 of the sorted options
+     */
+    public static String discriminator(Collection<String> options) {
+        List<String> sorted = new ArrayList<>(options);
+        Collections.sort(sorted);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String option : sorted) {
+                digest.update(option.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Cannot compute the daemon discriminator", e);
+        }
     }
 
     public Path getJavaHome() {
@@ -50,6 +81,10 @@ public class DaemonCompatibilitySpec {
         return options;
     }
 
+    public String getDiscriminator() {
+        return discriminator;
+    }
+
     public Result isSatisfiedBy(DaemonInfo daemon) {
         if (!javaHomeMatches(daemon)) {
             return new Result(false, () -> "Java home is different.\n" + diff(daemon));
@@ -71,7 +106,8 @@ public class DaemonCompatibilitySpec {
     }
 
     private boolean daemonOptsMatch(DaemonInfo daemon) {
-        return daemon.getOptions().containsAll(options) && daemon.getOptions().size() == options.size();
+        // the full options are only compared when explaining the difference, see diff()
+        return discriminator.equals(daemon.getDiscriminator());
     }
 
     private boolean javaHomeMatches(DaemonInfo daemon) {
@@ -27,6 +27,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
 import java.nio.channels.ClosedSelectorException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
@@ -90,6 +91,35 @@ public class DaemonConnection implements AutoCloseable {
         }
     }
 
+    /**
+     * Wait for a message, then decode all the messages already received from the socket without waiting, so that
+     * whole socket buffers are decoded at once.
+     *
+     * @param  messages    the list to add the received messages to
+     * @param  maxMessages the maximum number of messages to add
+     * @return             {@code false} if the end of the stream has been reached
+     */
+    public boolean receive(List<Message> messages, int maxMessages) throws DaemonException.MessageIOException {
+        int count = 0;
+        do {
+            final Message message = receive();
+            if (message == null) {
+                return false;
+            }
+            messages.add(message);
+        } while (++count < maxMessages && available() > 0);
+        return true;
+    }
+
+    private int available() throws DaemonException.MessageIOException {
+        try {
+            return input.available();
+        } catch (IOException e) {
+            throw new DaemonException.RecoverableMessageIOException(
+                    String.format("Could not read message from '%s'.", remoteAddress), e);
+        }
+    }
+
     private static boolean isEndOfStream(Exception e) {
         if (e instanceof EOFException) {
             return true;
@@ -162,10 +192,18 @@ public class DaemonConnection implements AutoCloseable {
             this.socket = socket;
             selector = Selector.open();
             socket.register(selector, SelectionKey.OP_READ);
-            buffer = ByteBuffer.allocateDirect(4096);
+            buffer = ByteBuffer.allocateDirect(64 * 1024);
             BufferCaster.cast(buffer).limit(0);
         }
 
+        /**
+         * @return the number of bytes already received from the socket
+         */
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+
         @Override
         public int read() throws IOException {
             int nread = read(readBuffer, 0, 1);
@@ -182,21 +220,24 @@ public class DaemonConnection implements AutoCloseable {
             }
 
             if (buffer.remaining() == 0) {
-                try {
-                    selector.select();
-                } catch (ClosedSelectorException e) {
-                    return -1;
-                }
-                if (!selector.isOpen()) {
-                    return -1;
-                }
-
                 BufferCaster.cast(buffer).clear();
                 int nread;
                 try {
+                    // read what the socket already holds before waiting for more
                     nread = socket.read(buffer);
+                    while (nread == 0) {
+                        try {
+                            selector.select();
+                        } catch (ClosedSelectorException e) {
+                            return -1;
+                        }
+                        if (!selector.isOpen()) {
+                            return -1;
+                        }
+                        nread = socket.read(buffer);
+                    }
                 } catch (IOException e) {
-                    if (isEndOfStream(e)) {
+                    if (isEndOfStream(e) || e instanceof ClosedChannelException) {
                         BufferCaster.cast(buffer).position(0);
                         BufferCaster.cast(buffer).limit(0);
                         return -1;
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.common;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The heartbeats of the daemons, kept next to the {@link DaemonRegistry} file.
+ * <p>
+ * Each daemon owns a fixed size slot file holding its heartbeat interval and the time of its last heartbeat, so that
+ * a heartbeat only overwrites these few bytes instead of rewriting the whole registry under its lock, and clients
+ * judge each daemon with the interval it actually uses.
+ */
+public class DaemonHeartbeats {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DaemonHeartbeats.class);
+
+    static final int SLOT_SIZE = 2 * Long.BYTES;
+    private static final String SUFFIX = ".heartbeat";
+
+    private final Path directory;
+
+    public DaemonHeartbeats(Path directory) {
+        this.directory = directory;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * The last heartbeat of a daemon.
+     */
+    public static class Heartbeat {
+        private final long intervalMs;
+        private final long timestamp;
+
+        public Heartbeat(long intervalMs, long timestamp) {
+            this.intervalMs = intervalMs;
+            this.timestamp = timestamp;
+        }
+
+        public long getIntervalMs() {
+            return intervalMs;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        /**
+         * @param  now       the current time
+         * @param  lastKnown another time the daemon is known to have been alive at, e.g. its last state change
+         * @param  maxLost   the number of heartbeats the daemon can miss
+         * @return           {@code true} if the daemon missed more than {@code maxLost} heartbeats, which usually
+         *                   means the process has been killed without being able to clean up its registry entry; a
+         *                   heartbeat in the future, e.g. after the wall clock went backwards, is never stale
+         */
+        public boolean isStale(long now, long lastKnown, int maxLost) {
+            return now - Math.max(timestamp, lastKnown) > intervalMs * maxLost;
+        }
+
+        @Override
+        public String toString() {
+            return "Heartbeat{intervalMs=" + intervalMs + ", timestamp=" + timestamp + "}";
+        }
+    }
+
+    /**
+     * Record a heartbeat of the given daemon.
+     */
+    public void beat(String daemonId, long intervalMs, long timestamp) {
+        ByteBuffer buffer = ByteBuffer.allocate(SLOT_SIZE);
+        buffer.putLong(intervalMs).putLong(timestamp).flip();
+        try {
+            Files.createDirectories(directory);
+            try (FileChannel channel =
+                    FileChannel.open(slot(daemonId), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer, buffer.position());
+                }
+            }
+        } catch (IOException e) {
+            throw new DaemonException("Could not store daemon heartbeat in " + directory, e);
+        }
+    }
+
+    /**
+     * @return the last heartbeat of the given daemon or {@code null} if it did not record any
+     */
+    public Heartbeat read(String daemonId) {
+        ByteBuffer buffer = ByteBuffer.allocate(SLOT_SIZE);
+        try (FileChannel channel = FileChannel.open(slot(daemonId), StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, buffer.position()) < 0) {
+                    return null;
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            LOGGER.debug("Could not read the heartbeat of daemon {}", daemonId, e);
+            return null;
+        }
+        buffer.flip();
+        long intervalMs = buffer.getLong();
+        long timestamp = buffer.getLong();
+        return intervalMs > 0 ? new Heartbeat(intervalMs, timestamp) : null;
+    }
+
+    public void remove(String daemonId) {
+        try {
+            Files.deleteIfExists(slot(daemonId));
+        } catch (IOException e) {
+            LOGGER.debug("Could not delete the heartbeat of daemon {}", daemonId, e);
+        }
+    }
+
+    private Path slot(String daemonId) {
+        return directory.resolve(daemonId + SUFFIX);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DaemonHeartbeats[directory=%s]", directory);
+    }
+}
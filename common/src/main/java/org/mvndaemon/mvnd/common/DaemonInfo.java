@@ -39,9 +39,11 @@ public class DaemonInfo {
     private final byte[] token;
     private final String locale;
     private final List<String> options;
+    private final String discriminator;
     private final DaemonState state;
     private final long lastIdle;
     private final long lastBusy;
+    private final long lastHeartbeat;
 
     public DaemonInfo(
             String id,
@@ -55,6 +57,64 @@ public class DaemonInfo {
             DaemonState state,
             long lastIdle,
             long lastBusy) {
+        this(
+                id,
+                javaHome,
+                mavenHome,
+                pid,
+                address,
+                token,
+                locale,
+                options,
+                state,
+                lastIdle,
+                lastBusy,
+                Math.max(lastIdle, lastBusy));
+    }
+
+    public DaemonInfo(
+            String id,
+            String javaHome,
+            String mavenHome,
+            int pid,
+            String address,
+            byte[] token,
+            String locale,
+            List<String> options,
+            DaemonState state,
+            long lastIdle,
+            long lastBusy,
+            long lastHeartbeat) {
+        this(
+                id,
+                javaHome,
+                mavenHome,
+                pid,
+                address,
+                token,
+                locale,
+                options,
+                DaemonCompatibilitySpec.discriminator(options),
+                state,
+                lastIdle,
+                lastBusy,
+                lastHeartbeat);
+    }
+
+    public DaemonInfo(
+            String id,
+            String javaHome,
+            String mavenHome,
+            int pid,
+            String address,
+            byte[] token,
+            String locale,
+            List<String> options,
+            String discriminator,
+            DaemonState state,
+            long lastIdle,
+            long lastBusy,
+            long lastHeartbeat) {
         this.id = id;
         this.javaHome = javaHome;
         this.mvndHome = mavenHome;
@@ -63,9 +123,11 @@ public class DaemonInfo {
         this.token = token;
         this.locale = locale;
         this.options = options;
+        this.discriminator = discriminator;
         this.state = state;
         this.lastIdle = lastIdle;
         this.lastBusy = lastBusy;
+        this.lastHeartbeat = lastHeartbeat;
     }
 
     public String getId() {
@@ -100,6 +162,14 @@ public class DaemonInfo {
         return options;
     }
 
+    /**
+     * @return a hash of the {@link #getOptions() options} as computed by
+     *         {@link DaemonCompatibilitySpec#discriminator(java.util.Collection)}
+     */
+    public String getDiscriminator() {
+        return discriminator;
+    }
+
     public DaemonState getState() {
         return state;
     }
@@ -112,6 +182,32 @@ public class DaemonInfo {
         return lastBusy;
     }
 
+    /**
+     * @return the last time the daemon signaled it was alive when updating its registry entry, the periodic
+     *         heartbeats are stored in {@link DaemonHeartbeats}
+     */
+    public long getLastHeartbeat() {
+        return lastHeartbeat;
+    }
+
+    public DaemonInfo withHeartbeat(long heartbeat) {
+        // never go back in time, even if the wall clock does
+        return new DaemonInfo(
+                id,
+                javaHome,
+                mvndHome,
+                pid,
+                address,
+                token,
+                locale,
+                options,
+                discriminator,
+                state,
+                lastIdle,
+                lastBusy,
+                Math.max(lastHeartbeat, heartbeat));
+    }
+
     public DaemonInfo withState(DaemonState state) {
         long lb, li;
         if (this.state == Idle && state == Busy) {
@@ -124,7 +220,20 @@ public class DaemonInfo {
             li = lastIdle;
             lb = lastBusy;
         }
-        return new DaemonInfo(id, javaHome, mvndHome, pid, address, token, locale, options, state, li, lb);
+        return new DaemonInfo(
+                id,
+                javaHome,
+                mvndHome,
+                pid,
+                address,
+                token,
+                locale,
+                options,
+                discriminator,
+                state,
+                li,
+                lb,
+                lastHeartbeat);
     }
 
     @Override
@@ -152,6 +261,8 @@ public class DaemonInfo {
                 .append(", lastIdle=")
                 .append(lastIdle)
                 .append(", lastBusy=")
-                .append(lastBusy);
+                .append(lastBusy)
+                .append(", lastHeartbeat=")
+                .append(lastHeartbeat);
     }
 }
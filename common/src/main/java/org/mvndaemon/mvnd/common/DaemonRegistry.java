@@ -31,6 +31,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -49,6 +50,10 @@ import static org.mvndaemon.mvnd.common.DaemonState.Idle;
 /**
  * Access to daemon registry files. Useful also for testing.
  * <p>
+ * The registry file only holds the {@link DaemonInfo}s, stop events are stored in a {@link DaemonStopEventLog}
+ * located in the <code>[registry file name].stop-events</code> sibling directory and heartbeats in
+ * {@link DaemonHeartbeats} slots located in the <code>[registry file name].heartbeats</code> sibling directory.
+ * <p>
  * File origin:
  * https://github.com/gradle/gradle/blob/v5.6.2/subprojects/launcher/src/main/java/org/gradle/launcher/daemon/registry/DaemonRegistry.java
  * https://github.com/OpenHFT/Java-Lang/blob/master/lang/src/main/java/net/openhft/lang/io/AbstractBytes.java
@@ -62,6 +67,8 @@ public class DaemonRegistry implements AutoCloseable {
     private final Path registryFile;
     private final Object lck;
     private final FileChannel channel;
+    private final DaemonStopEventLog stopEventLog;
+    private final DaemonHeartbeats heartbeats;
 
     private final Map<String, DaemonInfo> infosMap = new HashMap<>();
     private final List<DaemonStopEvent> stopEvents = new ArrayList<>();
@@ -70,6 +77,8 @@ public class DaemonRegistry implements AutoCloseable {
         final Path absPath = registryFile.toAbsolutePath().normalize();
         this.lck = locks.computeIfAbsent(absPath, p -> new Object());
         this.registryFile = absPath;
+        this.stopEventLog = new DaemonStopEventLog(absPath.resolveSibling(absPath.getFileName() + ".stop-events"));
+        this.heartbeats = new DaemonHeartbeats(absPath.resolveSibling(absPath.getFileName() + ".heartbeats"));
         try {
             Files.createDirectories(absPath.getParent());
             channel = FileChannel.open(
@@ -119,6 +128,7 @@ public class DaemonRegistry implements AutoCloseable {
 
     public void remove(final String daemonId) {
         update(() -> infosMap.remove(daemonId));
+        heartbeats.remove(daemonId);
     }
 
     public void markState(final String daemonId, final DaemonState state) {
@@ -126,23 +136,67 @@ public class DaemonRegistry implements AutoCloseable {
         update(() -> infosMap.computeIfPresent(daemonId, (id, di) -> di.withState(state)));
     }
 
+    /**
+     * Record that the given daemon is still alive. This only writes the heartbeat slot of the daemon, the registry
+     * file itself is left untouched.
+     *
+     * @param daemonId   the id of the daemon
+     * @param intervalMs the heartbeat interval of the daemon
+     * @param timestamp  the time of the heartbeat
+     */
+    public void heartbeat(final String daemonId, final long intervalMs, final long timestamp) {
+        heartbeats.beat(daemonId, intervalMs, timestamp);
+    }
+
+    /**
+     * @return the last heartbeat of the given daemon or {@code null} if it did not record any
+     */
+    public DaemonHeartbeats.Heartbeat getHeartbeat(final String daemonId) {
+        return heartbeats.read(daemonId);
+    }
+
     public void storeStopEvent(final DaemonStopEvent stopEvent) {
         LOGGER.debug("Storing daemon stop event with timestamp {}", stopEvent.getTimestamp());
-        update(() -> stopEvents.add(stopEvent));
+        synchronized (lck) {
+            stopEventLog.append(stopEvent);
+            stopEvents.add(stopEvent);
+        }
     }
 
     public List<DaemonStopEvent> getStopEvents() {
-        read();
+        synchronized (lck) {
+            List<DaemonStopEvent> events = stopEventLog.read();
+            stopEvents.clear();
+            stopEvents.addAll(events);
+        }
+        return doGetDaemonStopEvents();
+    }
+
+    /**
+     * Get the stop events not older than the given {@code retention}, deleting the older ones from the
+     * stop event log.
+     */
+    public List<DaemonStopEvent> getStopEvents(Duration retention) {
+        synchronized (lck) {
+            List<DaemonStopEvent> events = stopEventLog.read(retention);
+            stopEvents.clear();
+            stopEvents.addAll(events);
+        }
         return doGetDaemonStopEvents();
     }
 
     protected List<DaemonStopEvent> doGetDaemonStopEvents() {
-        return new ArrayList<>(stopEvents);
+        synchronized (lck) {
+            return new ArrayList<>(stopEvents);
+        }
     }
 
     public void removeStopEvents(final Collection<DaemonStopEvent> events) {
         LOGGER.debug("Removing {} daemon stop events from registry", events.size());
-        update(() -> stopEvents.removeAll(events));
+        synchronized (lck) {
+            stopEventLog.remove(events);
+            stopEvents.removeAll(events);
+        }
     }
 
     public void store(final DaemonInfo info) {
@@ -189,26 +243,27 @@ public class DaemonRegistry implements AutoCloseable {
                     for (int j = 0; j < nbOpts; j++) {
                         opts.add(is.readUTF());
                     }
+                    String discriminator = is.readUTF();
                     DaemonState state = DaemonState.values()[is.readByte()];
                     long lastIdle = is.readLong();
                     long lastBusy = is.readLong();
+                    long lastHeartbeat = is.readLong();
                     DaemonInfo di = new DaemonInfo(
-                            daemonId, javaHome, mavenHome, pid, address, token, locale, opts, state, lastIdle,
-                            lastBusy);
+                            daemonId,
+                            javaHome,
+                            mavenHome,
+                            pid,
+                            address,
+                            token,
+                            locale,
+                            opts,
+                            discriminator,
+                            state,
+                            lastIdle,
+                            lastBusy,
+                            lastHeartbeat);
                     infosMap.putIfAbsent(di.getId(), di);
                 }
-                stopEvents.clear();
-                nb = is.available() < 4 ? 0 : is.readInt();
-                for (int i = 0; i < nb; i++) {
-                    String daemonId = is.readUTF();
-                    long date = is.readLong();
-                    int ord = is.readByte();
-                    DaemonExpirationStatus des = ord >= 0 ? DaemonExpirationStatus.values()[ord] : null;
-                    String reason = is.readUTF();
-                    DaemonStopEvent se = new DaemonStopEvent(daemonId, date, des, reason);
-                    stopEvents.add(se);
-                }
-
                 if (updater != null) {
                     updater.run();
                     channel.truncate(0);
@@ -228,17 +283,11 @@ public class DaemonRegistry implements AutoCloseable {
                         for (String opt : di.getOptions()) {
                             os.writeUTF(opt);
                         }
+                        os.writeUTF(di.getDiscriminator());
                         os.writeByte((byte) di.getState().ordinal());
                         os.writeLong(di.getLastIdle());
                         os.writeLong(di.getLastBusy());
-                    }
-                    os.writeInt(stopEvents.size());
-                    for (DaemonStopEvent dse : stopEvents) {
-                        os.writeUTF(dse.getDaemonId());
-                        os.writeLong(dse.getTimestamp());
-                        os.writeByte((byte)
-                                (dse.getStatus() == null ? -1 : dse.getStatus().ordinal()));
-                        os.writeUTF(dse.getReason());
+                        os.writeLong(di.getLastHeartbeat());
                     }
                     os.flush();
                 }
@@ -267,9 +316,11 @@ public class DaemonRegistry implements AutoCloseable {
         }
     }
 
+    /**
+     * Reset the registry file, keeping the stop event log, which does not depend on the registry file format
+     */
     private void reset() {
         infosMap.clear();
-        stopEvents.clear();
         try {
             channel.truncate(0);
         } catch (IOException e) {
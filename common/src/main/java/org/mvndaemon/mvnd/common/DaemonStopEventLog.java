@@ -0,0 +1,248 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.common;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An append-only log of {@link DaemonStopEvent}s kept next to the {@link DaemonRegistry} file.
+ * <p>
+ * Events are appended to one file per time bucket, so that storing an event never requires rewriting
+ * the registry and expired events can be dropped by simply deleting whole bucket files.
+ * Compaction happens when the events are read with a retention period, which is only done by clients.
+ */
+public class DaemonStopEventLog {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DaemonStopEventLog.class);
+
+    static final long BUCKET_MS = TimeUnit.MINUTES.toMillis(10);
+    private static final String BUCKET_PREFIX = "stop-events-";
+    private static final String BUCKET_SUFFIX = ".bin";
+
+    private final Path directory;
+
+    public DaemonStopEventLog(Path directory) {
+        this.directory = directory;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public void append(DaemonStopEvent event) {
+        try {
+            Files.createDirectories(directory);
+            Path bucket = bucketFile(event.getTimestamp() / BUCKET_MS);
+            try (FileChannel channel = FileChannel.open(
+                            bucket, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                    FileLock l = channel.lock()) {
+                write(channel, event);
+            }
+        } catch (IOException e) {
+            throw new DaemonException("Could not store daemon stop event in " + directory, e);
+        }
+    }
+
+    /**
+     * @return all the events currently stored in the log
+     */
+    public List<DaemonStopEvent> read() {
+        List<DaemonStopEvent> events = new ArrayList<>();
+        for (Path bucket : buckets()) {
+            events.addAll(readBucket(bucket));
+        }
+        return events;
+    }
+
+    /**
+     * Read the events not older than the given retention period and delete the buckets
+     * which only contain older events.
+     *
+     * @param retention how long stop events are kept
+     * @return the events not older than {@code retention}
+     */
+    public List<DaemonStopEvent> read(Duration retention) {
+        final long limit = System.currentTimeMillis() - retention.toMillis();
+        List<DaemonStopEvent> events = new ArrayList<>();
+        for (Path bucket : buckets()) {
+            long index = bucketIndex(bucket);
+            if ((index + 1) * BUCKET_MS <= limit) {
+                delete(bucket);
+            } else {
+                for (DaemonStopEvent event : readBucket(bucket)) {
+                    if (event.getTimestamp() >= limit) {
+                        events.add(event);
+                    }
+                }
+            }
+        }
+        return events;
+    }
+
+    public void remove(Collection<DaemonStopEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        Set<Long> indexes = new HashSet<>();
+        for (DaemonStopEvent event : events) {
+            indexes.add(event.getTimestamp() / BUCKET_MS);
+        }
+        for (Long index : indexes) {
+            Path bucket = bucketFile(index);
+            if (!Files.exists(bucket)) {
+                continue;
+            }
+            try (FileChannel channel = FileChannel.open(bucket, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                    FileLock l = channel.lock()) {
+                List<DaemonStopEvent> remaining = readEvents(channel);
+                if (remaining.removeAll(events)) {
+                    channel.truncate(0);
+                    for (DaemonStopEvent event : remaining) {
+                        write(channel, event);
+                    }
+                }
+            } catch (NoSuchFileException e) {
+                // deleted concurrently
+            } catch (IOException e) {
+                LOGGER.warn("Could not remove daemon stop events from {}", bucket, e);
+            }
+        }
+    }
+
+    private List<DaemonStopEvent> readBucket(Path bucket) {
+        try (FileChannel channel = FileChannel.open(bucket, StandardOpenOption.READ);
+                FileLock l = channel.lock(0, Long.MAX_VALUE, true)) {
+            return readEvents(channel);
+        } catch (NoSuchFileException e) {
+            return new ArrayList<>();
+        } catch (IOException e) {
+            LOGGER.warn("Could not read daemon stop events from {}", bucket, e);
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Each event is written with a single {@link FileChannel#write(ByteBuffer)} call so that concurrent readers
+     * never observe a partially written record unless the writer dies in the middle of it.
+     */
+    private static void write(FileChannel channel, DaemonStopEvent event) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (DataOutputStream os = new DataOutputStream(baos)) {
+            os.writeUTF(event.getDaemonId());
+            os.writeLong(event.getTimestamp());
+            os.writeByte((byte) (event.getStatus() == null ? -1 : event.getStatus().ordinal()));
+            os.writeUTF(event.getReason());
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(baos.toByteArray());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static List<DaemonStopEvent> readEvents(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+        channel.position(0);
+        while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            // read fully
+        }
+        List<DaemonStopEvent> events = new ArrayList<>();
+        DataInputStream is = new DataInputStream(new ByteArrayInputStream(buffer.array(), 0, buffer.position()));
+        try {
+            while (is.available() > 0) {
+                String daemonId = is.readUTF();
+                long date = is.readLong();
+                int ord = is.readByte();
+                DaemonExpirationStatus des = ord >= 0 ? DaemonExpirationStatus.values()[ord] : null;
+                String reason = is.readUTF();
+                events.add(new DaemonStopEvent(daemonId, date, des, reason));
+            }
+        } catch (EOFException | ArrayIndexOutOfBoundsException e) {
+            // a truncated record left by a process killed while appending: ignore the tail
+            LOGGER.debug("Ignoring truncated daemon stop event record", e);
+        }
+        return events;
+    }
+
+    private List<Path> buckets() {
+        List<Path> buckets = new ArrayList<>();
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, BUCKET_PREFIX + "*" + BUCKET_SUFFIX)) {
+                for (Path bucket : stream) {
+                    if (bucketIndex(bucket) >= 0) {
+                        buckets.add(bucket);
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.warn("Could not list daemon stop events in {}", directory, e);
+            }
+        }
+        buckets.sort(Comparator.comparingLong(DaemonStopEventLog::bucketIndex));
+        return buckets;
+    }
+
+    private Path bucketFile(long index) {
+        return directory.resolve(BUCKET_PREFIX + index + BUCKET_SUFFIX);
+    }
+
+    private static long bucketIndex(Path bucket) {
+        String name = bucket.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(BUCKET_PREFIX.length(), name.length() - BUCKET_SUFFIX.length()));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            return -1;
+        }
+    }
+
+    private static void delete(Path bucket) {
+        try {
+            Files.deleteIfExists(bucket);
+        } catch (IOException e) {
+            LOGGER.debug("Could not delete daemon stop events bucket {}", bucket, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DaemonStopEventLog[directory=%s]", directory);
+    }
+}
@@ -144,10 +144,71 @@ public enum Environment {
      * <code>-Dmvnd.noBuffering=true</code>, <code>-B</code> or <code>--batch-mode</code>.
      */
     MVND_ROLLING_WINDOW_SIZE("mvnd.rollingWindowSize", null, "0", OptionType.INTEGER, Flags.NONE),
+    /**
+     * The maximum number of times per second the client refreshes the status of the projects being built. A value
+     * <code>&lt;= 0</code> refreshes the display after each batch of messages received from the daemon.
+     */
+    MVND_MAX_FRAME_RATE("mvnd.maxFrameRate", null, 20, OptionType.INTEGER, Flags.NONE),
+    /**
+     * The maximum number of log lines waiting to be written to the log file or to the standard output by the client
+     * log writer thread.
+     */
+    MVND_LOG_QUEUE_SIZE("mvnd.logQueueSize", null, 8192, OptionType.INTEGER, Flags.NONE),
+    /**
+     * When the client forces the log file written with <code>-l</code> or <code>--log-file</code> to the storage
+     * device: <code>never</code>, upon each <code>flush</code> of the output or upon <code>close</code>.
+     */
+    MVND_LOG_FILE_FSYNC("mvnd.logFileFsync", null, "never", OptionType.STRING, Flags.NONE),
+    /**
+     * What happens when the build produces log lines faster than the client can write them to the log file:
+     * <code>block</code> waits for the writer and reports the time spent waiting at the end of the build,
+     * <code>drop</code> discards the lines and reports their number.
+     */
+    MVND_LOG_FILE_OVERFLOW("mvnd.logFileOverflow", null, "block", OptionType.STRING, Flags.NONE),
     /**
      * Daemon log files older than this value will be removed automatically.
      */
     MVND_LOG_PURGE_PERIOD("mvnd.logPurgePeriod", null, "7 days", OptionType.DURATION, Flags.NONE),
+    /**
+     * How long the client keeps the events describing why daemons were stopped. Older events are removed from the
+     * stop event log stored next to the registry.
+     */
+    MVND_STOP_EVENTS_RETENTION("mvnd.stopEventsRetention", null, "1 hour", OptionType.DURATION, Flags.NONE),
+    /**
+     * If <code>true</code>, the client prints the time spent in each of its startup phases to the standard error
+     * stream at the end of the build.
+     */
+    MVND_CLIENT_TIMINGS("mvnd.clientTimings", null, Boolean.FALSE, OptionType.BOOLEAN, Flags.NONE),
+    /**
+     * If set to <code>json</code> or <code>binary</code>, the client does not render the build on the terminal;
+     * instead, it writes every event received from the daemon either as newline-delimited JSON objects or as compact
+     * binary records to <code>mvnd.eventOutputFile</code> or to the standard output. Such streams can be summarized
+     * using <code>org.mvndaemon.mvnd.common.logging.EventStreamReader</code>.
+     */
+    MVND_EVENT_OUTPUT("mvnd.eventOutput", null, null, OptionType.STRING, Flags.OPTIONAL),
+    /**
+     * The file <code>mvnd.eventOutput</code> writes the events to; the standard output is used if not set.
+     */
+    MVND_EVENT_OUTPUT_FILE("mvnd.eventOutputFile", null, null, OptionType.PATH, Flags.OPTIONAL),
+    /**
+     * If set, the client writes the output of each project to its own file in this directory as the build goes,
+     * together with an <code>index.tsv</code> file listing the projects with their start and end times. The log
+     * files listed in the index of the previous build are deleted when the build starts.
+     */
+    MVND_PROJECT_LOG_DIRECTORY("mvnd.projectLogDirectory", null, null, OptionType.PATH, Flags.OPTIONAL),
+    /**
+     * The maximum number of per-project log files kept open at the same time when
+     * <code>mvnd.projectLogDirectory</code> is set.
+     */
+    MVND_PROJECT_LOG_MAX_OPEN_FILES("mvnd.projectLogMaxOpenFiles", null, 64, OptionType.INTEGER, Flags.NONE),
+    /**
+     * If <code>true</code> and the build is displayed with per-project buffering, the daemon keeps the log of each
+     * project until the project is done and meanwhile only streams its last lines, cut to the terminal width. This
+     * reduces the traffic and the client work for builds producing a lot of output. The full logs are still
+     * delivered when each project is done. Ignored if <code>mvnd.projectLogDirectory</code> is set, as the project
+     * log files are then written as the build goes.
+     */
+    MVND_LOG_TAILS("mvnd.logTails", null, Boolean.FALSE, OptionType.BOOLEAN, Flags.NONE),
     /**
      * If <code>true</code>, the client and daemon will run in the same JVM that exits when the build is finished;
      * otherwise the client starts/connects to a long living daemon process. This option is only available with
@@ -188,6 +249,12 @@ public enum Environment {
      * to be dead.
      */
     MVND_MAX_LOST_KEEP_ALIVE("mvnd.maxLostKeepAlive", null, 30, OptionType.INTEGER, Flags.NONE),
+    /**
+     * The period at which a daemon records that it is still alive, next to the registry. Each daemon records its
+     * interval along with its heartbeats, and clients ignore and clean up the registry entries of daemons that missed
+     * several of their heartbeats, e.g. because they were killed. Daemons with different intervals can thus be reused.
+     */
+    MVND_HEARTBEAT_INTERVAL("mvnd.heartbeatInterval", null, "5 seconds", OptionType.DURATION, Flags.NONE),
     /**
      * The minimum number of threads to use when constructing the default <code>-T</code> parameter for the daemon.
      * This value is ignored if the user passes <code>-T</code>, <code>--threads</code> or <code>-Dmvnd.threads</code>
@@ -288,6 +355,11 @@ public enum Environment {
      * Log mojos execution time at the end of the build.
      */
     MVND_BUILD_TIME("mvnd.buildTime", null, null, OptionType.BOOLEAN, Flags.NONE),
+    /**
+     * Log the hits, misses, loads, invalidations and evictions of each of the daemon caches at the end of the build,
+     * since the end of the previous build, so that the evictions done between the builds are included.
+     */
+    MVND_CACHE_REPORT("mvnd.cacheReport", null, null, OptionType.BOOLEAN, Flags.NONE),
     /**
      * Socket family to use
      */
@@ -301,10 +373,65 @@ public enum Environment {
      * <li>a maven expression, either <code>'mvn:[groupId]:[artifactId]:[version]'</code>,
      * <code>'mvn:[groupId]:[artifactId]'</code> or <code>'mvn:[artifactId]</code>'.</li>
      * </ul>
-     * This pattern will be evaluated against the full path of the dependencies, so it is usually desirable to
-     * start with <code>'glob:**&#47;'</code> to support any location of the local repository.
+     * The glob and regex patterns will be evaluated against the full path of the dependencies, so it is usually
+     * desirable to start with <code>'glob:**&#47;'</code> to support any location of the local repository. The maven
+     * expressions are matched against the coordinates of the dependencies, where <code>'*'</code> matches any
+     * groupId, artifactId or version.
      */
     MVND_PLUGIN_REALM_EVICT_PATTERN("mvnd.pluginRealmEvictPattern", null, "", OptionType.STRING, Flags.OPTIONAL),
+    /**
+     * How long the daemon reuses the last modification time and file key it read for a release artifact of the local
+     * repository cached data depends on, such as a plugin jar, before reading them again. The daemon always reads them
+     * again at the beginning of each build; a negative value means once per build, <code>0</code> means on every
+     * lookup of a cached record. Snapshot and reactor artifacts, which may be rebuilt during a build, are read on
+     * every lookup.
+     */
+    MVND_FILE_STATE_REFRESH_INTERVAL(
+            "mvnd.fileStateRefreshInterval", null, "-1", OptionType.DURATION, Flags.DISCRIMINATING),
+    /**
+     * If <code>true</code>, the daemon computes a checksum of the snapshot and reactor artifacts cached data depends
+     * on whenever their last modification time, status change time, file key or size change, and only reloads the
+     * cached data, such as plugin class realms, if their content changed.
+     */
+    MVND_FILE_CONTENT_HASHING(
+            "mvnd.fileContentHashing", null, Boolean.FALSE, OptionType.BOOLEAN, Flags.DISCRIMINATING),
+    /**
+     * The metaspace the daemon may spend on cached plugin and extension class realms, estimated from the number of
+     * classes they loaded. Once a build ends with the estimate above this budget, the least recently used realms are
+     * disposed, except for the realms used by that build. If not set, half of the <code>-XX:MaxMetaspaceSize</code>
+     * of the daemon is used if it is bounded, otherwise the realms are only disposed when the artifacts they were
+     * loaded from change. As the metaspace of the JVM is not bounded by default, realms are effectively never evicted
+     * unless this option or <code>-XX:MaxMetaspaceSize</code> is set.
+     */
+    MVND_REALM_CACHE_MAX_METASPACE(
+            "mvnd.realmCacheMaxMetaspace", null, null, OptionType.MEMORY_SIZE, Flags.DISCRIMINATING | Flags.OPTIONAL),
+    /**
+     * How the daemon notices changes of the files cached data depends on, such as plugin jars:
+     * <ul>
+     * <li><code>timestamp</code> compares the last modification time and file key of the files on lookup,</li>
+     * <li><code>watch</code> polls a file system watch service on each lookup,</li>
+     * <li><code>inotify</code> consumes file system events on a background thread, so that lookups never access the
+     * file system; this relies on inotify on Linux and may miss changes made on network file systems. The changes are
+     * applied as they happen rather than once per build, so <code>mvnd.fileStateRefreshInterval</code> does not
+     * apply,</li>
+     * <li><code>auto</code> uses <code>watch</code> on Windows and <code>timestamp</code> elsewhere.</li>
+     * </ul>
+     */
+    MVND_CACHE_INVALIDATION("mvnd.cacheInvalidation", null, "auto", OptionType.STRING, Flags.DISCRIMINATING),
+    /**
+     * If <code>true</code>, the descriptors of the release plugins loaded by a daemon are stored in a binary form
+     * under the daemon storage directory, so that new daemons do not need to resolve the plugins and parse their
+     * <code>plugin.xml</code> again. A stored descriptor is ignored once the plugin jar changes.
+     */
+    MVND_PLUGIN_DESCRIPTOR_STORE(
+            "mvnd.pluginDescriptorStore", null, Boolean.TRUE, OptionType.BOOLEAN, Flags.DISCRIMINATING),
+    /**
+     * The maximum number of plugin and extension realms a daemon sets up in the background once it is idle after its
+     * first build of a project, replaying the realms earlier daemons used the most for that project. The realms used
+     * by each project are recorded under the daemon storage directory. The replay stops as soon as a new build starts.
+     * <code>0</code> disables both the recording and the replay.
+     */
+    MVND_REALM_REPLAY("mvnd.realmReplay", null, 32, OptionType.INTEGER, Flags.DISCRIMINATING),
     /**
      * Overall timeout to connect to a daemon.
      */
@@ -466,6 +593,10 @@ public enum Environment {
         return TimeUtils.toDuration(asString());
     }
 
+    public long asMemorySize() {
+        return OsUtils.parseMemorySize(asString());
+    }
+
     public String asDaemonOpt(String value) {
         return property + "=" + type.normalize(value);
     }
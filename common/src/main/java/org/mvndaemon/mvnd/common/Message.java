@@ -65,14 +65,24 @@ public abstract class Message {
     public static final int PRINT_ERR = 26;
     public static final int REQUEST_INPUT = 27;
     public static final int INPUT_DATA = 28;
-    public static final int REQUEST_INPUT_AVAILABLE = 29;
-    public static final int INPUT_AVAILABLE_DATA = 30;
     /**
      * Live per-test progress for a project's line while surefire/failsafe run.
      * TODO: the daemon-side feed that emits this message is not implemented on mvnd-1.x yet; until it
      * lands in a follow-up commit, the client render stays dormant (no test-progress suffix is shown).
      */
     public static final int PROJECT_TEST_PROGRESS = 31;
+    public static final int STATUS_REQUEST = 32;
+    public static final int DAEMON_STATUS = 33;
+    /**
+     * The last display rows of a project, already cut to the terminal width, sent instead of the individual log lines
+     * when <code>mvnd.logTails</code> is enabled. The full log of the project follows when it is done.
+     */
+    public static final int PROJECT_LOG_TAIL = 34;
+    /**
+     * Sent by the client when it stops buffering the project logs, so that the daemon stops holding them back as
+     * per <code>mvnd.logTails</code> and sends every line as it comes.
+     */
+    public static final int FULL_PROJECT_LOGS = 35;
 
     final int type;
 
@@ -95,6 +105,7 @@ public abstract class Message {
             case MOJO_STARTED:
                 return MojoStartedEvent.read(input);
             case PROJECT_LOG_MESSAGE:
+            case PROJECT_LOG_TAIL:
             case DISPLAY:
                 return ProjectEvent.read(type, input);
             case PROJECT_TEST_PROGRESS:
@@ -132,10 +143,12 @@ public abstract class Message {
                 return RequestInput.read(input);
             case INPUT_DATA:
                 return InputData.read(input);
-            case REQUEST_INPUT_AVAILABLE:
-                return RequestInputAvailable.read(input);
-            case INPUT_AVAILABLE_DATA:
-                return InputAvailableData.read(input);
+            case STATUS_REQUEST:
+                return BareMessage.STATUS_REQUEST_SINGLETON;
+            case FULL_PROJECT_LOGS:
+                return BareMessage.FULL_PROJECT_LOGS_SINGLETON;
+            case DAEMON_STATUS:
+                return DaemonStatus.read(input);
         }
         throw new IllegalStateException("Unexpected message type: " + type);
     }
@@ -153,6 +166,8 @@ public abstract class Message {
         switch (m.getType()) {
             case KEEP_ALIVE:
             case BUILD_REQUEST:
+            case STATUS_REQUEST:
+            case DAEMON_STATUS:
                 return 0;
             case BUILD_STARTED:
                 return 1;
@@ -163,8 +178,6 @@ public abstract class Message {
             case PRINT_ERR:
             case REQUEST_INPUT:
             case INPUT_DATA:
-            case REQUEST_INPUT_AVAILABLE:
-            case INPUT_AVAILABLE_DATA:
                 return 2;
             case PROJECT_STARTED:
                 return 3;
@@ -184,6 +197,7 @@ public abstract class Message {
             case TRANSFER_FAILED:
                 return 42;
             case PROJECT_LOG_MESSAGE:
+            case PROJECT_LOG_TAIL:
                 return 50;
             case BUILD_LOG_MESSAGE:
                 return 51;
@@ -528,6 +542,8 @@ public abstract class Message {
                     return "Display";
                 case PROJECT_LOG_MESSAGE:
                     return "ProjectLogMessage";
+                case PROJECT_LOG_TAIL:
+                    return "ProjectLogTail";
                 default:
                     throw new IllegalStateException("Unexpected type " + type);
             }
@@ -791,6 +807,8 @@ public abstract class Message {
         public static final BareMessage KEEP_ALIVE_SINGLETON = new BareMessage(KEEP_ALIVE);
         public static final BareMessage STOP_SINGLETON = new BareMessage(STOP);
         public static final BareMessage CANCEL_BUILD_SINGLETON = new BareMessage(CANCEL_BUILD);
+        public static final BareMessage STATUS_REQUEST_SINGLETON = new BareMessage(STATUS_REQUEST);
+        public static final BareMessage FULL_PROJECT_LOGS_SINGLETON = new BareMessage(FULL_PROJECT_LOGS);
 
         private BareMessage(int type) {
             super(type);
@@ -807,6 +825,10 @@ public abstract class Message {
                     return "Stop";
                 case CANCEL_BUILD:
                     return "BuildCanceled";
+                case STATUS_REQUEST:
+                    return "StatusRequest";
+                case FULL_PROJECT_LOGS:
+                    return "FullProjectLogs";
                 default:
                     throw new IllegalStateException("Unexpected type " + type);
             }
@@ -1238,63 +1260,88 @@ public abstract class Message {
         }
     }
 
-    public static class RequestInputAvailable extends Message {
-
-        private final String projectId;
-
-        public static RequestInputAvailable read(DataInputStream input) throws IOException {
-            String projectId = readUTF(input);
-            return new RequestInputAvailable(projectId);
+    public static class DaemonStatus extends Message {
+
+        private final long heapUsed;
+        private final long heapMax;
+        private final long uptime;
+        private final int buildsServed;
+        private final Map<String, Integer> cacheSizes;
+
+        public static DaemonStatus read(DataInputStream input) throws IOException {
+            long heapUsed = input.readLong();
+            long heapMax = input.readLong();
+            long uptime = input.readLong();
+            int buildsServed = input.readInt();
+            Map<String, Integer> cacheSizes = new LinkedHashMap<>();
+            int nb = input.readInt();
+            for (int i = 0; i < nb; i++) {
+                String name = readUTF(input);
+                cacheSizes.put(name, input.readInt());
+            }
+            return new DaemonStatus(heapUsed, heapMax, uptime, buildsServed, cacheSizes);
         }
 
-        RequestInputAvailable(String projectId) {
-            super(REQUEST_INPUT_AVAILABLE);
-            this.projectId = projectId;
+        public DaemonStatus(
+                long heapUsed, long heapMax, long uptime, int buildsServed, Map<String, Integer> cacheSizes) {
+            super(DAEMON_STATUS);
+            this.heapUsed = heapUsed;
+            this.heapMax = heapMax;
+            this.uptime = uptime;
+            this.buildsServed = buildsServed;
+            this.cacheSizes = cacheSizes;
         }
 
-        public String getProjectId() {
-            return projectId;
+        /**
+         * @return the used heap in bytes
+         */
+        public long getHeapUsed() {
+            return heapUsed;
         }
 
-        @Override
-        public String toString() {
-            return "RequestInputAvailable{" + "projectId='" + projectId + "'}";
+        /**
+         * @return the maximum heap in bytes
+         */
+        public long getHeapMax() {
+            return heapMax;
         }
 
-        @Override
-        public void write(DataOutputStream output) throws IOException {
-            super.write(output);
-            writeUTF(output, projectId);
-        }
-    }
-
-    public static class InputAvailableData extends Message {
-
-        private final int bytesAvailable;
-
-        public static InputAvailableData read(DataInputStream input) throws IOException {
-            int bytesAvailable = input.readInt();
-            return new InputAvailableData(bytesAvailable);
+        /**
+         * @return the uptime of the daemon in milliseconds
+         */
+        public long getUptime() {
+            return uptime;
         }
 
-        InputAvailableData(int bytesAvailable) {
-            super(INPUT_AVAILABLE_DATA);
-            this.bytesAvailable = bytesAvailable;
+        public int getBuildsServed() {
+            return buildsServed;
         }
 
-        public int getBytesAvailable() {
-            return bytesAvailable;
+        /**
+         * @return the number of entries of each of the daemon caches
+         */
+        public Map<String, Integer> getCacheSizes() {
+            return cacheSizes;
         }
 
         @Override
         public String toString() {
-            return "InputAvailableData{" + "bytesAvailable='" + bytesAvailable + "'}";
+            return "DaemonStatus{" + "heapUsed=" + heapUsed + ", heapMax=" + heapMax + ", uptime=" + uptime
+                    + ", buildsServed=" + buildsServed + ", cacheSizes=" + cacheSizes + '}';
         }
 
         @Override
         public void write(DataOutputStream output) throws IOException {
             super.write(output);
-            output.writeInt(bytesAvailable);
+            output.writeLong(heapUsed);
+            output.writeLong(heapMax);
+            output.writeLong(uptime);
+            output.writeInt(buildsServed);
+            output.writeInt(cacheSizes.size());
+            for (Map.Entry<String, Integer> e : cacheSizes.entrySet()) {
+                writeUTF(output, e.getKey());
+                output.writeInt(e.getValue());
+            }
         }
     }
 
@@ -1318,14 +1365,6 @@ public abstract class Message {
         return new InputData(null);
     }
 
-    public static RequestInputAvailable requestInputAvailable(String projectId) {
-        return new RequestInputAvailable(projectId);
-    }
-
-    public static InputAvailableData inputAvailableData(int bytesAvailable) {
-        return new InputAvailableData(bytesAvailable);
-    }
-
     public static StringMessage out(String message) {
         return new StringMessage(PRINT_OUT, message);
     }
@@ -1370,6 +1409,10 @@ public abstract class Message {
                 artifactId, pluginGroupId, pluginArtifactId, pluginGoalPrefix, pluginVersion, mojo, executionId);
     }
 
+    public static ProjectEvent logTail(String projectId, List<String> rows) {
+        return new ProjectEvent(PROJECT_LOG_TAIL, projectId, String.join("\n", rows));
+    }
+
     public static ProjectEvent display(String projectId, String message) {
         return new ProjectEvent(Message.DISPLAY, projectId, message);
     }
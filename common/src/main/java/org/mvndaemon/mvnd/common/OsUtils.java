@@ -22,7 +22,11 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -30,6 +34,7 @@ import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,6 +47,8 @@ public class OsUtils {
 
     // Pattern for parsing tasklist CSV output memory column (handles "1,234 K" format)
     private static final Pattern MEMORY_PATTERN = Pattern.compile("([\\d,]+)\\s*K?");
+    // Pattern for parsing the VmRSS entry of /proc/<pid>/status
+    private static final Pattern PROC_RSS_PATTERN = Pattern.compile("(\\d+)\\s*kB");
 
     private OsUtils() {}
 
@@ -65,6 +72,34 @@ public class OsUtils {
         return kbString + UNITS.charAt(unit);
     }
 
+    /**
+     * @param  value                    an amount of memory in the format of the <code>-Xm*</code> family of HotSpot
+     *                                  JVM options, such as <code>1024m</code> or <code>2g</code>
+     * @return                          the amount of memory in bytes
+     * @throws IllegalArgumentException if {@code value} cannot be parsed
+     */
+    public static long parseMemorySize(String value) {
+        String v = value.trim();
+        int unit = v.isEmpty() ? -1 : UNITS.indexOf(Character.toLowerCase(v.charAt(v.length() - 1)));
+        if (unit > 0) {
+            v = v.substring(0, v.length() - 1);
+        } else {
+            unit = 0;
+        }
+        try {
+            long bytes = Long.parseLong(v);
+            for (int i = 0; i < unit; i++) {
+                bytes = Math.multiplyExact(bytes, KB);
+            }
+            if (bytes < 0) {
+                throw new IllegalArgumentException("Negative memory size: " + value);
+            }
+            return bytes;
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException("Invalid memory size: " + value, e);
+        }
+    }
+
     public static long findProcessRssInKb(long pid) {
         final Os os = Os.current();
         if (os.isUnixLike()) {
@@ -77,6 +112,13 @@ public class OsUtils {
     }
 
     private static long findProcessRssUnix(long pid) {
+        final Path procStatus = Paths.get("/proc", String.valueOf(pid), "status");
+        if (Files.isReadable(procStatus)) {
+            long rss = findProcessRssProc(procStatus);
+            if (rss >= 0) {
+                return rss;
+            }
+        }
         String[] cmd = {"ps", "-o", "rss=", "-p", String.valueOf(pid)};
         final List<String> output = new ArrayList<>(1);
         exec(cmd, output);
@@ -95,6 +137,26 @@ public class OsUtils {
         return -1;
     }
 
+    /**
+     * Read the resident set size from {@code /proc/<pid>/status} on Linux, which avoids forking a {@code ps}
+     * process per daemon. The {@code VmRSS} entry is used rather than {@code /proc/<pid>/statm} because it is
+     * already expressed in kB and thus does not depend on the page size.
+     */
+    static long findProcessRssProc(Path procStatus) {
+        try (Stream<String> lines = Files.lines(procStatus, StandardCharsets.US_ASCII)) {
+            return lines.filter(l -> l.startsWith("VmRSS:"))
+                    .findFirst()
+                    .map(l -> {
+                        Matcher matcher = PROC_RSS_PATTERN.matcher(l);
+                        return matcher.find() ? Long.parseLong(matcher.group(1)) : -1L;
+                    })
+                    .orElse(-1L);
+        } catch (IOException | UncheckedIOException | NumberFormatException e) {
+            LOGGER.debug("Could not read the resident set size from {}", procStatus, e);
+            return -1;
+        }
+    }
+
     private static long findProcessRssWindows(long pid) {
         // Try modern PowerShell approach first (Windows 7+ with PowerShell 2.0+)
         long result = tryPowerShellMemory(pid);
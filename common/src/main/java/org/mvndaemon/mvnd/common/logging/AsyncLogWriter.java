@@ -0,0 +1,340 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.common.logging;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes lines to a {@link WritableByteChannel} from a dedicated thread, so that slow disks do not stall the thread
+ * producing the lines. The lines are passed through a bounded queue and the writer thread encodes everything
+ * available in the queue into a single buffer before issuing a large write.
+ * <p>
+ * When the queue is full, the producer either waits, in which case the time spent waiting is accounted for, or the
+ * line is dropped and counted, depending on the {@link Overflow} policy.
+ */
+public class AsyncLogWriter implements Closeable {
+
+    /**
+     * When the written data is forced to the storage device, if the channel is a {@link FileChannel}
+     */
+    public enum Fsync {
+        /** Never, leave it to the operating system */
+        never,
+        /** Upon each {@link AsyncLogWriter#flush()} and upon close */
+        flush,
+        /** Upon close only */
+        close;
+
+        public static Fsync of(String fsync) {
+            try {
+                return valueOf(fsync.toLowerCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(
+                        "Unexpected fsync mode '" + fsync + "'; expected: 'never', 'flush' or 'close'", e);
+            }
+        }
+    }
+
+    /**
+     * What happens when a line is written while the queue is full
+     */
+    public enum Overflow {
+        /** The producer waits until there is room in the queue */
+        block,
+        /** The line is dropped */
+        drop;
+
+        public static Overflow of(String overflow) {
+            try {
+                return valueOf(overflow.toLowerCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(
+                        "Unexpected overflow policy '" + overflow + "'; expected: 'block' or 'drop'", e);
+            }
+        }
+    }
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 8192;
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final Object CLOSE = new Object();
+
+    private final String name;
+    private final WritableByteChannel channel;
+    private final Charset charset;
+    private final String lineSeparator;
+    private final boolean closeChannel;
+    private final Fsync fsync;
+    private final Overflow overflow;
+    private final BlockingQueue<Object> queue;
+    private final Thread writer;
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private long blockedNanos;
+    private volatile IOException failure;
+    private boolean closed;
+
+    /**
+     * @param name          a name for the target, used in thread names and error messages
+     * @param channel       the channel to write to
+     * @param charset       the charset to encode the lines with
+     * @param lineSeparator the string appended to each line
+     * @param closeChannel  whether {@link #close()} also closes the channel
+     * @param queueCapacity the maximum number of lines waiting to be written
+     * @param fsync         when to force the data to the storage device
+     * @param overflow      what to do when the queue is full
+     */
+    AsyncLogWriter(
+            String name,
+            WritableByteChannel channel,
+            Charset charset,
+            String lineSeparator,
+            boolean closeChannel,
+            int queueCapacity,
+            Fsync fsync,
+            Overflow overflow) {
+        this.name = name;
+        this.channel = channel;
+        this.charset = charset;
+        this.lineSeparator = lineSeparator;
+        this.closeChannel = closeChannel;
+        this.fsync = fsync;
+        this.overflow = overflow;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.writer = new Thread(this::run, "mvnd-log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queue the given line, the line separator is appended to it.
+     */
+    public void write(String line) {
+        checkFailure();
+        if (!queue.offer(line)) {
+            if (overflow == Overflow.drop) {
+                dropped.incrementAndGet();
+            } else {
+                final long start = System.nanoTime();
+                put(line);
+                blockedNanos += System.nanoTime() - start;
+            }
+        }
+    }
+
+    /**
+     * Wait until all the lines queued so far have been written.
+     */
+    public void flush() throws IOException {
+        if (closed) {
+            return;
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        final CountDownLatch latch = new CountDownLatch(1);
+        put(latch);
+        boolean interrupted = false;
+        while (latch.getCount() > 0) {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        put(CLOSE);
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * @return the number of lines dropped because the queue was full
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * @return the number of lines written so far
+     */
+    public long getWritten() {
+        return written.get();
+    }
+
+    /**
+     * @return the time the producer spent waiting for room in the queue, in milliseconds
+     */
+    public long getBlockedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(blockedNanos);
+    }
+
+    /**
+     * Queue the given item, waiting for room if needed. Interrupts are deferred until the item is queued, so that
+     * a canceled build does not lose the end of its log.
+     */
+    private void put(Object o) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(o);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new RuntimeException("Could not write to " + name, failure);
+        }
+    }
+
+    /**
+     * Write the queued lines until {@link #CLOSE} is received. After a failure, the writer keeps draining the queue
+     * without writing anything, so that the pending {@link #flush()} and {@link #close()} calls are released.
+     */
+    private void run() {
+        final CharsetEncoder encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        final List<Object> batch = new ArrayList<>();
+        boolean close = false;
+        while (!close) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch);
+            for (Object o : batch) {
+                try {
+                    if (o instanceof String line) {
+                        if (failure == null) {
+                            encode(encoder, CharBuffer.wrap(line), buffer);
+                            encode(encoder, CharBuffer.wrap(lineSeparator), buffer);
+                            written.incrementAndGet();
+                        }
+                    } else if (o instanceof CountDownLatch latch) {
+                        try {
+                            if (failure == null) {
+                                drain(buffer);
+                                if (fsync == Fsync.flush) {
+                                    force();
+                                }
+                            }
+                        } finally {
+                            latch.countDown();
+                        }
+                    } else if (o == CLOSE) {
+                        close = true;
+                    }
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            batch.clear();
+            if (failure == null) {
+                try {
+                    drain(buffer);
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+        }
+        try {
+            if (failure == null && fsync != Fsync.never) {
+                force();
+            }
+            if (closeChannel) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+    }
+
+    private void encode(CharsetEncoder encoder, CharBuffer chars, ByteBuffer buffer) throws IOException {
+        while (encoder.encode(chars, buffer, true).isOverflow()) {
+            drain(buffer);
+        }
+        encoder.reset();
+    }
+
+    private void drain(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void force() throws IOException {
+        if (channel instanceof FileChannel fileChannel) {
+            fileChannel.force(false);
+        }
+    }
+}
@@ -0,0 +1,403 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.common.logging;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.mvndaemon.mvnd.common.Message;
+import org.mvndaemon.mvnd.common.Message.BuildException;
+import org.mvndaemon.mvnd.common.Message.BuildStarted;
+import org.mvndaemon.mvnd.common.Message.ExecutionFailureEvent;
+import org.mvndaemon.mvnd.common.Message.MojoStartedEvent;
+import org.mvndaemon.mvnd.common.Message.ProjectEvent;
+import org.mvndaemon.mvnd.common.Message.ProjectTestProgressEvent;
+import org.mvndaemon.mvnd.common.Message.StringMessage;
+import org.mvndaemon.mvnd.common.Message.TransferEvent;
+
+/**
+ * A {@link ClientOutput} writing every event received from the daemon to a file or to the standard output, either
+ * as newline-delimited JSON objects or as compact binary records, without any terminal rendering. The streams can be
+ * read back using {@link EventStreamReader}.
+ * <p>
+ * Each JSON object has a {@code time} field holding the epoch milliseconds at which the event was received, a
+ * {@code type} field holding the name of the {@link Message} type and one field per property of the message.
+ * Each binary record is made of the epoch milliseconds as a {@code long} followed by the message in the format
+ * used between the client and the daemon.
+ * <p>
+ * As nobody can answer, prompts are answered with an empty string and input requests with an end of stream.
+ */
+public class EventStreamOutput implements ClientOutput {
+
+    public enum Format {
+        json,
+        binary;
+
+        public static Format of(String format) {
+            try {
+                return valueOf(format.toLowerCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(
+                        "Unexpected event output format '" + format + "'; expected: 'json' or 'binary'", e);
+            }
+        }
+    }
+
+    private final Format format;
+    private final DataOutputStream out;
+    private final boolean closeStream;
+    private volatile Consumer<Message> daemonDispatch = m -> {};
+
+    /**
+     * @param format the format of the events
+     * @param file   the file to write the events to or {@code null} to write them to the standard output
+     */
+    public EventStreamOutput(Format format, Path file) throws IOException {
+        this.format = format;
+        this.closeStream = file != null;
+        OutputStream os = file != null ? Files.newOutputStream(file) : System.out;
+        this.out = new DataOutputStream(new BufferedOutputStream(os, 64 * 1024));
+    }
+
+    @Override
+    public void setDaemonId(String daemonId) {}
+
+    @Override
+    public void setDaemonDispatch(Consumer<Message> sink) {
+        this.daemonDispatch = sink;
+    }
+
+    @Override
+    public void setDaemonReceive(Consumer<Message> sink) {}
+
+    @Override
+    public void accept(Message message) {
+        doAccept(message);
+        flush();
+    }
+
+    @Override
+    public void accept(List<Message> messages) {
+        for (Message message : messages) {
+            doAccept(message);
+        }
+        flush();
+    }
+
+    private void doAccept(Message message) {
+        switch (message.getType()) {
+            case Message.KEEP_ALIVE:
+                return;
+            case Message.PROMPT:
+                daemonDispatch.accept(((Message.Prompt) message).response(""));
+                break;
+            case Message.REQUEST_INPUT:
+                daemonDispatch.accept(Message.inputEof());
+                break;
+            case Message.INPUT_DATA:
+                daemonDispatch.accept(message);
+                return;
+        }
+        try {
+            final long time = System.currentTimeMillis();
+            if (format == Format.binary) {
+                out.writeLong(time);
+                message.write(out);
+            } else {
+                out.write(toJson(time, message).getBytes(StandardCharsets.UTF_8));
+                out.write('\n');
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write event " + message, e);
+        }
+    }
+
+    private void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new RuntimeException("Could not flush events", e);
+        }
+    }
+
+    @Override
+    public void describeTerminal() {
+        accept(Message.log("Terminal: none, writing " + format + " events"));
+    }
+
+    @Override
+    public int getTerminalWidth() {
+        return 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closeStream) {
+            out.close();
+        } else {
+            out.flush();
+        }
+    }
+
+    static String toJson(long time, Message message) {
+        StringBuilder sb = new StringBuilder(128);
+        sb.append("{\"time\":").append(time).append(",\"type\":\"").append(typeName(message.getType())).append('"');
+        fields(message).forEach((k, v) -> {
+            sb.append(",\"").append(k).append("\":");
+            if (v == null) {
+                sb.append("null");
+            } else if (v instanceof String s) {
+                appendJsonString(sb, s);
+            } else {
+                sb.append(v);
+            }
+        });
+        return sb.append('}').toString();
+    }
+
+    private static void appendJsonString(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+
+    /**
+     * @return the properties of the given message, as {@link String}, {@link Number} or {@link Boolean} values
+     */
+    static Map<String, Object> fields(Message message) {
+        final Map<String, Object> fields = new LinkedHashMap<>();
+        switch (message.getType()) {
+            case Message.BUILD_STARTED: {
+                BuildStarted m = (BuildStarted) message;
+                fields.put("projectId", m.getProjectId());
+                fields.put("projectCount", m.getProjectCount());
+                fields.put("maxThreads", m.getMaxThreads());
+                break;
+            }
+            case Message.BUILD_FINISHED:
+                fields.put("exitCode", ((Message.BuildFinished) message).getExitCode());
+                break;
+            case Message.BUILD_EXCEPTION: {
+                BuildException m = (BuildException) message;
+                fields.put("className", m.getClassName());
+                fields.put("message", m.getMessage());
+                fields.put("stackTrace", m.getStackTrace());
+                break;
+            }
+            case Message.MOJO_STARTED: {
+                MojoStartedEvent m = (MojoStartedEvent) message;
+                fields.put("projectId", m.getArtifactId());
+                fields.put("pluginGroupId", m.getPluginGroupId());
+                fields.put("pluginArtifactId", m.getPluginArtifactId());
+                fields.put("pluginGoalPrefix", m.getPluginGoalPrefix());
+                fields.put("pluginVersion", m.getPluginVersion());
+                fields.put("mojo", m.getMojo());
+                fields.put("executionId", m.getExecutionId());
+                break;
+            }
+            case Message.PROJECT_LOG_MESSAGE:
+            case Message.PROJECT_LOG_TAIL:
+            case Message.DISPLAY: {
+                ProjectEvent m = (ProjectEvent) message;
+                fields.put("projectId", m.getProjectId());
+                fields.put("message", m.getMessage());
+                break;
+            }
+            case Message.PROJECT_TEST_PROGRESS: {
+                ProjectTestProgressEvent m = (ProjectTestProgressEvent) message;
+                fields.put("projectId", m.getProjectId());
+                fields.put("testClass", m.getTestClass());
+                fields.put("testMethod", m.getTestMethod());
+                fields.put("completed", m.getCompleted());
+                fields.put("failures", m.getFailures());
+                fields.put("errors", m.getErrors());
+                fields.put("skipped", m.getSkipped());
+                break;
+            }
+            case Message.PROJECT_STARTED:
+            case Message.PROJECT_STOPPED:
+                fields.put("projectId", ((StringMessage) message).getMessage());
+                break;
+            case Message.BUILD_STATUS:
+            case Message.BUILD_LOG_MESSAGE:
+            case Message.PRINT_OUT:
+            case Message.PRINT_ERR:
+                fields.put("message", ((StringMessage) message).getMessage());
+                break;
+            case Message.TRANSFER_INITIATED:
+            case Message.TRANSFER_STARTED:
+            case Message.TRANSFER_PROGRESSED:
+            case Message.TRANSFER_CORRUPTED:
+            case Message.TRANSFER_SUCCEEDED:
+            case Message.TRANSFER_FAILED: {
+                TransferEvent m = (TransferEvent) message;
+                fields.put("projectId", m.getProjectId());
+                fields.put("requestType", requestTypeName(m.getRequestType()));
+                fields.put("repositoryId", m.getRepositoryId());
+                fields.put("repositoryUrl", m.getRepositoryUrl());
+                fields.put("resourceName", m.getResourceName());
+                fields.put("contentLength", m.getContentLength());
+                fields.put("transferredBytes", m.getTransferredBytes());
+                fields.put("exception", m.getException());
+                break;
+            }
+            case Message.EXECUTION_FAILURE: {
+                ExecutionFailureEvent m = (ExecutionFailureEvent) message;
+                fields.put("projectId", m.getProjectId());
+                fields.put("halted", m.isHalted());
+                fields.put("exception", m.getException());
+                break;
+            }
+            case Message.PROMPT: {
+                Message.Prompt m = (Message.Prompt) message;
+                fields.put("projectId", m.getProjectId());
+                fields.put("message", m.getMessage());
+                break;
+            }
+            case Message.REQUEST_INPUT: {
+                Message.RequestInput m = (Message.RequestInput) message;
+                fields.put("projectId", m.getProjectId());
+                fields.put("bytesToRead", m.getBytesToRead());
+                break;
+            }
+        }
+        return fields;
+    }
+
+    private static String requestTypeName(int requestType) {
+        switch (requestType) {
+            case TransferEvent.GET:
+                return "GET";
+            case TransferEvent.GET_EXISTENCE:
+                return "GET_EXISTENCE";
+            case TransferEvent.PUT:
+                return "PUT";
+            default:
+                return Integer.toString(requestType);
+        }
+    }
+
+    static String typeName(int type) {
+        switch (type) {
+            case Message.BUILD_REQUEST:
+                return "BUILD_REQUEST";
+            case Message.BUILD_STARTED:
+                return "BUILD_STARTED";
+            case Message.BUILD_FINISHED:
+                return "BUILD_FINISHED";
+            case Message.PROJECT_STARTED:
+                return "PROJECT_STARTED";
+            case Message.PROJECT_STOPPED:
+                return "PROJECT_STOPPED";
+            case Message.MOJO_STARTED:
+                return "MOJO_STARTED";
+            case Message.PROJECT_LOG_MESSAGE:
+                return "PROJECT_LOG_MESSAGE";
+            case Message.PROJECT_LOG_TAIL:
+                return "PROJECT_LOG_TAIL";
+            case Message.BUILD_LOG_MESSAGE:
+                return "BUILD_LOG_MESSAGE";
+            case Message.BUILD_EXCEPTION:
+                return "BUILD_EXCEPTION";
+            case Message.KEEP_ALIVE:
+                return "KEEP_ALIVE";
+            case Message.STOP:
+                return "STOP";
+            case Message.DISPLAY:
+                return "DISPLAY";
+            case Message.PROMPT:
+                return "PROMPT";
+            case Message.PROMPT_RESPONSE:
+                return "PROMPT_RESPONSE";
+            case Message.BUILD_STATUS:
+                return "BUILD_STATUS";
+            case Message.KEYBOARD_INPUT:
+                return "KEYBOARD_INPUT";
+            case Message.CANCEL_BUILD:
+                return "CANCEL_BUILD";
+            case Message.TRANSFER_INITIATED:
+                return "TRANSFER_INITIATED";
+            case Message.TRANSFER_STARTED:
+                return "TRANSFER_STARTED";
+            case Message.TRANSFER_PROGRESSED:
+                return "TRANSFER_PROGRESSED";
+            case Message.TRANSFER_CORRUPTED:
+                return "TRANSFER_CORRUPTED";
+            case Message.TRANSFER_SUCCEEDED:
+                return "TRANSFER_SUCCEEDED";
+            case Message.TRANSFER_FAILED:
+                return "TRANSFER_FAILED";
+            case Message.EXECUTION_FAILURE:
+                return "EXECUTION_FAILURE";
+            case Message.PRINT_OUT:
+                return "PRINT_OUT";
+            case Message.PRINT_ERR:
+                return "PRINT_ERR";
+            case Message.REQUEST_INPUT:
+                return "REQUEST_INPUT";
+            case Message.INPUT_DATA:
+                return "INPUT_DATA";
+            case Message.PROJECT_TEST_PROGRESS:
+                return "PROJECT_TEST_PROGRESS";
+            case Message.STATUS_REQUEST:
+                return "STATUS_REQUEST";
+            case Message.DAEMON_STATUS:
+                return "DAEMON_STATUS";
+            case Message.FULL_PROJECT_LOGS:
+                return "FULL_PROJECT_LOGS";
+            default:
+                return Integer.toString(type);
+        }
+    }
+}
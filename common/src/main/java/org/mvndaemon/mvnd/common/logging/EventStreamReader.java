@@ -0,0 +1,417 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.common.logging;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import org.mvndaemon.mvnd.common.Message;
+
+/**
+ * Reads the event streams written by {@link EventStreamOutput} in any of its formats and computes simple
+ * analytics: per mojo execution durations, transfer volumes per repository and failures.
+ * <p>
+ * Usage: {@code java -cp mvnd-common.jar org.mvndaemon.mvnd.common.logging.EventStreamReader <file>}
+ */
+public class EventStreamReader {
+
+    public static class Event {
+        private final long time;
+        private final String type;
+        private final Map<String, Object> fields;
+
+        public Event(long time, String type, Map<String, Object> fields) {
+            this.time = time;
+            this.type = type;
+            this.fields = fields;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public Map<String, Object> getFields() {
+            return fields;
+        }
+
+        public String getString(String field) {
+            Object value = fields.get(field);
+            return value != null ? value.toString() : null;
+        }
+
+        public long getLong(String field) {
+            Object value = fields.get(field);
+            return value instanceof Number n ? n.longValue() : 0;
+        }
+
+        @Override
+        public String toString() {
+            return "Event{time=" + time + ", type='" + type + "', fields=" + fields + '}';
+        }
+    }
+
+    /**
+     * Read all the events of the given stream, detecting its format from its first byte.
+     */
+    public static void read(Path file, Consumer<Event> sink) throws IOException {
+        try (InputStream is = new BufferedInputStream(Files.newInputStream(file))) {
+            read(is, sink);
+        }
+    }
+
+    public static void read(InputStream is, Consumer<Event> sink) throws IOException {
+        if (!is.markSupported()) {
+            is = new BufferedInputStream(is);
+        }
+        is.mark(1);
+        int first = is.read();
+        is.reset();
+        if (first < 0) {
+            return;
+        } else if (first == '{') {
+            readJson(is, sink);
+        } else {
+            readBinary(is, sink);
+        }
+    }
+
+    static void readJson(InputStream is, Consumer<Event> sink) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.isEmpty()) {
+                Map<String, Object> fields = new JsonParser(line).parseObject();
+                Object time = fields.remove("time");
+                Object type = fields.remove("type");
+                sink.accept(new Event(
+                        time instanceof Number n ? n.longValue() : 0, type != null ? type.toString() : null, fields));
+            }
+        }
+    }
+
+    static void readBinary(InputStream is, Consumer<Event> sink) throws IOException {
+        DataInputStream input = new DataInputStream(is);
+        while (true) {
+            final long time;
+            try {
+                time = input.readLong();
+            } catch (EOFException e) {
+                return;
+            }
+            Message message = Message.read(input);
+            if (message == null) {
+                return;
+            }
+            sink.accept(new Event(
+                    time, EventStreamOutput.typeName(message.getType()), EventStreamOutput.fields(message)));
+        }
+    }
+
+    /**
+     * A parser for the flat JSON objects written by {@link EventStreamOutput}: the values can only be strings,
+     * numbers, booleans or {@code null}.
+     */
+    static class JsonParser {
+        private final String s;
+        private int pos;
+
+        JsonParser(String s) {
+            this.s = s;
+        }
+
+        Map<String, Object> parseObject() {
+            Map<String, Object> result = new LinkedHashMap<>();
+            expect('{');
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+                return result;
+            }
+            while (true) {
+                skipWhitespace();
+                String key = parseString();
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+                result.put(key, parseValue());
+                skipWhitespace();
+                char c = next();
+                if (c == '}') {
+                    return result;
+                } else if (c != ',') {
+                    throw error("Expected ',' or '}'");
+                }
+            }
+        }
+
+        private Object parseValue() {
+            char c = peek();
+            if (c == '"') {
+                return parseString();
+            } else if (s.startsWith("null", pos)) {
+                pos += 4;
+                return null;
+            } else if (s.startsWith("true", pos)) {
+                pos += 4;
+                return Boolean.TRUE;
+            } else if (s.startsWith("false", pos)) {
+                pos += 5;
+                return Boolean.FALSE;
+            }
+            int start = pos;
+            while (pos < s.length() && "+-0123456789.eE".indexOf(s.charAt(pos)) >= 0) {
+                pos++;
+            }
+            String number = s.substring(start, pos);
+            try {
+                return number.indexOf('.') >= 0 || number.indexOf('e') >= 0 || number.indexOf('E') >= 0
+                        ? (Object) Double.parseDouble(number)
+                        : (Object) Long.parseLong(number);
+            } catch (NumberFormatException e) {
+                throw error("Invalid value");
+            }
+        }
+
+        private String parseString() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                char c = next();
+                if (c == '"') {
+                    return sb.toString();
+                } else if (c == '\\') {
+                    char e = next();
+                    switch (e) {
+                        case 'n':
+                            sb.append('\n');
+                            break;
+                        case 'r':
+                            sb.append('\r');
+                            break;
+                        case 't':
+                            sb.append('\t');
+                            break;
+                        case 'b':
+                            sb.append('\b');
+                            break;
+                        case 'f':
+                            sb.append('\f');
+                            break;
+                        case 'u':
+                            if (pos + 4 > s.length()) {
+                                throw error("Invalid unicode escape");
+                            }
+                            sb.append((char) Integer.parseInt(s.substring(pos, pos + 4), 16));
+                            pos += 4;
+                            break;
+                        default:
+                            sb.append(e);
+                    }
+                } else {
+                    sb.append(c);
+                }
+            }
+        }
+
+        private void skipWhitespace() {
+            while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private char peek() {
+            if (pos >= s.length()) {
+                throw error("Unexpected end of line");
+            }
+            return s.charAt(pos);
+        }
+
+        private char next() {
+            char c = peek();
+            pos++;
+            return c;
+        }
+
+        private void expect(char c) {
+            if (next() != c) {
+                throw error("Expected '" + c + "'");
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + pos + " in: " + s);
+        }
+    }
+
+    /**
+     * Analytics computed over a stream of events.
+     */
+    public static class Summary implements Consumer<Event> {
+        private final Map<String, Event> runningMojos = new HashMap<>();
+        private final List<MojoExecution> mojoExecutions = new ArrayList<>();
+        private final Map<String, long[]> transfers = new TreeMap<>();
+        private final List<String> failures = new ArrayList<>();
+        private long events;
+        private long start = -1;
+        private long end = -1;
+        private Integer exitCode;
+
+        public static class MojoExecution {
+            private final String projectId;
+            private final String mojo;
+            private final long duration;
+
+            MojoExecution(String projectId, String mojo, long duration) {
+                this.projectId = projectId;
+                this.mojo = mojo;
+                this.duration = duration;
+            }
+
+            public String getProjectId() {
+                return projectId;
+            }
+
+            public String getMojo() {
+                return mojo;
+            }
+
+            public long getDuration() {
+                return duration;
+            }
+        }
+
+        @Override
+        public void accept(Event event) {
+            events++;
+            if (start < 0) {
+                start = event.getTime();
+            }
+            end = event.getTime();
+            final String type = event.getType();
+            if (type == null) {
+                return;
+            }
+            switch (type) {
+                case "MOJO_STARTED":
+                    stopMojo(event.getString("projectId"), event.getTime());
+                    runningMojos.put(event.getString("projectId"), event);
+                    break;
+                case "PROJECT_STOPPED":
+                    stopMojo(event.getString("projectId"), event.getTime());
+                    break;
+                case "TRANSFER_SUCCEEDED": {
+                    long[] stats = transfers.computeIfAbsent(
+                            event.getString("repositoryId") + " " + event.getString("requestType"), k -> new long[2]);
+                    stats[0]++;
+                    stats[1] += event.getLong("transferredBytes");
+                    break;
+                }
+                case "TRANSFER_FAILED":
+                case "TRANSFER_CORRUPTED":
+                    failures.add(type + " " + event.getString("repositoryUrl") + event.getString("resourceName") + ": "
+                            + event.getString("exception"));
+                    break;
+                case "EXECUTION_FAILURE":
+                    failures.add(type + " " + event.getString("projectId") + ": " + event.getString("exception"));
+                    break;
+                case "BUILD_EXCEPTION":
+                    failures.add(type + " " + event.getString("className") + ": " + event.getString("message"));
+                    break;
+                case "BUILD_FINISHED":
+                    exitCode = (int) event.getLong("exitCode");
+                    new ArrayList<>(runningMojos.keySet()).forEach(p -> stopMojo(p, event.getTime()));
+                    break;
+            }
+        }
+
+        private void stopMojo(String projectId, long time) {
+            Event started = runningMojos.remove(projectId);
+            if (started != null) {
+                String mojo = started.getString("pluginArtifactId") + ":" + started.getString("pluginVersion") + ":"
+                        + started.getString("mojo") + " (" + started.getString("executionId") + ")";
+                mojoExecutions.add(new MojoExecution(projectId, mojo, time - started.getTime()));
+            }
+        }
+
+        public List<MojoExecution> getMojoExecutions() {
+            return Collections.unmodifiableList(mojoExecutions);
+        }
+
+        /**
+         * @return the number of succeeded transfers and the transferred bytes, keyed by repository and request type
+         */
+        public Map<String, long[]> getTransfers() {
+            return Collections.unmodifiableMap(transfers);
+        }
+
+        public List<String> getFailures() {
+            return Collections.unmodifiableList(failures);
+        }
+
+        public Integer getExitCode() {
+            return exitCode;
+        }
+
+        public void print(PrintStream out, int maxMojos) {
+            out.printf("Events: %d, duration: %d ms, exit code: %s%n", events, end - start, exitCode);
+            List<MojoExecution> slowest = new ArrayList<>(mojoExecutions);
+            slowest.sort((a, b) -> Long.compare(b.getDuration(), a.getDuration()));
+            out.printf("%nSlowest mojo executions (%d of %d):%n", Math.min(maxMojos, slowest.size()), slowest.size());
+            slowest.stream()
+                    .limit(maxMojos)
+                    .forEach(m -> out.printf("%8d ms  %s  %s%n", m.getDuration(), m.getProjectId(), m.getMojo()));
+            out.printf("%nTransfers:%n");
+            transfers.forEach((k, v) -> out.printf("%8d files %12d bytes  %s%n", v[0], v[1], k));
+            out.printf("%nFailures: %d%n", failures.size());
+            failures.forEach(f -> out.printf("  %s%n", f));
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: EventStreamReader <events file>");
+            System.exit(1);
+        }
+        Summary summary = new Summary();
+        read(Paths.get(args[0]), summary);
+        summary.print(System.out, 20);
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.common.logging;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import org.jline.utils.AttributedString;
+
+/**
+ * The log of a project being built. Only the last lines are kept in a bounded ring buffer for display purposes, while
+ * the full content is held by a {@link SpillBuffer} until the project is done.
+ */
+class ProjectLog implements Closeable {
+
+    /**
+     * A line of the displayed tail. The ANSI sequences of the line are parsed at most once and its display rows are
+     * kept for the last terminal width they were computed for.
+     */
+    static final class Line {
+        private static final AttributedString INDENT = new AttributedString("   ");
+
+        final String raw;
+        private AttributedString parsed;
+        private List<AttributedString> rows;
+        private int rowsWidth = -1;
+
+        Line(String raw) {
+            this.raw = raw;
+        }
+
+        AttributedString parsed() {
+            if (parsed == null) {
+                parsed = AttributedString.fromAnsi(raw);
+            }
+            return parsed;
+        }
+
+        /**
+         * @return the indented rows of this line, one per embedded new line, cut to the given width
+         */
+        List<AttributedString> rows(int width) {
+            if (rows == null || rowsWidth != width) {
+                final List<AttributedString> split = parsed().columnSplitLength(Integer.MAX_VALUE);
+                final List<AttributedString> result = new ArrayList<>(split.size());
+                for (AttributedString row : split) {
+                    result.add(AttributedString.join(AttributedString.EMPTY, INDENT, row).columnSubSequence(0, width));
+                }
+                rows = result;
+                rowsWidth = width;
+            }
+            return rows;
+        }
+    }
+
+    private final ArrayDeque<Line> tail;
+    private final int tailCapacity;
+    private final SpillBuffer content;
+    private int size;
+
+    /**
+     * @param tailCapacity the maximum number of lines that can be displayed
+     * @param spillFile    the file to spill the content to or {@code null} to keep it in memory
+     * @param spillWriter  the executor writing the content to the spill file
+     */
+    ProjectLog(int tailCapacity, Path spillFile, Executor spillWriter) {
+        this.tailCapacity = tailCapacity;
+        this.tail = new ArrayDeque<>(tailCapacity);
+        this.content = new SpillBuffer(spillFile, spillWriter);
+    }
+
+    void add(String line) {
+        content.add(line);
+        if (tailCapacity > 0) {
+            if (tail.size() == tailCapacity) {
+                tail.pollFirst();
+            }
+            tail.addLast(new Line(line));
+        }
+        size++;
+    }
+
+    /**
+     * Replace the displayed tail with the given rows, without adding them to the content. Used when the daemon only
+     * streams the display rows of the project, its full log coming through {@link #add(String)} once it is done.
+     */
+    void replaceTail(List<String> rows) {
+        tail.clear();
+        for (int i = Math.max(0, rows.size() - tailCapacity); i < rows.size(); i++) {
+            tail.addLast(new Line(rows.get(i)));
+        }
+        size++;
+    }
+
+    /**
+     * @return the number of changes made to this log, which only grows and thus identifies its state
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the last {@code n} lines of this log, at most the tail capacity
+     */
+    List<String> lastN(int n) {
+        List<String> result = new ArrayList<>();
+        for (Line line : lastLines(n)) {
+            result.add(line.raw);
+        }
+        return result;
+    }
+
+    /**
+     * @return the last {@code n} lines of this log with their cached display form, at most the tail capacity
+     */
+    List<Line> lastLines(int n) {
+        int count = Math.min(n, tail.size());
+        List<Line> result = new ArrayList<>(count);
+        Iterator<Line> it = tail.iterator();
+        for (int skip = tail.size() - count; skip > 0; skip--) {
+            it.next();
+        }
+        while (it.hasNext()) {
+            result.add(it.next());
+        }
+        return result;
+    }
+
+    /**
+     * Pass the full content of this log to the given consumer and clear it.
+     */
+    void drainTo(Consumer<String> consumer) {
+        content.drainTo(consumer);
+        tail.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        content.close();
+    }
+}
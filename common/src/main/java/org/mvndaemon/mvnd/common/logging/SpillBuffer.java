@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.common.logging;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * An ordered buffer of log lines. If a file is given, the lines are streamed to it instead of being kept in memory,
+ * so that the memory used by the client does not depend on the size of the build. The lines are written by chunks
+ * on the given {@link Executor}, so that a slow disk does not stall the thread adding the lines; the executor must
+ * run the chunks of a buffer in the order they are submitted.
+ */
+class SpillBuffer implements Closeable {
+
+    /** The number of lines kept in memory before they are handed over to the writer */
+    static final int CHUNK_SIZE = 256;
+
+    private final Path file;
+    private final Executor writer;
+    private List<String> lines = new ArrayList<>();
+    /** Only accessed by the writer, or after {@link #awaitWrites()} */
+    private DataOutputStream out;
+    private CompletableFuture<Void> writes = CompletableFuture.completedFuture(null);
+    private int size;
+
+    /**
+     * @param file   the file to spill the lines to or {@code null} to keep them in memory
+     * @param writer the executor writing the lines to the file
+     */
+    SpillBuffer(Path file, Executor writer) {
+        this.file = file;
+        this.writer = writer;
+    }
+
+    void add(String line) {
+        lines.add(line);
+        size++;
+        if (file != null && lines.size() >= CHUNK_SIZE) {
+            final List<String> chunk = lines;
+            lines = new ArrayList<>();
+            writes = writes.thenRunAsync(() -> write(chunk), writer);
+        }
+    }
+
+    /**
+     * @return the number of lines currently held by this buffer
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Pass all the lines to the given consumer in the order they were added and empty this buffer.
+     */
+    void drainTo(Consumer<String> consumer) {
+        if (size == 0) {
+            return;
+        }
+        if (file != null) {
+            awaitWrites();
+        }
+        if (out != null) {
+            try {
+                out.close();
+                out = null;
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                    for (int i = size - lines.size(); i > 0; i--) {
+                        byte[] bytes = new byte[in.readInt()];
+                        in.readFully(bytes);
+                        consumer.accept(new String(bytes, StandardCharsets.UTF_8));
+                    }
+                }
+                Files.delete(file);
+            } catch (IOException e) {
+                throw new RuntimeException("Could not read " + file, e);
+            }
+        }
+        lines.forEach(consumer);
+        lines.clear();
+        size = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (file != null) {
+            try {
+                awaitWrites();
+            } catch (RuntimeException e) {
+                // the file is deleted anyway
+            }
+            if (out != null) {
+                out.close();
+                out = null;
+            }
+            Files.deleteIfExists(file);
+        }
+        lines.clear();
+        size = 0;
+    }
+
+    private void write(List<String> chunk) {
+        try {
+            if (out == null) {
+                out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+            }
+            for (String line : chunk) {
+                byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write to " + file, e);
+        }
+    }
+
+    /**
+     * Wait until the chunks submitted so far are written. Interrupts are deferred, so that the log of a canceled
+     * build can still be displayed.
+     */
+    private void awaitWrites() {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    writes.get();
+                    return;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    writes = CompletableFuture.completedFuture(null);
+                    throw new RuntimeException("Could not write to " + file, e.getCause());
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -22,9 +22,11 @@ import java.io.IOException;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 import org.jline.terminal.Terminal;
+import org.jline.utils.NonBlockingReader;
 import org.mvndaemon.mvnd.common.Message;
 
 /**
@@ -36,12 +38,15 @@ import org.mvndaemon.mvnd.common.Message;
  *    - Prompts: Handling interactive prompts with user feedback
  *    - Control keys: Monitoring for special control keys in non-dumb terminals
  *
- * 2. Managing input state through InputRequest objects which specify:
+ * 2. Streaming project input to the daemon: each input request grants the client a number of characters it may send,
+ *    and the input is pushed as long as there is credit left, without waiting for the daemon to ask for each chunk.
+ *
+ * 3. Managing input state through InputRequest objects which specify:
  *    - The type of input needed (project input, prompt, or control keys)
  *    - The project requiring input
  *    - How many bytes to read
  *
- * 3. Converting input to appropriate Message objects and sending them to either:
+ * 4. Converting input to appropriate Message objects and sending them to either:
  *    - daemonDispatch: for prompt responses
  *    - daemonReceive: for project input and control keys
  *
@@ -60,6 +65,15 @@ public class TerminalInputHandler implements AutoCloseable {
     private final boolean dumb;
     private volatile int maxThreads;
 
+    /**
+     * The maximum number of characters sent in a single message
+     */
+    private static final int INPUT_CHUNK_SIZE = 16 * 1024;
+
+    private final AtomicInteger inputCredit = new AtomicInteger();
+    private volatile String inputProjectId;
+    private volatile boolean inputEof;
+
     private volatile Consumer<Message> daemonDispatch;
     private volatile Consumer<Message> daemonReceive;
 
@@ -67,36 +81,25 @@ public class TerminalInputHandler implements AutoCloseable {
         final String projectId; // null for control keys
         final Message.Prompt prompt; // non-null only for prompt requests
         final boolean isControlKey; // true for control key listening
-        final boolean isAvailableLength; // true for requesting number of available bytes
         final int bytesToRead; // max number of bytes to read
 
-        private InputRequest(
-                String projectId,
-                Message.Prompt prompt,
-                boolean isControlKey,
-                boolean isAvailableLength,
-                int bytesToRead) {
+        private InputRequest(String projectId, Message.Prompt prompt, boolean isControlKey, int bytesToRead) {
             this.projectId = projectId;
             this.prompt = prompt;
             this.isControlKey = isControlKey;
-            this.isAvailableLength = isAvailableLength;
             this.bytesToRead = bytesToRead;
         }
 
         static InputRequest forProject(String projectId, int bytesToRead) {
-            return new InputRequest(projectId, null, false, false, bytesToRead);
+            return new InputRequest(projectId, null, false, bytesToRead);
         }
 
         static InputRequest forPrompt(Message.Prompt prompt) {
-            return new InputRequest(prompt.getProjectId(), prompt, false, false, 0);
+            return new InputRequest(prompt.getProjectId(), prompt, false, 0);
         }
 
         static InputRequest forControlKeys() {
-            return new InputRequest(null, null, true, false, 0);
-        }
-
-        static InputRequest forAvailable(String projectId) {
-            return new InputRequest(projectId, null, false, true, 0);
+            return new InputRequest(null, null, true, 0);
         }
     }
 
@@ -112,19 +115,23 @@ public class TerminalInputHandler implements AutoCloseable {
                     InputRequest request = inputRequests.poll(10, TimeUnit.MILLISECONDS);
                     if (request == null) {
                         // No active request
-                        if (!dumb) {
+                        if (isStreamingInput()) {
+                            // The input belongs to the project until its end, so that no keystroke is taken for a
+                            // control key: keep streaming it, e.g. after a prompt, or wait for more credit
+                            if (inputCredit.get() > 0) {
+                                handleProjectInput(inputProjectId);
+                            }
+                        } else if (!dumb) {
                             // Only listen for control keys in non-dumb mode
                             handleControlKeys();
                         }
                     } else if (request.prompt != null) {
                         // Always handle prompts
                         handlePrompt(request.prompt);
-                    } else if (request.isAvailableLength) {
-                        handleAvailableLength();
                     } else if (request.projectId != null) {
                         // Always handle project input
-                        handleProjectInput(request.projectId, request.bytesToRead);
-                    } else if (!dumb && request.isControlKey) {
+                        handleProjectInput(request.projectId);
+                    } else if (!dumb && request.isControlKey && !isStreamingInput()) {
                         // Only handle control keys in non-dumb mode
                         handleControlKeys();
                     }
@@ -139,33 +146,58 @@ public class TerminalInputHandler implements AutoCloseable {
         inputThread.start();
     }
 
-    private void handleProjectInput(String projectId, int bytesToRead) throws IOException {
-        if (daemonReceive == null) {
+    /**
+     * @return {@code true} if a project started reading the input and its end was not reached yet
+     */
+    private boolean isStreamingInput() {
+        return inputProjectId != null && !inputEof;
+    }
+
+    /**
+     * Send the project input as long as the daemon granted credit for it, in chunks of whatever can be read without
+     * waiting more than a few milliseconds. Streaming is interrupted if another request comes in or if no input is
+     * available yet, and resumed once there is no request left. The end of the input is only sent once the reader
+     * reports it.
+     */
+    private void handleProjectInput(String projectId) throws IOException {
+        if (daemonReceive == null || projectId == null) {
             return;
         }
-        char[] buf = bytesToRead > 0 ? new char[bytesToRead] : new char[8192];
-        int idx = 0;
-        int timeout = 10; // Initial timeout for first read
-
-        while ((bytesToRead < 0 || idx < bytesToRead) && idx < buf.length) {
-            int c = terminal.reader().read(timeout);
-            if (c < 0) {
-                // End of stream reached
-                if (idx > 0) {
-                    String data = String.valueOf(buf, 0, idx);
-                    daemonReceive.accept(Message.inputResponse(data));
+        final NonBlockingReader reader = terminal.reader();
+        final char[] buf = new char[INPUT_CHUNK_SIZE];
+        while (!inputEof && inputRequests.isEmpty()) {
+            final int credit = inputCredit.get();
+            if (credit <= 0) {
+                return;
+            }
+            final int len = Math.min(credit, buf.length);
+            int idx = 0;
+            int timeout = 10; // Initial timeout for first read
+            boolean eof = false;
+            while (idx < len) {
+                int read = reader.readBuffered(buf, idx, len - idx, timeout);
+                if (read == NonBlockingReader.EOF) {
+                    // End of stream reached
+                    eof = true;
+                    break;
+                } else if (read <= 0) {
+                    // Nothing more for now, send what we have
+                    break;
                 }
-
+                idx += read;
+                timeout = 1; // Shorter timeout after first chars
+            }
+            if (idx > 0) {
+                inputCredit.addAndGet(-idx);
+                daemonReceive.accept(Message.inputResponse(String.valueOf(buf, 0, idx)));
+            }
+            if (eof) {
+                inputEof = true;
                 daemonReceive.accept(Message.inputEof());
+            } else if (idx == 0) {
+                // No input available yet, give other requests a chance before trying again
                 return;
             }
-            buf[idx++] = (char) c;
-            timeout = idx > 0 ? 1 : 10; // Shorter timeout after first char
-        }
-
-        if (idx > 0) {
-            String data = String.valueOf(buf, 0, idx);
-            daemonReceive.accept(Message.inputResponse(data));
         }
     }
 
@@ -217,17 +249,6 @@ public class TerminalInputHandler implements AutoCloseable {
         }
     }
 
-    private void handleAvailableLength() throws IOException {
-        if (daemonReceive == null) {
-            return;
-        }
-        // terminal.reader().available() will attempt to return the number of available characters using some math, but
-        // this method powers System.in.available() when called from a mojo, which needs to return the number of
-        // available bytes.
-        int available = System.in.available();
-        daemonReceive.accept(Message.inputAvailableData(available));
-    }
-
     private boolean isControlKey(int c) {
         return c == TerminalOutput.KEY_PLUS
                 || c == TerminalOutput.KEY_MINUS
@@ -254,14 +275,16 @@ public class TerminalInputHandler implements AutoCloseable {
         this.maxThreads = maxThreads;
     }
 
+    /**
+     * Grant credit for sending {@code bytesToRead} more characters of input to the daemon, which counts what it grants
+     * back in characters as well, whatever their encoding
+     */
     public void requestProjectInput(String projectId, int bytesToRead) {
-        inputRequests.clear(); // Clear any pending requests
-        inputRequests.offer(InputRequest.forProject(projectId, bytesToRead));
-    }
-
-    public void requestProjectInputAvailable(String projectId) {
-        inputRequests.clear();
-        inputRequests.offer(InputRequest.forAvailable(projectId));
+        inputProjectId = projectId;
+        if (inputCredit.getAndAdd(bytesToRead) <= 0) {
+            inputRequests.clear(); // Clear any pending requests
+            inputRequests.offer(InputRequest.forProject(projectId, bytesToRead));
+        }
     }
 
     public void requestPrompt(Message.Prompt prompt) {
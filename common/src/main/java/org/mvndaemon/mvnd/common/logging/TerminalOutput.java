@@ -19,21 +19,30 @@
 package org.mvndaemon.mvnd.common.logging;
 
 import java.io.IOException;
-import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import java.util.function.LongSupplier;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.jline.terminal.Size;
 import org.jline.terminal.Terminal;
@@ -50,7 +59,6 @@ import org.mvndaemon.mvnd.common.Message.ExecutionFailureEvent;
 import org.mvndaemon.mvnd.common.Message.MojoStartedEvent;
 import org.mvndaemon.mvnd.common.Message.ProjectEvent;
 import org.mvndaemon.mvnd.common.Message.RequestInput;
-import org.mvndaemon.mvnd.common.Message.RequestInputAvailable;
 import org.mvndaemon.mvnd.common.Message.StringMessage;
 import org.mvndaemon.mvnd.common.Message.TransferEvent;
 import org.mvndaemon.mvnd.common.OsUtils;
@@ -89,10 +97,33 @@ public class TerminalOutput implements ClientOutput {
      */
     public static final int KEY_CTRL_M = 'M' & 0x1f;
 
+    /**
+     * The maximum number of log lines that can be displayed for each project using the {@link #KEY_PLUS} key
+     */
+    private static final int MAX_LINES_PER_PROJECT = 10;
+
+    static final String SPILL_DIRECTORY_PREFIX = "client-spill-";
+
     private static final AttributedStyle GREEN_FOREGROUND = new AttributedStyle().foreground(AttributedStyle.GREEN);
     private static final AttributedStyle CYAN_FOREGROUND = new AttributedStyle().foreground(AttributedStyle.CYAN);
     private static final AttributedStyle BOLD_GREEN_FOREGROUND =
             new AttributedStyle().bold().foreground(AttributedStyle.GREEN);
+    private static final AttributedString IDLE_LINE = new AttributedStringBuilder()
+            .style(BOLD_GREEN_FOREGROUND)
+            .append("> ")
+            .style(AttributedStyle.DEFAULT.faint())
+            .append("IDLE")
+            .style(AttributedStyle.DEFAULT)
+            .toAttributedString();
+
+    /**
+     * The default maximum number of display refreshes per second
+     */
+    public static final int DEFAULT_MAX_FRAME_RATE = 20;
+    /**
+     * The display is refreshed at least once per second even if nothing changed, so that the elapsed time is updated
+     */
+    private static final long IDLE_FRAME_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
 
     private final Terminal terminal;
     private final Terminal.SignalHandler previousIntHandler;
@@ -106,6 +137,14 @@ public class TerminalOutput implements ClientOutput {
     private final long start;
     private final boolean dumb;
     private final TerminalInputHandler inputHandler;
+    /** The directory holding the spill files of this build or {@code null} if the logs are kept in memory */
+    private final Path spillDirectory;
+    /** Writes the spill files, so that the rendering does not wait for the disk, or {@code null} if not spilling */
+    private final ExecutorService spillWriter;
+    /** The minimum delay between two display refreshes, in nanoseconds */
+    private final long frameIntervalNanos;
+    /** The source of {@link System#nanoTime()} like timestamps used to limit the frame rate */
+    private final LongSupplier clock;
 
     /** A sink for sending messages back to the daemon */
     private volatile Consumer<Message> daemonDispatch;
@@ -135,6 +174,13 @@ public class TerminalOutput implements ClientOutput {
     private String buildStatus;
     private boolean displayDone = false;
     private boolean noBuffering;
+    /** {@code true} if the state has changed since the display was last refreshed */
+    private boolean dirty = true;
+    private long lastFrame;
+    private int lastRows;
+    private int lastColumns;
+    private int frames;
+    private int spillFiles;
 
     /**
      * {@link Project} is owned by the display loop thread and is accessed only from there. Therefore it does not need
@@ -144,18 +190,138 @@ public class TerminalOutput implements ClientOutput {
         final String id;
         MojoStartedEvent runningExecution;
         Message.ProjectTestProgressEvent testProgress;
-        final List<String> log = new ArrayList<>();
-
-        public Project(String id) {
+        final ProjectLog log;
+        /** The rendered project line or {@code null} if the project has changed since it was last rendered */
+        AttributedString line;
+        /** The rendered tail of {@link #log} and the log size, number of lines and width it was rendered for */
+        List<AttributedString> tail;
+        int tailLogSize = -1;
+        int tailLines = -1;
+        int tailColumns = -1;
+
+        public Project(String id, ProjectLog log) {
             this.id = id;
+            this.log = log;
         }
     }
 
     public TerminalOutput(boolean noBuffering, int rollingWindowSize, Path logFile) throws IOException {
+        this(noBuffering, rollingWindowSize, DEFAULT_MAX_FRAME_RATE, logFile, null);
+    }
+
+    /**
+     * @param noBuffering       if {@code true}, the log messages are displayed continuously
+     * @param rollingWindowSize the number of log lines to display for each project
+     * @param maxFrameRate      the maximum number of display refreshes per second, or a value {@code <= 0} to refresh
+     *                          the display after each batch of messages
+     * @param logFile           the file to write the log messages to or {@code null} to write them to the terminal
+     * @param spillDirectory    the directory in which the log messages are spilled until they can be displayed or
+     *                          {@code null} to keep them in memory
+     */
+    public TerminalOutput(
+            boolean noBuffering, int rollingWindowSize, int maxFrameRate, Path logFile, Path spillDirectory)
+            throws IOException {
+        this(
+                noBuffering,
+                rollingWindowSize,
+                maxFrameRate,
+                logFile,
+                spillDirectory,
+                AsyncLogWriter.DEFAULT_QUEUE_CAPACITY,
+                AsyncLogWriter.Fsync.never,
+                AsyncLogWriter.Overflow.block);
+    }
+
+    /**
+     * @param noBuffering       if {@code true}, the log messages are displayed continuously
+     * @param rollingWindowSize the number of log lines to display for each project
+     * @param maxFrameRate      the maximum number of display refreshes per second, or a value {@code <= 0} to refresh
+     *                          the display after each batch of messages
+     * @param logFile           the file to write the log messages to or {@code null} to write them to the terminal
+     * @param spillDirectory    the directory in which the log messages are spilled until they can be displayed or
+     *                          {@code null} to keep them in memory
+     * @param logQueueCapacity  the maximum number of log lines waiting to be written by the log writer thread
+     * @param logFileFsync      when the log file is forced to the storage device
+     * @param logFileOverflow   what happens when a line is logged while the log writer queue is full
+     */
+    public TerminalOutput(
+            boolean noBuffering,
+            int rollingWindowSize,
+            int maxFrameRate,
+            Path logFile,
+            Path spillDirectory,
+            int logQueueCapacity,
+            AsyncLogWriter.Fsync logFileFsync,
+            AsyncLogWriter.Overflow logFileOverflow)
+            throws IOException {
+        this(
+                TerminalBuilder.builder()
+                        .systemOutput(TerminalBuilder.SystemOutput.SysErr)
+                        .build(),
+                noBuffering,
+                rollingWindowSize,
+                maxFrameRate,
+                logFile,
+                spillDirectory,
+                logQueueCapacity,
+                logFileFsync,
+                logFileOverflow,
+                System::nanoTime);
+    }
+
+    TerminalOutput(
+            Terminal terminal,
+            boolean noBuffering,
+            int rollingWindowSize,
+            int maxFrameRate,
+            Path logFile,
+            Path spillDirectory,
+            LongSupplier clock)
+            throws IOException {
+        this(
+                terminal,
+                noBuffering,
+                rollingWindowSize,
+                maxFrameRate,
+                logFile,
+                spillDirectory,
+                AsyncLogWriter.DEFAULT_QUEUE_CAPACITY,
+                AsyncLogWriter.Fsync.never,
+                AsyncLogWriter.Overflow.block,
+                clock);
+    }
+
+    TerminalOutput(
+            Terminal terminal,
+            boolean noBuffering,
+            int rollingWindowSize,
+            int maxFrameRate,
+            Path logFile,
+            Path spillDirectory,
+            int logQueueCapacity,
+            AsyncLogWriter.Fsync logFileFsync,
+            AsyncLogWriter.Overflow logFileOverflow,
+            LongSupplier clock)
+            throws IOException {
         this.start = System.currentTimeMillis();
-        TerminalBuilder builder = TerminalBuilder.builder();
-        builder.systemOutput(TerminalBuilder.SystemOutput.SysErr);
-        this.terminal = builder.build();
+        if (spillDirectory != null) {
+            Files.createDirectories(spillDirectory);
+            deleteStaleSpillDirectories(spillDirectory);
+            this.spillDirectory = Files.createTempDirectory(
+                    spillDirectory, SPILL_DIRECTORY_PREFIX + ProcessHandle.current().pid() + "-");
+            this.spillWriter = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "mvnd-spill-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.spillDirectory = null;
+            this.spillWriter = null;
+        }
+        this.terminal = terminal;
+        this.frameIntervalNanos = maxFrameRate > 0 ? TimeUnit.SECONDS.toNanos(1) / maxFrameRate : 0;
+        this.clock = clock;
+        this.lastFrame = clock.getAsLong() - IDLE_FRAME_INTERVAL_NANOS;
         this.dumb = terminal.getType().startsWith("dumb");
         this.noBuffering = noBuffering;
         this.linesPerProject = rollingWindowSize;
@@ -169,7 +335,9 @@ public class TerminalOutput implements ClientOutput {
         this.previousIntHandler = terminal.handle(
                 Terminal.Signal.INT, sig -> daemonDispatch.accept(Message.BareMessage.CANCEL_BUILD_SINGLETON));
         this.display = new Display(terminal, false);
-        this.log = logFile == null ? new MessageCollector() : new FileLog(logFile);
+        this.log = logFile == null
+                ? new MessageCollector(logQueueCapacity)
+                : new FileLog(logFile, logQueueCapacity, logFileFsync, logFileOverflow);
         this.inputHandler = new TerminalInputHandler(terminal, this.dumb);
     }
 
@@ -230,13 +398,9 @@ public class TerminalOutput implements ClientOutput {
                 break;
             }
             case Message.CANCEL_BUILD: {
-                projects.values().stream().flatMap(p -> p.log.stream()).forEach(log);
+                projects.values().forEach(p -> p.log.drainTo(log));
                 clearDisplay();
-                try {
-                    log.close();
-                } catch (IOException e1) {
-                    throw new RuntimeException(e1);
-                }
+                closeLog();
                 final AttributedStyle s = new AttributedStyle().bold().foreground(AttributedStyle.RED);
                 new AttributedString("The build was canceled", s).println(terminal);
                 terminal.flush();
@@ -250,13 +414,9 @@ public class TerminalOutput implements ClientOutput {
                 } else {
                     msg = e.getClassName() + ": " + e.getMessage();
                 }
-                projects.values().stream().flatMap(p -> p.log.stream()).forEach(log);
+                projects.values().forEach(p -> p.log.drainTo(log));
                 clearDisplay();
-                try {
-                    log.close();
-                } catch (IOException e1) {
-                    throw new RuntimeException(e1);
-                }
+                closeLog();
                 final AttributedStyle s = new AttributedStyle().bold().foreground(AttributedStyle.RED);
                 new AttributedString(msg, s).println(terminal);
                 terminal.flush();
@@ -265,14 +425,15 @@ public class TerminalOutput implements ClientOutput {
             case Message.PROJECT_STARTED: {
                 StringMessage be = (StringMessage) entry;
                 final String artifactId = be.getMessage();
-                projects.put(artifactId, new Project(artifactId));
+                projects.put(artifactId, newProject(artifactId));
                 break;
             }
             case Message.MOJO_STARTED: {
                 final MojoStartedEvent execution = (MojoStartedEvent) entry;
-                final Project prj = projects.computeIfAbsent(execution.getArtifactId(), Project::new);
+                final Project prj = projects.computeIfAbsent(execution.getArtifactId(), this::newProject);
                 prj.runningExecution = execution;
                 prj.testProgress = null;
+                prj.line = null;
                 break;
             }
             case Message.PROJECT_STOPPED: {
@@ -280,7 +441,8 @@ public class TerminalOutput implements ClientOutput {
                 final String artifactId = be.getMessage();
                 Project prj = projects.remove(artifactId);
                 if (prj != null) {
-                    prj.log.forEach(log);
+                    prj.log.drainTo(log);
+                    closeProjectLog(prj);
                 }
                 doneProjects++;
                 displayDone();
@@ -291,12 +453,10 @@ public class TerminalOutput implements ClientOutput {
                 break;
             }
             case Message.BUILD_FINISHED: {
-                projects.values().stream().flatMap(p -> p.log.stream()).forEach(log);
+                projects.values().forEach(p -> p.log.drainTo(log));
                 clearDisplay();
                 try {
-                    log.close();
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
+                    closeLog();
                 } finally {
                     terminal.flush();
                 }
@@ -360,11 +520,20 @@ public class TerminalOutput implements ClientOutput {
                 }
                 break;
             }
+            case Message.PROJECT_LOG_TAIL: {
+                final ProjectEvent bm = (ProjectEvent) entry;
+                final Project prj = projects.get(bm.getProjectId());
+                // the full log of the project comes once it is done, so tails only matter for the display
+                if (prj != null && !noBuffering && !dumb) {
+                    prj.log.replaceTail(Arrays.asList(bm.getMessage().split("\n", -1)));
+                }
+                break;
+            }
             case Message.KEYBOARD_INPUT: {
                 char keyStroke = ((StringMessage) entry).getMessage().charAt(0);
                 switch (keyStroke) {
                     case KEY_PLUS:
-                        linesPerProject = Math.min(10, linesPerProject + 1);
+                        linesPerProject = Math.min(MAX_LINES_PER_PROJECT, linesPerProject + 1);
                         break;
                     case KEY_MINUS:
                         linesPerProject = Math.max(0, linesPerProject - 1);
@@ -394,6 +563,7 @@ public class TerminalOutput implements ClientOutput {
                 transfers
                         .computeIfAbsent(orEmpty(te.getProjectId()), p -> new LinkedHashMap<>())
                         .put(te.getResourceName(), te);
+                invalidateProjectLine(te.getProjectId());
                 break;
             }
             case Message.TRANSFER_CORRUPTED:
@@ -403,6 +573,7 @@ public class TerminalOutput implements ClientOutput {
                 transfers
                         .computeIfAbsent(orEmpty(te.getProjectId()), p -> new LinkedHashMap<>())
                         .remove(te.getResourceName());
+                invalidateProjectLine(te.getProjectId());
                 break;
             }
             case Message.EXECUTION_FAILURE: {
@@ -419,20 +590,12 @@ public class TerminalOutput implements ClientOutput {
                 daemonDispatch.accept(entry);
                 break;
             }
-            case Message.REQUEST_INPUT_AVAILABLE: {
-                RequestInputAvailable ri = (RequestInputAvailable) entry;
-                inputHandler.requestProjectInputAvailable(ri.getProjectId());
-                break;
-            }
-            case Message.INPUT_AVAILABLE_DATA: {
-                daemonDispatch.accept(entry);
-                break;
-            }
             case Message.PROJECT_TEST_PROGRESS: {
                 final Message.ProjectTestProgressEvent e = (Message.ProjectTestProgressEvent) entry;
                 final Project prj = projects.get(e.getProjectId());
                 if (prj != null) {
                     prj.testProgress = e;
+                    prj.line = null;
                 }
                 break;
             }
@@ -440,6 +603,9 @@ public class TerminalOutput implements ClientOutput {
                 throw new IllegalStateException("Unexpected message " + entry);
         }
 
+        if (entry.getType() != Message.KEEP_ALIVE) {
+            dirty = true;
+        }
         return true;
     }
 
@@ -447,8 +613,41 @@ public class TerminalOutput implements ClientOutput {
         return s != null ? s : "";
     }
 
+    private Project newProject(String id) {
+        return new Project(
+                id,
+                new ProjectLog(Math.max(MAX_LINES_PER_PROJECT, linesPerProject), spillFile("project"), spillWriter));
+    }
+
+    private Path spillFile(String prefix) {
+        return spillDirectory != null ? spillDirectory.resolve(prefix + "-" + spillFiles++ + ".bin") : null;
+    }
+
+    private static void closeProjectLog(Project prj) {
+        try {
+            prj.log.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void invalidateProjectLine(String projectId) {
+        if (projectId != null) {
+            Project prj = projects.get(projectId);
+            if (prj != null) {
+                prj.line = null;
+            }
+        }
+    }
+
     private void applyNoBuffering() {
-        projects.values().stream().flatMap(p -> p.log.stream()).forEach(log);
+        final Consumer<Message> dispatch = daemonDispatch;
+        if (dispatch != null) {
+            // the daemon must not hold the project logs back anymore if it was displaying their tails
+            dispatch.accept(Message.BareMessage.FULL_PROJECT_LOGS_SINGLETON);
+        }
+        projects.values().forEach(p -> p.log.drainTo(log));
+        projects.values().forEach(TerminalOutput::closeProjectLog);
         projects.clear();
     }
 
@@ -475,12 +674,55 @@ public class TerminalOutput implements ClientOutput {
         return terminal;
     }
 
+    /**
+     * @return {@code true} if the output of the projects is currently buffered and only their last lines displayed
+     */
+    public boolean isBuffering() {
+        return !noBuffering && !dumb;
+    }
+
     private void clearDisplay() {
         if (!noBuffering && !dumb) {
             display.update(Collections.emptyList(), 0);
+            dirty = true;
         }
     }
 
+    /**
+     * Close the log and report whether writing the log file slowed down or lost output.
+     */
+    private void closeLog() {
+        try {
+            log.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        if (log instanceof FileLog fileLog) {
+            final AsyncLogWriter writer = fileLog.getWriter();
+            final long dropped = writer.getDropped();
+            final long blocked = writer.getBlockedMillis();
+            if (dropped > 0 || blocked > 0) {
+                final String msg =
+                        String.format("Log file writer: %d lines dropped, output blocked for %d ms", dropped, blocked);
+                new AttributedString(msg, AttributedStyle.DEFAULT.faint()).println(terminal);
+            }
+        }
+    }
+
+    private static Charset stdoutCharset() {
+        for (String property : new String[] {"stdout.encoding", "sun.stdout.encoding"}) {
+            final String encoding = System.getProperty(property);
+            if (encoding != null) {
+                try {
+                    return Charset.forName(encoding);
+                } catch (IllegalArgumentException e) {
+                    // try the next one
+                }
+            }
+        }
+        return Charset.defaultCharset();
+    }
+
     private void displayDone() {
         if (displayDone) {
             try {
@@ -496,6 +738,11 @@ public class TerminalOutput implements ClientOutput {
         closing = true;
         inputHandler.close();
         log.close();
+        projects.values().forEach(TerminalOutput::closeProjectLog);
+        if (spillWriter != null) {
+            spillWriter.shutdown();
+        }
+        deleteSpillDirectory();
         terminal.handle(Terminal.Signal.INT, previousIntHandler);
         terminal.close();
         if (exception != null) {
@@ -503,6 +750,54 @@ public class TerminalOutput implements ClientOutput {
         }
     }
 
+    private void deleteSpillDirectory() throws IOException {
+        if (spillDirectory != null && Files.isDirectory(spillDirectory)) {
+            deleteDirectory(spillDirectory);
+        }
+    }
+
+    /**
+     * Delete the spill directories left behind by clients that did not exit cleanly. The directories are named
+     * after the process id of their client, those of the clients still running are kept.
+     */
+    static void deleteStaleSpillDirectories(Path parent) {
+        try (Stream<Path> dirs = Files.list(parent)) {
+            for (Path dir : (Iterable<Path>) dirs::iterator) {
+                String name = dir.getFileName().toString();
+                if (name.startsWith(SPILL_DIRECTORY_PREFIX) && Files.isDirectory(dir) && !isLive(name)) {
+                    try {
+                        deleteDirectory(dir);
+                    } catch (IOException e) {
+                        // another client may be deleting it too
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // best effort
+        }
+    }
+
+    private static boolean isLive(String spillDirectoryName) {
+        String rest = spillDirectoryName.substring(SPILL_DIRECTORY_PREFIX.length());
+        int dash = rest.indexOf('-');
+        try {
+            long pid = Long.parseLong(dash > 0 ? rest.substring(0, dash) : rest);
+            return ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false);
+        } catch (NumberFormatException e) {
+            // created by a client not recording its process id
+            return false;
+        }
+    }
+
+    private static void deleteDirectory(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(dir);
+    }
+
     private void update() {
         if (noBuffering || dumb) {
             try {
@@ -516,6 +811,16 @@ public class TerminalOutput implements ClientOutput {
         final Size size = terminal.getSize();
         final int rows = size.getRows();
         final int cols = size.getColumns();
+        final long now = clock.getAsLong();
+        final boolean resized = rows != lastRows || cols != lastColumns;
+        if (now - lastFrame < (dirty || resized ? frameIntervalNanos : IDLE_FRAME_INTERVAL_NANOS)) {
+            return;
+        }
+        lastFrame = now;
+        lastRows = rows;
+        lastColumns = cols;
+        dirty = false;
+        frames++;
         display.resize(rows, size.getColumns());
         if (rows <= 0) {
             clearDisplay();
@@ -551,23 +856,13 @@ public class TerminalOutput implements ClientOutput {
                 addProjectLine(lines, prj);
                 // get the last lines of the project log, taking multi-line logs into account
                 int nb = Math.min(remLogLines, linesPerProject);
-                List<AttributedString> logs = lastN(prj.log, nb).stream()
-                        .flatMap(s -> AttributedString.fromAnsi(s).columnSplitLength(Integer.MAX_VALUE).stream())
-                        .map(s -> concat("   ", s))
-                        .collect(lastN(nb));
+                List<AttributedString> logs = projectTail(prj, nb, cols);
                 lines.addAll(logs);
                 remLogLines -= logs.size();
             }
-            final AttributedString idleLine = new AttributedStringBuilder()
-                    .style(BOLD_GREEN_FOREGROUND)
-                    .append("> ")
-                    .style(AttributedStyle.DEFAULT.faint())
-                    .append("IDLE")
-                    .style(AttributedStyle.DEFAULT)
-                    .toAttributedString();
             int idleSlots = maxThreads - projectsCount;
             while (idleSlots-- > 0 && remLogLines-- > 0 && lines.size() <= maxThreads + 1) {
-                lines.add(idleLine);
+                lines.add(IDLE_LINE);
             }
         } else {
             int skipProjects = projectsCount - dispLines;
@@ -584,6 +879,30 @@ public class TerminalOutput implements ClientOutput {
         display.update(trimmed, -1);
     }
 
+    /**
+     * @return the last {@code nb} rows of the log of the given project, reusing the rows rendered for the previous
+     *         frame if the log has not changed since. Each log line is parsed only once and its rows are only
+     *         computed again when the terminal width changes.
+     */
+    private static List<AttributedString> projectTail(Project prj, int nb, int cols) {
+        if (prj.tail == null || prj.tailLogSize != prj.log.size() || prj.tailLines != nb || prj.tailColumns != cols) {
+            prj.tail = prj.log.lastLines(nb).stream()
+                    .flatMap(line -> line.rows(cols).stream())
+                    .collect(lastN(nb));
+            prj.tailLogSize = prj.log.size();
+            prj.tailLines = nb;
+            prj.tailColumns = cols;
+        }
+        return prj.tail;
+    }
+
+    /**
+     * @return the number of times the display has been refreshed
+     */
+    int getFrames() {
+        return frames;
+    }
+
     private AttributedString formatFailures() {
         if (failures.isEmpty()) {
             return null;
@@ -783,6 +1102,13 @@ public class TerminalOutput implements ClientOutput {
     }
 
     private void addProjectLine(final List<AttributedString> lines, Project prj) {
+        if (prj.line == null) {
+            prj.line = formatProjectLine(prj);
+        }
+        lines.add(prj.line);
+    }
+
+    private AttributedString formatProjectLine(Project prj) {
         final MojoStartedEvent execution = prj.runningExecution;
         final AttributedStringBuilder asb = new AttributedStringBuilder();
         asb.style(BOLD_GREEN_FOREGROUND).append("> ").style(AttributedStyle.DEFAULT);
@@ -819,7 +1145,7 @@ public class TerminalOutput implements ClientOutput {
                 appendTestProgress(asb, tp);
             }
         }
-        lines.add(asb.toAttributedString());
+        return asb.toAttributedString();
     }
 
     static void appendTestProgress(AttributedStringBuilder asb, Message.ProjectTestProgressEvent tp) {
@@ -847,10 +1173,6 @@ public class TerminalOutput implements ClientOutput {
         asb.style(AttributedStyle.DEFAULT);
     }
 
-    private static <T> List<T> lastN(List<T> list, int n) {
-        return list.subList(Math.max(0, list.size() - n), list.size());
-    }
-
     private static <T> Collector<T, ?, List<T>> lastN(int n) {
         return Collector.<T, Deque<T>, List<T>>of(
                 ArrayDeque::new,
@@ -869,13 +1191,6 @@ public class TerminalOutput implements ClientOutput {
                 ArrayList::new);
     }
 
-    private static AttributedString concat(String s1, AttributedString s2) {
-        AttributedStringBuilder asb = new AttributedStringBuilder();
-        asb.append(s1);
-        asb.append(s2);
-        return asb.toAttributedString();
-    }
-
     /**
      * A closeable string message consumer.
      */
@@ -889,27 +1204,34 @@ public class TerminalOutput implements ClientOutput {
     }
 
     /**
-     * A {@link ClientLog} backed by a file.
+     * A {@link ClientLog} backed by a file written by an {@link AsyncLogWriter}, so that slow disks do not stall the
+     * rendering.
      */
     static class FileLog implements ClientLog {
 
-        private final Writer out;
-        private final Path logFile;
+        private final AsyncLogWriter out;
 
-        public FileLog(Path logFile) throws IOException {
+        public FileLog(Path logFile, int queueCapacity, AsyncLogWriter.Fsync fsync, AsyncLogWriter.Overflow overflow)
+                throws IOException {
             super();
-            this.out = Files.newBufferedWriter(logFile, StandardCharsets.UTF_8);
-            this.logFile = logFile;
+            this.out = new AsyncLogWriter(
+                    logFile.toString(),
+                    FileChannel.open(
+                            logFile,
+                            StandardOpenOption.CREATE,
+                            StandardOpenOption.WRITE,
+                            StandardOpenOption.TRUNCATE_EXISTING),
+                    StandardCharsets.UTF_8,
+                    "\n",
+                    true,
+                    queueCapacity,
+                    fsync,
+                    overflow);
         }
 
         @Override
         public void accept(String message) {
-            try {
-                out.write(message);
-                out.write('\n');
-            } catch (IOException e) {
-                throw new RuntimeException("Could not write to " + logFile, e);
-            }
+            out.write(message);
         }
 
         @Override
@@ -921,6 +1243,10 @@ public class TerminalOutput implements ClientOutput {
         public void close() throws IOException {
             out.close();
         }
+
+        AsyncLogWriter getWriter() {
+            return out;
+        }
     }
 
     /**
@@ -929,7 +1255,20 @@ public class TerminalOutput implements ClientOutput {
      */
     class MessageCollector implements ClientLog {
 
-        private final List<String> messages = new ArrayList<>();
+        private final SpillBuffer messages = new SpillBuffer(spillFile("output"), spillWriter);
+        private final AsyncLogWriter out;
+
+        MessageCollector(int queueCapacity) {
+            this.out = new AsyncLogWriter(
+                    "the standard output",
+                    Channels.newChannel(System.out),
+                    stdoutCharset(),
+                    System.lineSeparator(),
+                    false,
+                    queueCapacity,
+                    AsyncLogWriter.Fsync.never,
+                    AsyncLogWriter.Overflow.block);
+        }
 
         @Override
         public void accept(String message) {
@@ -937,16 +1276,23 @@ public class TerminalOutput implements ClientOutput {
         }
 
         @Override
-        public void flush() {
+        public void flush() throws IOException {
             clearDisplay();
-            messages.forEach(System.out::println);
-            messages.clear();
+            if (messages.size() > 0) {
+                System.out.flush();
+                messages.drainTo(out::write);
+                // wait for the lines to be written, so that they are not mixed with what is displayed next
+                out.flush();
+                System.out.flush();
+            }
             terminal.flush();
         }
 
         @Override
-        public void close() {
+        public void close() throws IOException {
             flush();
+            messages.close();
+            out.close();
         }
     }
 }
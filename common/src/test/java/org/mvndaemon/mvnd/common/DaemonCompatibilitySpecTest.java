@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.common;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DaemonCompatibilitySpecTest {
+
+    @Test
+    void discriminatorIsOrderIndependent() {
+        assertEquals(
+                DaemonCompatibilitySpec.discriminator(Arrays.asList("a=1", "b=2", "c=3")),
+                DaemonCompatibilitySpec.discriminator(Arrays.asList("c=3", "a=1", "b=2")));
+        assertNotEquals(
+                DaemonCompatibilitySpec.discriminator(Arrays.asList("a=1", "b=2")),
+                DaemonCompatibilitySpec.discriminator(Arrays.asList("a=1", "b=3")));
+        // the separator prevents collisions between differently split options
+        assertNotEquals(
+                DaemonCompatibilitySpec.discriminator(Arrays.asList("a=1", "b=2")),
+                DaemonCompatibilitySpec.discriminator(Arrays.asList("a=1b=2")));
+    }
+
+    @Test
+    void isSatisfiedBy() {
+        DaemonCompatibilitySpec spec =
+                new DaemonCompatibilitySpec(Paths.get("/java/home"), Arrays.asList("a=1", "b=2"));
+        assertTrue(spec.isSatisfiedBy(daemon("/java/home", Arrays.asList("b=2", "a=1")))
+                .isCompatible());
+        assertFalse(spec.isSatisfiedBy(daemon("/java/home", Arrays.asList("a=1")))
+                .isCompatible());
+        assertFalse(spec.isSatisfiedBy(daemon("/other/java/home", Arrays.asList("a=1", "b=2")))
+                .isCompatible());
+    }
+
+    private static DaemonInfo daemon(String javaHome, List<String> options) {
+        return new DaemonInfo(
+                "12345678",
+                javaHome,
+                "/data/reg/",
+                0x12345678,
+                "inet:/127.0.0.1:7502",
+                new byte[DaemonInfo.TOKEN_SIZE],
+                Locale.getDefault().toLanguageTag(),
+                options,
+                DaemonState.Idle,
+                System.currentTimeMillis(),
+                System.currentTimeMillis());
+    }
+}
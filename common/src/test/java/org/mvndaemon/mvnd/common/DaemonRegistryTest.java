@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
@@ -33,14 +34,18 @@ import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.IntStream;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class DaemonRegistryTest {
@@ -164,7 +169,86 @@ public class DaemonRegistryTest {
             Files.writeString(temp, "Foobar");
             // check if registry is reset
             assertEquals(0, reg1.getAll().size());
-            assertEquals(0, reg1.doGetDaemonStopEvents().size());
+            // stop events are kept in their own log
+            assertEquals(1, reg1.getStopEvents().size());
+        }
+    }
+
+    @Test
+    public void testStopEvents() throws IOException {
+        Path temp = File.createTempFile("reg", ".data").toPath();
+        try (DaemonRegistry reg = new DaemonRegistry(temp)) {
+            reg.store(new DaemonInfo(
+                    "12345678",
+                    "/java/home/",
+                    "/data/reg/",
+                    0x12345678,
+                    "inet:/127.0.0.1:7502",
+                    new byte[16],
+                    Locale.getDefault().toLanguageTag(),
+                    Arrays.asList("-Xmx"),
+                    DaemonState.Idle,
+                    System.currentTimeMillis(),
+                    System.currentTimeMillis()));
+            long size = Files.size(temp);
+
+            long now = System.currentTimeMillis();
+            long old = now - TimeUnit.HOURS.toMillis(2);
+            for (int i = 0; i < 100; i++) {
+                reg.storeStopEvent(
+                        new DaemonStopEvent("old" + i, old + i, DaemonExpirationStatus.QUIET_EXPIRE, "because"));
+                reg.storeStopEvent(new DaemonStopEvent("new" + i, now + i, null, "by user"));
+            }
+            reg.store(reg.get("12345678").withState(DaemonState.Busy));
+            // stop events do not make the registry itself grow
+            assertEquals(size, Files.size(temp));
+            assertEquals(200, reg.getStopEvents().size());
+
+            List<DaemonStopEvent> recent = reg.getStopEvents(Duration.ofHours(1));
+            assertEquals(100, recent.size());
+            assertTrue(recent.stream().allMatch(e -> e.getDaemonId().startsWith("new")));
+            // old buckets have been compacted away
+            assertEquals(100, reg.getStopEvents().size());
+
+            reg.removeStopEvents(recent.subList(0, 50));
+            assertEquals(50, reg.getStopEvents().size());
+        }
+    }
+
+    @Test
+    public void testHeartbeats() throws IOException {
+        Path temp = File.createTempFile("reg", ".data").toPath();
+        try (DaemonRegistry reg = new DaemonRegistry(temp)) {
+            reg.store(new DaemonInfo(
+                    "12345678",
+                    "/java/home/",
+                    "/data/reg/",
+                    0x12345678,
+                    "inet:/127.0.0.1:7502",
+                    new byte[16],
+                    Locale.getDefault().toLanguageTag(),
+                    Arrays.asList("-Xmx"),
+                    DaemonState.Idle,
+                    System.currentTimeMillis(),
+                    System.currentTimeMillis()));
+            assertNull(reg.getHeartbeat("12345678"));
+            byte[] registry = Files.readAllBytes(temp);
+
+            reg.heartbeat("12345678", 5000, 1000);
+            reg.heartbeat("12345678", 5000, 2000);
+            // heartbeats do not rewrite the registry
+            assertArrayEquals(registry, Files.readAllBytes(temp));
+            DaemonHeartbeats.Heartbeat heartbeat = reg.getHeartbeat("12345678");
+            assertEquals(5000, heartbeat.getIntervalMs());
+            assertEquals(2000, heartbeat.getTimestamp());
+            assertFalse(heartbeat.isStale(17000, 0, 3));
+            assertTrue(heartbeat.isStale(17001, 0, 3));
+            assertFalse(heartbeat.isStale(17001, 3000, 3));
+            // the wall clock went backwards
+            assertFalse(heartbeat.isStale(0, 0, 3));
+
+            reg.remove("12345678");
+            assertNull(reg.getHeartbeat("12345678"));
         }
     }
 
@@ -23,6 +23,8 @@ import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.junit.jupiter.api.Test;
 
@@ -113,4 +115,35 @@ public class MessageTest {
         assertNull(e.getTestClass());
         assertNull(e.getTestMethod());
     }
+
+    @Test
+    void daemonStatusSerialization() throws IOException {
+        Map<String, Integer> cacheSizes = new LinkedHashMap<>();
+        cacheSizes.put("pluginRealms", 3);
+        cacheSizes.put("projectArtifacts", 42);
+        Message msg = new Message.DaemonStatus(1024L, 4096L, 60_000L, 7, cacheSizes);
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (DataOutputStream daos = new DataOutputStream(baos)) {
+            msg.write(daos);
+            Message.BareMessage.STATUS_REQUEST_SINGLETON.write(daos);
+        }
+
+        Message msg2;
+        Message msg3;
+        ByteArrayInputStream bais = new ByteArrayInputStream(baos.toByteArray());
+        try (DataInputStream dis = new DataInputStream(bais)) {
+            msg2 = Message.read(dis);
+            msg3 = Message.read(dis);
+        }
+
+        assertTrue(msg2 instanceof Message.DaemonStatus);
+        Message.DaemonStatus status = (Message.DaemonStatus) msg2;
+        assertEquals(1024L, status.getHeapUsed());
+        assertEquals(4096L, status.getHeapMax());
+        assertEquals(60_000L, status.getUptime());
+        assertEquals(7, status.getBuildsServed());
+        assertEquals(cacheSizes, status.getCacheSizes());
+        assertEquals(Message.STATUS_REQUEST, msg3.getType());
+    }
 }
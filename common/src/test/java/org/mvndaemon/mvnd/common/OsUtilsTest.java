@@ -18,8 +18,14 @@
  */
 package org.mvndaemon.mvnd.common;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class OsUtilsTest {
 
@@ -44,10 +50,32 @@ class OsUtilsTest {
         Assertions.assertEquals("1t", OsUtils.kbToHumanReadable(1024L * 1024L * 1024L));
     }
 
+    @Test
+    void parseMemorySize() {
+        Assertions.assertEquals(1001L, OsUtils.parseMemorySize("1001"));
+        Assertions.assertEquals(1024L, OsUtils.parseMemorySize("1k"));
+        Assertions.assertEquals(256L * 1024L * 1024L, OsUtils.parseMemorySize("256m"));
+        Assertions.assertEquals(2L * 1024L * 1024L * 1024L, OsUtils.parseMemorySize("2G"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> OsUtils.parseMemorySize("2x"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> OsUtils.parseMemorySize("-1m"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> OsUtils.parseMemorySize(""));
+    }
+
     @Test
     void findJavaHomeFromPath() {
         final String expectedJavaHome = System.getProperty("java.home");
         Assertions.assertEquals(
                 expectedJavaHome, OsUtils.findJavaHomeFromJavaExecutable(expectedJavaHome + "/bin/java"));
     }
+
+    @Test
+    void findProcessRssProc(@TempDir Path tempDir) throws IOException {
+        Path status = tempDir.resolve("status");
+        Files.write(status, Arrays.asList("Name:\tjava", "VmPeak:\t 9000000 kB", "VmRSS:\t  123456 kB", "Threads:\t42"));
+        Assertions.assertEquals(123456L, OsUtils.findProcessRssProc(status));
+
+        Files.write(status, Arrays.asList("Name:\tjava"));
+        Assertions.assertEquals(-1L, OsUtils.findProcessRssProc(status));
+        Assertions.assertEquals(-1L, OsUtils.findProcessRssProc(tempDir.resolve("missing")));
+    }
 }
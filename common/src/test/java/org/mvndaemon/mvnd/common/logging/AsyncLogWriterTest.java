@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.common.logging;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncLogWriterTest {
+
+    @Test
+    void writeFile(@TempDir Path tempDir) throws Exception {
+        final Path file = tempDir.resolve("build.log");
+        final List<String> expected = new ArrayList<>();
+        try (AsyncLogWriter writer = new AsyncLogWriter(
+                file.toString(),
+                FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE),
+                StandardCharsets.UTF_8,
+                "\n",
+                true,
+                16,
+                AsyncLogWriter.Fsync.flush,
+                AsyncLogWriter.Overflow.block)) {
+            for (int i = 0; i < 100_000; i++) {
+                String line = i % 10_000 == 0 ? "line " + i + " é " + "x".repeat(300_000) : "line " + i;
+                writer.write(line);
+                expected.add(line);
+                if (i == 50_000) {
+                    writer.flush();
+                    assertEquals(50_001, writer.getWritten());
+                }
+            }
+        }
+        assertEquals(expected, Files.readAllLines(file));
+    }
+
+    @Test
+    void dropWhenFull() throws Exception {
+        final BlockingChannel channel = new BlockingChannel();
+        final AsyncLogWriter writer = new AsyncLogWriter(
+                "blocking",
+                channel,
+                StandardCharsets.UTF_8,
+                "\n",
+                true,
+                4,
+                AsyncLogWriter.Fsync.never,
+                AsyncLogWriter.Overflow.drop);
+        writer.write("first");
+        channel.writing.await();
+        for (int i = 0; i < 10; i++) {
+            writer.write("line " + i);
+        }
+        assertEquals(6, writer.getDropped());
+        channel.release.countDown();
+        writer.close();
+        assertEquals("first\nline 0\nline 1\nline 2\nline 3\n", channel.out.toString(StandardCharsets.UTF_8));
+        assertEquals(5, writer.getWritten());
+        assertEquals(0, writer.getBlockedMillis());
+    }
+
+    @Test
+    void blockWhenFull() throws Exception {
+        final BlockingChannel channel = new BlockingChannel();
+        final AsyncLogWriter writer = new AsyncLogWriter(
+                "blocking",
+                channel,
+                StandardCharsets.UTF_8,
+                "\n",
+                true,
+                1,
+                AsyncLogWriter.Fsync.never,
+                AsyncLogWriter.Overflow.block);
+        writer.write("first");
+        channel.writing.await();
+        writer.write("second");
+        new Thread(() -> {
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException e) {
+                        // ignore
+                    }
+                    channel.release.countDown();
+                })
+                .start();
+        writer.write("third");
+        writer.close();
+        assertEquals(0, writer.getDropped());
+        assertTrue(writer.getBlockedMillis() >= 50, "blocked " + writer.getBlockedMillis() + " ms");
+        assertEquals("first\nsecond\nthird\n", channel.out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void failingChannel() throws Exception {
+        final BlockingChannel channel = new BlockingChannel() {
+            boolean first = true;
+
+            @Override
+            public int write(ByteBuffer src) throws IOException {
+                if (first) {
+                    first = false;
+                    return super.write(src);
+                }
+                throw new IOException("No space left on device");
+            }
+        };
+        final AsyncLogWriter writer = new AsyncLogWriter(
+                "failing",
+                channel,
+                StandardCharsets.UTF_8,
+                "\n",
+                true,
+                16,
+                AsyncLogWriter.Fsync.never,
+                AsyncLogWriter.Overflow.block);
+        writer.write("first");
+        channel.writing.await();
+        /* Queue a line larger than the write buffer and a flush, so that the write fails in the middle of a batch */
+        writer.write("x".repeat(300_000));
+        final CompletableFuture<Void> flush = new CompletableFuture<>();
+        final Thread flusher = new Thread(() -> {
+            try {
+                writer.flush();
+                flush.complete(null);
+            } catch (Throwable e) {
+                flush.completeExceptionally(e);
+            }
+        });
+        flusher.start();
+        /* Wait until the flush is queued */
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (flusher.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        channel.release.countDown();
+
+        final ExecutionException flushed = assertThrows(ExecutionException.class, () -> flush.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, flushed.getCause());
+        assertThrows(RuntimeException.class, () -> writer.write("third"));
+        assertThrows(IOException.class, writer::flush);
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertThrows(IOException.class, writer::close));
+        assertFalse(channel.isOpen());
+    }
+
+    /**
+     * A channel blocking its first write until released
+     */
+    static class BlockingChannel implements WritableByteChannel {
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        volatile boolean open = true;
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            writing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            final int n = src.remaining();
+            byte[] bytes = new byte[n];
+            src.get(bytes);
+            synchronized (out) {
+                out.write(bytes, 0, n);
+            }
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+    }
+}
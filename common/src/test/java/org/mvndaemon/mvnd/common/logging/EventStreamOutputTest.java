@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.common.logging;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.mvndaemon.mvnd.common.Message;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventStreamOutputTest {
+
+    @ParameterizedTest
+    @EnumSource(EventStreamOutput.Format.class)
+    void roundTrip(EventStreamOutput.Format format, @TempDir Path tempDir) throws Exception {
+        final Path file = tempDir.resolve("events." + format);
+        final List<Message> dispatched = new ArrayList<>();
+        try (EventStreamOutput output = new EventStreamOutput(format, file)) {
+            output.setDaemonDispatch(dispatched::add);
+            output.accept(new Message.BuildStarted("root", 1, 2, 10));
+            output.accept(Message.projectStarted("a"));
+            output.accept(Message.mojoStarted(
+                    "a", "org.apache.maven.plugins", "maven-compiler-plugin", "compiler", "3.11.0", "compile", "c"));
+            output.accept(Message.log("a", "a \"quoted\"\n\tmulti line é message"));
+            output.accept(Message.BareMessage.KEEP_ALIVE_SINGLETON);
+            output.accept(Message.transfer(
+                    "a",
+                    Message.TRANSFER_SUCCEEDED,
+                    Message.TransferEvent.GET,
+                    "central",
+                    "https://repo.maven.apache.org/maven2/",
+                    "foo/bar/1.0/bar-1.0.jar",
+                    1024,
+                    1024,
+                    null));
+            output.accept(new Message.Prompt("a", "1", "Password?", true));
+            output.accept(Message.executionFailure("a", false, "boom"));
+            output.accept(Message.projectStopped("a"));
+            output.accept(new Message.BuildFinished(1));
+        }
+        assertEquals(1, dispatched.size());
+        assertEquals(Message.PROMPT_RESPONSE, dispatched.get(0).getType());
+
+        final List<EventStreamReader.Event> events = new ArrayList<>();
+        EventStreamReader.read(file, events::add);
+        assertEquals(9, events.size());
+        assertEquals("PROJECT_LOG_MESSAGE", events.get(3).getType());
+        assertEquals("a \"quoted\"\n\tmulti line é message", events.get(3).getString("message"));
+        assertEquals(1024, events.get(4).getLong("transferredBytes"));
+        assertTrue(events.get(0).getTime() > 0);
+
+        final EventStreamReader.Summary summary = new EventStreamReader.Summary();
+        events.forEach(summary);
+        assertEquals(1, summary.getExitCode());
+        assertEquals(1, summary.getMojoExecutions().size());
+        assertEquals("a", summary.getMojoExecutions().get(0).getProjectId());
+        assertEquals(1024, summary.getTransfers().get("central GET")[1]);
+        assertEquals(1, summary.getFailures().size());
+    }
+}
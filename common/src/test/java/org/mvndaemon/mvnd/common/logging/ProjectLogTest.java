@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.common.logging;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.jline.utils.AttributedString;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProjectLogTest {
+
+    @Test
+    void spilled(@TempDir Path tempDir) throws Exception {
+        final Path spillFile = tempDir.resolve("project-0.bin");
+        try (ProjectLog log = new ProjectLog(3, spillFile, Runnable::run)) {
+            final List<String> expected = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                String line = i % 100 == 0 ? "multi\nline " + i + " é" : "line " + i;
+                log.add(line);
+                expected.add(line);
+            }
+            assertTrue(Files.exists(spillFile));
+            assertEquals(1000, log.size());
+            assertEquals(Arrays.asList("line 998", "line 999"), log.lastN(2));
+            assertEquals(Arrays.asList("line 997", "line 998", "line 999"), log.lastN(10));
+
+            final List<String> actual = new ArrayList<>();
+            log.drainTo(actual::add);
+            assertEquals(expected, actual);
+            assertFalse(Files.exists(spillFile));
+            assertEquals(0, log.lastN(10).size());
+        }
+    }
+
+    @Test
+    void spilledAsynchronously(@TempDir Path tempDir) throws Exception {
+        final Path spillFile = tempDir.resolve("project-0.bin");
+        final ExecutorService writer = Executors.newSingleThreadExecutor();
+        try (ProjectLog log = new ProjectLog(3, spillFile, writer)) {
+            final List<String> expected = new ArrayList<>();
+            for (int round = 0; round < 2; round++) {
+                for (int i = 0; i < 1000; i++) {
+                    String line = "line " + round + "/" + i;
+                    log.add(line);
+                    expected.add(line);
+                }
+                final List<String> actual = new ArrayList<>();
+                log.drainTo(actual::add);
+                assertEquals(expected, actual);
+                expected.clear();
+            }
+        } finally {
+            writer.shutdown();
+        }
+        assertFalse(Files.exists(spillFile));
+    }
+
+    @Test
+    void inMemory() {
+        final ProjectLog log = new ProjectLog(2, null, null);
+        log.add("a");
+        log.add("b");
+        log.add("c");
+        assertEquals(Arrays.asList("b", "c"), log.lastN(2));
+
+        final List<String> actual = new ArrayList<>();
+        log.drainTo(actual::add);
+        assertEquals(Arrays.asList("a", "b", "c"), actual);
+        actual.clear();
+        log.drainTo(actual::add);
+        assertTrue(actual.isEmpty());
+    }
+
+    @Test
+    void lineRows() {
+        final ProjectLog log = new ProjectLog(2, null, null);
+        log.add("\u001B[1mbold\u001B[0m first\nsecond row of the same line");
+        final ProjectLog.Line line = log.lastLines(1).get(0);
+        final AttributedString parsed = line.parsed();
+        assertSame(parsed, line.parsed());
+
+        final List<AttributedString> rows = line.rows(10);
+        assertEquals(Arrays.asList("   bold fi", "   second "), toStrings(rows));
+        assertSame(rows, line.rows(10));
+
+        final List<AttributedString> wide = line.rows(200);
+        assertEquals(Arrays.asList("   bold first", "   second row of the same line"), toStrings(wide));
+        assertSame(parsed, line.parsed());
+    }
+
+    private static List<String> toStrings(List<AttributedString> rows) {
+        final List<String> result = new ArrayList<>();
+        rows.forEach(r -> result.add(r.toString()));
+        return result;
+    }
+}
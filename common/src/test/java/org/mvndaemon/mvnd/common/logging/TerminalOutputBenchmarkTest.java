@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.common.logging;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jline.terminal.Size;
+import org.jline.terminal.Terminal;
+import org.jline.terminal.TerminalBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.mvndaemon.mvnd.common.Message;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Replays a synthetic recording of a highly parallel build with verbose test output through {@link TerminalOutput}
+ * and checks that limiting the frame rate reduces the number of frames rendered by the client. The benchmark, which
+ * prints the frames and the CPU time of the process with and without the limit, only runs with
+ * {@code -Dmvnd.benchmark=true}; the length of the replayed build can be set using
+ * {@code -Dmvnd.benchmark.buildSeconds}.
+ */
+class TerminalOutputBenchmarkTest {
+
+    static final int THREADS = 32;
+    /** Simulated delay between two batches of messages received from the daemon */
+    static final long BATCH_INTERVAL_MS = 5;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void frameRateIsLimited() throws Exception {
+        final int buildSeconds = 5;
+        final Result result = replay(TerminalOutput.DEFAULT_MAX_FRAME_RATE, buildSeconds);
+        assertTrue(
+                result.frames <= TerminalOutput.DEFAULT_MAX_FRAME_RATE * buildSeconds + 1,
+                "Expected at most " + (TerminalOutput.DEFAULT_MAX_FRAME_RATE * buildSeconds + 1) + " frames but got "
+                        + result.frames);
+        assertTrue(result.frames >= buildSeconds, "Expected the display to be refreshed, got " + result.frames);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "mvnd.benchmark", matches = "true")
+    void benchmark() throws Exception {
+        final int buildSeconds = Integer.getInteger("mvnd.benchmark.buildSeconds", 5);
+        final Result unlimited = replay(0, buildSeconds);
+        final Result limited = replay(TerminalOutput.DEFAULT_MAX_FRAME_RATE, buildSeconds);
+        final String summary = String.format(
+                "Rendering %d seconds of build: unlimited: %d frames, %d ms CPU/s; %d fps: %d frames, %d ms CPU/s",
+                buildSeconds,
+                unlimited.frames,
+                unlimited.cpuMsPerBuildSecond(buildSeconds),
+                TerminalOutput.DEFAULT_MAX_FRAME_RATE,
+                limited.frames,
+                limited.cpuMsPerBuildSecond(buildSeconds));
+        System.out.println(summary);
+        assertTrue(limited.frames < unlimited.frames, summary);
+    }
+
+    Result replay(int maxFrameRate, int buildSeconds) throws Exception {
+        final long[] now = {0};
+        final Terminal terminal = TerminalBuilder.builder()
+                .system(false)
+                .streams(new ByteArrayInputStream(new byte[0]), OutputStream.nullOutputStream())
+                .type("xterm-256color")
+                .size(new Size(160, 50))
+                .build();
+        final List<List<Message>> batches = record(buildSeconds);
+        final int frames;
+        final long cpuStart = processCpuTime();
+        try (TerminalOutput output = new TerminalOutput(
+                terminal,
+                false,
+                3,
+                maxFrameRate,
+                tempDir.resolve("build-" + maxFrameRate + ".log"),
+                tempDir,
+                () -> now[0])) {
+            for (List<Message> batch : batches) {
+                now[0] += TimeUnit.MILLISECONDS.toNanos(BATCH_INTERVAL_MS);
+                output.accept(batch);
+            }
+            frames = output.getFrames();
+            output.accept(new Message.BuildFinished(0));
+        }
+        // unlike the CPU time of the calling thread, this includes the thread writing the spilled logs
+        return new Result(frames, processCpuTime() - cpuStart);
+    }
+
+    static long processCpuTime() {
+        return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean())
+                .getProcessCpuTime();
+    }
+
+    /**
+     * @return the batches of messages a client would receive from the daemon while {@link #THREADS} projects are
+     *         built in parallel, each of them logging one line per batch
+     */
+    static List<List<Message>> record(int buildSeconds) {
+        final List<List<Message>> batches = new ArrayList<>();
+        final String[] running = new String[THREADS];
+        final int batchCount = (int) (buildSeconds * 1000 / BATCH_INTERVAL_MS);
+        // each thread builds a new project every 200 batches
+        final int projects = THREADS * (batchCount / 200 + 1);
+        int nextProject = 0;
+        final List<Message> first = new ArrayList<>();
+        first.add(new Message.BuildStarted("bench", projects, THREADS, 16));
+        batches.add(first);
+        for (int b = 0; b < batchCount; b++) {
+            final List<Message> batch;
+            if (b == 0) {
+                batch = first;
+            } else {
+                batch = new ArrayList<>();
+                batches.add(batch);
+            }
+            for (int t = 0; t < THREADS; t++) {
+                if (running[t] != null && b % 200 == (t * 7) % 200) {
+                    batch.add(Message.projectStopped(running[t]));
+                    running[t] = null;
+                }
+                if (running[t] == null) {
+                    running[t] = "module-" + nextProject++;
+                    batch.add(Message.projectStarted(running[t]));
+                    batch.add(Message.mojoStarted(
+                            running[t],
+                            "org.apache.maven.plugins",
+                            "maven-surefire-plugin",
+                            "surefire",
+                            "3.2.5",
+                            "test",
+                            "default-test"));
+                }
+                final String projectId = running[t];
+                batch.add(Message.log(
+                        projectId,
+                        "\u001b[1;34mINFO\u001b[m] Running com.acme.\u001b[1m" + projectId + "Test\u001b[m #" + b));
+                if (b % 10 == 0) {
+                    batch.add(Message.projectTestProgress(
+                            projectId, "com.acme." + projectId + "Test", "test" + b, b, 0, 0, 0));
+                }
+            }
+            batch.add(Message.BareMessage.KEEP_ALIVE_SINGLETON);
+        }
+        return batches;
+    }
+
+    static class Result {
+        final int frames;
+        final long cpuNanos;
+
+        Result(int frames, long cpuNanos) {
+            this.frames = frames;
+            this.cpuNanos = cpuNanos;
+        }
+
+        long cpuMsPerBuildSecond(int buildSeconds) {
+            return TimeUnit.NANOSECONDS.toMillis(cpuNanos) / buildSeconds;
+        }
+    }
+}
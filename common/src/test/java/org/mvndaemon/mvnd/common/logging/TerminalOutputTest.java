@@ -18,16 +18,37 @@
  */
 package org.mvndaemon.mvnd.common.logging;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 import org.jline.utils.AttributedString;
 import org.jline.utils.AttributedStringBuilder;
 import org.jline.utils.AttributedStyle;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mvndaemon.mvnd.common.Message;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class TerminalOutputTest {
 
+    @Test
+    void deleteStaleSpillDirectories(@TempDir Path tempDir) throws Exception {
+        final Path live = Files.createDirectory(
+                tempDir.resolve(TerminalOutput.SPILL_DIRECTORY_PREFIX + ProcessHandle.current().pid() + "-1"));
+        final Path stale = Files.createDirectory(tempDir.resolve(TerminalOutput.SPILL_DIRECTORY_PREFIX + "x-2"));
+        Files.write(stale.resolve("project-0.bin"), new byte[] {1, 2, 3});
+        final Path other = Files.createDirectory(tempDir.resolve("registry"));
+
+        TerminalOutput.deleteStaleSpillDirectories(tempDir);
+
+        assertTrue(Files.isDirectory(live));
+        assertFalse(Files.exists(stale));
+        assertTrue(Files.isDirectory(other));
+    }
+
     @Test
     void renderBarZero() {
         assertEquals("[                    ]", TerminalOutput.renderBar(0));
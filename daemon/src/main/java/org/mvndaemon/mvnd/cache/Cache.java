@@ -53,11 +53,22 @@ public interface Cache<K, V extends CacheRecord> {
      */
     void put(K key, V value);
 
+    /**
+     * @return the number of records currently held by this cache, including records which might turn out to be
+     *         invalid on their next access
+     */
+    int size();
+
     /**
      * Remove all cached records
      */
     void clear();
 
+    /**
+     * Remove the record cached under the given key, if any
+     */
+    void remove(K key);
+
     /**
      * Remove all records satisfying the given predicate
      */
@@ -29,4 +29,25 @@ public interface CacheFactory {
      * @return     a new {@link Cache}
      */
     <K, V extends CacheRecord> Cache<K, V> newCache();
+
+    /**
+     * @param  <K>  the type of {@link Cache} keys
+     * @param  <V>  the type of {@link Cache} values
+     * @param  name a name identifying the new cache in diagnostics such as {@code mvnd --status}
+     * @return      a new {@link Cache}
+     */
+    default <K, V extends CacheRecord> Cache<K, V> newCache(String name) {
+        return newCache();
+    }
+
+    /**
+     * @param  <K>  the type of {@link Cache} keys
+     * @param  <V>  the type of {@link Cache} values
+     * @param  name a name identifying the new cache in diagnostics such as {@code mvnd --status}
+     * @return      a new {@link Cache} whose least recently used records may be evicted when the total
+     *              {@link CacheRecord#getWeight() weight} of the records of all such caches exceeds a budget
+     */
+    default <K, V extends CacheRecord> Cache<K, V> newWeightedCache(String name) {
+        return newCache(name);
+    }
 }
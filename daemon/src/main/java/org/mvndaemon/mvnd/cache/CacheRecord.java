@@ -36,4 +36,12 @@ public interface CacheRecord {
      * Callback called by the cache when this {@link CacheRecord} is removed from the cache.
      */
     void invalidate();
+
+    /**
+     * @return an estimate of the memory retained by this {@link CacheRecord}, used by caches created with
+     *         {@link CacheFactory#newWeightedCache(String)} to choose which records to evict
+     */
+    default long getWeight() {
+        return 0;
+    }
 }
@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.cache.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.mvndaemon.mvnd.cache.Cache;
+
+/**
+ * The counters of a named {@link Cache} since the daemon started.
+ */
+public class CacheStatistics implements CacheStatisticsMBean {
+
+    private final String name;
+    final LongAdder hits = new LongAdder();
+    final LongAdder misses = new LongAdder();
+    final LongAdder loads = new LongAdder();
+    final LongAdder loadNanos = new LongAdder();
+    /** All the records removed from the cache, including the evicted ones */
+    final LongAdder removals = new LongAdder();
+    final LongAdder evictions = new LongAdder();
+    volatile Cache<?, ?> cache;
+
+    public CacheStatistics(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int getSize() {
+        Cache<?, ?> c = cache;
+        return c != null ? c.size() : 0;
+    }
+
+    /**
+     * @return the number of lookups which found a valid record
+     */
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of lookups which found no valid record
+     */
+    @Override
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of records computed by {@link Cache#computeIfAbsent(Object, java.util.function.Function)}
+     */
+    @Override
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    @Override
+    public long getLoadTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(loadNanos.sum());
+    }
+
+    /**
+     * @return the number of records removed because the files they depend on changed or because the cache was
+     *         flushed
+     */
+    @Override
+    public long getInvalidations() {
+        return removals.sum() - evictions.sum();
+    }
+
+    /**
+     * @return the number of records removed to keep the cache within its budget
+     */
+    @Override
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public Snapshot snapshot() {
+        final long evicted = evictions.sum();
+        return new Snapshot(
+                name,
+                getSize(),
+                hits.sum(),
+                misses.sum(),
+                loads.sum(),
+                loadNanos.sum(),
+                removals.sum() - evicted,
+                evicted);
+    }
+
+    /**
+     * The values of the counters of a cache at some point in time.
+     */
+    public static final class Snapshot {
+        public final String name;
+        public final int size;
+        public final long hits;
+        public final long misses;
+        public final long loads;
+        public final long loadNanos;
+        public final long invalidations;
+        public final long evictions;
+
+        Snapshot(
+                String name,
+                int size,
+                long hits,
+                long misses,
+                long loads,
+                long loadNanos,
+                long invalidations,
+                long evictions) {
+            this.name = name;
+            this.size = size;
+            this.hits = hits;
+            this.misses = misses;
+            this.loads = loads;
+            this.loadNanos = loadNanos;
+            this.invalidations = invalidations;
+            this.evictions = evictions;
+        }
+
+        /**
+         * @return the counters accumulated since the given earlier snapshot, with the current size
+         */
+        public Snapshot since(Snapshot start) {
+            return new Snapshot(
+                    name,
+                    size,
+                    hits - start.hits,
+                    misses - start.misses,
+                    loads - start.loads,
+                    loadNanos - start.loadNanos,
+                    invalidations - start.invalidations,
+                    evictions - start.evictions);
+        }
+
+        /**
+         * @return the sum of the counters and sizes of this snapshot and the given one
+         */
+        public Snapshot plus(Snapshot other) {
+            return new Snapshot(
+                    name,
+                    size + other.size,
+                    hits + other.hits,
+                    misses + other.misses,
+                    loads + other.loads,
+                    loadNanos + other.loadNanos,
+                    invalidations + other.invalidations,
+                    evictions + other.evictions);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "%s: %d hits, %d misses, %d loads [%.3fs], %d invalidations, %d evictions, %d records",
+                    name,
+                    hits,
+                    misses,
+                    loads,
+                    loadNanos / 1_000_000_000d,
+                    invalidations,
+                    evictions,
+                    size);
+        }
+    }
+}
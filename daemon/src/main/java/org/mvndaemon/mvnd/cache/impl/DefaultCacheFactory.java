@@ -18,30 +18,232 @@
  */
 package org.mvndaemon.mvnd.cache.impl;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
 import org.apache.maven.api.di.Named;
 import org.apache.maven.api.di.Priority;
 import org.apache.maven.api.di.Singleton;
 import org.mvndaemon.mvnd.cache.Cache;
 import org.mvndaemon.mvnd.cache.CacheFactory;
 import org.mvndaemon.mvnd.cache.CacheRecord;
+import org.mvndaemon.mvnd.common.Environment;
 import org.mvndaemon.mvnd.common.Os;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 @Named
 @Singleton
 @Priority(10)
 public class DefaultCacheFactory implements CacheFactory {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(DefaultCacheFactory.class);
+
+    /**
+     * The live factories, one per Maven container, so that the daemon can report the sizes of their caches without
+     * having access to the containers.
+     */
+    private static final Set<DefaultCacheFactory> FACTORIES = Collections.synchronizedSet(
+            Collections.newSetFromMap(new WeakHashMap<>()));
+
+    /**
+     * The names of the caches whose statistics are registered with JMX, once per name for all the factories, so that
+     * the MBean server does not keep the caches of the discarded containers reachable.
+     */
+    private static final Set<String> REGISTERED = ConcurrentHashMap.newKeySet();
+
+    private final Map<String, Cache<?, ?>> caches = new ConcurrentSkipListMap<>();
+
+    private final Map<String, CacheStatistics> statistics = new ConcurrentSkipListMap<>();
+
     private final CacheFactory delegate;
 
     public DefaultCacheFactory() {
+        String invalidation = Environment.getProperty(Environment.MVND_CACHE_INVALIDATION.getProperty());
+        if (invalidation == null) {
+            invalidation = Environment.MVND_CACHE_INVALIDATION.getDefault();
+        }
+        this.delegate = newDelegate(invalidation);
+        FACTORIES.add(this);
+    }
+
+    static CacheFactory newDelegate(String invalidation) {
+        switch (invalidation) {
+            case "timestamp":
+                return new TimestampCacheFactory();
+            case "watch":
+                return new WatchServiceCacheFactory();
+            case "inotify":
+                return new InotifyCacheFactory();
+            case "auto":
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported value '" + invalidation + "' for "
+                        + Environment.MVND_CACHE_INVALIDATION.getProperty()
+                        + ", expected one of auto, timestamp, watch or inotify");
+        }
         /* java.nio.file.attribute.BasicFileAttributes.fileKey() is always null on Windows
          * and we do not hold relying solely on java.nio.file.attribute.BasicFileAttributes#lastModifiedTime()
-         * for sufficient. So we rather rely on WatchService on Windows */
-        this.delegate = Os.current() == Os.WINDOWS ? new WatchServiceCacheFactory() : new TimestampCacheFactory();
+         * for sufficient. So we rather rely on WatchService on Windows.
+         * InotifyCacheFactory is opt-in only: it does not use the per-build generations of the FileStateIndex,
+         * and may miss changes made on network file systems */
+        return Os.current() == Os.WINDOWS ? new WatchServiceCacheFactory() : new TimestampCacheFactory();
     }
 
     @Override
     public <K, V extends CacheRecord> Cache<K, V> newCache() {
         return delegate.newCache();
     }
+
+    @Override
+    public <K, V extends CacheRecord> Cache<K, V> newCache(String name) {
+        CacheStatistics statistics = new CacheStatistics(name);
+        Cache<K, V> cache = new StatisticsCache<>(delegate.newCache(), statistics);
+        register(name, cache, statistics);
+        return cache;
+    }
+
+    @Override
+    public <K, V extends CacheRecord> Cache<K, V> newWeightedCache(String name) {
+        CacheStatistics statistics = new CacheStatistics(name);
+        Cache<K, V> cache = new StatisticsCache<>(
+                new LruCache<>(delegate.newCache(), LruEviction.getInstance(), statistics), statistics);
+        register(name, cache, statistics);
+        return cache;
+    }
+
+    private void register(String name, Cache<?, ?> cache, CacheStatistics statistics) {
+        this.caches.put(name, cache);
+        this.statistics.put(name, statistics);
+        if (REGISTERED.add(name)) {
+            try {
+                MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                ObjectName objectName = new ObjectName("org.mvndaemon.mvnd:type=Cache,name=" + name);
+                if (server.isRegistered(objectName)) {
+                    server.unregisterMBean(objectName);
+                }
+                server.registerMBean(
+                        new StandardMBean(new TotalStatistics(name), CacheStatisticsMBean.class), objectName);
+            } catch (JMException e) {
+                LOGGER.debug("Could not register the statistics of cache {} with JMX", name, e);
+            }
+        }
+    }
+
+    /**
+     * @return the number of records held by each of the named caches of this factory, sorted by name
+     */
+    public Map<String, Integer> sizes() {
+        Map<String, Integer> sizes = new LinkedHashMap<>();
+        caches.forEach((name, cache) -> sizes.put(name, cache.size()));
+        return sizes;
+    }
+
+    /**
+     * @return the current counters of each of the named caches of this factory, sorted by name
+     */
+    public List<CacheStatistics.Snapshot> statistics() {
+        List<CacheStatistics.Snapshot> snapshots = new ArrayList<>();
+        statistics.values().forEach(s -> snapshots.add(s.snapshot()));
+        return snapshots;
+    }
+
+    /**
+     * @return the number of records held by the named caches of all the live factories, summed by name and sorted
+     *         by name
+     */
+    public static Map<String, Integer> totalSizes() {
+        Map<String, Integer> sizes = new TreeMap<>();
+        for (DefaultCacheFactory factory : factories()) {
+            factory.sizes().forEach((name, size) -> sizes.merge(name, size, Integer::sum));
+        }
+        return sizes;
+    }
+
+    /**
+     * @return the counters of the caches with the given name of all the live factories, summed
+     */
+    static CacheStatistics.Snapshot totalStatistics(String name) {
+        CacheStatistics.Snapshot total = new CacheStatistics.Snapshot(name, 0, 0, 0, 0, 0, 0, 0);
+        for (DefaultCacheFactory factory : factories()) {
+            CacheStatistics statistics = factory.statistics.get(name);
+            if (statistics != null) {
+                total = total.plus(statistics.snapshot());
+            }
+        }
+        return total;
+    }
+
+    private static List<DefaultCacheFactory> factories() {
+        synchronized (FACTORIES) {
+            return new ArrayList<>(FACTORIES);
+        }
+    }
+
+    /**
+     * The JMX view of the caches with a given name, summed over the live factories. It only holds the name, so
+     * that the factories of the discarded containers can still be collected.
+     */
+    static class TotalStatistics implements CacheStatisticsMBean {
+        private final String name;
+
+        TotalStatistics(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public int getSize() {
+            return totalStatistics(name).size;
+        }
+
+        @Override
+        public long getHits() {
+            return totalStatistics(name).hits;
+        }
+
+        @Override
+        public long getMisses() {
+            return totalStatistics(name).misses;
+        }
+
+        @Override
+        public long getLoads() {
+            return totalStatistics(name).loads;
+        }
+
+        @Override
+        public long getLoadTimeMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(totalStatistics(name).loadNanos);
+        }
+
+        @Override
+        public long getInvalidations() {
+            return totalStatistics(name).invalidations;
+        }
+
+        @Override
+        public long getEvictions() {
+            return totalStatistics(name).evictions;
+        }
+    }
 }
@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.cache.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32C;
+
+import org.mvndaemon.mvnd.cache.impl.TimestampCacheFactory.FileState;
+
+/**
+ * A daemon-wide index of the {@link FileState}s of the files cached records depend on.
+ * <p>
+ * The same files, typically plugin and extension jars, are shared by many records of several caches. Instead of
+ * reading their attributes whenever any of these records is looked up, the state of each release artifact of a local
+ * repository is read at most once per generation, the daemon starting a new generation for each build, and again once
+ * it is older than the refresh interval if one is set. The states of other files, that is snapshot and reactor
+ * artifacts which may be rebuilt by the current build, and of missing files are read on each lookup. The paths not
+ * looked up during a generation are dropped from the index when the next one starts.
+ * <p>
+ * If content hashing is enabled, a checksum of the content of snapshot and reactor artifacts is computed whenever
+ * their attributes change, and the states of such files are compared by content. Their status change time is read
+ * along with their other attributes where supported, so that rewriting a file in place while preserving its
+ * modification time and size is still noticed, and touching a file does not invalidate the class realms depending on
+ * it. Release artifacts of a local repository are never hashed.
+ * <p>
+ * Until {@link #setRefreshInterval(Duration)} is called, the states are read on each lookup.
+ */
+public class FileStateIndex {
+
+    private static final FileStateIndex INSTANCE = new FileStateIndex();
+
+    /**
+     * The state of a path, shared by all the records depending on it.
+     */
+    static final class PathState {
+        final Path path;
+        /** Whether the file may be rewritten, see {@link FileStateIndex#isMutable(Path)} */
+        final boolean mutable;
+        FileState state;
+        volatile long generation = -1;
+        long readNanos;
+
+        PathState(Path path) {
+            this.path = path;
+            this.mutable = isMutable(path);
+        }
+    }
+
+    private final ConcurrentHashMap<Path, PathState> states = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder hashes = new LongAdder();
+    private volatile long refreshIntervalNanos;
+    private volatile boolean contentHashing;
+
+    public static FileStateIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Start a new generation, so that the state of each file is read again on its next lookup, and drop the paths that
+     * were not looked up during the previous generation. The records depending on these keep using their
+     * {@link PathState}s, which are only shared again by the records created afterwards.
+     */
+    public void newGeneration() {
+        final long previous = generation.getAndIncrement();
+        states.values().removeIf(pathState -> pathState.generation < previous);
+    }
+
+    /**
+     * @param refreshInterval how long the state of a file is used within a generation before being read again: a
+     *                        negative value for the whole generation, zero to read it on each lookup
+     */
+    public void setRefreshInterval(Duration refreshInterval) {
+        this.refreshIntervalNanos = refreshInterval.isNegative() ? -1 : refreshInterval.toNanos();
+    }
+
+    /**
+     * @param contentHashing whether the content of snapshot and reactor artifacts is compared when their attributes
+     *                       change
+     */
+    public void setContentHashing(boolean contentHashing) {
+        this.contentHashing = contentHashing;
+    }
+
+    boolean isContentHashing() {
+        return contentHashing;
+    }
+
+    PathState intern(Path path) {
+        return states.computeIfAbsent(path, PathState::new);
+    }
+
+    /**
+     * @return the current state of the given path; the same instance is returned as long as the attributes of the file
+     *         are not changed, so that it can be compared by reference
+     */
+    FileState current(PathState pathState) {
+        lookups.increment();
+        final long gen = generation.get();
+        final long interval = refreshIntervalNanos;
+        synchronized (pathState) {
+            final FileState state = pathState.state;
+            if (state != null
+                    && state.exists
+                    && !pathState.mutable
+                    && pathState.generation == gen
+                    && (interval < 0 || (interval > 0 && System.nanoTime() - pathState.readNanos < interval))) {
+                return state;
+            }
+            return update(pathState, gen);
+        }
+    }
+
+    /**
+     * @return the current state of the given path, read regardless of the generation and of the refresh interval; the
+     *         same instance is returned as long as the attributes of the file are not changed
+     */
+    FileState refresh(PathState pathState) {
+        lookups.increment();
+        final long gen = generation.get();
+        synchronized (pathState) {
+            return update(pathState, gen);
+        }
+    }
+
+    private FileState update(PathState pathState, long gen) {
+        pathState.state = read(pathState.path, pathState.state);
+        pathState.generation = gen;
+        pathState.readNanos = System.nanoTime();
+        return pathState.state;
+    }
+
+    /**
+     * Read the state of the given file, hashing its content if its attributes differ from the {@code previous} state
+     * and content hashing applies to it.
+     *
+     * @param  path     the file to read
+     * @param  previous the last known state of the file or {@code null}
+     * @return          {@code previous} if the attributes of the file did not change, a new state otherwise
+     */
+    FileState read(Path path, FileState previous) {
+        final boolean hashed = contentHashing && isMutable(path);
+        final FileState state = new FileState(path, hashed);
+        reads.increment();
+        if (previous != null && state.sameMetadata(previous)) {
+            return previous;
+        }
+        if (hashed && state.exists && Files.isRegularFile(path)) {
+            try {
+                final long hash = hash(path);
+                hashes.increment();
+                return new FileState(state, hash);
+            } catch (IOException e) {
+                // compare the attributes only
+            }
+        }
+        return state;
+    }
+
+    /**
+     * @return {@code false} for release artifacts of a local repository, laid out as
+     *         {@code artifactId/version/artifactId-version[-classifier].extension}, which are never rewritten,
+     *         {@code true} for snapshot and reactor artifacts and any other file
+     */
+    static boolean isMutable(Path path) {
+        final Path versionDir = path.getParent();
+        final Path artifactDir = versionDir != null ? versionDir.getParent() : null;
+        if (artifactDir == null || artifactDir.getFileName() == null) {
+            return true;
+        }
+        final String version = versionDir.getFileName().toString();
+        if (version.endsWith("-SNAPSHOT")) {
+            return true;
+        }
+        final String artifactId = artifactDir.getFileName().toString();
+        return !path.getFileName().toString().startsWith(artifactId + "-" + version);
+    }
+
+    static long hash(Path path) throws IOException {
+        final CRC32C crc = new CRC32C();
+        final byte[] buffer = new byte[64 * 1024];
+        try (InputStream is = Files.newInputStream(path)) {
+            int n;
+            while ((n = is.read(buffer)) >= 0) {
+                crc.update(buffer, 0, n);
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * @return the number of paths in this index
+     */
+    public int size() {
+        return states.size();
+    }
+
+    /**
+     * @return the number of file state lookups since the daemon started
+     */
+    public long getLookups() {
+        return lookups.sum();
+    }
+
+    /**
+     * @return the number of times file attributes have been read since the daemon started
+     */
+    public long getReads() {
+        return reads.sum();
+    }
+
+    /**
+     * @return the number of times the content of a file has been hashed since the daemon started
+     */
+    public long getHashes() {
+        return hashes.sum();
+    }
+}
@@ -0,0 +1,482 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.cache.impl;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+import org.mvndaemon.mvnd.cache.Cache;
+import org.mvndaemon.mvnd.cache.CacheFactory;
+import org.mvndaemon.mvnd.cache.CacheRecord;
+import org.mvndaemon.mvnd.cache.impl.FileStateIndex.PathState;
+import org.mvndaemon.mvnd.cache.impl.TimestampCacheFactory.FileState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A factory for {@link Cache} objects whose entries are invalidated asynchronously by a dedicated thread consuming
+ * the events of a {@link WatchService}, which the JDK implements on top of inotify on Linux. Unlike
+ * {@link WatchServiceCacheFactory}, looking up a record never polls the watch keys nor touches the file system.
+ * <p>
+ * The {@link FileState}s of the files a record depends on are kept so that an {@link StandardWatchEventKinds#OVERFLOW}
+ * only invalidates the records of the directory which actually changed. Records depending on a file whose directory
+ * cannot be watched (e.g. a reactor artifact not built yet, or once the inotify watch limit is reached) are checked
+ * against their {@link FileState}s on lookup instead. If {@link FileStateIndex#setContentHashing(boolean) content
+ * hashing} is enabled, the records depending on a changed file are only invalidated if its content changed.
+ * <p>
+ * Unlike {@link TimestampCacheFactory}, this factory does not use the generations of the {@link FileStateIndex}: the
+ * records are invalidated as soon as a change is notified, also in the middle of a build. It is therefore only used
+ * when explicitly selected with {@code mvnd.cacheInvalidation=inotify}.
+ */
+public class InotifyCacheFactory implements CacheFactory, AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(InotifyCacheFactory.class);
+
+    private static final WatchEvent.Kind<?>[] KINDS = {
+        StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY
+    };
+
+    private final FileStateIndex index;
+
+    private final WatchService watchService;
+
+    /**
+     * The watched directories. Guarded by {@code this}, which is never held while accessing the maps of the caches.
+     */
+    private final Map<Path, Registration> registrationsByDir = new HashMap<>();
+
+    /** Whether the {@link #watcher} thread died, so that all the records are checked on lookup; guarded by this */
+    private boolean failed;
+
+    private final Thread watcher;
+
+    public InotifyCacheFactory() {
+        this(FileStateIndex.getInstance());
+    }
+
+    InotifyCacheFactory(FileStateIndex index) {
+        this(index, true);
+    }
+
+    /**
+     * @param index the index reading the states of the files
+     * @param watch whether to start the {@link #watcher} thread, which tests disable to feed the events themselves
+     */
+    InotifyCacheFactory(FileStateIndex index, boolean watch) {
+        this.index = index;
+        try {
+            this.watchService = FileSystems.getDefault().newWatchService();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        this.watcher = new Thread(this::watch, "mvnd-cache-watcher");
+        this.watcher.setDaemon(true);
+        if (watch) {
+            this.watcher.start();
+        }
+    }
+
+    @Override
+    public <K, V extends CacheRecord> Cache<K, V> newCache() {
+        return new InotifyCache<>();
+    }
+
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            LOG.debug("Could not close the watch service", e);
+        }
+    }
+
+    /**
+     * Start watching the files the given {@code record} depends on.
+     *
+     * @param  record the {@link WatchedRecord} to watch
+     * @return        {@code false} if some of the files cannot be watched so that {@code record} needs to be checked on
+     *                lookup
+     */
+    synchronized boolean add(WatchedRecord<?, ?> record) {
+        if (failed) {
+            return false;
+        }
+        boolean watched = true;
+        for (Path path : record.paths) {
+            final Path dir = path.getParent();
+            Registration registration = registrationsByDir.get(dir);
+            if (registration == null) {
+                try {
+                    LOG.debug("Starting to watch path {}", dir);
+                    registration = new Registration(dir.register(watchService, KINDS));
+                    registrationsByDir.put(dir, registration);
+                } catch (NoSuchFileException e) {
+                    // we allow this exception in case of a missing reactor artifact
+                    watched = false;
+                    continue;
+                } catch (IOException | ClosedWatchServiceException e) {
+                    LOG.debug("Could not watch path {}, falling back to timestamps", dir, e);
+                    watched = false;
+                    continue;
+                }
+            }
+            registration.recordsByPath
+                    .computeIfAbsent(path, p -> new LinkedHashSet<>())
+                    .add(record);
+        }
+        return watched;
+    }
+
+    /**
+     * Stop watching the files the given {@code record} depends on.
+     *
+     * @param record the {@link WatchedRecord} not to watch anymore
+     */
+    synchronized void unwatch(WatchedRecord<?, ?> record) {
+        for (Path path : record.paths) {
+            final Path dir = path.getParent();
+            final Registration registration = registrationsByDir.get(dir);
+            if (registration != null) {
+                final Set<WatchedRecord<?, ?>> records = registration.recordsByPath.get(path);
+                if (records != null && records.remove(record) && records.isEmpty()) {
+                    registration.recordsByPath.remove(path);
+                    if (registration.recordsByPath.isEmpty()) {
+                        LOG.debug("Unwatching path {}", dir);
+                        registration.watchKey.cancel();
+                        registrationsByDir.remove(dir);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The body of the {@link #watcher} thread.
+     */
+    private void watch() {
+        try {
+            while (true) {
+                final WatchKey watchKey = watchService.take();
+                for (WatchedRecord<?, ?> record : check(collect(watchKey))) {
+                    record.invalidate();
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            LOG.debug("Watch service closed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failed(e);
+        } catch (RuntimeException e) {
+            failed(e);
+        }
+    }
+
+    /**
+     * Fall back to checking the files of the records on lookup, for the records already watched as well as for the
+     * ones added later, as no event is processed anymore.
+     */
+    synchronized void failed(Exception e) {
+        LOG.warn("Cache watcher failed, falling back to timestamps", e);
+        failed = true;
+        registrationsByDir.values().forEach(r -> r.recordsByPath
+                .values()
+                .forEach(records -> records.forEach(WatchedRecord::checkOnLookup)));
+    }
+
+    /**
+     * Process the events of the given {@link WatchKey}.
+     *
+     * @param  watchKey the {@link WatchKey} signalled by the {@link WatchService}
+     * @return          the records affected by the events
+     */
+    private synchronized Changes collect(WatchKey watchKey) {
+        final Path dir = (Path) watchKey.watchable();
+        final Registration registration = registrationsByDir.get(dir);
+        final List<WatchEvent<?>> events = watchKey.pollEvents();
+        final Changes changes = new Changes();
+        if (registration == null || registration.watchKey != watchKey) {
+            // cancelled in the meantime
+            return changes;
+        }
+        collect(dir, registration, events, changes);
+        if (!watchKey.reset()) {
+            LOG.debug("Path {} cannot be watched anymore", dir);
+            registration.recordsByPath.values().forEach(changes.invalid::addAll);
+        }
+        return changes;
+    }
+
+    /**
+     * Process the given events of a watched directory and stop watching the invalidated records.
+     *
+     * @param  dir    the watched directory
+     * @param  events the events notified for {@code dir}
+     * @return        the records to invalidate
+     */
+    Set<WatchedRecord<?, ?>> collect(Path dir, List<WatchEvent<?>> events) {
+        final Changes changes = new Changes();
+        synchronized (this) {
+            final Registration registration = registrationsByDir.get(dir);
+            if (registration != null) {
+                collect(dir, registration, events, changes);
+            }
+        }
+        return check(changes);
+    }
+
+    private void collect(Path dir, Registration registration, List<WatchEvent<?>> events, Changes changes) {
+        for (WatchEvent<?> event : events) {
+            final WatchEvent.Kind<?> kind = event.kind();
+            if (kind == StandardWatchEventKinds.OVERFLOW) {
+                LOG.debug("Got overflow event for path {}, checking timestamps", dir);
+                registration.recordsByPath.values().forEach(changes.changed::addAll);
+            } else {
+                final Path path = dir.resolve((Path) event.context());
+                final Set<WatchedRecord<?, ?>> records = registration.recordsByPath.get(path);
+                if (records != null) {
+                    LOG.debug("Got watcher event {} for file {}, invalidating {}", kind.name(), path, records);
+                    if (index.isContentHashing()) {
+                        changes.changed.addAll(records);
+                    } else {
+                        changes.invalid.addAll(records);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Check the records whose files may have changed, which may involve hashing these files and is therefore done
+     * without holding the lock, and stop watching the invalidated records.
+     *
+     * @param  changes the records affected by some events
+     * @return         the records to invalidate
+     */
+    private Set<WatchedRecord<?, ?>> check(Changes changes) {
+        for (WatchedRecord<?, ?> record : changes.changed) {
+            if (!changes.invalid.contains(record) && !record.isValid()) {
+                changes.invalid.add(record);
+            }
+        }
+        synchronized (this) {
+            for (WatchedRecord<?, ?> record : changes.invalid) {
+                unwatch(record);
+            }
+        }
+        return changes.invalid;
+    }
+
+    /**
+     * The records affected by the events of a watched directory.
+     */
+    static class Changes {
+        /** The records to invalidate */
+        final Set<WatchedRecord<?, ?>> invalid = new LinkedHashSet<>();
+
+        /** The records to invalidate if the files they depend on actually changed */
+        final Set<WatchedRecord<?, ?>> changed = new LinkedHashSet<>();
+    }
+
+    /**
+     * A watched directory with the records depending on its files.
+     */
+    static class Registration {
+        final WatchKey watchKey;
+        final Map<Path, Set<WatchedRecord<?, ?>>> recordsByPath = new HashMap<>();
+
+        Registration(WatchKey watchKey) {
+            this.watchKey = watchKey;
+        }
+    }
+
+    class WatchedRecord<K, V extends CacheRecord> {
+        final Map<K, WatchedRecord<K, V>> map;
+        final K key;
+        final V record;
+        final Path[] paths;
+
+        /** The interned states of {@link #paths}, shared with the other records depending on the same files */
+        final PathState[] pathStates;
+
+        /** The {@link FileState}s of {@link #paths} at the time the watches were set */
+        final FileState[] fileStates;
+
+        /** Whether {@link #fileStates} need to be checked on lookup because some of the paths are not watched */
+        volatile boolean checked;
+
+        WatchedRecord(Map<K, WatchedRecord<K, V>> map, K key, V record) {
+            this.map = map;
+            this.key = key;
+            this.record = record;
+            this.paths = record.getDependencyPaths().distinct().toArray(Path[]::new);
+            this.pathStates = Arrays.stream(paths).map(index::intern).toArray(PathState[]::new);
+            this.fileStates = new FileState[paths.length];
+        }
+
+        /**
+         * Record the current state of the files, which must be done after they are watched so that no change
+         * goes unnoticed.
+         */
+        void snapshot(boolean watched) {
+            for (int i = 0; i < paths.length; i++) {
+                fileStates[i] = index.refresh(pathStates[i]);
+            }
+            this.checked = !watched;
+        }
+
+        void checkOnLookup() {
+            this.checked = true;
+        }
+
+        boolean isValid() {
+            try {
+                for (int i = 0; i < paths.length; i++) {
+                    final FileState current = index.refresh(pathStates[i]);
+                    if (current != fileStates[i] && !current.equals(fileStates[i])) {
+                        return false;
+                    }
+                }
+                return true;
+            } catch (RuntimeException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Remove this record from its cache, unless it was removed or replaced in the meantime. A change seen before
+         * the record is stored makes it checked on lookup.
+         */
+        void invalidate() {
+            if (map.remove(key, this)) {
+                record.invalidate();
+            } else {
+                checked = true;
+            }
+        }
+    }
+
+    class InotifyCache<K, V extends CacheRecord> implements Cache<K, V> {
+
+        private final ConcurrentHashMap<K, WatchedRecord<K, V>> map = new ConcurrentHashMap<>();
+
+        @Override
+        public boolean contains(K key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public V get(K key) {
+            final WatchedRecord<K, V> record = map.get(key);
+            if (record == null) {
+                return null;
+            }
+            if (record.checked && !record.isValid()) {
+                unwatch(record);
+                record.invalidate();
+                return null;
+            }
+            return record.record;
+        }
+
+        @Override
+        public void put(K key, V value) {
+            final WatchedRecord<K, V> record = watch(key, value);
+            final WatchedRecord<K, V> previous = map.put(key, record);
+            if (previous != null) {
+                unwatch(previous);
+            }
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public void clear() {
+            removeIf((k, v) -> true);
+        }
+
+        @Override
+        public void remove(K key) {
+            final WatchedRecord<K, V> record = map.remove(key);
+            if (record != null) {
+                unwatch(record);
+                record.record.invalidate();
+            }
+        }
+
+        @Override
+        public void removeIf(BiPredicate<K, V> predicate) {
+            for (Map.Entry<K, WatchedRecord<K, V>> entry : map.entrySet()) {
+                final WatchedRecord<K, V> record = entry.getValue();
+                if (predicate.test(entry.getKey(), record.record) && map.remove(entry.getKey(), record)) {
+                    unwatch(record);
+                    record.record.invalidate();
+                }
+            }
+        }
+
+        @Override
+        public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+            final V value = get(key);
+            if (value != null) {
+                return value;
+            }
+            final List<WatchedRecord<K, V>> replaced = new ArrayList<>(1);
+            final WatchedRecord<K, V> record = map.compute(key, (k, v) -> {
+                if (v != null) {
+                    if (!v.checked || v.isValid()) {
+                        return v;
+                    }
+                    replaced.add(v);
+                }
+                return watch(k, mappingFunction.apply(k));
+            });
+            for (WatchedRecord<K, V> r : replaced) {
+                unwatch(r);
+                r.record.invalidate();
+            }
+            return record.record;
+        }
+
+        private WatchedRecord<K, V> watch(K key, V value) {
+            final WatchedRecord<K, V> record = new WatchedRecord<>(map, key, value);
+            record.snapshot(add(record));
+            return record;
+        }
+    }
+}
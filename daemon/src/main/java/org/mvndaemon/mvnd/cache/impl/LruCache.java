@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.cache.impl;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.mvndaemon.mvnd.cache.Cache;
+import org.mvndaemon.mvnd.cache.CacheRecord;
+
+/**
+ * A {@link Cache} recording when each of its records was last accessed, so that the least recently used records of
+ * all the caches sharing an {@link LruEviction} can be evicted once their total weight exceeds its budget.
+ * <p>
+ * The records are stored in the delegate {@link Cache} wrapped in {@link Entry} objects, so that the records
+ * invalidated by the delegate are forgotten as well.
+ *
+ * @param <K> the type of cache keys
+ * @param <V> the type of cache values
+ */
+public class LruCache<K, V extends CacheRecord> implements Cache<K, V> {
+
+    private final Cache<K, Entry<K, V>> delegate;
+    private final LruEviction eviction;
+    private final CacheStatistics statistics;
+    private final ConcurrentHashMap<K, Entry<K, V>> entries = new ConcurrentHashMap<>();
+
+    public LruCache(Cache<K, Entry<K, V>> delegate, LruEviction eviction) {
+        this(delegate, eviction, null);
+    }
+
+    /**
+     * @param delegate   the cache storing the records
+     * @param eviction   the budget shared with other caches
+     * @param statistics where to count the evictions or {@code null}
+     */
+    public LruCache(Cache<K, Entry<K, V>> delegate, LruEviction eviction, CacheStatistics statistics) {
+        this.delegate = delegate;
+        this.eviction = eviction;
+        this.statistics = statistics;
+        eviction.register(this);
+    }
+
+    @Override
+    public boolean contains(K key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public V get(K key) {
+        final Entry<K, V> entry = delegate.get(key);
+        if (entry == null) {
+            return null;
+        }
+        entry.touch();
+        return entry.value;
+    }
+
+    @Override
+    public void put(K key, V value) {
+        final Entry<K, V> entry = new Entry<>(this, key, value);
+        delegate.put(key, entry);
+        entries.put(key, entry);
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public void clear() {
+        removeIf((k, v) -> true);
+    }
+
+    @Override
+    public void remove(K key) {
+        delegate.remove(key);
+    }
+
+    @Override
+    public void removeIf(BiPredicate<K, V> predicate) {
+        delegate.removeIf((k, e) -> predicate.test(k, e.value));
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        final Entry<K, V> entry =
+                delegate.computeIfAbsent(key, k -> new Entry<>(this, k, mappingFunction.apply(k)));
+        entries.put(key, entry);
+        entry.touch();
+        return entry.value;
+    }
+
+    Collection<Entry<K, V>> entries() {
+        return entries.values();
+    }
+
+    /**
+     * Remove the given entry from the delegate, which invalidates its record.
+     */
+    void evict(Entry<K, V> entry) {
+        final boolean[] removed = new boolean[1];
+        delegate.removeIf((k, e) -> {
+            if (e == entry) {
+                removed[0] = true;
+                return true;
+            }
+            return false;
+        });
+        entries.remove(entry.key, entry);
+        if (removed[0] && statistics != null) {
+            statistics.evictions.increment();
+        }
+    }
+
+    static final class Entry<K, V extends CacheRecord> implements CacheRecord {
+        final LruCache<K, V> cache;
+        final K key;
+        final V value;
+        volatile long lastAccess;
+        /** The build during which this entry was last accessed, see {@link LruEviction#newBuild()} */
+        volatile long lastBuild;
+
+        Entry(LruCache<K, V> cache, K key, V value) {
+            this.cache = cache;
+            this.key = key;
+            this.value = value;
+            touch();
+        }
+
+        void touch() {
+            lastAccess = cache.eviction.tick();
+            lastBuild = cache.eviction.currentBuild();
+        }
+
+        @Override
+        public Stream<Path> getDependencyPaths() {
+            return value.getDependencyPaths();
+        }
+
+        @Override
+        public void invalidate() {
+            cache.entries.remove(key, this);
+            value.invalidate();
+        }
+
+        @Override
+        public long getWeight() {
+            return value.getWeight();
+        }
+
+        void evict() {
+            cache.evict(this);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.cache.impl;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A daemon-wide budget for the total {@link org.mvndaemon.mvnd.cache.CacheRecord#getWeight() weight} of the records
+ * of the {@link LruCache}s.
+ * <p>
+ * Eviction is not done on each access but when {@link #evict()} is called, which the daemon does between builds, so
+ * that no record in use by a build, such as a plugin class realm, is ever invalidated. The records accessed since the
+ * last call to {@link #newBuild()} are never evicted either, as the next build is likely to use them again, so the
+ * total weight may stay above the budget. Records set up outside of a build are so while holding {@link #getLock()}.
+ * <p>
+ * There is no budget unless one is {@link #setMaxWeight(long) set}, which the daemon only does by default if its
+ * metaspace is bounded.
+ */
+public class LruEviction {
+
+    private static final LruEviction INSTANCE = new LruEviction();
+
+    private final List<LruCache<?, ?>> caches = new CopyOnWriteArrayList<>();
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLong build = new AtomicLong();
+    private final Lock lock = new ReentrantLock();
+    private volatile long maxWeight = -1;
+
+    public static LruEviction getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param maxWeight the maximum total weight of the records kept by {@link #evict()}, or a negative value for no
+     *                  limit
+     */
+    public void setMaxWeight(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * Start a new build: the records accessed from now on are pinned until the next call to this method.
+     */
+    public void newBuild() {
+        build.incrementAndGet();
+    }
+
+    /**
+     * @return the lock held while evicting records
+     */
+    public Lock getLock() {
+        return lock;
+    }
+
+    /**
+     * @return the current total weight of the records
+     */
+    public long getWeight() {
+        long weight = 0;
+        for (LruCache<?, ?> cache : caches) {
+            for (LruCache.Entry<?, ?> entry : cache.entries()) {
+                weight += entry.getWeight();
+            }
+        }
+        return weight;
+    }
+
+    /**
+     * Evict the least recently used records until their total weight is not above the maximum weight, except for the
+     * records accessed during the current build.
+     *
+     * @return the number of evicted records
+     */
+    public int evict() {
+        final long max = maxWeight;
+        if (max < 0) {
+            return 0;
+        }
+        lock.lock();
+        try {
+            return evict(max);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int evict(long max) {
+        final long current = build.get();
+        final List<Weighed> weighed = new ArrayList<>();
+        long total = 0;
+        for (LruCache<?, ?> cache : caches) {
+            for (LruCache.Entry<?, ?> entry : cache.entries()) {
+                final Weighed w = new Weighed(entry, entry.lastAccess, entry.getWeight());
+                if (entry.lastBuild != current) {
+                    weighed.add(w);
+                }
+                total += w.weight;
+            }
+        }
+        if (total <= max) {
+            return 0;
+        }
+        weighed.sort(Comparator.comparingLong(w -> w.lastAccess));
+        int evicted = 0;
+        for (Weighed w : weighed) {
+            if (total <= max) {
+                break;
+            }
+            w.entry.evict();
+            total -= w.weight;
+            evicted++;
+        }
+        return evicted;
+    }
+
+    void register(LruCache<?, ?> cache) {
+        caches.add(cache);
+    }
+
+    long tick() {
+        return clock.incrementAndGet();
+    }
+
+    long currentBuild() {
+        return build.get();
+    }
+
+    /**
+     * An entry with its weight and last access time captured once, so that sorting is stable.
+     */
+    static final class Weighed {
+        final LruCache.Entry<?, ?> entry;
+        final long lastAccess;
+        final long weight;
+
+        Weighed(LruCache.Entry<?, ?> entry, long lastAccess, long weight) {
+            this.entry = entry;
+            this.lastAccess = lastAccess;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.cache.impl;
+
+import java.nio.file.Path;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.mvndaemon.mvnd.cache.Cache;
+import org.mvndaemon.mvnd.cache.CacheRecord;
+
+/**
+ * A {@link Cache} counting its hits, misses, loads and invalidations into a {@link CacheStatistics}.
+ * <p>
+ * The records are stored in the delegate {@link Cache} wrapped in {@link Counted} objects, so that the invalidations
+ * done by the delegate are counted as well.
+ *
+ * @param <K> the type of cache keys
+ * @param <V> the type of cache values
+ */
+public class StatisticsCache<K, V extends CacheRecord> implements Cache<K, V> {
+
+    private final Cache<K, Counted<V>> delegate;
+    private final CacheStatistics statistics;
+
+    public StatisticsCache(Cache<K, Counted<V>> delegate, CacheStatistics statistics) {
+        this.delegate = delegate;
+        this.statistics = statistics;
+        statistics.cache = this;
+    }
+
+    @Override
+    public boolean contains(K key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public V get(K key) {
+        final Counted<V> counted = delegate.get(key);
+        if (counted == null) {
+            statistics.misses.increment();
+            return null;
+        }
+        statistics.hits.increment();
+        return counted.value;
+    }
+
+    @Override
+    public void put(K key, V value) {
+        delegate.put(key, new Counted<>(value, statistics));
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public void clear() {
+        removeIf((k, v) -> true);
+    }
+
+    @Override
+    public void remove(K key) {
+        delegate.remove(key);
+    }
+
+    @Override
+    public void removeIf(BiPredicate<K, V> predicate) {
+        delegate.removeIf((k, c) -> predicate.test(k, c.value));
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        final boolean[] loaded = new boolean[1];
+        final Counted<V> counted = delegate.computeIfAbsent(key, k -> {
+            loaded[0] = true;
+            statistics.misses.increment();
+            final long start = System.nanoTime();
+            try {
+                return new Counted<>(mappingFunction.apply(k), statistics);
+            } finally {
+                statistics.loads.increment();
+                statistics.loadNanos.add(System.nanoTime() - start);
+            }
+        });
+        if (!loaded[0]) {
+            statistics.hits.increment();
+        }
+        return counted.value;
+    }
+
+    public CacheStatistics getStatistics() {
+        return statistics;
+    }
+
+    static final class Counted<V extends CacheRecord> implements CacheRecord {
+        final V value;
+        final CacheStatistics statistics;
+
+        Counted(V value, CacheStatistics statistics) {
+            this.value = value;
+            this.statistics = statistics;
+        }
+
+        @Override
+        public Stream<Path> getDependencyPaths() {
+            return value.getDependencyPaths();
+        }
+
+        @Override
+        public void invalidate() {
+            statistics.removals.increment();
+            value.invalidate();
+        }
+
+        @Override
+        public long getWeight() {
+            return value.getWeight();
+        }
+    }
+}
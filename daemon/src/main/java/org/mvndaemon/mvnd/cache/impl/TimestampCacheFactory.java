@@ -27,39 +27,64 @@ import java.nio.file.attribute.FileTime;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiPredicate;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 
 import org.mvndaemon.mvnd.cache.Cache;
 import org.mvndaemon.mvnd.cache.CacheFactory;
 import org.mvndaemon.mvnd.cache.CacheRecord;
+import org.mvndaemon.mvnd.cache.impl.FileStateIndex.PathState;
 
 /**
  * A factory for {@link Cache} objects invalidating its entries based on {@link BasicFileAttributes#lastModifiedTime()}
- * and {@link java.nio.file.attribute.BasicFileAttributes#fileKey()}.
+ * and {@link java.nio.file.attribute.BasicFileAttributes#fileKey()}, or on the content of the files if
+ * {@link FileStateIndex#setContentHashing(boolean) content hashing} is enabled. The states of the files are looked up
+ * in a {@link FileStateIndex} shared by all the caches.
  */
 public class TimestampCacheFactory implements CacheFactory {
 
-    public TimestampCacheFactory() {}
+    private final FileStateIndex index;
+
+    public TimestampCacheFactory() {
+        this(FileStateIndex.getInstance());
+    }
+
+    TimestampCacheFactory(FileStateIndex index) {
+        this.index = index;
+    }
 
     @Override
     public <K, V extends CacheRecord> Cache<K, V> newCache() {
-        return new TimestampCache<>();
+        return new TimestampCache<>(index);
     }
 
     /**
-     * A state of a file given by {@link BasicFileAttributes#lastModifiedTime()} and
-     * {@link java.nio.file.attribute.BasicFileAttributes#fileKey()} at the time of {@link FileState} creation.
+     * A state of a file given by {@link BasicFileAttributes#lastModifiedTime()},
+     * {@link java.nio.file.attribute.BasicFileAttributes#fileKey()} and {@link BasicFileAttributes#size()} at the time
+     * of {@link FileState} creation, optionally by its status change time, which unlike its modification time cannot be
+     * preserved when rewriting it, and optionally by a hash of its content.
      */
     static class FileState {
+        static final long NO_HASH = -1;
+
         final Path path;
         final FileTime lastModifiedTime;
         final Object fileKey;
+        final long size;
+        final boolean exists;
+
+        /** The {@code unix:ctime} of the file, or {@code null} if it was not read or is not supported */
+        final FileTime changeTime;
+
+        /** The CRC32C checksum of the content of the file, or {@link #NO_HASH} if it was not computed */
+        final long contentHash;
 
         FileState(Path path) {
+            this(path, false);
+        }
+
+        FileState(Path path, boolean readChangeTime) {
             this.path = path;
             BasicFileAttributes attrs;
             try {
@@ -72,51 +97,112 @@ public class TimestampCacheFactory implements CacheFactory {
             }
             this.lastModifiedTime = attrs != null ? attrs.lastModifiedTime() : FileTime.fromMillis(0);
             this.fileKey = attrs != null ? attrs.fileKey() : null;
+            this.size = attrs != null ? attrs.size() : 0;
+            this.exists = attrs != null;
+            this.changeTime = attrs != null && readChangeTime ? changeTime(path) : null;
+            this.contentHash = NO_HASH;
+        }
+
+        private static FileTime changeTime(Path path) {
+            try {
+                return (FileTime) Files.getAttribute(path, "unix:ctime");
+            } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+                return null;
+            }
+        }
+
+        FileState(FileState metadata, long contentHash) {
+            this.path = metadata.path;
+            this.lastModifiedTime = metadata.lastModifiedTime;
+            this.fileKey = metadata.fileKey;
+            this.size = metadata.size;
+            this.exists = metadata.exists;
+            this.changeTime = metadata.changeTime;
+            this.contentHash = contentHash;
+        }
+
+        /**
+         * @return {@code true} if the attributes of the file are the same in both states
+         */
+        boolean sameMetadata(FileState that) {
+            return exists == that.exists
+                    && size == that.size
+                    && Objects.equals(lastModifiedTime, that.lastModifiedTime)
+                    && Objects.equals(fileKey, that.fileKey)
+                    && Objects.equals(changeTime, that.changeTime);
         }
 
+        /**
+         * Two states of the same file are equal if both have the same content hash, or if neither has one and their
+         * attributes are equal. A state with a content hash is never equal to a state without one.
+         */
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
             if (o == null || getClass() != o.getClass()) return false;
             FileState that = (FileState) o;
-            return path.equals(that.path)
-                    && Objects.equals(lastModifiedTime, that.lastModifiedTime)
-                    && Objects.equals(fileKey, that.fileKey);
+            if (!path.equals(that.path)) {
+                return false;
+            }
+            if (contentHash != NO_HASH || that.contentHash != NO_HASH) {
+                return contentHash == that.contentHash && exists == that.exists && size == that.size;
+            }
+            return sameMetadata(that);
         }
 
         @Override
         public int hashCode() {
-            return Objects.hash(path, lastModifiedTime, fileKey);
+            return path.hashCode();
         }
 
         @Override
         public String toString() {
-            return "FileState [path=" + path + ", lastModifiedTime=" + lastModifiedTime + ", fileKey=" + fileKey + "]";
+            return "FileState [path=" + path + ", lastModifiedTime=" + lastModifiedTime + ", fileKey=" + fileKey
+                    + ", size=" + size + (changeTime != null ? ", changeTime=" + changeTime : "")
+                    + (contentHash != NO_HASH ? ", contentHash=" + contentHash : "") + "]";
         }
     }
 
     static class Record<V extends CacheRecord> {
         final V record;
 
-        /** {@link Set} of {@link FileState}s at the creation time of this {@link Record} */
-        final Set<FileState> fileStates;
+        /** The interned states of the paths this {@link Record} depends on */
+        final PathState[] paths;
+
+        /** The {@link FileState}s of {@link #paths} at the creation time of this {@link Record} */
+        final FileState[] fileStates;
 
-        public Record(V record) {
+        public Record(V record, FileStateIndex index) {
             this.record = record;
-            this.fileStates = currentFileStates();
+            this.paths = record.getDependencyPaths().distinct().map(index::intern).toArray(PathState[]::new);
+            this.fileStates = new FileState[paths.length];
+            for (int i = 0; i < paths.length; i++) {
+                fileStates[i] = index.current(paths[i]);
+            }
         }
 
         /**
-         * @return {@link Set} of {@link FileState}s at current time
+         * @return {@code true} if none of the files this {@link Record} depends on has changed
          */
-        private Set<FileState> currentFileStates() {
-            return record.getDependencyPaths().map(FileState::new).collect(Collectors.toSet());
+        boolean isValid(FileStateIndex index) {
+            for (int i = 0; i < paths.length; i++) {
+                final FileState current = index.current(paths[i]);
+                if (current != fileStates[i] && !current.equals(fileStates[i])) {
+                    return false;
+                }
+            }
+            return true;
         }
     }
 
     static class TimestampCache<K, V extends CacheRecord> implements Cache<K, V> {
 
         private final ConcurrentHashMap<K, Record<V>> map = new ConcurrentHashMap<>();
+        private final FileStateIndex index;
+
+        TimestampCache(FileStateIndex index) {
+            this.index = index;
+        }
 
         @Override
         public boolean contains(K key) {
@@ -128,8 +214,7 @@ public class TimestampCacheFactory implements CacheFactory {
             Record<V> record = map.compute(key, (k, v) -> {
                 if (v != null) {
                     try {
-                        final Set<FileState> currentFileStates = v.currentFileStates();
-                        if (Objects.equals(v.fileStates, currentFileStates)) {
+                        if (v.isValid(index)) {
                             return v;
                         }
                     } catch (RuntimeException e) {
@@ -145,7 +230,12 @@ public class TimestampCacheFactory implements CacheFactory {
 
         @Override
         public void put(K key, V value) {
-            map.put(key, new Record<>(value));
+            map.put(key, new Record<>(value, index));
+        }
+
+        @Override
+        public int size() {
+            return map.size();
         }
 
         @Override
@@ -153,6 +243,14 @@ public class TimestampCacheFactory implements CacheFactory {
             removeIf((k, v) -> true);
         }
 
+        @Override
+        public void remove(K key) {
+            Record<V> record = map.remove(key);
+            if (record != null) {
+                record.record.invalidate();
+            }
+        }
+
         @Override
         public void removeIf(BiPredicate<K, V> predicate) {
             for (Iterator<Map.Entry<K, Record<V>>> iterator = map.entrySet().iterator(); iterator.hasNext(); ) {
@@ -169,7 +267,7 @@ public class TimestampCacheFactory implements CacheFactory {
             return map.compute(key, (k, v) -> {
                         if (v != null) {
                             try {
-                                if (Objects.equals(v.fileStates, v.currentFileStates())) {
+                                if (v.isValid(index)) {
                                     return v;
                                 }
                             } catch (RuntimeException e) {
@@ -178,7 +276,7 @@ public class TimestampCacheFactory implements CacheFactory {
                             v.record.invalidate();
                             v = null;
                         }
-                        return new Record<>(mappingFunction.apply(k));
+                        return new Record<>(mappingFunction.apply(k), index);
                     })
                     .record;
         }
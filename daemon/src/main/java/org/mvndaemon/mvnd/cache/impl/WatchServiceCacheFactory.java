@@ -229,11 +229,24 @@ public class WatchServiceCacheFactory implements CacheFactory {
             map.put(key, value);
         }
 
+        @Override
+        public int size() {
+            return map.size();
+        }
+
         @Override
         public void clear() {
             removeIf((k, v) -> true);
         }
 
+        @Override
+        public void remove(K key) {
+            V value = map.remove(key);
+            if (value != null) {
+                value.invalidate();
+            }
+        }
+
         @Override
         public void removeIf(BiPredicate<K, V> predicate) {
             for (Iterator<Map.Entry<K, V>> iterator = map.entrySet().iterator(); iterator.hasNext(); ) {
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.cache.invalidating;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Consumer;
+
+import org.apache.maven.eventspy.AbstractEventSpy;
+import org.apache.maven.eventspy.EventSpy;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.MavenSession;
+import org.eclipse.sisu.Typed;
+import org.mvndaemon.mvnd.cache.CacheFactory;
+import org.mvndaemon.mvnd.cache.impl.CacheStatistics;
+import org.mvndaemon.mvnd.cache.impl.DefaultCacheFactory;
+import org.mvndaemon.mvnd.common.Environment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Summarizes how the daemon caches served the build. The report is logged at the end of the build, at the info level
+ * if {@code mvnd.cacheReport} is {@code true} and at the debug level otherwise. It covers everything since the previous
+ * report, so that the records evicted by the daemon once the previous build was over are reported too.
+ */
+@Singleton
+@Named("cacheReport")
+@Typed(EventSpy.class)
+public class CacheReportEventSpy extends AbstractEventSpy {
+
+    public static final String DIVIDER = "------------------------------------------------------------------------";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheReportEventSpy.class);
+
+    private final CacheFactory cacheFactory;
+
+    /** The statistics at the time of the previous report */
+    private Map<String, CacheStatistics.Snapshot> previous = new HashMap<>();
+
+    @Inject
+    public CacheReportEventSpy(CacheFactory cacheFactory) {
+        this.cacheFactory = cacheFactory;
+    }
+
+    @Override
+    public void onEvent(Object event) throws Exception {
+        if (event instanceof ExecutionEvent) {
+            ExecutionEvent executionEvent = (ExecutionEvent) event;
+            if (executionEvent.getType() == ExecutionEvent.Type.SessionEnded) {
+                report(isEnabled(executionEvent.getSession()) ? LOGGER::info : LOGGER::debug);
+            }
+        }
+    }
+
+    private void report(Consumer<String> log) {
+        log.accept(DIVIDER);
+        log.accept("Cache Summary:");
+        log.accept(DIVIDER);
+        Map<String, CacheStatistics.Snapshot> snapshots = new HashMap<>();
+        for (CacheStatistics.Snapshot current : statistics()) {
+            CacheStatistics.Snapshot last = previous.get(current.name);
+            log.accept(String.valueOf(last != null ? current.since(last) : current));
+            snapshots.put(current.name, current);
+        }
+        previous = snapshots;
+    }
+
+    private List<CacheStatistics.Snapshot> statistics() {
+        return cacheFactory instanceof DefaultCacheFactory defaultCacheFactory
+                ? defaultCacheFactory.statistics()
+                : Collections.emptyList();
+    }
+
+    private static boolean isEnabled(MavenSession session) {
+        String property = Environment.MVND_CACHE_REPORT.getProperty();
+        Properties userProperties = session.getUserProperties();
+        String value = userProperties.getProperty(property);
+        if (value == null) {
+            value = session.getSystemProperties().getProperty(property);
+        }
+        return value != null && (value.isEmpty() || Boolean.parseBoolean(value));
+    }
+}
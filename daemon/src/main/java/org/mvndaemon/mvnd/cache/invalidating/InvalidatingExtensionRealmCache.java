@@ -23,7 +23,11 @@ import javax.inject.Named;
 import javax.inject.Singleton;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 
 import org.apache.maven.artifact.Artifact;
@@ -44,9 +48,13 @@ public class InvalidatingExtensionRealmCache extends DefaultExtensionRealmCache
     protected static class Record implements org.mvndaemon.mvnd.cache.CacheRecord {
 
         final CacheRecord record;
+        final RealmKeys keys;
+        /** The number of classes in the jars of the realm, only counted if weighing the realm needs it */
+        private volatile int jarClasses = -1;
 
         public Record(CacheRecord record) {
             this.record = record;
+            this.keys = RealmKeys.of(record.getArtifacts());
         }
 
         @Override
@@ -64,18 +72,33 @@ public class InvalidatingExtensionRealmCache extends DefaultExtensionRealmCache
                 // ignore
             }
         }
+
+        @Override
+        public long getWeight() {
+            return RealmWeight.weigh(record.getRealm(), () -> {
+                if (jarClasses < 0) {
+                    jarClasses = RealmWeight.classCount(record.getArtifacts());
+                }
+                return jarClasses;
+            });
+        }
     }
 
     final Cache<Key, Record> cache;
+    /** The artifacts of the realms used since the last call to {@link #drainUsed()} */
+    private final Map<Key, List<Artifact>> used = new ConcurrentHashMap<>();
 
     @Inject
     public InvalidatingExtensionRealmCache(CacheFactory cacheFactory) {
-        cache = cacheFactory.newCache();
+        cache = cacheFactory.newWeightedCache("extensionRealms");
     }
 
     @Override
     public CacheRecord get(Key key) {
         Record r = cache.get(key);
+        if (r != null) {
+            recordUse(key, r.record);
+        }
         return r != null ? r.record : null;
     }
 
@@ -85,9 +108,30 @@ public class InvalidatingExtensionRealmCache extends DefaultExtensionRealmCache
         CacheRecord record = super.put(key, extensionRealm, extensionDescriptor, artifacts);
         super.cache.remove(key);
         cache.put(key, new Record(record));
+        recordUse(key, record);
         return record;
     }
 
+    private void recordUse(Key key, CacheRecord record) {
+        if (!RealmManifestEventSpy.isReplaying()) {
+            used.put(key, record.getArtifacts());
+        }
+    }
+
+    /**
+     * @return the artifacts of the realms used since the last call to this method
+     */
+    Collection<List<Artifact>> drainUsed() {
+        List<List<Artifact>> artifacts = new ArrayList<>();
+        for (Key key : new ArrayList<>(used.keySet())) {
+            List<Artifact> a = used.remove(key);
+            if (a != null) {
+                artifacts.add(a);
+            }
+        }
+        return artifacts;
+    }
+
     @Override
     public void flush() {
         cache.clear();
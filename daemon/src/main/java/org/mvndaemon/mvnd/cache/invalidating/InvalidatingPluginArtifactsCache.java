@@ -63,7 +63,7 @@ public class InvalidatingPluginArtifactsCache extends DefaultPluginArtifactsCach
 
     @Inject
     public InvalidatingPluginArtifactsCache(CacheFactory cacheFactory) {
-        this.cache = cacheFactory.newCache();
+        this.cache = cacheFactory.newCache("pluginArtifacts");
     }
 
     public CacheRecord get(Key key) throws PluginResolutionException {
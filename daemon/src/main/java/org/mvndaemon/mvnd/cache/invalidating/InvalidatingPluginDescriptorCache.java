@@ -23,11 +23,13 @@ import javax.inject.Named;
 import javax.inject.Singleton;
 
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Stream;
 
+import org.apache.maven.RepositoryUtils;
 import org.apache.maven.model.Plugin;
 import org.apache.maven.plugin.DefaultPluginDescriptorCache;
 import org.apache.maven.plugin.InvalidPluginDescriptorException;
@@ -37,11 +39,17 @@ import org.apache.maven.plugin.descriptor.PluginDescriptor;
 import org.codehaus.plexus.classworlds.realm.ClassRealm;
 import org.codehaus.plexus.classworlds.realm.NoSuchRealmException;
 import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.repository.LocalArtifactRequest;
+import org.eclipse.aether.repository.LocalArtifactResult;
 import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.repository.WorkspaceReader;
 import org.eclipse.sisu.Priority;
 import org.mvndaemon.mvnd.cache.Cache;
 import org.mvndaemon.mvnd.cache.CacheFactory;
 import org.mvndaemon.mvnd.cache.CacheRecord;
+import org.mvndaemon.mvnd.common.Environment;
 
 @Singleton
 @Named
@@ -75,16 +83,120 @@ public class InvalidatingPluginDescriptorCache extends DefaultPluginDescriptorCa
         }
     }
 
+    /**
+     * A key of a release plugin which may be looked up in the {@link PluginDescriptorStore}, holding what is needed to
+     * check on a cache miss that the local repository manager reports the plugin as available from the repositories
+     * of the lookup, as a stored descriptor is used without resolving the plugin. That context is not part of the
+     * equality of the key and is released once the descriptor is loaded, so that the cached keys do not hold sessions.
+     */
+    protected static class StoredKey implements Key {
+
+        private final Key delegate;
+        private volatile Artifact artifact;
+        private volatile List<RemoteRepository> repositories;
+        private volatile RepositorySystemSession session;
+
+        public StoredKey(
+                Key delegate, Artifact artifact, List<RemoteRepository> repositories, RepositorySystemSession session) {
+            this.delegate = delegate;
+            this.artifact = artifact;
+            this.repositories = repositories;
+            this.session = session;
+        }
+
+        void release() {
+            artifact = null;
+            repositories = null;
+            session = null;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof StoredKey && delegate.equals(((StoredKey) o).delegate);
+        }
+
+        @Override
+        public int hashCode() {
+            return delegate.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return delegate.toString();
+        }
+    }
+
+    /** The context of plugin resolution, see {@code DefaultPluginDependenciesResolver} */
+    private static final String REPOSITORY_CONTEXT = "plugin";
+
     final Cache<Key, Record> cache;
+    final PluginDescriptorStore store;
 
     @Inject
     public InvalidatingPluginDescriptorCache(CacheFactory cacheFactory) {
-        this.cache = cacheFactory.newCache();
+        this(cacheFactory, newStore());
+    }
+
+    public InvalidatingPluginDescriptorCache(CacheFactory cacheFactory, PluginDescriptorStore store) {
+        this.cache = cacheFactory.newCache("pluginDescriptors");
+        this.store = store;
+    }
+
+    static PluginDescriptorStore newStore() {
+        String enabled = Environment.getProperty(Environment.MVND_PLUGIN_DESCRIPTOR_STORE.getProperty());
+        if (enabled == null) {
+            enabled = Environment.MVND_PLUGIN_DESCRIPTOR_STORE.getDefault();
+        }
+        String storage = Environment.getProperty(Environment.MVND_DAEMON_STORAGE.getProperty());
+        if (storage == null || !Boolean.parseBoolean(enabled)) {
+            return null;
+        }
+        return new PluginDescriptorStore(Paths.get(storage).resolve("plugin-descriptors"));
     }
 
     @Override
     public Key createKey(Plugin plugin, List<RemoteRepository> repositories, RepositorySystemSession session) {
-        return super.createKey(plugin, repositories, session);
+        Key key = super.createKey(plugin, repositories, session);
+        if (store == null || plugin.getVersion() == null) {
+            return key;
+        }
+        Artifact artifact = new DefaultArtifact(
+                plugin.getGroupId(),
+                plugin.getArtifactId(),
+                null,
+                "jar",
+                plugin.getVersion(),
+                session.getArtifactTypeRegistry().get("maven-plugin"));
+        if (artifact.isSnapshot()) {
+            // snapshots have to be checked for updates
+            return key;
+        }
+        return new StoredKey(key, artifact, repositories, session);
+    }
+
+    /**
+     * @return the plugin artifact with its jar in the local repository if it is available from the repositories of
+     *         the lookup and not provided by the reactor, otherwise {@code null}
+     */
+    private static Artifact localArtifact(StoredKey key) {
+        Artifact artifact = key.artifact;
+        RepositorySystemSession session = key.session;
+        if (artifact == null || session == null) {
+            return null;
+        }
+        WorkspaceReader workspace = session.getWorkspaceReader();
+        if (workspace != null && workspace.findArtifact(artifact) != null) {
+            // reactor plugins are not read from the local repository
+            return null;
+        }
+        // the same check as when resolving the plugin, so that a plugin downloaded from repositories which are not
+        // used anymore is still resolved again
+        LocalArtifactResult result = session.getLocalRepositoryManager()
+                .find(session, new LocalArtifactRequest(artifact, key.repositories, REPOSITORY_CONTEXT));
+        if (!result.isAvailable() || result.getFile() == null) {
+            return null;
+        }
+        return artifact.setFile(result.getFile());
     }
 
     @Override
@@ -99,7 +211,7 @@ public class InvalidatingPluginDescriptorCache extends DefaultPluginDescriptorCa
         try {
             Record r = cache.computeIfAbsent(key, k -> {
                 try {
-                    return new Record(clone(supplier.load()));
+                    return new Record(clone(load(k, supplier)));
                 } catch (PluginDescriptorParsingException
                         | PluginResolutionException
                         | InvalidPluginDescriptorException e) {
@@ -121,8 +233,42 @@ public class InvalidatingPluginDescriptorCache extends DefaultPluginDescriptorCa
         }
     }
 
+    /**
+     * Load the descriptor of a release plugin from the {@link PluginDescriptorStore} if it was stored for its current
+     * jar, otherwise from the given supplier, storing it for the next daemons. Only called on a cache miss.
+     */
+    private PluginDescriptor load(Key key, PluginDescriptorSupplier supplier)
+            throws PluginDescriptorParsingException, PluginResolutionException, InvalidPluginDescriptorException {
+        if (!(key instanceof StoredKey)) {
+            return supplier.load();
+        }
+        Artifact artifact = localArtifact((StoredKey) key);
+        ((StoredKey) key).release();
+        if (artifact == null) {
+            return supplier.load();
+        }
+        Path jar = artifact.getFile().toPath();
+        PluginDescriptor descriptor =
+                store.load(artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion(), jar);
+        if (descriptor != null) {
+            descriptor.setPluginArtifact(RepositoryUtils.toArtifact(artifact));
+            return descriptor;
+        }
+        descriptor = supplier.load();
+        org.apache.maven.artifact.Artifact pluginArtifact = descriptor.getPluginArtifact();
+        if (pluginArtifact != null
+                && pluginArtifact.getFile() != null
+                && pluginArtifact.getFile().toPath().equals(jar)) {
+            store.store(artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion(), jar, descriptor);
+        }
+        return descriptor;
+    }
+
     @Override
     public void put(Key key, PluginDescriptor descriptor) {
+        if (key instanceof StoredKey) {
+            ((StoredKey) key).release();
+        }
         cache.put(key, new Record(clone(descriptor)));
     }
 
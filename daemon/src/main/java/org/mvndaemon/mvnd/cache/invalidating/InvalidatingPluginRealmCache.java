@@ -23,16 +23,25 @@ import javax.inject.Named;
 import javax.inject.Singleton;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 
 import org.apache.maven.artifact.Artifact;
+import org.apache.maven.model.Plugin;
 import org.apache.maven.plugin.DefaultPluginRealmCache;
 import org.apache.maven.plugin.PluginContainerException;
 import org.apache.maven.plugin.PluginResolutionException;
 import org.apache.maven.project.MavenProject;
 import org.codehaus.plexus.classworlds.realm.ClassRealm;
 import org.codehaus.plexus.classworlds.realm.NoSuchRealmException;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.graph.DependencyFilter;
+import org.eclipse.aether.repository.RemoteRepository;
 import org.eclipse.sisu.Priority;
 import org.mvndaemon.mvnd.cache.Cache;
 import org.mvndaemon.mvnd.cache.CacheFactory;
@@ -45,9 +54,13 @@ public class InvalidatingPluginRealmCache extends DefaultPluginRealmCache {
     protected static class Record implements org.mvndaemon.mvnd.cache.CacheRecord {
 
         final CacheRecord record;
+        final RealmKeys keys;
+        /** The number of classes in the jars of the realm, only counted if weighing the realm needs it */
+        private volatile int jarClasses = -1;
 
         public Record(CacheRecord record) {
             this.record = record;
+            this.keys = RealmKeys.of(record.getArtifacts());
         }
 
         @Override
@@ -65,18 +78,77 @@ public class InvalidatingPluginRealmCache extends DefaultPluginRealmCache {
                 // ignore
             }
         }
+
+        @Override
+        public long getWeight() {
+            return RealmWeight.weigh(record.getRealm(), () -> {
+                if (jarClasses < 0) {
+                    jarClasses = RealmWeight.classCount(record.getArtifacts());
+                }
+                return jarClasses;
+            });
+        }
+    }
+
+    /**
+     * A key carrying the plugin of a plugin execution, so that the use of its realm can be recorded when it is looked
+     * up or stored without keeping track of the keys which never are.
+     */
+    static final class ExecutionKey implements Key {
+
+        final Key key;
+        final Plugin plugin;
+
+        ExecutionKey(Key key, Plugin plugin) {
+            this.key = key;
+            this.plugin = plugin;
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o == this || o instanceof ExecutionKey && key.equals(((ExecutionKey) o).key);
+        }
+
+        @Override
+        public String toString() {
+            return key.toString();
+        }
     }
 
     final Cache<Key, Record> cache;
+    /** The realms set up for plugin executions since the last call to {@link #drainUsed()} */
+    private final Set<RealmManifest.Entry> used = ConcurrentHashMap.newKeySet();
 
     @Inject
     public InvalidatingPluginRealmCache(CacheFactory cacheFactory) {
-        cache = cacheFactory.newCache();
+        cache = cacheFactory.newWeightedCache("pluginRealms");
+    }
+
+    @Override
+    public Key createKey(
+            Plugin plugin,
+            ClassLoader parentRealm,
+            Map<String, ClassLoader> foreignImports,
+            DependencyFilter dependencyFilter,
+            List<RemoteRepository> repositories,
+            RepositorySystemSession session) {
+        Key key = super.createKey(plugin, parentRealm, foreignImports, dependencyFilter, repositories, session);
+        // only the realms of plugin executions are recorded, as they are the ones a replay can set up again
+        boolean record = parentRealm == null && dependencyFilter == null && !RealmManifestEventSpy.isReplaying();
+        return new ExecutionKey(key, record ? plugin.clone() : null);
     }
 
     @Override
     public CacheRecord get(Key key) {
         Record r = cache.get(key);
+        if (r != null) {
+            recordUse(key, r.record);
+        }
         return r != null ? r.record : null;
     }
 
@@ -91,6 +163,7 @@ public class InvalidatingPluginRealmCache extends DefaultPluginRealmCache {
                     throw new RuntimeException(e);
                 }
             });
+            recordUse(key, r.record);
             return r.record;
         } catch (RuntimeException e) {
             if (e.getCause() instanceof PluginResolutionException) {
@@ -108,9 +181,29 @@ public class InvalidatingPluginRealmCache extends DefaultPluginRealmCache {
         CacheRecord record = super.put(key, pluginRealm, pluginArtifacts);
         super.cache.remove(key);
         cache.put(key, new Record(record));
+        recordUse(key, record);
         return record;
     }
 
+    private void recordUse(Key key, CacheRecord record) {
+        Plugin plugin = key instanceof ExecutionKey ? ((ExecutionKey) key).plugin : null;
+        if (plugin != null) {
+            RealmManifest.Entry entry = RealmManifest.Entry.of(false, plugin, record.getArtifacts());
+            if (entry != null) {
+                used.add(entry);
+            }
+        }
+    }
+
+    /**
+     * @return the realms set up for plugin executions since the last call to this method
+     */
+    Collection<RealmManifest.Entry> drainUsed() {
+        List<RealmManifest.Entry> entries = new ArrayList<>(used);
+        used.removeAll(entries);
+        return entries;
+    }
+
     @Override
     public void flush() {
         cache.clear();
@@ -30,8 +30,10 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 
 import org.apache.maven.RepositoryUtils;
@@ -74,6 +76,8 @@ public class InvalidatingProjectArtifactsCache extends DefaultProjectArtifactsCa
 
         private boolean aggregating;
 
+        private final String projectId;
+
         private final int hashCode;
 
         public CacheKey(
@@ -113,6 +117,7 @@ public class InvalidatingProjectArtifactsCache extends DefaultProjectArtifactsCa
                     ? Collections.<String>emptySet()
                     : Collections.unmodifiableSet(new HashSet<>(scopesToResolve));
             this.aggregating = aggregating;
+            this.projectId = projectId(groupId, artifactId, version);
 
             int hash = 17;
             hash = hash * 31 + Objects.hashCode(groupId);
@@ -128,15 +133,9 @@ public class InvalidatingProjectArtifactsCache extends DefaultProjectArtifactsCa
             this.hashCode = hash;
         }
 
-        public boolean matches(String groupId, String artifactId, String version) {
-            return Objects.equals(this.groupId, groupId)
-                    && Objects.equals(this.artifactId, artifactId)
-                    && Objects.equals(this.version, version);
-        }
-
         @Override
         public String toString() {
-            return groupId + ":" + artifactId + ":" + version;
+            return projectId;
         }
 
         @Override
@@ -171,9 +170,13 @@ public class InvalidatingProjectArtifactsCache extends DefaultProjectArtifactsCa
 
     static class Record implements org.mvndaemon.mvnd.cache.CacheRecord {
         private final CacheRecord record;
+        private final Key key;
+        private final Map<String, Map<Key, Record>> recordsByProject;
 
-        public Record(CacheRecord record) {
+        public Record(CacheRecord record, Key key, Map<String, Map<Key, Record>> recordsByProject) {
             this.record = record;
+            this.key = key;
+            this.recordsByProject = recordsByProject;
         }
 
         @Override
@@ -188,14 +191,28 @@ public class InvalidatingProjectArtifactsCache extends DefaultProjectArtifactsCa
         }
 
         @Override
-        public void invalidate() {}
+        public void invalidate() {
+            if (key instanceof CacheKey) {
+                // drop the map of the project along with its last record
+                recordsByProject.computeIfPresent(((CacheKey) key).projectId, (id, projectRecords) -> {
+                    projectRecords.remove(key, this);
+                    return projectRecords.isEmpty() ? null : projectRecords;
+                });
+            }
+        }
     }
 
     final Cache<Key, Record> cache;
 
+    /**
+     * The cached records of each project, by <code>groupId:artifactId:version</code>, so that the records of the
+     * projects of a reactor can be evicted without scanning the whole cache.
+     */
+    final Map<String, Map<Key, Record>> recordsByProject = new ConcurrentHashMap<>();
+
     @Inject
     public InvalidatingProjectArtifactsCache(CacheFactory cacheFactory) {
-        this.cache = cacheFactory.newCache();
+        this.cache = cacheFactory.newCache("projectArtifacts");
     }
 
     @Override
@@ -230,7 +247,7 @@ public class InvalidatingProjectArtifactsCache extends DefaultProjectArtifactsCa
     public CacheRecord put(Key key, Set<Artifact> pluginArtifacts) {
         CacheRecord record = super.put(key, pluginArtifacts);
         super.cache.remove(key);
-        cache.put(key, new Record(record));
+        store(key, record);
         return record;
     }
 
@@ -238,13 +255,49 @@ public class InvalidatingProjectArtifactsCache extends DefaultProjectArtifactsCa
     public CacheRecord put(Key key, LifecycleExecutionException e) {
         CacheRecord record = super.put(key, e);
         super.cache.remove(key);
-        cache.put(key, new Record(record));
+        store(key, record);
         return record;
     }
 
+    private void store(Key key, CacheRecord record) {
+        Record r = new Record(record, key, recordsByProject);
+        if (key instanceof CacheKey) {
+            recordsByProject.compute(((CacheKey) key).projectId, (id, projectRecords) -> {
+                if (projectRecords == null) {
+                    projectRecords = new ConcurrentHashMap<>();
+                }
+                projectRecords.put(key, r);
+                return projectRecords;
+            });
+        }
+        cache.put(key, r);
+    }
+
+    /**
+     * Remove the records of the given projects, as building them may have changed their dependencies.
+     *
+     * @param projects the projects of a reactor
+     */
+    public void evict(Collection<MavenProject> projects) {
+        for (MavenProject project : projects) {
+            Map<Key, Record> projectRecords = recordsByProject.remove(
+                    projectId(project.getGroupId(), project.getArtifactId(), project.getVersion()));
+            if (projectRecords != null) {
+                for (Key key : projectRecords.keySet()) {
+                    cache.remove(key);
+                }
+            }
+        }
+    }
+
+    static String projectId(String groupId, String artifactId, String version) {
+        return groupId + ":" + artifactId + ":" + version;
+    }
+
     @Override
     public void flush() {
         cache.clear();
+        recordsByProject.clear();
     }
 
     @Override
@@ -22,14 +22,10 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
-import java.net.URISyntaxException;
-import java.net.URL;
-import java.nio.file.FileSystems;
 import java.nio.file.Path;
-import java.nio.file.PathMatcher;
-import java.nio.file.Paths;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.maven.eventspy.AbstractEventSpy;
 import org.apache.maven.eventspy.EventSpy;
@@ -51,9 +47,10 @@ public class InvalidatingRealmCacheEventSpy extends AbstractEventSpy {
     private final InvalidatingPluginRealmCache pluginCache;
     private final InvalidatingExtensionRealmCache extensionCache;
     private final InvalidatingProjectArtifactsCache projectArtifactsCache;
+    private final Map<String, RealmEvictionRules> compiledRules = new ConcurrentHashMap<>();
     private Path multiModuleProjectDirectory;
     private String pattern;
-    private PathMatcher matcher;
+    private RealmEvictionRules rules = RealmEvictionRules.NONE;
 
     @Inject
     public InvalidatingRealmCacheEventSpy(
@@ -72,119 +69,58 @@ public class InvalidatingRealmCacheEventSpy extends AbstractEventSpy {
                 /*  Store the multiModuleProjectDirectory path */
                 multiModuleProjectDirectory = ((MavenExecutionRequest) event)
                         .getMultiModuleProjectDirectory()
-                        .toPath();
+                        .toPath()
+                        .toAbsolutePath()
+                        .normalize();
                 pattern = Environment.MVND_PLUGIN_REALM_EVICT_PATTERN
                         .asOptional()
                         .orElse(Environment.MVND_PLUGIN_REALM_EVICT_PATTERN.getDefault());
-                if (!pattern.isEmpty()) {
-                    String[] patterns = pattern.split(",");
-                    List<PathMatcher> matchers = new ArrayList<>();
-                    for (String pattern : patterns) {
-                        if (pattern.startsWith("mvn:")) {
-                            String[] parts = pattern.substring("mvn:".length()).split(":");
-                            String groupId, artifactId, version;
-                            if (parts.length >= 3) {
-                                version = parts[2];
-                            } else {
-                                version = "*";
-                            }
-                            if (parts.length >= 2) {
-                                groupId = parts[0];
-                                artifactId = parts[1];
-                            } else {
-                                groupId = "*";
-                                artifactId = parts[0];
-                            }
-                            pattern = "glob:**/" + ("*".equals(groupId) ? "" : groupId.replace('.', '/') + "/")
-                                    + artifactId + "/" + ("*".equals(version) ? "**" : version + "/**");
-                        }
-                        matchers.add(getPathMatcher(pattern));
-                    }
-                    if (matchers.size() == 1) {
-                        matcher = matchers.iterator().next();
-                    } else {
-                        matcher = path -> matchers.stream().anyMatch(f -> f.matches(path));
-                    }
-                }
+                /* Compile the eviction rules once per distinct pattern */
+                rules = compiledRules.computeIfAbsent(pattern, RealmEvictionRules::compile);
             } else if (event instanceof MavenExecutionResult) {
                 /* Evict the entries referring to jars under multiModuleProjectDirectory */
                 pluginCache.cache.removeIf(this::shouldEvict);
                 extensionCache.cache.removeIf(this::shouldEvict);
                 MavenExecutionResult mer = (MavenExecutionResult) event;
                 List<MavenProject> projects = mer.getTopologicallySortedProjects();
-                projectArtifactsCache.cache.removeIf(
-                        (k, r) -> shouldEvict(projects, (InvalidatingProjectArtifactsCache.CacheKey) k, r));
+                if (projects != null) {
+                    projectArtifactsCache.evict(projects);
+                }
             }
         } catch (Exception e) {
             LOG.warn("Could not notify CliPluginRealmCache", e);
         }
     }
 
-    private boolean shouldEvict(
-            List<MavenProject> projects,
-            InvalidatingProjectArtifactsCache.CacheKey k,
-            InvalidatingProjectArtifactsCache.Record v) {
-        return projects.stream().anyMatch(p -> k.matches(p.getGroupId(), p.getArtifactId(), p.getVersion()));
-    }
-
     private boolean shouldEvict(InvalidatingPluginRealmCache.Key k, InvalidatingPluginRealmCache.Record v) {
-        try {
-            for (URL url : v.record.getRealm().getURLs()) {
-                if (url.getProtocol().equals("file")) {
-                    final Path path = Paths.get(url.toURI());
-                    if (path.startsWith(multiModuleProjectDirectory)) {
-                        LOG.debug(
-                                "Removing PluginRealmCache entry {} because it refers to an artifact in the build tree {}",
-                                k,
-                                path);
-                        return true;
-                    } else if (matcher != null && matcher.matches(path)) {
-                        LOG.debug(
-                                "Removing PluginRealmCache entry {} because its components {} matches the eviction pattern '{}'",
-                                k,
-                                path,
-                                pattern);
-                        return true;
-                    }
-                }
-            }
-            return false;
-        } catch (URISyntaxException e) {
-            return true;
-        }
+        return shouldEvict("PluginRealmCache", k, v.keys);
     }
 
     private boolean shouldEvict(InvalidatingExtensionRealmCache.Key k, InvalidatingExtensionRealmCache.Record v) {
-        try {
-            for (URL url : v.record.getRealm().getURLs()) {
-                if (url.getProtocol().equals("file")) {
-                    final Path path = Paths.get(url.toURI());
-                    if (path.startsWith(multiModuleProjectDirectory)) {
-                        LOG.debug(
-                                "Removing ExtensionRealmCache entry {} because it refers to an artifact in the build tree {}",
-                                k,
-                                path);
-                        return true;
-                    } else if (matcher != null && matcher.matches(path)) {
-                        LOG.debug(
-                                "Removing ExtensionRealmCache entry {} because its components {} matches the eviction pattern '{}'",
-                                k,
-                                path,
-                                pattern);
-                        return true;
-                    }
-                }
-            }
-            return false;
-        } catch (URISyntaxException e) {
-            return true;
-        }
+        return shouldEvict("ExtensionRealmCache", k, v.keys);
     }
 
-    private static PathMatcher getPathMatcher(String pattern) {
-        if (!pattern.startsWith("glob:") && !pattern.startsWith("regex:")) {
-            pattern = "glob:" + pattern;
+    private boolean shouldEvict(String cacheName, Object k, RealmKeys keys) {
+        for (Path path : keys.paths) {
+            if (path.startsWith(multiModuleProjectDirectory)) {
+                LOG.debug(
+                        "Removing {} entry {} because it refers to an artifact in the build tree {}",
+                        cacheName,
+                        k,
+                        path);
+                return true;
+            }
+        }
+        Path path = rules.match(keys);
+        if (path != null) {
+            LOG.debug(
+                    "Removing {} entry {} because its components {} matches the eviction pattern '{}'",
+                    cacheName,
+                    k,
+                    path,
+                    pattern);
+            return true;
         }
-        return FileSystems.getDefault().getPathMatcher(pattern);
+        return false;
     }
 }
@@ -0,0 +1,410 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.cache.invalidating;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.plugin.descriptor.DuplicateMojoDescriptorException;
+import org.apache.maven.plugin.descriptor.DuplicateParameterException;
+import org.apache.maven.plugin.descriptor.MojoDescriptor;
+import org.apache.maven.plugin.descriptor.Parameter;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
+import org.apache.maven.plugin.descriptor.Requirement;
+import org.codehaus.plexus.component.repository.ComponentDependency;
+import org.codehaus.plexus.component.repository.ComponentRequirement;
+import org.codehaus.plexus.configuration.PlexusConfiguration;
+import org.codehaus.plexus.configuration.xml.XmlPlexusConfiguration;
+
+/**
+ * A compact binary encoding of the {@link PluginDescriptor}s read from {@code plugin.xml}, much cheaper to decode
+ * than parsing the XML again.
+ * <p>
+ * Each string is written once and then referred to by its index, as parameter types, expressions and configuration
+ * element names repeat a lot within a descriptor. Only the state {@code plugin.xml} provides is encoded: the plugin
+ * artifact, its dependencies and class realm are set when the plugin is set up.
+ */
+final class PluginDescriptorCodec {
+
+    private PluginDescriptorCodec() {}
+
+    static void encode(PluginDescriptor descriptor, DataOutputStream out) throws IOException {
+        new Encoder(out).plugin(descriptor);
+    }
+
+    static PluginDescriptor decode(DataInputStream in) throws IOException {
+        try {
+            return new Decoder(in).plugin();
+        } catch (DuplicateMojoDescriptorException | DuplicateParameterException e) {
+            throw new IOException("Corrupted plugin descriptor", e);
+        }
+    }
+
+    /**
+     * Describes the properties of the given descriptor, of its mojos and their parameters, as returned by their
+     * getters. Comparing the description of a descriptor with the one of its decoded form tells whether the encoding
+     * missed any of them, for instance a property added by a newer Maven version.
+     */
+    static String describe(PluginDescriptor descriptor) {
+        StringBuilder sb = new StringBuilder();
+        describe(descriptor, sb);
+        for (ComponentDependency dependency : descriptor.getDependencies()) {
+            sb.append(dependency).append('\n');
+        }
+        if (descriptor.getMojos() != null) {
+            for (MojoDescriptor mojo : descriptor.getMojos()) {
+                describe(mojo, sb);
+                if (mojo.getParameters() != null) {
+                    for (Parameter parameter : mojo.getParameters()) {
+                        describe(parameter, sb);
+                        sb.append(parameter.getRequirement()).append('\n');
+                    }
+                }
+                for (ComponentRequirement requirement : mojo.getRequirements()) {
+                    sb.append(requirement).append('\n');
+                }
+                sb.append(mojo.getMojoConfiguration()).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void describe(Object bean, StringBuilder sb) {
+        Method[] methods = bean.getClass().getMethods();
+        Arrays.sort(methods, Comparator.comparing(Method::getName));
+        sb.append(bean.getClass().getName()).append('\n');
+        for (Method method : methods) {
+            String name = method.getName();
+            Class<?> type = method.getReturnType();
+            if (method.getParameterCount() == 0
+                    && !Modifier.isStatic(method.getModifiers())
+                    && (name.startsWith("get") || name.startsWith("is"))
+                    && (type.isPrimitive() || type.isEnum() || type == String.class || type == Boolean.class)) {
+                Object value;
+                try {
+                    value = method.invoke(bean);
+                } catch (ReflectiveOperationException | RuntimeException e) {
+                    value = e.getClass().getName();
+                }
+                sb.append(name).append('=').append(value).append('\n');
+            }
+        }
+    }
+
+    private static class Encoder {
+        private final DataOutputStream out;
+        private final Map<String, Integer> strings = new HashMap<>();
+
+        Encoder(DataOutputStream out) {
+            this.out = out;
+        }
+
+        void plugin(PluginDescriptor descriptor) throws IOException {
+            string(descriptor.getGroupId());
+            string(descriptor.getArtifactId());
+            string(descriptor.getVersion());
+            string(descriptor.getGoalPrefix());
+            string(descriptor.getName());
+            string(descriptor.getDescription());
+            string(descriptor.getSource());
+            string(descriptor.getRequiredMavenVersion());
+            out.writeBoolean(descriptor.isInheritedByDefault());
+            out.writeBoolean(descriptor.isIsolatedRealm());
+            List<ComponentDependency> dependencies = descriptor.getDependencies();
+            out.writeInt(dependencies.size());
+            for (ComponentDependency dependency : dependencies) {
+                string(dependency.getGroupId());
+                string(dependency.getArtifactId());
+                string(dependency.getVersion());
+                string(dependency.getType());
+            }
+            List<MojoDescriptor> mojos = descriptor.getMojos();
+            out.writeInt(mojos != null ? mojos.size() : -1);
+            if (mojos != null) {
+                for (MojoDescriptor mojo : mojos) {
+                    mojo(mojo);
+                }
+            }
+        }
+
+        void mojo(MojoDescriptor mojo) throws IOException {
+            string(mojo.getGoal());
+            string(mojo.getImplementation());
+            string(mojo.getLanguage());
+            string(mojo.getComponentConfigurator());
+            string(mojo.getComponentComposer());
+            string(mojo.getComponentFactory());
+            string(mojo.getComponentProfile());
+            string(mojo.getLifecycleHandler());
+            string(mojo.getInstantiationStrategy());
+            string(mojo.getExecutionStrategy());
+            string(mojo.getPhase());
+            string(mojo.getExecutePhase());
+            string(mojo.getExecuteGoal());
+            string(mojo.getExecuteLifecycle());
+            string(mojo.getDescription());
+            string(mojo.getDependencyResolutionRequired());
+            string(mojo.getDependencyCollectionRequired());
+            string(mojo.getSince());
+            string(mojo.getDeprecated());
+            string(mojo.getVersion());
+            string(mojo.getAlias());
+            out.writeBoolean(mojo.isProjectRequired());
+            out.writeBoolean(mojo.isOnlineRequired());
+            out.writeBoolean(mojo.isRequiresReports());
+            out.writeBoolean(mojo.isAggregator());
+            out.writeBoolean(mojo.isInheritedByDefault());
+            out.writeBoolean(mojo.isThreadSafe());
+            out.writeBoolean(mojo.isDirectInvocationOnly());
+            out.writeBoolean(mojo.isIsolatedRealm());
+            List<Parameter> parameters = mojo.getParameters();
+            out.writeInt(parameters != null ? parameters.size() : -1);
+            if (parameters != null) {
+                for (Parameter parameter : parameters) {
+                    parameter(parameter);
+                }
+            }
+            List<ComponentRequirement> requirements = mojo.getRequirements();
+            out.writeInt(requirements.size());
+            for (ComponentRequirement requirement : requirements) {
+                string(requirement.getRole());
+                string(requirement.getRoleHint());
+                string(requirement.getFieldName());
+                out.writeBoolean(requirement.isOptional());
+            }
+            configuration(mojo.getMojoConfiguration());
+        }
+
+        void parameter(Parameter parameter) throws IOException {
+            string(parameter.getName());
+            string(parameter.getAlias());
+            string(parameter.getType());
+            string(parameter.getDescription());
+            string(parameter.getExpression());
+            string(parameter.getDefaultValue());
+            string(parameter.getImplementation());
+            string(parameter.getDeprecated());
+            string(parameter.getSince());
+            out.writeBoolean(parameter.isRequired());
+            out.writeBoolean(parameter.isEditable());
+            Requirement requirement = parameter.getRequirement();
+            out.writeBoolean(requirement != null);
+            if (requirement != null) {
+                string(requirement.getRole());
+                string(requirement.getRoleHint());
+            }
+        }
+
+        void configuration(PlexusConfiguration configuration) throws IOException {
+            string(configuration.getName());
+            string(configuration.getValue(null));
+            String[] attributes = configuration.getAttributeNames();
+            out.writeInt(attributes.length);
+            for (String attribute : attributes) {
+                string(attribute);
+                string(configuration.getAttribute(attribute));
+            }
+            PlexusConfiguration[] children = configuration.getChildren();
+            out.writeInt(children.length);
+            for (PlexusConfiguration child : children) {
+                configuration(child);
+            }
+        }
+
+        /**
+         * Writes {@code -1} for {@code null}, the length and UTF-8 bytes of a string seen for the first time, and
+         * {@code -2 - index} for a string already written.
+         */
+        void string(String s) throws IOException {
+            if (s == null) {
+                out.writeInt(-1);
+                return;
+            }
+            Integer index = strings.get(s);
+            if (index != null) {
+                out.writeInt(-2 - index);
+            } else {
+                strings.put(s, strings.size());
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+    }
+
+    private static class Decoder {
+        private final DataInputStream in;
+        private final List<String> strings = new ArrayList<>();
+
+        Decoder(DataInputStream in) {
+            this.in = in;
+        }
+
+        PluginDescriptor plugin() throws IOException, DuplicateMojoDescriptorException, DuplicateParameterException {
+            PluginDescriptor descriptor = new PluginDescriptor();
+            descriptor.setGroupId(string());
+            descriptor.setArtifactId(string());
+            descriptor.setVersion(string());
+            descriptor.setGoalPrefix(string());
+            descriptor.setName(string());
+            descriptor.setDescription(string());
+            descriptor.setSource(string());
+            descriptor.setRequiredMavenVersion(string());
+            descriptor.setInheritedByDefault(in.readBoolean());
+            descriptor.setIsolatedRealm(in.readBoolean());
+            int dependencies = in.readInt();
+            for (int i = 0; i < dependencies; i++) {
+                ComponentDependency dependency = new ComponentDependency();
+                dependency.setGroupId(string());
+                dependency.setArtifactId(string());
+                dependency.setVersion(string());
+                dependency.setType(string());
+                descriptor.addDependency(dependency);
+            }
+            int mojos = in.readInt();
+            for (int i = 0; i < mojos; i++) {
+                MojoDescriptor mojo = mojo();
+                mojo.setPluginDescriptor(descriptor);
+                descriptor.addMojo(mojo);
+            }
+            return descriptor;
+        }
+
+        MojoDescriptor mojo() throws IOException, DuplicateParameterException {
+            MojoDescriptor mojo = new MojoDescriptor();
+            mojo.setGoal(string());
+            mojo.setImplementation(string());
+            mojo.setLanguage(string());
+            mojo.setComponentConfigurator(string());
+            mojo.setComponentComposer(string());
+            mojo.setComponentFactory(string());
+            mojo.setComponentProfile(string());
+            mojo.setLifecycleHandler(string());
+            mojo.setInstantiationStrategy(string());
+            mojo.setExecutionStrategy(string());
+            mojo.setPhase(string());
+            mojo.setExecutePhase(string());
+            mojo.setExecuteGoal(string());
+            mojo.setExecuteLifecycle(string());
+            mojo.setDescription(string());
+            mojo.setDependencyResolutionRequired(string());
+            mojo.setDependencyCollectionRequired(string());
+            mojo.setSince(string());
+            mojo.setDeprecated(string());
+            mojo.setVersion(string());
+            mojo.setAlias(string());
+            mojo.setProjectRequired(in.readBoolean());
+            mojo.setOnlineRequired(in.readBoolean());
+            mojo.setRequiresReports(in.readBoolean());
+            mojo.setAggregator(in.readBoolean());
+            mojo.setInheritedByDefault(in.readBoolean());
+            mojo.setThreadSafe(in.readBoolean());
+            mojo.setDirectInvocationOnly(in.readBoolean());
+            mojo.setIsolatedRealm(in.readBoolean());
+            int parameters = in.readInt();
+            if (parameters >= 0) {
+                List<Parameter> list = new ArrayList<>(parameters);
+                for (int i = 0; i < parameters; i++) {
+                    list.add(parameter());
+                }
+                mojo.setParameters(list);
+            }
+            int requirements = in.readInt();
+            for (int i = 0; i < requirements; i++) {
+                ComponentRequirement requirement = new ComponentRequirement();
+                requirement.setRole(string());
+                requirement.setRoleHint(string());
+                requirement.setFieldName(string());
+                requirement.setOptional(in.readBoolean());
+                mojo.addRequirement(requirement);
+            }
+            mojo.setMojoConfiguration(configuration());
+            return mojo;
+        }
+
+        Parameter parameter() throws IOException {
+            Parameter parameter = new Parameter();
+            parameter.setName(string());
+            parameter.setAlias(string());
+            parameter.setType(string());
+            parameter.setDescription(string());
+            parameter.setExpression(string());
+            parameter.setDefaultValue(string());
+            parameter.setImplementation(string());
+            parameter.setDeprecated(string());
+            parameter.setSince(string());
+            parameter.setRequired(in.readBoolean());
+            parameter.setEditable(in.readBoolean());
+            if (in.readBoolean()) {
+                String role = string();
+                String roleHint = string();
+                parameter.setRequirement(new Requirement(role, roleHint));
+            }
+            return parameter;
+        }
+
+        PlexusConfiguration configuration() throws IOException {
+            XmlPlexusConfiguration configuration = new XmlPlexusConfiguration(string());
+            String value = string();
+            if (value != null) {
+                configuration.setValue(value);
+            }
+            int attributes = in.readInt();
+            for (int i = 0; i < attributes; i++) {
+                String name = string();
+                configuration.setAttribute(name, string());
+            }
+            int children = in.readInt();
+            for (int i = 0; i < children; i++) {
+                configuration.addChild(configuration());
+            }
+            return configuration;
+        }
+
+        String string() throws IOException {
+            int n = in.readInt();
+            if (n == -1) {
+                return null;
+            } else if (n < -1) {
+                int index = -2 - n;
+                if (index >= strings.size()) {
+                    throw new IOException("Invalid string reference " + index);
+                }
+                return strings.get(index);
+            } else if (n > in.available()) {
+                throw new IOException("Invalid string length " + n);
+            }
+            byte[] bytes = new byte[n];
+            in.readFully(bytes);
+            String s = new String(bytes, StandardCharsets.UTF_8);
+            strings.add(s);
+            return s;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.cache.invalidating;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Objects;
+
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persists plugin descriptors under the daemon storage directory, so that a new daemon does not need to resolve a
+ * plugin and parse its {@code plugin.xml} again to get a descriptor an earlier daemon already loaded.
+ * <p>
+ * Each plugin is stored in its own file, read lazily on the first lookup of the plugin, and tagged with the path, size
+ * and last modification time of the plugin jar: the stored descriptor is ignored, and later replaced, once the jar
+ * changes or when the plugin is looked up in another local repository. Files written by another version of the
+ * encoding or of Maven are ignored in the same way.
+ */
+public class PluginDescriptorStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PluginDescriptorStore.class);
+
+    private static final int MAGIC = 0x4d564e44;
+    static final int FORMAT_VERSION = 2;
+    private static final String SUFFIX = ".bin";
+
+    private final Path directory;
+    private final String mavenVersion;
+
+    public PluginDescriptorStore(Path directory) {
+        this.directory = directory;
+        this.mavenVersion = Objects.toString(PluginDescriptor.class.getPackage().getImplementationVersion(), "");
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @param  groupId    the groupId of the plugin
+     * @param  artifactId the artifactId of the plugin
+     * @param  version    the version of the plugin
+     * @param  jar        the plugin jar
+     * @return            the descriptor stored for the current state of {@code jar} or {@code null} if there is none
+     */
+    public PluginDescriptor load(String groupId, String artifactId, String version, Path jar) {
+        Path file = file(groupId, artifactId, version);
+        if (file == null) {
+            return null;
+        }
+        try {
+            byte[] bytes = Files.readAllBytes(file);
+            BasicFileAttributes attributes = Files.readAttributes(jar, BasicFileAttributes.class);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+            if (in.readInt() != MAGIC
+                    || in.readInt() != FORMAT_VERSION
+                    || !mavenVersion.equals(in.readUTF())
+                    || !jar.toAbsolutePath().toString().equals(in.readUTF())
+                    || in.readLong() != attributes.size()
+                    || in.readLong() != attributes.lastModifiedTime().toMillis()) {
+                LOGGER.debug("Ignoring stale plugin descriptor {}", file);
+                return null;
+            }
+            PluginDescriptor descriptor = PluginDescriptorCodec.decode(in);
+            LOGGER.debug("Loaded plugin descriptor {}", file);
+            return descriptor;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("Could not load plugin descriptor {}", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Store the given descriptor for the current state of {@code jar}, unless the encoding does not preserve all
+     * its properties.
+     *
+     * @param groupId    the groupId of the plugin
+     * @param artifactId the artifactId of the plugin
+     * @param version    the version of the plugin
+     * @param jar        the plugin jar {@code descriptor} was read from
+     * @param descriptor the descriptor to store
+     */
+    public void store(String groupId, String artifactId, String version, Path jar, PluginDescriptor descriptor) {
+        Path file = file(groupId, artifactId, version);
+        if (file == null) {
+            return;
+        }
+        try {
+            byte[] body = encode(descriptor);
+            if (!roundTrips(descriptor, body)) {
+                LOGGER.debug("Not storing plugin descriptor {} which the encoding does not preserve", file);
+                return;
+            }
+            BasicFileAttributes attributes = Files.readAttributes(jar, BasicFileAttributes.class);
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(baos)) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(mavenVersion);
+                out.writeUTF(jar.toAbsolutePath().toString());
+                out.writeLong(attributes.size());
+                out.writeLong(attributes.lastModifiedTime().toMillis());
+                out.write(body);
+            }
+            Files.createDirectories(file.getParent());
+            Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try {
+                Files.write(tmp, baos.toByteArray());
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+            LOGGER.debug("Stored plugin descriptor {}", file);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("Could not store plugin descriptor {}", file, e);
+        }
+    }
+
+    private static byte[] encode(PluginDescriptor descriptor) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(baos)) {
+            PluginDescriptorCodec.encode(descriptor, out);
+        }
+        return baos.toByteArray();
+    }
+
+    /**
+     * @return {@code true} if decoding {@code body} gives back a descriptor with the same properties as
+     *         {@code descriptor}
+     */
+    private static boolean roundTrips(PluginDescriptor descriptor, byte[] body) throws IOException {
+        PluginDescriptor decoded = PluginDescriptorCodec.decode(new DataInputStream(new ByteArrayInputStream(body)));
+        return PluginDescriptorCodec.describe(descriptor).equals(PluginDescriptorCodec.describe(decoded))
+                && Arrays.equals(body, encode(decoded));
+    }
+
+    Path file(String groupId, String artifactId, String version) {
+        if (!isSafe(groupId) || !isSafe(artifactId) || !isSafe(version)) {
+            return null;
+        }
+        return directory.resolve(groupId).resolve(artifactId).resolve(version + SUFFIX);
+    }
+
+    private static boolean isSafe(String segment) {
+        return segment != null
+                && !segment.isEmpty()
+                && !segment.startsWith(".")
+                && segment.indexOf('/') < 0
+                && segment.indexOf('\\') < 0
+                && segment.indexOf(':') < 0;
+    }
+
+    @Override
+    public String toString() {
+        return "PluginDescriptorStore[directory=" + directory + "]";
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.cache.invalidating;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The rules of a {@code mvnd.pluginRealmEvictPattern}, compiled once so that they can be checked against the
+ * {@link RealmKeys} of each cached realm after each build.
+ * <p>
+ * The {@code mvn:} expressions are compiled into a trie over the local repository path segments of the artifacts,
+ * i.e. the segments of the groupId followed by the artifactId and the version, where a {@code *} segment matches any
+ * segment and a rule without a version matches all the versions. Expressions without a groupId are kept in a separate
+ * trie starting at the artifactId. The {@code glob:} and {@code regex:} patterns, and the {@code mvn:} expressions
+ * using other glob constructs than a single {@code *} segment, are still evaluated as {@link PathMatcher}s against
+ * the paths of the artifacts.
+ */
+final class RealmEvictionRules {
+
+    static final RealmEvictionRules NONE = compile("");
+
+    private final Node grouped = new Node();
+    private final Node ungrouped = new Node();
+    private final List<PathMatcher> matchers = new ArrayList<>();
+    private boolean empty = true;
+
+    private RealmEvictionRules() {}
+
+    /**
+     * @param  pattern a comma separated list of {@code mvn:}, {@code glob:} or {@code regex:} patterns
+     * @return         the compiled rules
+     */
+    static RealmEvictionRules compile(String pattern) {
+        RealmEvictionRules rules = new RealmEvictionRules();
+        if (!pattern.isEmpty()) {
+            for (String p : pattern.split(",")) {
+                if (p.startsWith("mvn:")) {
+                    rules.addMaven(p.substring("mvn:".length()));
+                } else {
+                    rules.matchers.add(getPathMatcher(p));
+                }
+                rules.empty = false;
+            }
+        }
+        return rules;
+    }
+
+    boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * @param  keys the keys of a cached realm
+     * @return      the path of the first artifact of the realm matching one of the rules or {@code null} if none does
+     */
+    Path match(RealmKeys keys) {
+        if (empty) {
+            return null;
+        }
+        for (int i = 0; i < keys.paths.length; i++) {
+            String[] segments = keys.segments[i];
+            if (matches(grouped, segments, 0)
+                    || segments.length >= 2 && matches(ungrouped, segments, segments.length - 2)) {
+                return keys.paths[i];
+            }
+            for (PathMatcher matcher : matchers) {
+                if (matcher.matches(keys.paths[i])) {
+                    return keys.paths[i];
+                }
+            }
+        }
+        return null;
+    }
+
+    private void addMaven(String expression) {
+        String[] parts = expression.split(":");
+        String groupId, artifactId, version;
+        if (parts.length >= 3) {
+            version = parts[2];
+        } else {
+            version = "*";
+        }
+        if (parts.length >= 2) {
+            groupId = parts[0];
+            artifactId = parts[1];
+        } else {
+            groupId = "*";
+            artifactId = parts[0];
+        }
+        if (!isSegment(groupId) || !isSegment(artifactId) || !isSegment(version)) {
+            matchers.add(getPathMatcher("glob:**/" + ("*".equals(groupId) ? "" : groupId.replace('.', '/') + "/")
+                    + artifactId + "/" + ("*".equals(version) ? "**" : version + "/**")));
+            return;
+        }
+        List<String> segments = new ArrayList<>();
+        Node root;
+        if ("*".equals(groupId)) {
+            root = ungrouped;
+        } else {
+            root = grouped;
+            for (String segment : groupId.split("\\.")) {
+                segments.add(segment);
+            }
+        }
+        segments.add(artifactId);
+        if (!"*".equals(version)) {
+            segments.add(version);
+        }
+        Node node = root;
+        for (String segment : segments) {
+            node = node.child(segment);
+        }
+        node.terminal = true;
+    }
+
+    private static boolean matches(Node node, String[] segments, int index) {
+        if (node.terminal) {
+            return true;
+        }
+        if (index >= segments.length) {
+            return false;
+        }
+        Node child = node.children.get(segments[index]);
+        if (child != null && matches(child, segments, index + 1)) {
+            return true;
+        }
+        return node.any != null && matches(node.any, segments, index + 1);
+    }
+
+    /**
+     * @return {@code true} if {@code s} is either {@code *} or a non empty string without glob constructs
+     */
+    private static boolean isSegment(String s) {
+        return "*".equals(s) || isLiteral(s);
+    }
+
+    private static boolean isLiteral(String s) {
+        if (s.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            switch (s.charAt(i)) {
+                case '*':
+                case '?':
+                case '[':
+                case ']':
+                case '{':
+                case '}':
+                case '\\':
+                case '/':
+                    return false;
+                default:
+            }
+        }
+        return true;
+    }
+
+    static PathMatcher getPathMatcher(String pattern) {
+        if (!pattern.startsWith("glob:") && !pattern.startsWith("regex:")) {
+            pattern = "glob:" + pattern;
+        }
+        return FileSystems.getDefault().getPathMatcher(pattern);
+    }
+
+    private static final class Node {
+        final Map<String, Node> children = new HashMap<>();
+        Node any;
+        boolean terminal;
+
+        Node child(String segment) {
+            if ("*".equals(segment)) {
+                if (any == null) {
+                    any = new Node();
+                }
+                return any;
+            }
+            return children.computeIfAbsent(segment, s -> new Node());
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.cache.invalidating;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.maven.artifact.Artifact;
+
+/**
+ * The keys {@link RealmEvictionRules} match a cached realm against, computed once when the realm is cached: the
+ * normalized path of each of its artifacts and their coordinates split into local repository path segments, i.e.
+ * the segments of the groupId followed by the artifactId and the base version.
+ */
+final class RealmKeys {
+
+    static final RealmKeys EMPTY = new RealmKeys(new Path[0], new String[0][]);
+
+    final Path[] paths;
+    final String[][] segments;
+
+    private RealmKeys(Path[] paths, String[][] segments) {
+        this.paths = paths;
+        this.segments = segments;
+    }
+
+    /**
+     * @param  artifacts the artifacts of a realm
+     * @return           the keys of the given artifacts, skipping the ones without a file
+     */
+    static RealmKeys of(List<Artifact> artifacts) {
+        List<Path> paths = new ArrayList<>(artifacts.size());
+        List<String[]> segments = new ArrayList<>(artifacts.size());
+        for (Artifact artifact : artifacts) {
+            File file = artifact.getFile();
+            if (file != null) {
+                paths.add(file.toPath().toAbsolutePath().normalize());
+                segments.add(segments(artifact));
+            }
+        }
+        return paths.isEmpty()
+                ? EMPTY
+                : new RealmKeys(paths.toArray(new Path[0]), segments.toArray(new String[0][]));
+    }
+
+    static String[] segments(Artifact artifact) {
+        String[] group = artifact.getGroupId().split("\\.");
+        String[] segments = new String[group.length + 2];
+        System.arraycopy(group, 0, segments, 0, group.length);
+        segments[group.length] = artifact.getArtifactId();
+        segments[group.length + 1] = artifact.getBaseVersion();
+        return segments;
+    }
+}
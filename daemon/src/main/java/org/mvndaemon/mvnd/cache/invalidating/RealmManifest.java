@@ -0,0 +1,402 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.cache.invalidating;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The plugin and extension realms the daemons loaded for the builds of a project root, persisted under the daemon
+ * storage directory, so that a new daemon can build the most frequently used ones in advance.
+ * <p>
+ * Each project root is stored in its own file, named after a hash of the root path. An entry holds the coordinates
+ * and the dependencies of the plugin the realm was built for, the files of the artifacts of the realm, the number of
+ * builds which used it and when it was last used. Files written by another version of the encoding or of Maven are
+ * ignored. Updates are done while holding a lock on a sibling {@code .lock} file, so that daemons building the same
+ * root concurrently do not lose each other's uses.
+ */
+public class RealmManifest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RealmManifest.class);
+
+    private static final int MAGIC = 0x4d564e52;
+    static final int FORMAT_VERSION = 1;
+    private static final String SUFFIX = ".bin";
+    private static final String LOCK_SUFFIX = ".lock";
+    /** File locks are held on behalf of the whole JVM, so the updates of this JVM are serialized with this lock */
+    private static final Object LOCK = new Object();
+
+    /** The maximum number of entries kept per project root, the least used ones being dropped first */
+    static final int MAX_ENTRIES = 256;
+
+    static final Comparator<Entry> MOST_USED_FIRST = Comparator.comparingInt((Entry e) -> e.uses)
+            .thenComparingLong(e -> e.lastUsed)
+            .reversed();
+
+    private final Path directory;
+    private final String mavenVersion;
+
+    public RealmManifest(Path directory) {
+        this.directory = directory;
+        this.mavenVersion = Objects.toString(PluginDescriptor.class.getPackage().getImplementationVersion(), "");
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * The realm of a plugin or of a build extension.
+     */
+    public static class Entry {
+
+        final boolean extension;
+        final String groupId;
+        final String artifactId;
+        final String version;
+        /** The dependencies of the plugin, each one as {@code groupId:artifactId:version:type:classifier:scope} */
+        final List<String> dependencies;
+        final List<Path> artifacts;
+        final int uses;
+        final long lastUsed;
+
+        Entry(
+                boolean extension,
+                String groupId,
+                String artifactId,
+                String version,
+                List<String> dependencies,
+                List<Path> artifacts,
+                int uses,
+                long lastUsed) {
+            this.extension = extension;
+            this.groupId = groupId;
+            this.artifactId = artifactId;
+            this.version = version;
+            this.dependencies = dependencies;
+            this.artifacts = artifacts;
+            this.uses = uses;
+            this.lastUsed = lastUsed;
+        }
+
+        /**
+         * @param  extension {@code true} for an extension realm, {@code false} for a plugin realm
+         * @param  plugin    the plugin the realm was built for
+         * @param  artifacts the artifacts of the realm
+         * @return           the entry of the realm or {@code null} if the realm cannot be replayed, because its
+         *                   plugin dependencies have exclusions or one of its artifacts has no file
+         */
+        static Entry of(boolean extension, Plugin plugin, List<Artifact> artifacts) {
+            if (plugin.getVersion() == null) {
+                return null;
+            }
+            List<String> dependencies = new ArrayList<>();
+            for (Dependency dependency : plugin.getDependencies()) {
+                if (!dependency.getExclusions().isEmpty()) {
+                    return null;
+                }
+                dependencies.add(String.join(
+                        ":",
+                        dependency.getGroupId(),
+                        dependency.getArtifactId(),
+                        dependency.getVersion(),
+                        dependency.getType(),
+                        Objects.toString(dependency.getClassifier(), ""),
+                        Objects.toString(dependency.getScope(), "")));
+            }
+            List<Path> paths = new ArrayList<>(artifacts.size());
+            for (Artifact artifact : artifacts) {
+                File file = artifact.getFile();
+                if (file == null) {
+                    return null;
+                }
+                paths.add(file.toPath().toAbsolutePath().normalize());
+            }
+            return new Entry(
+                    extension,
+                    plugin.getGroupId(),
+                    plugin.getArtifactId(),
+                    plugin.getVersion(),
+                    dependencies,
+                    paths,
+                    0,
+                    0);
+        }
+
+        /**
+         * @return a new plugin with the coordinates and dependencies of this entry
+         */
+        Plugin toPlugin() {
+            Plugin plugin = new Plugin();
+            plugin.setGroupId(groupId);
+            plugin.setArtifactId(artifactId);
+            plugin.setVersion(version);
+            plugin.setExtensions(extension);
+            for (String dependency : dependencies) {
+                String[] parts = dependency.split(":", -1);
+                Dependency d = new Dependency();
+                d.setGroupId(parts[0]);
+                d.setArtifactId(parts[1]);
+                d.setVersion(parts[2]);
+                d.setType(parts[3]);
+                if (!parts[4].isEmpty()) {
+                    d.setClassifier(parts[4]);
+                }
+                if (!parts[5].isEmpty()) {
+                    d.setScope(parts[5]);
+                }
+                plugin.addDependency(d);
+            }
+            return plugin;
+        }
+
+        /**
+         * @return {@code true} if the files of all the artifacts of the realm still exist
+         */
+        boolean isAvailable() {
+            for (Path artifact : artifacts) {
+                if (!Files.isRegularFile(artifact) && !Files.isDirectory(artifact)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return {@code true} if one of the artifacts of the realm is under the given directory
+         */
+        boolean refersTo(Path directory) {
+            for (Path artifact : artifacts) {
+                if (artifact.startsWith(directory)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        String id() {
+            return (extension ? "extension:" : "plugin:") + groupId + ":" + artifactId + ":" + version
+                    + (dependencies.isEmpty() ? "" : dependencies.toString());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Entry && id().equals(((Entry) o).id());
+        }
+
+        @Override
+        public int hashCode() {
+            return id().hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return id();
+        }
+    }
+
+    /**
+     * @param  root the root directory of a project
+     * @return      the entries stored for {@code root}, most used first
+     */
+    public List<Entry> load(Path root) {
+        Path file = file(root);
+        try {
+            byte[] bytes = Files.readAllBytes(file);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+            if (in.readInt() != MAGIC
+                    || in.readInt() != FORMAT_VERSION
+                    || !mavenVersion.equals(in.readUTF())
+                    || !root.toString().equals(in.readUTF())) {
+                LOGGER.debug("Ignoring stale realm manifest {}", file);
+                return new ArrayList<>();
+            }
+            int count = in.readInt();
+            List<Entry> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                boolean extension = in.readBoolean();
+                String groupId = in.readUTF();
+                String artifactId = in.readUTF();
+                String version = in.readUTF();
+                int dependencyCount = in.readInt();
+                List<String> dependencies = new ArrayList<>(dependencyCount);
+                for (int j = 0; j < dependencyCount; j++) {
+                    dependencies.add(in.readUTF());
+                }
+                int artifactCount = in.readInt();
+                List<Path> artifacts = new ArrayList<>(artifactCount);
+                for (int j = 0; j < artifactCount; j++) {
+                    artifacts.add(Paths.get(in.readUTF()));
+                }
+                int uses = in.readInt();
+                long lastUsed = in.readLong();
+                entries.add(
+                        new Entry(extension, groupId, artifactId, version, dependencies, artifacts, uses, lastUsed));
+            }
+            entries.sort(MOST_USED_FIRST);
+            return entries;
+        } catch (NoSuchFileException e) {
+            return new ArrayList<>();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("Could not load realm manifest {}", file, e);
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Count one more use of each of the given realms for {@code root} and store the result, keeping the artifacts
+     * of the most recent use of each realm.
+     *
+     * @param  root the root directory of a project
+     * @param  used the realms a build of {@code root} used
+     * @return      the entries stored for {@code root}, most used first
+     */
+    public List<Entry> record(Path root, Collection<Entry> used) {
+        Path file = file(root);
+        synchronized (LOCK) {
+            try {
+                Files.createDirectories(file.getParent());
+                Path lockFile = file.resolveSibling(file.getFileName() + LOCK_SUFFIX);
+                try (FileChannel channel =
+                                FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                        FileLock lock = channel.lock()) {
+                    return update(root, used);
+                }
+            } catch (IOException e) {
+                LOGGER.debug("Could not lock realm manifest {}", file, e);
+                return update(root, used);
+            }
+        }
+    }
+
+    private List<Entry> update(Path root, Collection<Entry> used) {
+        Map<Entry, Entry> entries = new LinkedHashMap<>();
+        for (Entry entry : load(root)) {
+            entries.put(entry, entry);
+        }
+        long now = System.currentTimeMillis();
+        for (Entry entry : used) {
+            Entry previous = entries.remove(entry);
+            entries.put(
+                    entry,
+                    new Entry(
+                            entry.extension,
+                            entry.groupId,
+                            entry.artifactId,
+                            entry.version,
+                            entry.dependencies,
+                            entry.artifacts,
+                            previous != null ? previous.uses + 1 : 1,
+                            now));
+        }
+        List<Entry> sorted = new ArrayList<>(entries.values());
+        sorted.sort(MOST_USED_FIRST);
+        if (sorted.size() > MAX_ENTRIES) {
+            sorted = new ArrayList<>(sorted.subList(0, MAX_ENTRIES));
+        }
+        store(root, sorted);
+        return sorted;
+    }
+
+    private void store(Path root, List<Entry> entries) {
+        Path file = file(root);
+        try {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(baos)) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(mavenVersion);
+                out.writeUTF(root.toString());
+                out.writeInt(entries.size());
+                for (Entry entry : entries) {
+                    out.writeBoolean(entry.extension);
+                    out.writeUTF(entry.groupId);
+                    out.writeUTF(entry.artifactId);
+                    out.writeUTF(entry.version);
+                    out.writeInt(entry.dependencies.size());
+                    for (String dependency : entry.dependencies) {
+                        out.writeUTF(dependency);
+                    }
+                    out.writeInt(entry.artifacts.size());
+                    for (Path artifact : entry.artifacts) {
+                        out.writeUTF(artifact.toString());
+                    }
+                    out.writeInt(entry.uses);
+                    out.writeLong(entry.lastUsed);
+                }
+            }
+            Files.createDirectories(file.getParent());
+            Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try {
+                Files.write(tmp, baos.toByteArray());
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+            LOGGER.debug("Stored realm manifest {}", file);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("Could not store realm manifest {}", file, e);
+        }
+    }
+
+    Path file(Path root) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(root.toString().getBytes(StandardCharsets.UTF_8));
+            return directory.resolve(HexFormat.of().formatHex(hash, 0, 16) + SUFFIX);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Cannot compute the realm manifest file name", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RealmManifest[directory=" + directory + "]";
+    }
+}
@@ -0,0 +1,360 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.cache.invalidating;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.eventspy.AbstractEventSpy;
+import org.apache.maven.eventspy.EventSpy;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Extension;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.plugin.MavenPluginManager;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.resolver.RepositorySystemSessionFactory;
+import org.eclipse.aether.RepositorySystemSession.CloseableSession;
+import org.eclipse.aether.repository.WorkspaceReader;
+import org.eclipse.sisu.Typed;
+import org.mvndaemon.mvnd.cache.impl.LruEviction;
+import org.mvndaemon.mvnd.common.Environment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records the plugin and extension realms each build uses in the {@link RealmManifest} of its project root, and sets
+ * up the realms earlier daemons used the most for that root once a daemon is idle after its first build of it.
+ * <p>
+ * The realms are set up on a background thread through the {@link MavenPluginManager} with a new offline repository
+ * session for the request and the workspace of the build which just ended, so that they are cached under the same
+ * keys as the ones the next builds of the project create. Each realm is set up while holding the {@link LruEviction#getLock() lock}
+ * of the realm eviction. A new build stops the replay and waits for the realm being set up, the replay is resumed
+ * after that build.
+ */
+@Named
+@Singleton
+@Typed(EventSpy.class)
+public class RealmManifestEventSpy extends AbstractEventSpy {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RealmManifestEventSpy.class);
+
+    private static final ThreadLocal<Boolean> REPLAYING = new ThreadLocal<>();
+
+    private final InvalidatingPluginRealmCache pluginCache;
+    private final InvalidatingExtensionRealmCache extensionCache;
+    private final MavenPluginManager pluginManager;
+    private final RepositorySystemSessionFactory sessionFactory;
+    private final RealmManifest manifest;
+    private final int maxReplayed;
+    /** The project roots whose realms were replayed by this daemon */
+    private final Set<Path> replayed = ConcurrentHashMap.newKeySet();
+    private MavenSession session;
+    private volatile Replay replay;
+
+    @Inject
+    public RealmManifestEventSpy(
+            InvalidatingPluginRealmCache pluginCache,
+            InvalidatingExtensionRealmCache extensionCache,
+            MavenPluginManager pluginManager,
+            RepositorySystemSessionFactory sessionFactory) {
+        this.pluginCache = pluginCache;
+        this.extensionCache = extensionCache;
+        this.pluginManager = pluginManager;
+        this.sessionFactory = sessionFactory;
+        this.maxReplayed = maxReplayed();
+        this.manifest = newManifest(maxReplayed);
+    }
+
+    static int maxReplayed() {
+        String max = Environment.getProperty(Environment.MVND_REALM_REPLAY.getProperty());
+        if (max == null) {
+            max = Environment.MVND_REALM_REPLAY.getDefault();
+        }
+        return Integer.parseInt(max);
+    }
+
+    static RealmManifest newManifest(int maxReplayed) {
+        String storage = Environment.getProperty(Environment.MVND_DAEMON_STORAGE.getProperty());
+        if (storage == null || maxReplayed <= 0) {
+            return null;
+        }
+        return new RealmManifest(Paths.get(storage).resolve("realm-manifests"));
+    }
+
+    /**
+     * @return {@code true} if the current thread is setting up realms from a manifest, in which case their use must
+     *         not be recorded
+     */
+    static boolean isReplaying() {
+        return REPLAYING.get() != null;
+    }
+
+    @Override
+    public void onEvent(Object event) throws Exception {
+        try {
+            if (event instanceof MavenExecutionRequest) {
+                /* A real build has precedence over the replay */
+                Replay r = replay;
+                if (r != null) {
+                    r.cancel();
+                }
+                /* Drained even if nothing is recorded so that the used realms do not pile up */
+                pluginCache.drainUsed();
+                extensionCache.drainUsed();
+                session = null;
+            } else if (manifest == null) {
+                return;
+            } else if (event instanceof ExecutionEvent) {
+                ExecutionEvent executionEvent = (ExecutionEvent) event;
+                if (executionEvent.getType() == ExecutionEvent.Type.SessionEnded) {
+                    session = executionEvent.getSession();
+                }
+            } else if (event instanceof MavenExecutionResult) {
+                MavenSession s = session;
+                session = null;
+                if (s != null) {
+                    buildEnded(s);
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Could not update the realm manifest", e);
+        }
+    }
+
+    private void buildEnded(MavenSession session) {
+        Path root = session.getRequest()
+                .getMultiModuleProjectDirectory()
+                .toPath()
+                .toAbsolutePath()
+                .normalize();
+        List<RealmManifest.Entry> used = new ArrayList<>();
+        for (RealmManifest.Entry entry : pluginCache.drainUsed()) {
+            if (!entry.refersTo(root)) {
+                used.add(entry);
+            }
+        }
+        for (RealmManifest.Entry entry : extensionEntries(session, extensionCache.drainUsed())) {
+            if (!entry.refersTo(root)) {
+                used.add(entry);
+            }
+        }
+        List<RealmManifest.Entry> entries = manifest.record(root, used);
+        if (replayed.add(root)) {
+            List<RealmManifest.Entry> toReplay = new ArrayList<>();
+            for (RealmManifest.Entry entry : entries) {
+                if (toReplay.size() >= maxReplayed) {
+                    break;
+                }
+                if (!used.contains(entry)) {
+                    toReplay.add(entry);
+                }
+            }
+            MavenProject project = replayProject(session);
+            if (toReplay.isEmpty() || project == null) {
+                return;
+            }
+            Replay r = new Replay(
+                    root,
+                    session.getRequest(),
+                    session.getRepositorySession().getWorkspaceReader(),
+                    project,
+                    toReplay);
+            replay = r;
+            r.start();
+        }
+    }
+
+    /**
+     * Find the extension plugins of the projects of the session the given realms were set up for.
+     */
+    private static List<RealmManifest.Entry> extensionEntries(
+            MavenSession session, Collection<List<Artifact>> realms) {
+        List<RealmManifest.Entry> entries = new ArrayList<>();
+        if (realms.isEmpty() || session.getProjects() == null) {
+            return entries;
+        }
+        Map<String, Plugin> extensions = new HashMap<>();
+        for (MavenProject project : session.getProjects()) {
+            for (Plugin plugin : project.getBuildPlugins()) {
+                if (plugin.isExtensions()) {
+                    extensions.putIfAbsent(
+                            plugin.getGroupId() + ":" + plugin.getArtifactId() + ":" + plugin.getVersion(), plugin);
+                }
+            }
+            for (Extension extension : project.getBuildExtensions()) {
+                Plugin plugin = new Plugin();
+                plugin.setGroupId(extension.getGroupId());
+                plugin.setArtifactId(extension.getArtifactId());
+                plugin.setVersion(extension.getVersion());
+                plugin.setExtensions(true);
+                extensions.putIfAbsent(
+                        plugin.getGroupId() + ":" + plugin.getArtifactId() + ":" + plugin.getVersion(), plugin);
+            }
+        }
+        for (List<Artifact> artifacts : realms) {
+            for (Artifact artifact : artifacts) {
+                Plugin plugin = extensions.get(
+                        artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getBaseVersion());
+                if (plugin != null) {
+                    RealmManifest.Entry entry = RealmManifest.Entry.of(true, plugin, artifacts);
+                    if (entry != null) {
+                        entries.add(entry);
+                    }
+                    break;
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * @return a project of the session without build extensions, so that the realms are set up with the same imports
+     *         as for most of the projects
+     */
+    private static MavenProject replayProject(MavenSession session) {
+        List<MavenProject> projects = session.getProjects();
+        if (projects == null || projects.isEmpty()) {
+            return null;
+        }
+        for (MavenProject project : projects) {
+            if (project.getClassRealm() == null) {
+                return project;
+            }
+        }
+        return projects.get(0);
+    }
+
+    class Replay implements Runnable {
+
+        private final Path root;
+        private final MavenExecutionRequest request;
+        private final WorkspaceReader workspaceReader;
+        private final MavenProject project;
+        private final List<RealmManifest.Entry> entries;
+        private final Thread thread;
+        private volatile boolean canceled;
+
+        Replay(
+                Path root,
+                MavenExecutionRequest request,
+                WorkspaceReader workspaceReader,
+                MavenProject project,
+                List<RealmManifest.Entry> entries) {
+            this.root = root;
+            this.request = request;
+            this.workspaceReader = workspaceReader;
+            this.project = project;
+            this.entries = entries;
+            this.thread = new Thread(this, "mvnd-realm-replay");
+            this.thread.setDaemon(true);
+            this.thread.setPriority(Thread.MIN_PRIORITY);
+            this.thread.setContextClassLoader(Thread.currentThread().getContextClassLoader());
+        }
+
+        void start() {
+            thread.start();
+        }
+
+        /**
+         * Stop the replay before its next realm and wait for the realm being set up, if any.
+         */
+        void cancel() {
+            canceled = true;
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void run() {
+            REPLAYING.set(Boolean.TRUE);
+            int count = 0;
+            final Lock evictionLock = LruEviction.getInstance().getLock();
+            try (CloseableSession repositorySession = sessionFactory
+                    .newRepositorySessionBuilder(request)
+                    .setWorkspaceReader(workspaceReader)
+                    // only realms whose artifacts are all local are replayed, so that a build never waits for the
+                    // network when it cancels the replay
+                    .setOffline(true)
+                    .build()) {
+                MavenSession session = new MavenSession(repositorySession, request, new DefaultMavenExecutionResult());
+                session.setCurrentProject(project);
+                for (RealmManifest.Entry entry : entries) {
+                    if (canceled) {
+                        break;
+                    }
+                    if (!entry.isAvailable()) {
+                        LOGGER.debug("Not replaying realm {} whose artifacts no longer exist", entry);
+                        continue;
+                    }
+                    evictionLock.lock();
+                    try {
+                        Plugin plugin = entry.toPlugin();
+                        if (entry.extension) {
+                            pluginManager.setupExtensionsRealm(project, plugin, repositorySession);
+                        } else {
+                            PluginDescriptor descriptor = pluginManager.getPluginDescriptor(
+                                    plugin, project.getRemotePluginRepositories(), repositorySession);
+                            pluginManager.setupPluginRealm(descriptor, session, null, null, null);
+                        }
+                        count++;
+                    } catch (Exception | LinkageError e) {
+                        LOGGER.debug("Could not replay realm {}", entry, e);
+                    } finally {
+                        evictionLock.unlock();
+                    }
+                }
+            } catch (RuntimeException e) {
+                LOGGER.debug("Could not replay the realms of {}", root, e);
+            } finally {
+                REPLAYING.remove();
+                if (canceled) {
+                    // resume after the build which canceled the replay
+                    replayed.remove(root);
+                    LOGGER.debug("Canceled the replay of the realms of {} after {} realms", root, count);
+                } else {
+                    LOGGER.debug("Replayed {} realms of {}", count, root);
+                }
+                if (replay == this) {
+                    replay = null;
+                }
+            }
+        }
+    }
+}
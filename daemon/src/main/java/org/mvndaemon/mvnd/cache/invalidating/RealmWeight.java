@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.cache.invalidating;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.function.IntSupplier;
+import java.util.zip.ZipFile;
+
+import org.apache.maven.artifact.Artifact;
+import org.codehaus.plexus.classworlds.realm.ClassRealm;
+import org.mvndaemon.mvnd.pump.AgentHelper;
+
+/**
+ * Estimates the metaspace retained by a cached {@link ClassRealm}.
+ * <p>
+ * The estimate is based on the number of classes the realm defined so far, which the mvnd agent can tell. Without
+ * the agent, the number of classes in the jars of the realm is used instead, as an upper bound of what loading their
+ * classes costs. Either way, the number of classes is multiplied by {@link #CLASS_WEIGHT}, so that the weights of all
+ * the realms are comparable. Realms are only weighed when the cached ones are evicted, so their jars are not scanned
+ * during the builds, nor at all when there is no budget.
+ */
+final class RealmWeight {
+
+    /** A rough average of the metaspace used by a loaded class */
+    static final long CLASS_WEIGHT = 6 * 1024;
+
+    private RealmWeight() {}
+
+    /**
+     * @return the number of classes in the jars of the given artifacts
+     */
+    static int classCount(List<Artifact> artifacts) {
+        int count = 0;
+        for (Artifact artifact : artifacts) {
+            File file = artifact.getFile();
+            if (file != null && file.isFile()) {
+                try (ZipFile zip = new ZipFile(file)) {
+                    count += (int) zip.stream()
+                            .filter(entry -> entry.getName().endsWith(".class"))
+                            .count();
+                } catch (IOException e) {
+                    // not a jar
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param  realm      the realm to weigh
+     * @param  jarClasses supplies the number of classes in the jars of {@code realm}, only called without the agent
+     * @return            the estimated metaspace retained by {@code realm}
+     */
+    static long weigh(ClassRealm realm, IntSupplier jarClasses) {
+        int classes;
+        try {
+            classes = AgentHelper.getDefinedClassCount(realm);
+        } catch (LinkageError e) {
+            // not running with the agent
+            classes = -1;
+        }
+        return (classes >= 0 ? classes : jarClasses.getAsInt()) * CLASS_WEIGHT;
+    }
+}
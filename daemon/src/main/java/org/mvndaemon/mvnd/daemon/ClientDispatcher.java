@@ -35,6 +35,7 @@ import org.apache.maven.project.MavenProject;
 import org.eclipse.aether.transfer.TransferEvent;
 import org.eclipse.aether.transfer.TransferEvent.EventType;
 import org.eclipse.aether.transfer.TransferEvent.RequestType;
+import org.mvndaemon.mvnd.common.Environment;
 import org.mvndaemon.mvnd.common.Message;
 import org.mvndaemon.mvnd.common.Message.BuildException;
 import org.mvndaemon.mvnd.common.Message.BuildStarted;
@@ -45,6 +46,12 @@ import org.mvndaemon.mvnd.common.Message.BuildStarted;
 public class ClientDispatcher implements BuildEventListener {
     private final Collection<Message> queue;
     private static final Pattern TRAILING_EOLS_PATTERN = Pattern.compile("[\r\n]+$");
+    /**
+     * How often the tails of the project logs are sent when <code>mvnd.logTails</code> is enabled
+     */
+    static final long LOG_TAILS_INTERVAL_MS = 100;
+
+    private volatile ProjectLogTails logTails;
 
     public ClientDispatcher(Collection<Message> queue) {
         this.queue = queue;
@@ -64,6 +71,26 @@ public class ClientDispatcher implements BuildEventListener {
                 projects.size(),
                 maxThreads,
                 _90thArtifactIdLengthPercentile));
+        closeLogTails();
+        if (isLogTails()) {
+            logTails = new ProjectLogTails(queue, terminalWidth(), LOG_TAILS_INTERVAL_MS);
+        }
+    }
+
+    private static boolean isLogTails() {
+        try {
+            return Environment.MVND_LOG_TAILS.asBoolean();
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static int terminalWidth() {
+        try {
+            return Environment.MVND_TERMINAL_WIDTH.asInt();
+        } catch (Exception e) {
+            return 80;
+        }
     }
 
     static int artifactIdLength90thPercentile(List<MavenProject> projects) {
@@ -99,6 +126,10 @@ public class ClientDispatcher implements BuildEventListener {
         if (projectId != null) {
             Boolean b = projects.get(projectId);
             if (b != Boolean.TRUE) {}
+            final ProjectLogTails tails = logTails;
+            if (tails != null && tails.add(projectId, trimTrailingEols(event))) {
+                return;
+            }
         }
         queue.add(
                 projectId == null
@@ -109,6 +140,10 @@ public class ClientDispatcher implements BuildEventListener {
     @Override
     public void projectFinished(String projectId) {
         projects.put(projectId, Boolean.FALSE);
+        final ProjectLogTails tails = logTails;
+        if (tails != null) {
+            tails.flush(projectId);
+        }
         queue.add(Message.projectStopped(projectId));
     }
 
@@ -131,15 +166,40 @@ public class ClientDispatcher implements BuildEventListener {
     }
 
     public void finish(int exitCode) throws Exception {
+        closeLogTails();
         queue.add(new Message.BuildFinished(exitCode));
         queue.add(Message.BareMessage.STOP_SINGLETON);
     }
 
     public void fail(Throwable t) throws Exception {
+        closeLogTails();
         queue.add(new BuildException(t));
         queue.add(Message.BareMessage.STOP_SINGLETON);
     }
 
+    /**
+     * Stop holding back the project logs: the lines held so far are sent and the next ones are sent as they come.
+     * Called when the client stops buffering the project logs.
+     */
+    public void fullProjectLogs() {
+        closeLogTails();
+    }
+
+    /**
+     * Release the resources of this dispatcher, must be called once the build is over, whether it completed or not.
+     */
+    public void close() {
+        closeLogTails();
+    }
+
+    private synchronized void closeLogTails() {
+        final ProjectLogTails tails = logTails;
+        if (tails != null) {
+            logTails = null;
+            tails.close();
+        }
+    }
+
     public void log(String msg) {
         queue.add(Message.log(trimTrailingEols(msg)));
     }
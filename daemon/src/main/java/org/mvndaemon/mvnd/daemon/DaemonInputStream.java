@@ -22,42 +22,42 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InterruptedIOException;
 import java.nio.charset.Charset;
-import java.util.LinkedList;
-import java.util.Objects;
-import java.util.Optional;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiConsumer;
-import java.util.function.Consumer;
 
 import org.apache.maven.logging.ProjectBuildLogAppender;
 
 /**
  * An InputStream implementation that manages input for Maven daemon processes.
  *
- * This class implements a buffered input stream that:
- * 1. Tracks which project is currently reading input using ProjectBuildLogAppender
- * 2. Requests input from the client when needed through a callback
- * 3. Buffers received input data in memory
- *
- * Key behaviors:
- * - Input is requested through startReadingFromProject callback whenever:
- *   a) The reading project changes
- *   b) The input buffer is empty and more data is needed
- * - The callback receives both the project ID and the number of bytes requested
- * - Data is added to the buffer through addInputData, which can be called from another thread
+ * The client streams its standard input to the daemon using credits:
+ * - When a project first reads from or checks the availability of input, the daemon grants the client a window of
+ *   {@code window} characters through the requestInput callback
+ * - The client then pushes input data without waiting for further requests until it has used up its credit; the data
+ *   is encoded into a ring buffer through addInputData, which can be called from another thread, the buffer being
+ *   large enough for a full window whatever the encoding of its characters
+ * - The characters of each chunk of data are granted back to the client once the readers consumed all its bytes and
+ *   the characters to grant reach half the window, or as soon as a reader would otherwise block, so that credit is
+ *   counted in characters on both sides and the client never sends more than the buffer holds
  * - EOF is signaled by calling addInputData with null
  *
+ * As the input is pushed ahead of the reads, available() and read() are answered locally and only block when the
+ * buffer is empty. The very first call to available() waits up to one second for the first data, as the client had no
+ * credit to send anything before.
+ *
  * The stream coordinates between multiple threads:
  * - Reader thread(s): Calling methods to get input
- * - Writer thread: Calling addInputData to provide input data, addInputAvailableData to provide the number of bytes available
+ * - Writer thread: Calling addInputData to provide input data
  *
  * Synchronization:
- * - A lock controls access to datas / available as well as internal state
- * - Readers wait when no data is available using datasReadyCondition.await() / availableReadyCondition.await()
- * - Writers notify readers when new data arrives datasReadyCondition.signalAll() / availableReadyCondition.signalAll()
+ * - A lock controls access to the buffer as well as internal state
+ * - Readers wait when no data is available using dataReadyCondition.await()
+ * - Writers notify readers when new data arrives dataReadyCondition.signalAll()
  *
  * This implementation is particularly important for:
  * 1. Handling piped input (e.g., cat file | mvnd ...)
@@ -65,57 +65,67 @@ import org.apache.maven.logging.ProjectBuildLogAppender;
  * 3. Managing input across multiple project builds
  */
 class DaemonInputStream extends InputStream {
-    private final BiConsumer<String, Integer> startReadingFromProject;
-    private final Consumer<String> requestAvailable;
 
-    private final Lock lock = new ReentrantLock();
-    private final Condition datasReadyCondition = lock.newCondition();
-    private final Condition availableReadyCondition = lock.newCondition();
+    static final int DEFAULT_WINDOW = 256 * 1024;
 
-    private final LinkedList<byte[]> datas = new LinkedList<>();
-    private Optional<Integer> available = Optional.empty();
+    private final BiConsumer<String, Integer> requestInput;
+    private final int window;
+
+    private final Lock lock = new ReentrantLock();
+    private final Condition dataReadyCondition = lock.newCondition();
 
     private final Charset charset;
-    private int pos = -1;
-    private String projectReading = null;
+    private byte[] buffer;
+    private int head;
+    private int count;
+    private boolean started;
+    /** The number of bytes and characters of each chunk of data not fully read yet */
+    private final Deque<int[]> chunks = new ArrayDeque<>();
+    /** The characters of the chunks fully read but not granted back yet */
+    private int consumed;
     private volatile boolean eof = false;
 
-    DaemonInputStream(BiConsumer<String, Integer> startReadingFromProject, Consumer<String> requestAvailable) {
-        this.startReadingFromProject = startReadingFromProject;
-        this.requestAvailable = requestAvailable;
-        this.charset = Charset.forName(System.getProperty("file.encoding"));
+    DaemonInputStream(BiConsumer<String, Integer> requestInput) {
+        this(requestInput, DEFAULT_WINDOW);
+    }
+
+    /**
+     * @param requestInput called with the reading project and the number of characters the client may send in
+     *                     addition to what it was already granted
+     * @param window       the number of characters the client may send ahead of the reads
+     */
+    DaemonInputStream(BiConsumer<String, Integer> requestInput, int window) {
+        this(requestInput, window, Charset.forName(System.getProperty("file.encoding")));
+    }
+
+    DaemonInputStream(BiConsumer<String, Integer> requestInput, int window, Charset charset) {
+        this.requestInput = requestInput;
+        this.window = window;
+        this.charset = charset;
+        this.buffer = new byte[(int) Math.ceil(window * charset.newEncoder().maxBytesPerChar())];
     }
 
     @Override
     public int available() throws IOException {
         lock.lock();
         try {
-            int buffered = datas.stream().mapToInt(a -> a.length).sum() - Math.max(pos, 0);
-
-            if (eof) {
-                return buffered;
-            }
-
-            String projectId = ProjectBuildLogAppender.getProjectId();
-
-            if (!Objects.equals(projectId, projectReading)) {
-                projectReading = projectId;
+            if (count > 0 || eof) {
+                return count;
             }
-
-            requestAvailable.accept(projectId);
-
-            available = Optional.empty();
-
-            try {
-                long remaining = TimeUnit.SECONDS.toNanos(1);
-                while (available.isEmpty() && remaining > 0) {
-                    remaining = availableReadyCondition.awaitNanos(remaining);
+            if (!started) {
+                start();
+                try {
+                    long remaining = TimeUnit.SECONDS.toNanos(1);
+                    while (count == 0 && !eof && remaining > 0) {
+                        remaining = dataReadyCondition.awaitNanos(remaining);
+                    }
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException("Interrupted");
                 }
-            } catch (InterruptedException e) {
-                throw new InterruptedIOException("Interrupted");
+            } else {
+                grantConsumed(true);
             }
-
-            return buffered + available.orElse(0);
+            return count;
         } finally {
             lock.unlock();
         }
@@ -126,52 +136,49 @@ class DaemonInputStream extends InputStream {
         byte[] b = new byte[1];
         int read = read(b, 0, 1);
         if (read == 1) {
-            return b[0];
+            return b[0] & 0xff;
         }
         return -1;
     }
 
     @Override
     public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
         lock.lock();
         try {
-            if (eof && datas.isEmpty()) {
-                return -1; // Return EOF if we've reached the end and no more data
+            if (!started) {
+                start();
             }
-            String projectId = ProjectBuildLogAppender.getProjectId();
-            if (!Objects.equals(projectId, projectReading)) {
-                projectReading = projectId;
-            }
-            int read = 0;
-            while (read < len) {
-                if (datas.isEmpty()) {
-                    if (eof) {
-                        return read > 0 ? read : -1; // Exit properly on EOF
-                    }
-                    if (read > 0) {
-                        break;
-                    }
-                    // Always notify we need input when waiting for data
-                    startReadingFromProject.accept(projectReading, len - read);
-                    try {
-                        datasReadyCondition.await();
-                    } catch (InterruptedException e) {
-                        throw new InterruptedIOException("Interrupted");
-                    }
-                    pos = -1;
-                    continue;
+            while (count == 0) {
+                if (eof) {
+                    return -1;
                 }
-                byte[] curData = datas.getFirst();
-                if (pos >= curData.length) {
-                    datas.removeFirst();
-                    pos = -1;
-                    continue;
+                grantConsumed(true);
+                try {
+                    dataReadyCondition.await();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException("Interrupted");
                 }
-                if (pos < 0) {
-                    pos = 0;
+            }
+            int read = Math.min(len, count);
+            int first = Math.min(read, buffer.length - head);
+            System.arraycopy(buffer, head, b, off, first);
+            System.arraycopy(buffer, 0, b, off + first, read - first);
+            head = (head + read) % buffer.length;
+            count -= read;
+            for (int left = read; left > 0; ) {
+                int[] chunk = chunks.peek();
+                int bytes = Math.min(left, chunk[0]);
+                chunk[0] -= bytes;
+                left -= bytes;
+                if (chunk[0] == 0) {
+                    consumed += chunk[1];
+                    chunks.remove();
                 }
-                b[off + read++] = curData[pos++];
             }
+            grantConsumed(false);
             return read;
         } finally {
             lock.unlock();
@@ -183,22 +190,59 @@ class DaemonInputStream extends InputStream {
         try {
             if (data == null) {
                 eof = true;
-            } else {
-                datas.add(data.getBytes(charset));
+            } else if (!eof && !data.isEmpty()) {
+                byte[] bytes = data.getBytes(charset);
+                if (count + bytes.length > buffer.length) {
+                    // only if the client sent more than it was granted
+                    grow(count + bytes.length);
+                }
+                chunks.add(new int[] {bytes.length, data.length()});
+                int tail = (head + count) % buffer.length;
+                int first = Math.min(bytes.length, buffer.length - tail);
+                System.arraycopy(bytes, 0, buffer, tail, first);
+                System.arraycopy(bytes, first, buffer, 0, bytes.length - first);
+                count += bytes.length;
             }
-            datasReadyCondition.signalAll();
+            dataReadyCondition.signalAll();
         } finally {
             lock.unlock();
         }
     }
 
-    public void addInputAvailableData(int bytesAvailable) {
+    private void start() {
+        started = true;
+        requestInput.accept(ProjectBuildLogAppender.getProjectId(), window);
+    }
+
+    /**
+     * @return the size of the buffer
+     */
+    int capacity() {
         lock.lock();
         try {
-            available = Optional.of(bytesAvailable);
-            availableReadyCondition.signalAll();
+            return buffer.length;
         } finally {
             lock.unlock();
         }
     }
+
+    /**
+     * Give the consumed characters back to the client, either in batches of half the window or, if a reader is about to
+     * wait, whatever has been consumed so far.
+     */
+    private void grantConsumed(boolean waiting) {
+        if (consumed > 0 && !eof && (waiting || consumed >= window / 2)) {
+            requestInput.accept(ProjectBuildLogAppender.getProjectId(), consumed);
+            consumed = 0;
+        }
+    }
+
+    private void grow(int capacity) {
+        byte[] newBuffer = new byte[Math.max(capacity, buffer.length * 2)];
+        int first = Math.min(count, buffer.length - head);
+        System.arraycopy(buffer, head, newBuffer, 0, first);
+        System.arraycopy(buffer, 0, newBuffer, first, count - first);
+        buffer = newBuffer;
+        head = 0;
+    }
 }
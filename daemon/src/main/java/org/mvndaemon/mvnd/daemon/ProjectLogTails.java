@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.daemon;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.jline.utils.AttributedString;
+import org.mvndaemon.mvnd.common.Message;
+
+/**
+ * Holds back the log of the projects being built and only sends their last rows, cut to the terminal width, at most
+ * once per interval. The full log of a project is sent when it is done, so that the client still gets it for its log
+ * file and the final dump. The lines held for a project are capped by {@link #MAX_LINES}: beyond it, the oldest lines
+ * are sent right away, followed by the current tail, so that a noisy project does not grow the heap of the daemon.
+ */
+class ProjectLogTails implements AutoCloseable {
+
+    /**
+     * The number of rows sent for each project, which is the most the client can display
+     */
+    static final int TAIL_ROWS = 10;
+
+    /**
+     * The number of lines held for a project before all but the last {@link #TAIL_ROWS} are sent
+     */
+    static final int MAX_LINES = 1024;
+
+    /**
+     * The width of the indentation the client puts in front of each row
+     */
+    private static final int INDENT = 3;
+
+    static final class Buffer {
+        final List<String> lines = new ArrayList<>();
+        boolean dirty;
+        boolean done;
+    }
+
+    private final Collection<Message> queue;
+    private final int columns;
+    private final Map<String, Buffer> buffers = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    /** Held for reading while adding lines, so that no line is added to a buffer once the tails are closed */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private boolean closed;
+
+    /**
+     * @param queue      the queue of messages to the client
+     * @param width      the width of the client terminal
+     * @param intervalMs how often the tails are sent or {@code 0} if they are only sent by {@link #sendTails()}
+     */
+    ProjectLogTails(Collection<Message> queue, int width, long intervalMs) {
+        this.queue = queue;
+        this.columns = Math.max(1, width - INDENT);
+        if (intervalMs > 0) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "mvnd-log-tails");
+                t.setDaemon(true);
+                return t;
+            });
+            this.scheduler.scheduleWithFixedDelay(this::sendTails, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * @return {@code false} if the tails are closed, in which case the line has to be sent as is
+     */
+    boolean add(String projectId, String line) {
+        lock.readLock().lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            Buffer buffer = buffers.computeIfAbsent(projectId, id -> new Buffer());
+            synchronized (buffer) {
+                buffer.lines.add(line);
+                buffer.dirty = true;
+                if (buffer.lines.size() > MAX_LINES) {
+                    spill(projectId, buffer);
+                }
+            }
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Send the tail of each project that logged something since its tail was last sent.
+     */
+    void sendTails() {
+        for (Map.Entry<String, Buffer> entry : buffers.entrySet()) {
+            Buffer buffer = entry.getValue();
+            synchronized (buffer) {
+                if (buffer.dirty && !buffer.done) {
+                    buffer.dirty = false;
+                    queue.add(Message.logTail(entry.getKey(), tailRows(buffer.lines)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Send all but the last {@link #TAIL_ROWS} lines of the given buffer and its tail, which the client would
+     * otherwise replace by the last of these lines until the next tails are sent.
+     */
+    private void spill(String projectId, Buffer buffer) {
+        List<String> sent = buffer.lines.subList(0, buffer.lines.size() - TAIL_ROWS);
+        for (String line : sent) {
+            queue.add(Message.log(projectId, line));
+        }
+        sent.clear();
+        buffer.dirty = false;
+        queue.add(Message.logTail(projectId, tailRows(buffer.lines)));
+    }
+
+    /**
+     * Send the full log of the given project.
+     */
+    void flush(String projectId) {
+        Buffer buffer = buffers.remove(projectId);
+        if (buffer != null) {
+            synchronized (buffer) {
+                buffer.done = true;
+                for (String line : buffer.lines) {
+                    queue.add(Message.log(projectId, line));
+                }
+                buffer.lines.clear();
+            }
+        }
+    }
+
+    /**
+     * Stop sending tails and send the full log of the projects which are not done yet.
+     */
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        lock.writeLock().lock();
+        try {
+            closed = true;
+            for (String projectId : new ArrayList<>(buffers.keySet())) {
+                flush(projectId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the last {@link #TAIL_ROWS} rows of the given lines, each one cut to the terminal width
+     */
+    List<String> tailRows(List<String> lines) {
+        List<String> rows = new ArrayList<>(TAIL_ROWS);
+        for (int i = lines.size() - 1; i >= 0 && rows.size() < TAIL_ROWS; i--) {
+            String[] split = lines.get(i).split("\n", -1);
+            for (int j = split.length - 1; j >= 0 && rows.size() < TAIL_ROWS; j--) {
+                rows.add(cut(split[j]));
+            }
+        }
+        Collections.reverse(rows);
+        return rows;
+    }
+
+    /**
+     * Rows are only parsed when they may be wider than the terminal; the client cuts the rows again anyway, so it
+     * does not matter if a row with wide characters is a bit longer than needed.
+     */
+    private String cut(String row) {
+        if (row.length() <= columns) {
+            return row;
+        }
+        return AttributedString.fromAnsi(row).columnSubSequence(0, columns).toAnsi();
+    }
+}
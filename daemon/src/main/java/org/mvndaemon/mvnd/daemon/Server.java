@@ -20,6 +20,7 @@ package org.mvndaemon.mvnd.daemon;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.Field;
 import java.nio.ByteBuffer;
 import java.nio.channels.ServerSocketChannel;
@@ -39,6 +40,7 @@ import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -47,9 +49,11 @@ import java.util.stream.Collectors;
 
 import io.takari.maven.builder.smart.SmartBuilder;
 import org.apache.maven.cli.DaemonCli;
-import org.apache.maven.logging.BuildEventListener;
 import org.apache.maven.logging.LoggingOutputStream;
 import org.apache.maven.logging.ProjectBuildLogAppender;
+import org.mvndaemon.mvnd.cache.impl.DefaultCacheFactory;
+import org.mvndaemon.mvnd.cache.impl.FileStateIndex;
+import org.mvndaemon.mvnd.cache.impl.LruEviction;
 import org.mvndaemon.mvnd.common.DaemonConnection;
 import org.mvndaemon.mvnd.common.DaemonException;
 import org.mvndaemon.mvnd.common.DaemonExpirationStatus;
@@ -60,6 +64,7 @@ import org.mvndaemon.mvnd.common.DaemonStopEvent;
 import org.mvndaemon.mvnd.common.Environment;
 import org.mvndaemon.mvnd.common.Message;
 import org.mvndaemon.mvnd.common.Message.BuildRequest;
+import org.mvndaemon.mvnd.common.OsUtils;
 import org.mvndaemon.mvnd.common.ProcessHelper;
 import org.mvndaemon.mvnd.common.SignalHelper;
 import org.mvndaemon.mvnd.common.SocketFamily;
@@ -92,7 +97,10 @@ public class Server implements AutoCloseable, Runnable {
     private final Lock stateLock = new ReentrantLock();
     private final Condition condition = stateLock.newCondition();
     private final DaemonMemoryStatus memoryStatus;
+    private final Duration heartbeatInterval = Environment.MVND_HEARTBEAT_INTERVAL.asDuration();
+    private long lastHeartbeat;
     private final long keepAliveMs;
+    private final AtomicInteger buildsServed = new AtomicInteger();
 
     public static void main(String[] args) {
         try (Server server = new Server()) {
@@ -117,6 +125,9 @@ public class Server implements AutoCloseable, Runnable {
         this.daemonId = Environment.MVND_ID.asString();
         this.noDaemon = Environment.MVND_NO_DAEMON.asBoolean();
         this.keepAliveMs = Environment.MVND_KEEP_ALIVE.asDuration().toMillis();
+        FileStateIndex.getInstance().setRefreshInterval(Environment.MVND_FILE_STATE_REFRESH_INTERVAL.asDuration());
+        FileStateIndex.getInstance().setContentHashing(Environment.MVND_FILE_CONTENT_HASHING.asBoolean());
+        LruEviction.getInstance().setMaxWeight(realmCacheMaxMetaspace());
 
         SocketFamily socketFamily = Environment.MVND_SOCKET_FAMILY
                 .asOptional()
@@ -162,6 +173,7 @@ public class Server implements AutoCloseable, Runnable {
                     cur,
                     cur);
             registry.store(info);
+            heartbeat();
         } catch (Exception e) {
             throw new RuntimeException("Could not initialize " + Server.class.getName(), e);
         }
@@ -216,6 +228,8 @@ public class Server implements AutoCloseable, Runnable {
                     expirationCheckDelay.toMillis(),
                     expirationCheckDelay.toMillis(),
                     TimeUnit.MILLISECONDS);
+            executor.scheduleAtFixedRate(
+                    this::heartbeat, heartbeatInterval.toMillis(), heartbeatInterval.toMillis(), TimeUnit.MILLISECONDS);
             LOGGER.info("Daemon started");
             if (noDaemon) {
                 try (SocketChannel socket = this.socket.accept()) {
@@ -289,6 +303,9 @@ public class Server implements AutoCloseable, Runnable {
                     LOGGER.trace("Client environment dump: {}", buildRequest.getEnv());
                 }
                 handle(connection, buildRequest);
+            } else if (message.getType() == Message.STATUS_REQUEST) {
+                LOGGER.info("Status request received");
+                connection.dispatch(status());
             } else {
                 LOGGER.info("Ignoring message: {}", message);
             }
@@ -302,6 +319,16 @@ public class Server implements AutoCloseable, Runnable {
         }
     }
 
+    private Message.DaemonStatus status() {
+        Runtime runtime = Runtime.getRuntime();
+        return new Message.DaemonStatus(
+                runtime.totalMemory() - runtime.freeMemory(),
+                runtime.maxMemory(),
+                ManagementFactory.getRuntimeMXBean().getUptime(),
+                buildsServed.get(),
+                DefaultCacheFactory.totalSizes());
+    }
+
     private boolean checkToken(SocketChannel socket) {
         byte[] token = new byte[info.getToken().length];
         ByteBuffer tokenBuffer = ByteBuffer.wrap(token);
@@ -353,6 +380,16 @@ public class Server implements AutoCloseable, Runnable {
         }
     }
 
+    private synchronized void heartbeat() {
+        try {
+            // never go back in time, even if the wall clock does
+            lastHeartbeat = Math.max(lastHeartbeat, System.currentTimeMillis());
+            registry.heartbeat(daemonId, heartbeatInterval.toMillis(), lastHeartbeat);
+        } catch (Throwable t) {
+            LOGGER.warn("Could not record daemon heartbeat", t);
+        }
+    }
+
     private void onExpire(String reason, DaemonExpirationStatus status) {
         LOGGER.debug("Storing daemon stop event: {}", reason);
         registry.storeStopEvent(new DaemonStopEvent(daemonId, System.currentTimeMillis(), status, reason));
@@ -505,12 +542,18 @@ public class Server implements AutoCloseable, Runnable {
 
     private void handle(DaemonConnection connection, BuildRequest buildRequest) {
         updateState(Busy);
+        buildsServed.incrementAndGet();
+        final FileStateIndex fileStates = FileStateIndex.getInstance();
+        fileStates.newGeneration();
+        LruEviction.getInstance().newBuild();
+        final long fileStateLookups = fileStates.getLookups();
+        final long fileStateReads = fileStates.getReads();
+        final long fileStateHashes = fileStates.getHashes();
         final BlockingQueue<Message> sendQueue = new PriorityBlockingQueue<>(64, Message.getMessageComparator());
         final BlockingQueue<Message> recvQueue = new LinkedBlockingDeque<>();
-        final BuildEventListener buildEventListener = new ClientDispatcher(sendQueue);
+        final ClientDispatcher buildEventListener = new ClientDispatcher(sendQueue);
         final DaemonInputStream daemonInputStream = new DaemonInputStream(
-                (projectId, bytesToRead) -> sendQueue.add(Message.requestInput(projectId, bytesToRead)),
-                (projectId) -> sendQueue.add(Message.requestInputAvailable(projectId)));
+                (projectId, bytesToRead) -> sendQueue.add(Message.requestInput(projectId, bytesToRead)));
         InputStream in = System.in;
         try {
             System.setIn(daemonInputStream);
@@ -556,15 +599,17 @@ public class Server implements AutoCloseable, Runnable {
                         if (message == null) {
                             break;
                         }
+                        if (message instanceof Message.InputData inputData) {
+                            // input is streamed in large chunks, which are not worth logging
+                            daemonInputStream.addInputData(inputData.getData());
+                            continue;
+                        }
                         LOGGER.info("Received message: {}", message);
                         if (message == Message.BareMessage.CANCEL_BUILD_SINGLETON) {
                             updateState(Canceled);
                             return;
-                        } else if (message instanceof Message.InputData) {
-                            daemonInputStream.addInputData(((Message.InputData) message).getData());
-                        } else if (message instanceof Message.InputAvailableData) {
-                            daemonInputStream.addInputAvailableData(
-                                    ((Message.InputAvailableData) message).getBytesAvailable());
+                        } else if (message == Message.BareMessage.FULL_PROJECT_LOGS_SINGLETON) {
+                            buildEventListener.fullProjectLogs();
                         } else {
                             synchronized (recvQueue) {
                                 recvQueue.put(message);
@@ -638,11 +683,18 @@ public class Server implements AutoCloseable, Runnable {
                         output,
                         error);
                 LOGGER.info("Build finished, finishing message dispatch");
+                LOGGER.info(
+                        "Read the state of {} files for {} cache lookups, hashed {} files ({} files indexed)",
+                        fileStates.getReads() - fileStateReads,
+                        fileStates.getLookups() - fileStateLookups,
+                        fileStates.getHashes() - fileStateHashes,
+                        fileStates.size());
                 buildEventListener.finish(exitCode);
             } catch (Throwable t) {
                 LOGGER.error("Error while building project", t);
                 buildEventListener.fail(t);
             } finally {
+                buildEventListener.close();
                 sender.join();
                 ProjectBuildLogAppender.setProjectId(null);
             }
@@ -651,6 +703,7 @@ public class Server implements AutoCloseable, Runnable {
         } finally {
             System.setIn(in);
             if (!noDaemon) {
+                evictRealms();
                 LOGGER.info("Daemon back to idle");
                 updateState(DaemonState.Idle);
                 System.gc();
@@ -658,12 +711,48 @@ public class Server implements AutoCloseable, Runnable {
         }
     }
 
+    /**
+     * Dispose the least recently used class realms if the cached ones exceed their metaspace budget; this is done
+     * between builds so that no realm in use is disposed, and the realms used by the build which just ended are kept.
+     */
+    private void evictRealms() {
+        try {
+            final LruEviction eviction = LruEviction.getInstance();
+            final int evicted = eviction.evict();
+            if (evicted > 0) {
+                LOGGER.info(
+                        "Evicted {} least recently used cached records to fit in {} of metaspace",
+                        evicted,
+                        OsUtils.bytesToHumanReadable(eviction.getMaxWeight()));
+            }
+        } catch (Throwable t) {
+            LOGGER.warn("Could not evict cached records", t);
+        }
+    }
+
+    /**
+     * @return the configured metaspace budget of the class realm caches, otherwise half of the maximum metaspace if
+     *         it is bounded, otherwise {@code -1} for no limit
+     */
+    static long realmCacheMaxMetaspace() {
+        if (Environment.MVND_REALM_CACHE_MAX_METASPACE.asOptional().isPresent()) {
+            return Environment.MVND_REALM_CACHE_MAX_METASPACE.asMemorySize();
+        }
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> "Metaspace".equals(pool.getName()))
+                .mapToLong(pool -> pool.getUsage().getMax())
+                .filter(max -> max > 0)
+                .map(max -> max / 2)
+                .findFirst()
+                .orElse(-1);
+    }
+
     private void updateState(DaemonState state) {
         if (getState() != state) {
             LOGGER.info("Updating state to: {}", state);
             stateLock.lock();
             try {
-                registry.store(info = info.withState(state));
+                registry.store(info = info.withState(state).withHeartbeat(System.currentTimeMillis()));
                 condition.signalAll();
             } finally {
                 stateLock.unlock();
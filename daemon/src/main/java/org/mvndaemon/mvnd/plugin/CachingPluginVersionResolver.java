@@ -22,9 +22,13 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.apache.maven.artifact.repository.metadata.io.MetadataReader;
@@ -35,12 +39,33 @@ import org.apache.maven.plugin.version.PluginVersionResolver;
 import org.apache.maven.plugin.version.PluginVersionResult;
 import org.apache.maven.plugin.version.internal.DefaultPluginVersionResolver;
 import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
 import org.eclipse.aether.SessionData;
+import org.eclipse.aether.impl.UpdatePolicyAnalyzer;
+import org.eclipse.aether.metadata.DefaultMetadata;
+import org.eclipse.aether.metadata.Metadata;
+import org.eclipse.aether.repository.Authentication;
+import org.eclipse.aether.repository.AuthenticationSelector;
+import org.eclipse.aether.repository.LocalRepositoryManager;
+import org.eclipse.aether.repository.MirrorSelector;
 import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.repository.RepositoryPolicy;
 import org.eclipse.aether.version.VersionScheme;
 import org.eclipse.sisu.Priority;
 import org.eclipse.sisu.Typed;
+import org.mvndaemon.mvnd.cache.Cache;
+import org.mvndaemon.mvnd.cache.CacheFactory;
+import org.mvndaemon.mvnd.cache.CacheRecord;
 
+/**
+ * Caches the resolved plugin versions at two levels: for the duration of a build in the session data, and across
+ * builds in a daemon wide cache.
+ * <p>
+ * A result cached across builds is dropped when the plugin metadata files in the local repository change, and is
+ * not reused once the update policy of one of the repositories, or the <code>-U</code> option, requires checking
+ * the remote metadata again. The results are keyed on the repositories the metadata is actually downloaded from, once
+ * their mirror and authentication are selected, so that changing either in the settings resolves the versions again.
+ */
 @Named
 @Singleton
 @Priority(10)
@@ -49,45 +74,268 @@ public class CachingPluginVersionResolver extends DefaultPluginVersionResolver {
 
     private static final Object CACHE_KEY = new Object();
 
+    /**
+     * The repository metadata is downloaded from for a repository of a request.
+     */
+    static final class EffectiveRepository {
+        private final String id;
+        private final String url;
+        private final Authentication authentication;
+
+        EffectiveRepository(RepositorySystemSession session, RemoteRepository repository) {
+            MirrorSelector mirrorSelector = session.getMirrorSelector();
+            RemoteRepository mirror = mirrorSelector != null ? mirrorSelector.getMirror(repository) : null;
+            RemoteRepository effective = mirror != null ? mirror : repository;
+            Authentication authentication = effective.getAuthentication();
+            AuthenticationSelector authenticationSelector = session.getAuthenticationSelector();
+            if (authentication == null && authenticationSelector != null) {
+                authentication = authenticationSelector.getAuthentication(effective);
+            }
+            this.id = effective.getId();
+            this.url = effective.getUrl();
+            this.authentication = authentication;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof EffectiveRepository)) {
+                return false;
+            }
+            EffectiveRepository that = (EffectiveRepository) o;
+            return Objects.equals(id, that.id)
+                    && Objects.equals(url, that.url)
+                    && Objects.equals(authentication, that.authentication);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(id, url, authentication);
+        }
+
+        @Override
+        public String toString() {
+            return id + " (" + url + ")";
+        }
+    }
+
+    /**
+     * The key of the results cached for the duration of a build, during which the mirror and authentication
+     * selectors do not change, so that the repositories of the request are enough and no selector has to run.
+     */
+    static final class SessionKey {
+        private final String groupId;
+        private final String artifactId;
+        private final List<RemoteRepository> repositories;
+        private final int hashCode;
+
+        SessionKey(PluginVersionRequest request) {
+            this.groupId = request.getGroupId();
+            this.artifactId = request.getArtifactId();
+            this.repositories = request.getRepositories();
+            this.hashCode = Objects.hash(groupId, artifactId, repositories);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof SessionKey)) {
+                return false;
+            }
+            SessionKey that = (SessionKey) o;
+            return hashCode == that.hashCode
+                    && Objects.equals(groupId, that.groupId)
+                    && Objects.equals(artifactId, that.artifactId)
+                    && Objects.equals(repositories, that.repositories);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    protected static class Key {
+        private final String groupId;
+        private final String artifactId;
+        private final List<EffectiveRepository> repositories;
+        private final File localRepository;
+        private final int hashCode;
+
+        public Key(PluginVersionRequest request) {
+            RepositorySystemSession session = request.getRepositorySession();
+            this.groupId = request.getGroupId();
+            this.artifactId = request.getArtifactId();
+            this.repositories = new ArrayList<>(request.getRepositories().size());
+            for (RemoteRepository repository : request.getRepositories()) {
+                repositories.add(new EffectiveRepository(session, repository));
+            }
+            this.localRepository = session.getLocalRepository().getBasedir();
+            this.hashCode = Objects.hash(groupId, artifactId, repositories, localRepository);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) o;
+            return hashCode == that.hashCode
+                    && Objects.equals(groupId, that.groupId)
+                    && Objects.equals(artifactId, that.artifactId)
+                    && repositories.equals(that.repositories)
+                    && Objects.equals(localRepository, that.localRepository);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public String toString() {
+            return groupId + ":" + artifactId + " from " + repositories;
+        }
+    }
+
+    protected static class Record implements CacheRecord {
+
+        private final PluginVersionResult result;
+        private final long resolved;
+        private final List<Path> metadataPaths;
+
+        public Record(PluginVersionResult result, long resolved, List<Path> metadataPaths) {
+            this.result = result;
+            this.resolved = resolved;
+            this.metadataPaths = metadataPaths;
+        }
+
+        @Override
+        public Stream<Path> getDependencyPaths() {
+            return metadataPaths.stream();
+        }
+
+        @Override
+        public void invalidate() {}
+    }
+
+    private final UpdatePolicyAnalyzer updatePolicyAnalyzer;
+    final Cache<Key, Record> cache;
+
     @Inject
     public CachingPluginVersionResolver(
             RepositorySystem repositorySystem,
             MetadataReader metadataReader,
             MavenPluginManager pluginManager,
-            VersionScheme versionScheme) {
+            VersionScheme versionScheme,
+            UpdatePolicyAnalyzer updatePolicyAnalyzer,
+            CacheFactory cacheFactory) {
         super(repositorySystem, metadataReader, pluginManager, versionScheme);
+        this.updatePolicyAnalyzer = updatePolicyAnalyzer;
+        this.cache = cacheFactory.newCache("pluginVersions");
     }
 
     @Override
     public PluginVersionResult resolve(PluginVersionRequest request) throws PluginVersionResolutionException {
-        Map<String, PluginVersionResult> cache =
-                getCache(request.getRepositorySession().getData());
-        String key = getKey(request);
-        PluginVersionResult result = cache.get(key);
+        Map<SessionKey, PluginVersionResult> sessionCache = getCache(request.getRepositorySession().getData());
+        SessionKey sessionKey = new SessionKey(request);
+        PluginVersionResult result = sessionCache.get(sessionKey);
         if (result == null) {
-            result = super.resolve(request);
-            cache.putIfAbsent(key, result);
+            Key key = new Key(request);
+            Record record = cache.get(key);
+            if (record != null
+                    && isUpToDate(
+                            updatePolicyAnalyzer,
+                            record.resolved,
+                            request.getRepositorySession(),
+                            request.getRepositories())) {
+                result = record.result;
+            } else {
+                long resolved = System.currentTimeMillis();
+                result = super.resolve(request);
+                cache.put(key, new Record(result, resolved, getMetadataPaths(request)));
+            }
+            sessionCache.putIfAbsent(sessionKey, result);
         }
         return result;
     }
 
+    /**
+     * @return {@code true} if none of the given repositories would have its metadata checked for updates since the
+     *         {@code resolved} time
+     */
+    static boolean isUpToDate(
+            UpdatePolicyAnalyzer updatePolicyAnalyzer,
+            long resolved,
+            RepositorySystemSession session,
+            List<RemoteRepository> repositories) {
+        if (session.isOffline()) {
+            return true;
+        }
+        for (RemoteRepository repository : repositories) {
+            String policy = session.getUpdatePolicy();
+            if (policy == null) {
+                policy = getUpdatePolicy(updatePolicyAnalyzer, session, repository);
+            }
+            if (policy != null && updatePolicyAnalyzer.isUpdatedRequired(session, resolved, policy)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String getUpdatePolicy(
+            UpdatePolicyAnalyzer updatePolicyAnalyzer, RepositorySystemSession session, RemoteRepository repository) {
+        RepositoryPolicy releases = repository.getPolicy(false);
+        RepositoryPolicy snapshots = repository.getPolicy(true);
+        if (releases.isEnabled() && snapshots.isEnabled()) {
+            return updatePolicyAnalyzer.getEffectiveUpdatePolicy(
+                    session, releases.getUpdatePolicy(), snapshots.getUpdatePolicy());
+        } else if (releases.isEnabled()) {
+            return releases.getUpdatePolicy();
+        } else if (snapshots.isEnabled()) {
+            return snapshots.getUpdatePolicy();
+        }
+        return null;
+    }
+
+    /**
+     * @return the local copies of the plugin metadata the version was resolved from
+     */
+    private static List<Path> getMetadataPaths(PluginVersionRequest request) {
+        RepositorySystemSession session = request.getRepositorySession();
+        LocalRepositoryManager manager = session.getLocalRepositoryManager();
+        Path basedir = session.getLocalRepository().getBasedir().toPath();
+        Metadata metadata = new DefaultMetadata(
+                request.getGroupId(),
+                request.getArtifactId(),
+                "maven-metadata.xml",
+                Metadata.Nature.RELEASE_OR_SNAPSHOT);
+        List<Path> paths = new ArrayList<>(request.getRepositories().size() + 1);
+        paths.add(basedir.resolve(manager.getPathForLocalMetadata(metadata)));
+        for (RemoteRepository repository : request.getRepositories()) {
+            paths.add(basedir.resolve(manager.getPathForRemoteMetadata(metadata, repository, "")));
+        }
+        return paths;
+    }
+
     @SuppressWarnings("unchecked")
-    private Map<String, PluginVersionResult> getCache(SessionData data) {
-        Map<String, PluginVersionResult> cache = (Map<String, PluginVersionResult>) data.get(CACHE_KEY);
+    private Map<SessionKey, PluginVersionResult> getCache(SessionData data) {
+        Map<SessionKey, PluginVersionResult> cache = (Map<SessionKey, PluginVersionResult>) data.get(CACHE_KEY);
         while (cache == null) {
             cache = new ConcurrentHashMap<>(256);
             if (data.set(CACHE_KEY, null, cache)) {
                 break;
             }
-            cache = (Map<String, PluginVersionResult>) data.get(CACHE_KEY);
+            cache = (Map<SessionKey, PluginVersionResult>) data.get(CACHE_KEY);
         }
         return cache;
     }
-
-    private static String getKey(PluginVersionRequest request) {
-        return Stream.concat(
-                        Stream.of(request.getGroupId(), request.getArtifactId()),
-                        request.getRepositories().stream().map(RemoteRepository::getId))
-                .collect(Collectors.joining(":"));
-    }
 }
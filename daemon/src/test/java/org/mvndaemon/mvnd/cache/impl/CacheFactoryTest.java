@@ -20,14 +20,21 @@ package org.mvndaemon.mvnd.cache.impl;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 import java.util.stream.Stream;
 
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import org.mvndaemon.mvnd.cache.Cache;
@@ -38,16 +45,217 @@ public class CacheFactoryTest {
 
     @Test
     void timestampCache(@TempDir Path tempDir) throws IOException, InterruptedException {
-        assertPutGet(tempDir, new TimestampCacheFactory().newCache(), 200);
+        assertPutGet(tempDir, new TimestampCacheFactory().newCache());
     }
 
     @Test
     void watchServiceCache(@TempDir Path tempDir) throws IOException, InterruptedException {
-        int asyncOpDelayMs = Os.current() == Os.MAC ? 2500 : 200;
-        assertPutGet(tempDir, new WatchServiceCacheFactory().newCache(), asyncOpDelayMs);
+        assertPutGet(tempDir, new WatchServiceCacheFactory().newCache());
     }
 
-    public void assertPutGet(Path tempDir, final Cache<String, CacheRecord> cache, int asyncOpDelayMs)
+    @Test
+    void timestampCacheSharesFileStates(@TempDir Path tempDir) throws IOException, InterruptedException {
+        final FileStateIndex index = new FileStateIndex();
+        index.setRefreshInterval(Duration.ofMillis(-1));
+        final TimestampCacheFactory factory = new TimestampCacheFactory(index);
+        final Cache<String, CacheRecord> cache1 = factory.newCache();
+        final Cache<String, CacheRecord> cache2 = factory.newCache();
+
+        final Path jar = tempDir.resolve("org/foo/plugin/1.0/plugin-1.0.jar");
+        Files.createDirectories(jar.getParent());
+        Files.write(jar, "content1".getBytes(StandardCharsets.UTF_8));
+        final Path missing = tempDir.resolve("missing.jar");
+        final SimpleCacheRecord record1 = new SimpleCacheRecord(jar);
+        final SimpleCacheRecord record2 = new SimpleCacheRecord(jar, missing);
+        cache1.put("k", record1);
+        cache2.put("k", record2);
+
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertEquals(record1, cache1.get("k"));
+            Assertions.assertEquals(record2, cache2.get("k"));
+        }
+        Assertions.assertEquals(2, index.size());
+        // the jar is read once for the whole generation, the missing file on each lookup
+        Assertions.assertEquals(1 + 101, index.getReads());
+        Assertions.assertEquals(3 + 300, index.getLookups());
+
+        final long deadline = Files.readAttributes(jar, BasicFileAttributes.class)
+                        .lastModifiedTime()
+                        .toMillis()
+                + 10;
+        while (System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        Files.write(jar, "content1.1".getBytes(StandardCharsets.UTF_8));
+
+        // the change is only seen in the next generation
+        Assertions.assertEquals(record1, cache1.get("k"));
+        index.newGeneration();
+        Assertions.assertNull(cache1.get("k"));
+        Assertions.assertTrue(record1.invalidated);
+        Assertions.assertNull(cache2.get("k"));
+        Assertions.assertTrue(record2.invalidated);
+    }
+
+    @Test
+    void timestampCacheReadsReactorArtifactsOnEachLookup(@TempDir Path tempDir)
+            throws IOException, InterruptedException {
+        final FileStateIndex index = new FileStateIndex();
+        index.setRefreshInterval(Duration.ofMillis(-1));
+        final Cache<String, CacheRecord> cache = new TimestampCacheFactory(index).newCache();
+
+        final Path jar = tempDir.resolve("plugin/target/plugin-1.0.jar");
+        Files.createDirectories(jar.getParent());
+        Files.write(jar, "content1".getBytes(StandardCharsets.UTF_8));
+        final SimpleCacheRecord record = new SimpleCacheRecord(jar);
+        cache.put("k", record);
+        Assertions.assertEquals(record, cache.get("k"));
+        Assertions.assertEquals(2, index.getReads());
+
+        final long deadline = Files.readAttributes(jar, BasicFileAttributes.class)
+                        .lastModifiedTime()
+                        .toMillis()
+                + 10;
+        while (System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        Files.write(jar, "content1.1".getBytes(StandardCharsets.UTF_8));
+
+        // the jar rebuilt by the current build is seen within the same generation
+        Assertions.assertNull(cache.get("k"));
+        Assertions.assertTrue(record.invalidated);
+    }
+
+    @Test
+    void fileStateIndexDropsUnusedPaths(@TempDir Path tempDir) throws IOException {
+        final FileStateIndex index = new FileStateIndex();
+        final Cache<String, CacheRecord> cache = new TimestampCacheFactory(index).newCache();
+        final Path used = tempDir.resolve("used.jar");
+        Files.write(used, "content1".getBytes(StandardCharsets.UTF_8));
+        final Path unused = tempDir.resolve("unused.jar");
+        Files.write(unused, "content2".getBytes(StandardCharsets.UTF_8));
+        cache.put("used", new SimpleCacheRecord(used));
+        cache.put("unused", new SimpleCacheRecord(unused));
+        Assertions.assertEquals(2, index.size());
+
+        // the paths looked up during the previous generation are kept
+        index.newGeneration();
+        Assertions.assertEquals(2, index.size());
+        Assertions.assertNotNull(cache.get("used"));
+
+        // the record of a dropped path is still checked against the state it holds
+        index.newGeneration();
+        Assertions.assertEquals(1, index.size());
+        Assertions.assertNotNull(cache.get("unused"));
+        Files.delete(unused);
+        Assertions.assertNull(cache.get("unused"));
+    }
+
+    @Test
+    void timestampCacheComparesContent(@TempDir Path tempDir) throws IOException {
+        final FileStateIndex index = new FileStateIndex();
+        index.setContentHashing(true);
+        final Cache<String, CacheRecord> cache = new TimestampCacheFactory(index).newCache();
+
+        final Path snapshot = tempDir.resolve("org/foo/foo/1.0-SNAPSHOT/foo-1.0-SNAPSHOT.jar");
+        Files.createDirectories(snapshot.getParent());
+        Files.write(snapshot, "content1".getBytes(StandardCharsets.UTF_8));
+        final Path release = tempDir.resolve("org/foo/bar/1.0/bar-1.0.jar");
+        Files.createDirectories(release.getParent());
+        Files.write(release, "content1".getBytes(StandardCharsets.UTF_8));
+        final SimpleCacheRecord snapshotRecord = new SimpleCacheRecord(snapshot);
+        final SimpleCacheRecord releaseRecord = new SimpleCacheRecord(release);
+        cache.put("snapshot", snapshotRecord);
+        cache.put("release", releaseRecord);
+        Assertions.assertEquals(1, index.getHashes());
+
+        // touching the snapshot does not invalidate it
+        final FileTime modified = Files.getLastModifiedTime(snapshot);
+        Files.setLastModifiedTime(snapshot, FileTime.fromMillis(modified.toMillis() + 10_000));
+        Assertions.assertEquals(snapshotRecord, cache.get("snapshot"));
+        Assertions.assertEquals(2, index.getHashes());
+        Assertions.assertEquals(snapshotRecord, cache.get("snapshot"));
+        Assertions.assertEquals(2, index.getHashes());
+
+        // rewriting it while preserving its modification time does
+        final FileTime touched = Files.getLastModifiedTime(snapshot);
+        Files.write(snapshot, "content1.1".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(snapshot, touched);
+        Assertions.assertNull(cache.get("snapshot"));
+        Assertions.assertTrue(snapshotRecord.invalidated);
+
+        // release artifacts are never hashed
+        Files.setLastModifiedTime(release, FileTime.fromMillis(modified.toMillis() + 10_000));
+        Assertions.assertNull(cache.get("release"));
+        Assertions.assertTrue(releaseRecord.invalidated);
+        Assertions.assertEquals(3, index.getHashes());
+    }
+
+    @Test
+    void timestampCacheNoticesInPlaceRewrites(@TempDir Path tempDir) throws IOException, InterruptedException {
+        Assumptions.assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("unix"));
+        final FileStateIndex index = new FileStateIndex();
+        index.setContentHashing(true);
+        final Cache<String, CacheRecord> cache = new TimestampCacheFactory(index).newCache();
+
+        final Path snapshot = tempDir.resolve("org/foo/foo/1.0-SNAPSHOT/foo-1.0-SNAPSHOT.jar");
+        Files.createDirectories(snapshot.getParent());
+        Files.write(snapshot, "content1".getBytes(StandardCharsets.UTF_8));
+        final SimpleCacheRecord record = new SimpleCacheRecord(snapshot);
+        cache.put("snapshot", record);
+        Assertions.assertEquals(record, cache.get("snapshot"));
+        Assertions.assertEquals(1, index.getHashes());
+
+        final FileTime modified = Files.getLastModifiedTime(snapshot);
+        final long deadline = modified.toMillis() + 10;
+        while (System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        // same size, same modification time, different content
+        Files.write(snapshot, "content2".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(snapshot, modified);
+
+        Assertions.assertNull(cache.get("snapshot"));
+        Assertions.assertTrue(record.invalidated);
+        Assertions.assertEquals(2, index.getHashes());
+    }
+
+    @Test
+    void fileStatesWithAndWithoutHashAreNotEqual(@TempDir Path tempDir) throws IOException {
+        final Path file = tempDir.resolve("foo.jar");
+        Files.write(file, "content1".getBytes(StandardCharsets.UTF_8));
+        final TimestampCacheFactory.FileState metadata = new TimestampCacheFactory.FileState(file);
+        final TimestampCacheFactory.FileState hashed = new TimestampCacheFactory.FileState(metadata, 1);
+        Assertions.assertEquals(metadata, new TimestampCacheFactory.FileState(file));
+        Assertions.assertEquals(hashed, new TimestampCacheFactory.FileState(metadata, 1));
+        Assertions.assertNotEquals(metadata, hashed);
+        Assertions.assertNotEquals(hashed, metadata);
+        Assertions.assertNotEquals(hashed, new TimestampCacheFactory.FileState(metadata, 2));
+    }
+
+    @Test
+    void mutablePaths() {
+        Assertions.assertFalse(FileStateIndex.isMutable(Paths.get("/repo/org/foo/bar/1.0/bar-1.0.jar")));
+        Assertions.assertFalse(FileStateIndex.isMutable(Paths.get("/repo/org/foo/bar/1.0/bar-1.0-tests.jar")));
+        Assertions.assertTrue(
+                FileStateIndex.isMutable(Paths.get("/repo/org/foo/bar/1.0-SNAPSHOT/bar-1.0-SNAPSHOT.jar")));
+        Assertions.assertTrue(
+                FileStateIndex.isMutable(Paths.get("/repo/org/foo/bar/1.0-SNAPSHOT/bar-1.0-20240101.120000-1.jar")));
+        Assertions.assertTrue(FileStateIndex.isMutable(Paths.get("/project/bar/target/bar-1.0.jar")));
+    }
+
+    /**
+     * Wait for the given condition, as file system events may be delivered asynchronously.
+     */
+    static void await(BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(Os.current() == Os.MAC ? 30 : 10);
+        while (!condition.getAsBoolean()) {
+            Assertions.assertTrue(System.nanoTime() < deadline, "Timed out waiting for the cache to be updated");
+            Thread.sleep(10);
+        }
+    }
+
+    static void assertPutGet(Path tempDir, final Cache<String, CacheRecord> cache)
             throws IOException, InterruptedException {
         final Path file1 = tempDir.resolve("file1");
         Files.write(file1, "content1".getBytes(StandardCharsets.UTF_8));
@@ -79,9 +287,7 @@ public class CacheFactoryTest {
         }
 
         Files.write(file1, "content1.1".getBytes(StandardCharsets.UTF_8));
-        if (asyncOpDelayMs > 0) {
-            Thread.sleep(asyncOpDelayMs);
-        }
+        await(() -> !cache.contains(k1));
 
         Assertions.assertFalse(cache.contains(k1));
         Assertions.assertNull(cache.get(k1));
@@ -91,9 +297,7 @@ public class CacheFactoryTest {
         Assertions.assertFalse(record2.invalidated);
 
         Files.delete(file2);
-        if (asyncOpDelayMs > 0) {
-            Thread.sleep(asyncOpDelayMs);
-        }
+        await(() -> !cache.contains(k2));
         Assertions.assertFalse(cache.contains(k2));
         Assertions.assertNull(cache.get(k2));
         Assertions.assertTrue(record2.invalidated);
@@ -102,7 +306,7 @@ public class CacheFactoryTest {
     static class SimpleCacheRecord implements org.mvndaemon.mvnd.cache.CacheRecord {
 
         private final List<Path> paths;
-        private boolean invalidated = false;
+        volatile boolean invalidated = false;
 
         SimpleCacheRecord(Path... paths) {
             this.paths = Arrays.asList(paths);
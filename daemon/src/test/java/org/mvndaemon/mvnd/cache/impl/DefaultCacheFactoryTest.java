@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.cache.impl;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mvndaemon.mvnd.cache.Cache;
+import org.mvndaemon.mvnd.cache.CacheRecord;
+
+public class DefaultCacheFactoryTest {
+
+    @Test
+    void statisticsSummedByName() throws Exception {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name = new ObjectName("org.mvndaemon.mvnd:type=Cache,name=defaultCacheFactoryTest");
+        final DefaultCacheFactory first = new DefaultCacheFactory();
+        final Cache<String, CacheRecord> firstCache = first.newCache("defaultCacheFactoryTest");
+        Assertions.assertNull(firstCache.get("a"));
+        final WeakReference<DefaultCacheFactory> second = miss(new DefaultCacheFactory());
+
+        Assertions.assertEquals(
+                1,
+                server.queryNames(new ObjectName("org.mvndaemon.mvnd:type=Cache,name=defaultCacheFactoryTest,*"), null)
+                        .size());
+        Assertions.assertEquals(2L, server.getAttribute(name, "Misses"));
+
+        // the registered statistics do not keep the discarded factories reachable
+        for (int i = 0; i < 100 && second.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        Assertions.assertNull(second.get());
+        Assertions.assertEquals(1L, server.getAttribute(name, "Misses"));
+        Assertions.assertNotNull(first);
+    }
+
+    private static WeakReference<DefaultCacheFactory> miss(DefaultCacheFactory factory) {
+        Assertions.assertNull(factory.newCache("defaultCacheFactoryTest").get("a"));
+        return new WeakReference<>(factory);
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.cache.impl;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mvndaemon.mvnd.cache.Cache;
+import org.mvndaemon.mvnd.cache.CacheRecord;
+import org.mvndaemon.mvnd.cache.impl.CacheFactoryTest.SimpleCacheRecord;
+
+import static org.mvndaemon.mvnd.cache.impl.CacheFactoryTest.assertPutGet;
+import static org.mvndaemon.mvnd.cache.impl.CacheFactoryTest.await;
+
+public class InotifyCacheFactoryTest {
+
+    static final WatchEvent<Object> OVERFLOW = new WatchEvent<Object>() {
+        @Override
+        public Kind<Object> kind() {
+            return StandardWatchEventKinds.OVERFLOW;
+        }
+
+        @Override
+        public int count() {
+            return 1;
+        }
+
+        @Override
+        public Object context() {
+            return null;
+        }
+    };
+
+    @Test
+    void inotifyCache(@TempDir Path tempDir) throws IOException, InterruptedException {
+        try (InotifyCacheFactory factory = new InotifyCacheFactory()) {
+            assertPutGet(tempDir, factory.newCache());
+        }
+    }
+
+    @Test
+    void replacedFile(@TempDir Path tempDir) throws IOException, InterruptedException {
+        try (InotifyCacheFactory factory = new InotifyCacheFactory()) {
+            final Cache<String, CacheRecord> cache = factory.newCache();
+            final Path jar = tempDir.resolve("plugin.jar");
+            Files.write(jar, "content1".getBytes(StandardCharsets.UTF_8));
+            final SimpleCacheRecord record = new SimpleCacheRecord(jar);
+            cache.put("k", record);
+            Assertions.assertEquals(record, cache.get("k"));
+
+            final Path tmp = tempDir.resolve("plugin.jar.tmp");
+            Files.write(tmp, "content2".getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, jar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            await(() -> cache.get("k") == null);
+
+            Assertions.assertTrue(record.invalidated);
+        }
+    }
+
+    @Test
+    void unrelatedChanges(@TempDir Path tempDir) throws IOException, InterruptedException {
+        try (InotifyCacheFactory factory = new InotifyCacheFactory()) {
+            final Cache<String, CacheRecord> cache = factory.newCache();
+            final Path jar = tempDir.resolve("plugin.jar");
+            Files.write(jar, "content1".getBytes(StandardCharsets.UTF_8));
+            final SimpleCacheRecord record = new SimpleCacheRecord(jar);
+            cache.put("k", record);
+            final Path marker = tempDir.resolve("marker.jar");
+            Files.write(marker, "marker".getBytes(StandardCharsets.UTF_8));
+            final SimpleCacheRecord markerRecord = new SimpleCacheRecord(marker);
+            cache.put("marker", markerRecord);
+
+            Files.write(tempDir.resolve("plugin.pom"), "pom".getBytes(StandardCharsets.UTF_8));
+            Files.delete(tempDir.resolve("plugin.pom"));
+            // the events of a directory are processed in order, so the unrelated ones are processed once the marker
+            // record is invalidated
+            Files.delete(marker);
+            await(() -> markerRecord.invalidated);
+
+            Assertions.assertEquals(record, cache.get("k"));
+            Assertions.assertFalse(record.invalidated);
+        }
+    }
+
+    @Test
+    void overflowChecksFileStates(@TempDir Path tempDir) throws IOException {
+        try (InotifyCacheFactory factory = new InotifyCacheFactory(new FileStateIndex(), false)) {
+            final Cache<String, CacheRecord> cache = factory.newCache();
+            final Path jar1 = tempDir.resolve("plugin1.jar");
+            Files.write(jar1, "content1".getBytes(StandardCharsets.UTF_8));
+            final SimpleCacheRecord record1 = new SimpleCacheRecord(jar1);
+            cache.put("k1", record1);
+            final Path jar2 = tempDir.resolve("plugin2.jar");
+            Files.write(jar2, "content2".getBytes(StandardCharsets.UTF_8));
+            final SimpleCacheRecord record2 = new SimpleCacheRecord(jar2);
+            cache.put("k2", record2);
+
+            Files.write(jar1, "content1.1".getBytes(StandardCharsets.UTF_8));
+            factory.collect(tempDir, Collections.singletonList(OVERFLOW))
+                    .forEach(InotifyCacheFactory.WatchedRecord::invalidate);
+
+            // only the record whose file changed is invalidated
+            Assertions.assertNull(cache.get("k1"));
+            Assertions.assertTrue(record1.invalidated);
+            Assertions.assertEquals(record2, cache.get("k2"));
+            Assertions.assertFalse(record2.invalidated);
+        }
+    }
+
+    @Test
+    void failedWatcherChecksFileStates(@TempDir Path tempDir) throws IOException {
+        try (InotifyCacheFactory factory = new InotifyCacheFactory(new FileStateIndex(), false)) {
+            final Cache<String, CacheRecord> cache = factory.newCache();
+            final Path jar1 = tempDir.resolve("plugin1.jar");
+            Files.write(jar1, "content1".getBytes(StandardCharsets.UTF_8));
+            final SimpleCacheRecord record1 = new SimpleCacheRecord(jar1);
+            cache.put("k1", record1);
+
+            factory.failed(new IllegalStateException("test"));
+
+            // records added once the watcher died are checked on lookup too
+            final Path jar2 = tempDir.resolve("plugin2.jar");
+            Files.write(jar2, "content2".getBytes(StandardCharsets.UTF_8));
+            final SimpleCacheRecord record2 = new SimpleCacheRecord(jar2);
+            cache.put("k2", record2);
+            Assertions.assertEquals(record2, cache.get("k2"));
+
+            final FileTime later = FileTime.fromMillis(System.currentTimeMillis() + 10_000);
+            Files.write(jar1, "content1.1".getBytes(StandardCharsets.UTF_8));
+            Files.setLastModifiedTime(jar1, later);
+            Files.write(jar2, "content2.1".getBytes(StandardCharsets.UTF_8));
+            Files.setLastModifiedTime(jar2, later);
+            Assertions.assertNull(cache.get("k1"));
+            Assertions.assertTrue(record1.invalidated);
+            Assertions.assertNull(cache.get("k2"));
+            Assertions.assertTrue(record2.invalidated);
+        }
+    }
+
+    @Test
+    void sharedFileHashedOnce(@TempDir Path tempDir) throws IOException {
+        final FileStateIndex index = new FileStateIndex();
+        index.setContentHashing(true);
+        try (InotifyCacheFactory factory = new InotifyCacheFactory(index, false)) {
+            final Cache<String, CacheRecord> cache = factory.newCache();
+            final Path jar = tempDir.resolve("org/foo/foo/1.0-SNAPSHOT/foo-1.0-SNAPSHOT.jar");
+            Files.createDirectories(jar.getParent());
+            Files.write(jar, "content1".getBytes(StandardCharsets.UTF_8));
+            final SimpleCacheRecord record1 = new SimpleCacheRecord(jar);
+            final SimpleCacheRecord record2 = new SimpleCacheRecord(jar);
+            cache.put("k1", record1);
+            cache.put("k2", record2);
+            Assertions.assertEquals(1, index.getHashes());
+
+            // a change of the attributes only is checked once for all the records
+            Files.setLastModifiedTime(
+                    jar, FileTime.fromMillis(Files.getLastModifiedTime(jar).toMillis() + 10_000));
+            Assertions.assertTrue(factory.collect(jar.getParent(), Collections.singletonList(OVERFLOW))
+                    .isEmpty());
+            Assertions.assertEquals(2, index.getHashes());
+            Assertions.assertEquals(record1, cache.get("k1"));
+            Assertions.assertEquals(record2, cache.get("k2"));
+        }
+    }
+
+    @Test
+    void unwatchableFileCheckedOnLookup(@TempDir Path tempDir) throws IOException {
+        try (InotifyCacheFactory factory = new InotifyCacheFactory()) {
+            final Cache<String, CacheRecord> cache = factory.newCache();
+            // a reactor artifact which is not built yet
+            final Path jar = tempDir.resolve("target/module.jar");
+            final SimpleCacheRecord record = new SimpleCacheRecord(jar);
+            cache.put("k", record);
+            Assertions.assertEquals(record, cache.get("k"));
+
+            Files.createDirectories(jar.getParent());
+            Files.write(jar, "content1".getBytes(StandardCharsets.UTF_8));
+
+            Assertions.assertNull(cache.get("k"));
+            Assertions.assertTrue(record.invalidated);
+        }
+    }
+
+    @Test
+    void computeIfAbsentAfterChange(@TempDir Path tempDir) throws IOException, InterruptedException {
+        try (InotifyCacheFactory factory = new InotifyCacheFactory()) {
+            final Cache<String, CacheRecord> cache = factory.newCache();
+            final Path jar = tempDir.resolve("plugin.jar");
+            Files.write(jar, "content1".getBytes(StandardCharsets.UTF_8));
+            final AtomicInteger computations = new AtomicInteger();
+
+            final SimpleCacheRecord record1 = (SimpleCacheRecord) cache.computeIfAbsent("k", k -> {
+                computations.incrementAndGet();
+                return new SimpleCacheRecord(jar);
+            });
+            Assertions.assertSame(record1, cache.computeIfAbsent("k", k -> {
+                computations.incrementAndGet();
+                return new SimpleCacheRecord(jar);
+            }));
+            Assertions.assertEquals(1, computations.get());
+
+            Files.delete(jar);
+            await(() -> record1.invalidated);
+
+            final CacheRecord record2 = cache.computeIfAbsent("k", k -> {
+                computations.incrementAndGet();
+                return new SimpleCacheRecord(jar);
+            });
+            Assertions.assertNotSame(record1, record2);
+            Assertions.assertEquals(2, computations.get());
+            Assertions.assertEquals(1, cache.size());
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.cache.impl;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mvndaemon.mvnd.cache.Cache;
+import org.mvndaemon.mvnd.cache.impl.CacheFactoryTest.SimpleCacheRecord;
+
+public class LruCacheTest {
+
+    @Test
+    void evictLeastRecentlyUsed(@TempDir Path tempDir) throws IOException {
+        final LruEviction eviction = new LruEviction();
+        final TimestampCacheFactory factory = new TimestampCacheFactory(new FileStateIndex());
+        final Cache<String, WeightedRecord> cache1 = new LruCache<>(factory.newCache(), eviction);
+        final Cache<String, WeightedRecord> cache2 = new LruCache<>(factory.newCache(), eviction);
+
+        final WeightedRecord a = new WeightedRecord(jar(tempDir, "a.jar"), 40);
+        final WeightedRecord b = new WeightedRecord(jar(tempDir, "b.jar"), 40);
+        final WeightedRecord c = new WeightedRecord(jar(tempDir, "c.jar"), 40);
+        cache1.put("a", a);
+        Assertions.assertSame(b, cache2.computeIfAbsent("b", k -> b));
+        cache1.put("c", c);
+        Assertions.assertSame(a, cache1.get("a"));
+        Assertions.assertEquals(120, eviction.getWeight());
+
+        // no limit by default
+        Assertions.assertEquals(0, eviction.evict());
+
+        eviction.newBuild();
+        eviction.setMaxWeight(100);
+        Assertions.assertEquals(1, eviction.evict());
+        Assertions.assertTrue(b.invalidated);
+        Assertions.assertFalse(cache2.contains("b"));
+        Assertions.assertFalse(a.invalidated);
+        Assertions.assertFalse(c.invalidated);
+        Assertions.assertEquals(80, eviction.getWeight());
+        Assertions.assertEquals(0, eviction.evict());
+
+        eviction.setMaxWeight(0);
+        Assertions.assertEquals(2, eviction.evict());
+        Assertions.assertTrue(a.invalidated);
+        Assertions.assertTrue(c.invalidated);
+        Assertions.assertEquals(0, cache1.size());
+    }
+
+    @Test
+    void keepRecordsOfCurrentBuild(@TempDir Path tempDir) throws IOException {
+        final LruEviction eviction = new LruEviction();
+        eviction.setMaxWeight(0);
+        final Cache<String, WeightedRecord> cache =
+                new LruCache<>(new TimestampCacheFactory(new FileStateIndex()).newCache(), eviction);
+        final WeightedRecord a = new WeightedRecord(jar(tempDir, "a.jar"), 40);
+        final WeightedRecord b = new WeightedRecord(jar(tempDir, "b.jar"), 40);
+        cache.put("a", a);
+        cache.put("b", b);
+
+        // both were used by the build which just ended
+        Assertions.assertEquals(0, eviction.evict());
+        Assertions.assertEquals(80, eviction.getWeight());
+
+        eviction.newBuild();
+        Assertions.assertSame(a, cache.get("a"));
+        Assertions.assertEquals(1, eviction.evict());
+        Assertions.assertFalse(a.invalidated);
+        Assertions.assertTrue(b.invalidated);
+        Assertions.assertEquals(40, eviction.getWeight());
+    }
+
+    @Test
+    void evictWhenLockIsReleased(@TempDir Path tempDir) throws Exception {
+        final LruEviction eviction = new LruEviction();
+        final Cache<String, WeightedRecord> cache =
+                new LruCache<>(new TimestampCacheFactory(new FileStateIndex()).newCache(), eviction);
+        final WeightedRecord a = new WeightedRecord(jar(tempDir, "a.jar"), 40);
+        cache.put("a", a);
+        eviction.newBuild();
+        eviction.setMaxWeight(0);
+
+        // records being set up outside of a build hold the lock
+        final CompletableFuture<Integer> evicted;
+        eviction.getLock().lock();
+        try {
+            evicted = CompletableFuture.supplyAsync(eviction::evict);
+            Thread.sleep(100);
+            Assertions.assertFalse(evicted.isDone());
+            Assertions.assertFalse(a.invalidated);
+        } finally {
+            eviction.getLock().unlock();
+        }
+        Assertions.assertEquals(1, evicted.get(10, TimeUnit.SECONDS));
+        Assertions.assertTrue(a.invalidated);
+    }
+
+    @Test
+    void forgetInvalidatedRecords(@TempDir Path tempDir) throws IOException {
+        final LruEviction eviction = new LruEviction();
+        final Cache<String, WeightedRecord> cache =
+                new LruCache<>(new TimestampCacheFactory(new FileStateIndex()).newCache(), eviction);
+        final Path jar = jar(tempDir, "a.jar");
+        final WeightedRecord a = new WeightedRecord(jar, 40);
+        cache.put("a", a);
+        Assertions.assertEquals(40, eviction.getWeight());
+
+        Files.delete(jar);
+        Assertions.assertNull(cache.get("a"));
+        Assertions.assertTrue(a.invalidated);
+        Assertions.assertEquals(0, eviction.getWeight());
+
+        final WeightedRecord b = new WeightedRecord(jar(tempDir, "b.jar"), 40);
+        cache.put("b", b);
+        cache.removeIf((k, v) -> v == b);
+        Assertions.assertTrue(b.invalidated);
+        Assertions.assertEquals(0, eviction.getWeight());
+    }
+
+    static Path jar(Path dir, String name) throws IOException {
+        final Path jar = dir.resolve(name);
+        Files.write(jar, name.getBytes(StandardCharsets.UTF_8));
+        return jar;
+    }
+
+    static class WeightedRecord extends SimpleCacheRecord {
+        private final long weight;
+
+        WeightedRecord(Path path, long weight) {
+            super(path);
+            this.weight = weight;
+        }
+
+        @Override
+        public long getWeight() {
+            return weight;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.cache.impl;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mvndaemon.mvnd.cache.Cache;
+import org.mvndaemon.mvnd.cache.impl.LruCacheTest.WeightedRecord;
+
+public class StatisticsCacheTest {
+
+    @Test
+    void countLookups(@TempDir Path tempDir) throws IOException {
+        final LruEviction eviction = new LruEviction();
+        final CacheStatistics statistics = new CacheStatistics("test");
+        final Cache<String, WeightedRecord> cache = new StatisticsCache<>(
+                new LruCache<>(new TimestampCacheFactory(new FileStateIndex()).newCache(), eviction, statistics),
+                statistics);
+
+        final Path jar = LruCacheTest.jar(tempDir, "a.jar");
+        Assertions.assertNull(cache.get("a"));
+        final WeightedRecord a = cache.computeIfAbsent("a", k -> new WeightedRecord(jar, 10));
+        Assertions.assertSame(a, cache.computeIfAbsent("a", k -> new WeightedRecord(jar, 10)));
+        Assertions.assertSame(a, cache.get("a"));
+        cache.put("b", new WeightedRecord(LruCacheTest.jar(tempDir, "b.jar"), 10));
+
+        Assertions.assertEquals(2, statistics.getHits());
+        Assertions.assertEquals(2, statistics.getMisses());
+        Assertions.assertEquals(1, statistics.getLoads());
+        Assertions.assertEquals(2, statistics.getSize());
+
+        Files.delete(jar);
+        Assertions.assertNull(cache.get("a"));
+        Assertions.assertEquals(1, statistics.getInvalidations());
+        Assertions.assertEquals(3, statistics.getMisses());
+
+        // b is not used by the next build
+        eviction.newBuild();
+        eviction.setMaxWeight(0);
+        Assertions.assertEquals(1, eviction.evict());
+        Assertions.assertEquals(1, statistics.getEvictions());
+        Assertions.assertEquals(1, statistics.getInvalidations());
+        Assertions.assertEquals(0, statistics.getSize());
+
+        final CacheStatistics.Snapshot start = statistics.snapshot();
+        Assertions.assertNull(cache.get("b"));
+        final CacheStatistics.Snapshot build = statistics.snapshot().since(start);
+        Assertions.assertEquals(0, build.hits);
+        Assertions.assertEquals(1, build.misses);
+        Assertions.assertEquals(0, build.evictions);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.cache.invalidating;
+
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.model.Plugin;
+import org.apache.maven.plugin.PluginDescriptorCache.Key;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.repository.LocalArtifactRequest;
+import org.eclipse.aether.repository.LocalArtifactResult;
+import org.eclipse.aether.repository.LocalRepository;
+import org.eclipse.aether.repository.LocalRepositoryManager;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mvndaemon.mvnd.cache.impl.TimestampCacheFactory;
+
+public class InvalidatingPluginDescriptorCacheTest {
+
+    @Test
+    void localRepositoryCheckedOnMissOnly(@TempDir Path tempDir) throws Exception {
+        final AtomicInteger finds = new AtomicInteger();
+        final LocalRepositoryManager localRepositoryManager = (LocalRepositoryManager) Proxy.newProxyInstance(
+                LocalRepositoryManager.class.getClassLoader(),
+                new Class<?>[] {LocalRepositoryManager.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("find")) {
+                        finds.incrementAndGet();
+                        return new LocalArtifactResult((LocalArtifactRequest) args[1]);
+                    }
+                    return null;
+                });
+        final RepositorySystemSession session = (RepositorySystemSession) Proxy.newProxyInstance(
+                RepositorySystemSession.class.getClassLoader(),
+                new Class<?>[] {RepositorySystemSession.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getLocalRepository" -> new LocalRepository(new File("target/repository"));
+                    case "getLocalRepositoryManager" -> localRepositoryManager;
+                    case "getArtifactTypeRegistry" -> (org.eclipse.aether.artifact.ArtifactTypeRegistry) id -> null;
+                    default -> null;
+                });
+        final InvalidatingPluginDescriptorCache cache = new InvalidatingPluginDescriptorCache(
+                new TimestampCacheFactory(), new PluginDescriptorStore(tempDir.resolve("store")));
+        final Plugin plugin = new Plugin();
+        plugin.setGroupId("org.foo");
+        plugin.setArtifactId("foo-maven-plugin");
+        plugin.setVersion("1.0");
+
+        final PluginDescriptor descriptor = PluginDescriptorStoreTest.descriptor();
+        final AtomicInteger loads = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            final Key key = cache.createKey(plugin, Collections.emptyList(), session);
+            Assertions.assertNotNull(cache.get(key, () -> {
+                loads.incrementAndGet();
+                return descriptor;
+            }));
+        }
+        Assertions.assertEquals(1, loads.get());
+        Assertions.assertEquals(1, finds.get());
+    }
+}
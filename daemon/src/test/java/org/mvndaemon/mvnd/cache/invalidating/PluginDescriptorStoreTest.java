@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.cache.invalidating;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+import org.apache.maven.plugin.descriptor.MojoDescriptor;
+import org.apache.maven.plugin.descriptor.Parameter;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
+import org.codehaus.plexus.component.repository.ComponentDependency;
+import org.codehaus.plexus.component.repository.ComponentRequirement;
+import org.codehaus.plexus.configuration.xml.XmlPlexusConfiguration;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class PluginDescriptorStoreTest {
+
+    @Test
+    void storeAndLoad(@TempDir Path tempDir) throws Exception {
+        final Path jar = tempDir.resolve("foo-maven-plugin-1.0.jar");
+        Files.write(jar, "content1".getBytes(StandardCharsets.UTF_8));
+        final PluginDescriptorStore store = new PluginDescriptorStore(tempDir.resolve("store"));
+        final PluginDescriptor descriptor = descriptor();
+
+        Assertions.assertNull(store.load("org.foo", "foo-maven-plugin", "1.0", jar));
+        store.store("org.foo", "foo-maven-plugin", "1.0", jar, descriptor);
+        final PluginDescriptor loaded = store.load("org.foo", "foo-maven-plugin", "1.0", jar);
+        Assertions.assertNotNull(loaded);
+        Assertions.assertEquals(PluginDescriptorCodec.describe(descriptor), PluginDescriptorCodec.describe(loaded));
+        final MojoDescriptor mojo = loaded.getMojo("compile");
+        Assertions.assertSame(loaded, mojo.getPluginDescriptor());
+        Assertions.assertEquals("${foo.source}", mojo.getParameterMap().get("source").getExpression());
+        Assertions.assertEquals(
+                "1.8", mojo.getMojoConfiguration().getChild("source").getAttribute("default-value"));
+
+        // a stored descriptor is ignored once the jar changes
+        Files.write(jar, "content1.1".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(jar, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        Assertions.assertNull(store.load("org.foo", "foo-maven-plugin", "1.0", jar));
+        Assertions.assertNull(store.load("org.foo", "foo-maven-plugin", "2.0", jar));
+    }
+
+    @Test
+    void otherLocalRepository(@TempDir Path tempDir) throws Exception {
+        final Path jar = tempDir.resolve("repo1/foo-maven-plugin-1.0.jar");
+        Files.createDirectories(jar.getParent());
+        Files.write(jar, "content1".getBytes(StandardCharsets.UTF_8));
+        final Path copy = tempDir.resolve("repo2/foo-maven-plugin-1.0.jar");
+        Files.createDirectories(copy.getParent());
+        Files.copy(jar, copy, StandardCopyOption.COPY_ATTRIBUTES);
+        final PluginDescriptorStore store = new PluginDescriptorStore(tempDir.resolve("store"));
+
+        store.store("org.foo", "foo-maven-plugin", "1.0", jar, descriptor());
+        Assertions.assertNotNull(store.load("org.foo", "foo-maven-plugin", "1.0", jar));
+        // the same jar in another local repository may not be available from the same repositories
+        Assertions.assertNull(store.load("org.foo", "foo-maven-plugin", "1.0", copy));
+    }
+
+    static PluginDescriptor descriptor() throws Exception {
+        final PluginDescriptor descriptor = new PluginDescriptor();
+        descriptor.setGroupId("org.foo");
+        descriptor.setArtifactId("foo-maven-plugin");
+        descriptor.setVersion("1.0");
+        descriptor.setGoalPrefix("foo");
+        descriptor.setName("Foo Maven Plugin");
+        descriptor.setDescription("Compiles foo sources");
+        descriptor.setRequiredMavenVersion("3.6.3");
+        final ComponentDependency dependency = new ComponentDependency();
+        dependency.setGroupId("org.foo");
+        dependency.setArtifactId("foo-compiler");
+        dependency.setVersion("2.1");
+        dependency.setType("jar");
+        descriptor.addDependency(dependency);
+
+        for (String goal : Arrays.asList("compile", "testCompile")) {
+            final MojoDescriptor mojo = new MojoDescriptor();
+            mojo.setGoal(goal);
+            mojo.setImplementation("org.foo.CompileMojo");
+            mojo.setLanguage("java");
+            mojo.setPhase("compile");
+            mojo.setDependencyResolutionRequired("compile");
+            mojo.setThreadSafe(true);
+            mojo.setSince("1.0");
+            final Parameter source = new Parameter();
+            source.setName("source");
+            source.setType("java.lang.String");
+            source.setExpression("${foo.source}");
+            source.setDefaultValue("1.8");
+            source.setEditable(true);
+            final Parameter session = new Parameter();
+            session.setName("session");
+            session.setType("org.apache.maven.execution.MavenSession");
+            session.setExpression("${session}");
+            session.setRequired(true);
+            session.setEditable(false);
+            mojo.setParameters(Arrays.asList(source, session));
+            final ComponentRequirement requirement = new ComponentRequirement();
+            requirement.setRole("org.foo.Compiler");
+            requirement.setRoleHint("default");
+            requirement.setFieldName("compiler");
+            mojo.addRequirement(requirement);
+            final XmlPlexusConfiguration configuration = new XmlPlexusConfiguration("configuration");
+            final XmlPlexusConfiguration sourceConfiguration = new XmlPlexusConfiguration("source");
+            sourceConfiguration.setValue("${foo.source}");
+            sourceConfiguration.setAttribute("default-value", "1.8");
+            configuration.addChild(sourceConfiguration);
+            configuration.addChild("session", "${session}");
+            mojo.setMojoConfiguration(configuration);
+            mojo.setPluginDescriptor(descriptor);
+            descriptor.addMojo(mojo);
+        }
+        return descriptor;
+    }
+}
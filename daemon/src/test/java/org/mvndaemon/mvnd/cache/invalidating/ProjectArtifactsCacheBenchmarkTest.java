@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.cache.invalidating;
+
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.lifecycle.internal.SetWithResolutionResult;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.artifact.ProjectArtifactsCache.Key;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.repository.LocalRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.mvndaemon.mvnd.cache.impl.TimestampCacheFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Evicts the records of a synthetic reactor from a project artifacts cache also holding the records of the projects
+ * of other builds, and compares the time it takes with a scan of the whole cache matching each key against all the
+ * projects of the reactor. The benchmark, which prints both timings, only runs with {@code -Dmvnd.benchmark=true}; the
+ * size of the reactor can be set using {@code -Dmvnd.benchmark.projects}.
+ */
+class ProjectArtifactsCacheBenchmarkTest {
+
+    /** The number of scope combinations each project is resolved for */
+    static final List<List<String>> SCOPES = Arrays.asList(
+            Collections.singletonList("compile"),
+            Arrays.asList("compile", "runtime"),
+            Arrays.asList("compile", "runtime", "test"),
+            Arrays.asList("compile", "provided", "system"));
+
+    static final RepositorySystemSession SESSION = (RepositorySystemSession) Proxy.newProxyInstance(
+            RepositorySystemSession.class.getClassLoader(),
+            new Class<?>[] {RepositorySystemSession.class},
+            (proxy, method, args) -> method.getName().equals("getLocalRepository")
+                    ? new LocalRepository(new File("target/repository"))
+                    : null);
+
+    @Test
+    void evictReactorProjects() throws Exception {
+        final InvalidatingProjectArtifactsCache cache =
+                new InvalidatingProjectArtifactsCache(new TimestampCacheFactory());
+        final List<MavenProject> reactor = projects("reactor", 10);
+        final List<MavenProject> others = projects("other", 10);
+        final List<Key> reactorKeys = fill(cache, reactor);
+        final List<Key> otherKeys = fill(cache, others);
+
+        cache.evict(reactor);
+        assertEquals(otherKeys.size(), cache.cache.size());
+        for (Key key : reactorKeys) {
+            assertNull(cache.get(key));
+        }
+        for (Key key : otherKeys) {
+            assertNotNull(cache.get(key));
+        }
+
+        // evicted projects are indexed again once cached again
+        fill(cache, reactor);
+        cache.evict(reactor);
+        assertEquals(otherKeys.size(), cache.cache.size());
+        assertEquals(others.size(), cache.recordsByProject.size());
+    }
+
+    @Test
+    void dropInvalidatedProjects() {
+        final InvalidatingProjectArtifactsCache cache =
+                new InvalidatingProjectArtifactsCache(new TimestampCacheFactory());
+        final List<MavenProject> reactor = projects("reactor", 2);
+        fill(cache, reactor);
+
+        cache.cache.removeIf((k, r) -> k.toString().endsWith(":module-0:1.0-SNAPSHOT"));
+        assertEquals(1, cache.recordsByProject.size());
+        assertTrue(cache.recordsByProject.containsKey("org.acme.reactor:module-1:1.0-SNAPSHOT"));
+
+        cache.cache.removeIf((k, r) -> true);
+        assertTrue(cache.recordsByProject.isEmpty());
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "mvnd.benchmark", matches = "true")
+    void benchmark() {
+        final int projects = Integer.getInteger("mvnd.benchmark.projects", 1200);
+        final List<MavenProject> reactor = projects("reactor", projects);
+        final List<MavenProject> others = projects("other", projects);
+
+        final InvalidatingProjectArtifactsCache scanned =
+                new InvalidatingProjectArtifactsCache(new TimestampCacheFactory());
+        fill(scanned, reactor);
+        fill(scanned, others);
+        // the ids of the projects are computed upfront and the key returns its own, so that, like the former
+        // field-wise match, comparing a key with a project allocates nothing
+        final List<String> reactorIds = new ArrayList<>(projects);
+        for (MavenProject p : reactor) {
+            reactorIds.add(
+                    InvalidatingProjectArtifactsCache.projectId(p.getGroupId(), p.getArtifactId(), p.getVersion()));
+        }
+        final long scanStart = System.nanoTime();
+        scanned.cache.removeIf((k, r) -> {
+            final String id = k.toString();
+            for (String reactorId : reactorIds) {
+                if (reactorId.equals(id)) {
+                    return true;
+                }
+            }
+            return false;
+        });
+        final long scanNanos = System.nanoTime() - scanStart;
+
+        final InvalidatingProjectArtifactsCache indexed =
+                new InvalidatingProjectArtifactsCache(new TimestampCacheFactory());
+        fill(indexed, reactor);
+        fill(indexed, others);
+        final long indexStart = System.nanoTime();
+        indexed.evict(reactor);
+        final long indexNanos = System.nanoTime() - indexStart;
+
+        final String timings = String.format(
+                "Evicting %d reactor projects out of %d cached keys: scan: %d ms, index: %d ms",
+                projects,
+                2 * projects * SCOPES.size(),
+                TimeUnit.NANOSECONDS.toMillis(scanNanos),
+                TimeUnit.NANOSECONDS.toMillis(indexNanos));
+        System.out.println(timings);
+        assertEquals(projects * SCOPES.size(), scanned.cache.size(), timings);
+        assertEquals(projects * SCOPES.size(), indexed.cache.size(), timings);
+    }
+
+    static List<MavenProject> projects(String groupId, int count) {
+        final List<MavenProject> projects = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final MavenProject project = new MavenProject();
+            project.setGroupId("org.acme." + groupId);
+            project.setArtifactId("module-" + i);
+            project.setVersion("1.0-SNAPSHOT");
+            project.setRemoteArtifactRepositories(Collections.emptyList());
+            projects.add(project);
+        }
+        return projects;
+    }
+
+    static List<Key> fill(InvalidatingProjectArtifactsCache cache, Collection<MavenProject> projects) {
+        final List<Key> keys = new ArrayList<>();
+        for (MavenProject project : projects) {
+            for (List<String> scopes : SCOPES) {
+                final Key key = cache.createKey(project, scopes, scopes, false, SESSION);
+                cache.put(key, new SetWithResolutionResult(null, Collections.emptySet()));
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.cache.invalidating;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class RealmEvictionRulesTest {
+
+    static final Path REPOSITORY = Paths.get("target/repository").toAbsolutePath();
+
+    @Test
+    void mavenExpressions() {
+        final RealmKeys foo = keys("org.foo", "foo-core", "1.0");
+        final RealmKeys snapshot = keys("org.foo", "foo-api", "2.0-20200101.120000-1");
+        final RealmKeys bar = keys("com.bar", "bar", "1.0");
+
+        assertMatches(RealmEvictionRules.compile("mvn:org.foo:foo-core:1.0"), foo);
+        assertNoMatch(RealmEvictionRules.compile("mvn:org.foo:foo-core:1.1"), foo);
+        assertNoMatch(RealmEvictionRules.compile("mvn:org:foo-core"), foo);
+        assertMatches(RealmEvictionRules.compile("mvn:org.foo:foo-core"), foo);
+        assertMatches(RealmEvictionRules.compile("mvn:foo-core"), foo);
+        assertNoMatch(RealmEvictionRules.compile("mvn:foo"), foo);
+        assertMatches(RealmEvictionRules.compile("mvn:org.foo:*:2.0-SNAPSHOT"), snapshot);
+        assertNoMatch(RealmEvictionRules.compile("mvn:org.foo:*:2.0-SNAPSHOT"), foo);
+        assertMatches(RealmEvictionRules.compile("mvn:com.foo:foo-core,mvn:bar"), bar);
+        assertNoMatch(RealmEvictionRules.compile("mvn:com.foo:foo-core,mvn:bar"), foo);
+    }
+
+    @Test
+    void pathPatterns() {
+        final RealmKeys foo = keys("org.foo", "foo-core", "1.0");
+
+        assertMatches(RealmEvictionRules.compile("glob:**/org/foo/**"), foo);
+        assertMatches(RealmEvictionRules.compile("**/foo-core-1.0.jar"), foo);
+        assertNoMatch(RealmEvictionRules.compile("glob:**/org/bar/**"), foo);
+        assertMatches(RealmEvictionRules.compile("regex:.*foo-core.*"), foo);
+        // glob constructs other than a single '*' segment are evaluated against the path
+        assertMatches(RealmEvictionRules.compile("mvn:org.foo:foo-*"), foo);
+        assertMatches(RealmEvictionRules.compile("mvn:org.foo:foo-core:1.?"), foo);
+    }
+
+    @Test
+    void empty() {
+        Assertions.assertTrue(RealmEvictionRules.compile("").isEmpty());
+        assertNoMatch(RealmEvictionRules.compile(""), keys("org.foo", "foo-core", "1.0"));
+        Assertions.assertNull(RealmEvictionRules.compile("mvn:foo-core").match(RealmKeys.EMPTY));
+    }
+
+    static void assertMatches(RealmEvictionRules rules, RealmKeys keys) {
+        Assertions.assertEquals(keys.paths[0], rules.match(keys));
+    }
+
+    static void assertNoMatch(RealmEvictionRules rules, RealmKeys keys) {
+        Assertions.assertNull(rules.match(keys));
+    }
+
+    static RealmKeys keys(String groupId, String artifactId, String version) {
+        final Artifact artifact = new DefaultArtifact(
+                groupId, artifactId, version, "compile", "jar", null, new DefaultArtifactHandler("jar"));
+        final Path file = REPOSITORY
+                .resolve(groupId.replace('.', '/'))
+                .resolve(artifactId)
+                .resolve(artifact.getBaseVersion())
+                .resolve(artifactId + "-" + version + ".jar");
+        artifact.setFile(new File(file.toString()));
+        return RealmKeys.of(Collections.singletonList(artifact));
+    }
+}
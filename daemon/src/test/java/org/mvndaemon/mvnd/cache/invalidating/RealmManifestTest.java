@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.cache.invalidating;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Exclusion;
+import org.apache.maven.model.Plugin;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class RealmManifestTest {
+
+    @Test
+    void recordAndLoad(@TempDir Path tempDir) throws Exception {
+        final RealmManifest manifest = new RealmManifest(tempDir.resolve("manifests"));
+        final Path root = tempDir.resolve("project");
+        final Path otherRoot = tempDir.resolve("other");
+        final RealmManifest.Entry compiler = entry(tempDir, false, plugin("maven-compiler-plugin", "3.13.0"));
+        final RealmManifest.Entry surefire = entry(tempDir, false, plugin("maven-surefire-plugin", "3.5.0"));
+        final RealmManifest.Entry extension = entry(tempDir, true, plugin("foo-extension", "1.0"));
+
+        Assertions.assertTrue(manifest.load(root).isEmpty());
+        manifest.record(root, Arrays.asList(compiler, extension));
+        manifest.record(root, Arrays.asList(compiler, surefire));
+        manifest.record(root, Arrays.asList(compiler, surefire));
+        manifest.record(otherRoot, Collections.singletonList(surefire));
+
+        final List<RealmManifest.Entry> entries = manifest.load(root);
+        Assertions.assertEquals(Arrays.asList(compiler, surefire, extension), entries);
+        Assertions.assertEquals(3, entries.get(0).uses);
+        Assertions.assertEquals(2, entries.get(1).uses);
+        Assertions.assertEquals(1, entries.get(2).uses);
+        Assertions.assertTrue(entries.get(2).extension);
+        Assertions.assertEquals(compiler.artifacts, entries.get(0).artifacts);
+        Assertions.assertTrue(entries.get(0).isAvailable());
+        Assertions.assertEquals(Collections.singletonList(surefire), manifest.load(otherRoot));
+
+        // an entry is not available anymore once one of its artifacts is deleted
+        Files.delete(compiler.artifacts.get(0));
+        Assertions.assertFalse(manifest.load(root).get(0).isAvailable());
+    }
+
+    @Test
+    void concurrentRecords(@TempDir Path tempDir) throws Exception {
+        final Path root = tempDir.resolve("project");
+        final RealmManifest.Entry compiler = entry(tempDir, false, plugin("maven-compiler-plugin", "3.13.0"));
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                // one manifest per daemon
+                final RealmManifest manifest = new RealmManifest(tempDir.resolve("manifests"));
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 25; j++) {
+                        manifest.record(root, Collections.singletonList(compiler));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        final List<RealmManifest.Entry> entries = new RealmManifest(tempDir.resolve("manifests")).load(root);
+        Assertions.assertEquals(1, entries.size());
+        Assertions.assertEquals(100, entries.get(0).uses);
+    }
+
+    @Test
+    void pluginRoundTrip(@TempDir Path tempDir) throws Exception {
+        final Plugin plugin = plugin("maven-compiler-plugin", "3.13.0");
+        final Dependency dependency = new Dependency();
+        dependency.setGroupId("org.codehaus.plexus");
+        dependency.setArtifactId("plexus-java");
+        dependency.setVersion("1.2.0");
+        dependency.setClassifier("tests");
+        plugin.addDependency(dependency);
+
+        final RealmManifest.Entry entry = entry(tempDir, false, plugin);
+        final Plugin replayed = entry.toPlugin();
+        Assertions.assertEquals("org.apache.maven.plugins", replayed.getGroupId());
+        Assertions.assertEquals("maven-compiler-plugin", replayed.getArtifactId());
+        Assertions.assertEquals("3.13.0", replayed.getVersion());
+        Assertions.assertFalse(replayed.isExtensions());
+        Assertions.assertEquals(1, replayed.getDependencies().size());
+        final Dependency d = replayed.getDependencies().get(0);
+        Assertions.assertEquals("plexus-java", d.getArtifactId());
+        Assertions.assertEquals("jar", d.getType());
+        Assertions.assertEquals("tests", d.getClassifier());
+        Assertions.assertEquals(entry, entry(tempDir, false, replayed));
+
+        // dependency exclusions are not recorded
+        final Exclusion exclusion = new Exclusion();
+        exclusion.setGroupId("org.foo");
+        exclusion.setArtifactId("foo");
+        dependency.addExclusion(exclusion);
+        Assertions.assertNull(entry(tempDir, false, plugin));
+    }
+
+    static Plugin plugin(String artifactId, String version) {
+        final Plugin plugin = new Plugin();
+        plugin.setGroupId("org.apache.maven.plugins");
+        plugin.setArtifactId(artifactId);
+        plugin.setVersion(version);
+        return plugin;
+    }
+
+    static RealmManifest.Entry entry(Path tempDir, boolean extension, Plugin plugin) throws Exception {
+        final Artifact artifact = new DefaultArtifact(
+                plugin.getGroupId(),
+                plugin.getArtifactId(),
+                plugin.getVersion(),
+                "runtime",
+                "jar",
+                null,
+                new DefaultArtifactHandler("jar"));
+        final Path jar = tempDir.resolve("repository").resolve(plugin.getArtifactId() + ".jar");
+        Files.createDirectories(jar.getParent());
+        if (!Files.exists(jar)) {
+            Files.createFile(jar);
+        }
+        artifact.setFile(new File(jar.toString()));
+        return RealmManifest.Entry.of(extension, plugin, Collections.singletonList(artifact));
+    }
+}
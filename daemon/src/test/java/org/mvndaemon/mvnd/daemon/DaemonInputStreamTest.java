@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.daemon;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Timeout(30)
+public class DaemonInputStreamTest {
+
+    @Test
+    void availableIsAnsweredLocally() throws Throwable {
+        BlockingQueue<Integer> grants = new LinkedBlockingQueue<>();
+        DaemonInputStream in = new DaemonInputStream((projectId, chars) -> grants.add(chars), 1024);
+        Client client = new Client(in, () -> {
+            // answer each request once, like the countbytes integration test does
+            assertEquals(1024, grants.take().intValue());
+            in.addInputData("0123456789");
+            assertEquals(10, grants.take().intValue());
+        });
+
+        assertEquals(10, in.available());
+        assertEquals(10, in.available());
+        assertEquals(10, in.readAllBytes().length);
+        assertEquals(0, in.available());
+        assertEquals(-1, in.read());
+        client.join();
+        assertTrue(grants.isEmpty());
+    }
+
+    @Test
+    void multiByteInputStaysInWindow() throws Throwable {
+        final int window = 1024;
+        final int total = 64 * window;
+        BlockingQueue<Integer> grants = new LinkedBlockingQueue<>();
+        DaemonInputStream in =
+                new DaemonInputStream((projectId, chars) -> grants.add(chars), window, StandardCharsets.UTF_8);
+        final int capacity = in.capacity();
+        Client client = new Client(in, () -> {
+            // send as many characters as granted, each encoded on two bytes
+            int credit = 0;
+            int sent = 0;
+            while (sent < total) {
+                credit += grants.take();
+                while (credit > 0 && sent < total) {
+                    int chars = Math.min(Math.min(credit, 100), total - sent);
+                    in.addInputData("é".repeat(chars));
+                    credit -= chars;
+                    sent += chars;
+                }
+            }
+        });
+
+        assertEquals(2 * total, in.readAllBytes().length);
+        client.join();
+        assertEquals(capacity, in.capacity());
+    }
+
+    /**
+     * Feeds the stream from another thread, ending it whatever happens so that the reads never block forever, and
+     * rethrows the failures of that thread on {@link #join()}.
+     */
+    static class Client {
+        interface Task {
+            void run() throws Exception;
+        }
+
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final Thread thread;
+
+        Client(DaemonInputStream in, Task task) {
+            thread = new Thread(() -> {
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    failure.set(t);
+                } finally {
+                    in.addInputData(null);
+                }
+            });
+            thread.start();
+        }
+
+        void join() throws Throwable {
+            thread.join();
+            if (failure.get() != null) {
+                throw failure.get();
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.daemon;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.mvndaemon.mvnd.common.Message;
+import org.mvndaemon.mvnd.common.Message.ProjectEvent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ProjectLogTailsTest {
+
+    @Test
+    void tailsUntilDone() {
+        List<Message> queue = new ArrayList<>();
+        ProjectLogTails tails = new ProjectLogTails(queue, 13, 0);
+        for (int i = 0; i < 100; i++) {
+            tails.add("a", "line " + i);
+        }
+        tails.add("a", "first\nsecond row that is too long");
+        tails.add("b", "b line");
+
+        tails.sendTails();
+        assertEquals(2, queue.size());
+        ProjectEvent tail = (ProjectEvent) queue.stream()
+                .filter(m -> ((ProjectEvent) m).getProjectId().equals("a"))
+                .findFirst()
+                .get();
+        assertEquals(Message.PROJECT_LOG_TAIL, tail.getType());
+        List<String> rows = Arrays.asList(tail.getMessage().split("\n"));
+        assertEquals(ProjectLogTails.TAIL_ROWS, rows.size());
+        assertEquals("line 92", rows.get(0));
+        assertEquals("first", rows.get(8));
+        assertEquals("second row", rows.get(9));
+
+        // nothing logged since the last tails
+        queue.clear();
+        tails.sendTails();
+        assertTrue(queue.isEmpty());
+
+        tails.flush("a");
+        assertEquals(101, queue.size());
+        assertTrue(queue.stream().allMatch(m -> m.getType() == Message.PROJECT_LOG_MESSAGE));
+        assertEquals("line 0", ((ProjectEvent) queue.get(0)).getMessage());
+        assertEquals("first\nsecond row that is too long", ((ProjectEvent) queue.get(100)).getMessage());
+
+        queue.clear();
+        tails.close();
+        assertEquals(1, queue.size());
+        assertEquals("b line", ((ProjectEvent) queue.get(0)).getMessage());
+
+        // once closed, the lines have to be sent as they come
+        assertFalse(tails.add("b", "late line"));
+        tails.close();
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    void capsHeldLines() {
+        List<Message> queue = new ArrayList<>();
+        ProjectLogTails tails = new ProjectLogTails(queue, 80, 0);
+        for (int i = 0; i < ProjectLogTails.MAX_LINES; i++) {
+            tails.add("a", "line " + i);
+        }
+        assertTrue(queue.isEmpty());
+
+        tails.add("a", "line " + ProjectLogTails.MAX_LINES);
+        int sent = ProjectLogTails.MAX_LINES + 1 - ProjectLogTails.TAIL_ROWS;
+        assertEquals(sent + 1, queue.size());
+        for (int i = 0; i < sent; i++) {
+            assertEquals(Message.PROJECT_LOG_MESSAGE, queue.get(i).getType());
+            assertEquals("line " + i, ((ProjectEvent) queue.get(i)).getMessage());
+        }
+        ProjectEvent tail = (ProjectEvent) queue.get(sent);
+        assertEquals(Message.PROJECT_LOG_TAIL, tail.getType());
+        List<String> rows = Arrays.asList(tail.getMessage().split("\n"));
+        assertEquals(ProjectLogTails.TAIL_ROWS, rows.size());
+        assertEquals("line " + ProjectLogTails.MAX_LINES, rows.get(rows.size() - 1));
+
+        // the tail was just sent
+        queue.clear();
+        tails.sendTails();
+        assertTrue(queue.isEmpty());
+
+        tails.flush("a");
+        assertEquals(ProjectLogTails.TAIL_ROWS, queue.size());
+        assertEquals("line " + sent, ((ProjectEvent) queue.get(0)).getMessage());
+    }
+
+    @Test
+    void closeStopsScheduler() {
+        ProjectLogTails tails = new ProjectLogTails(new ArrayList<>(), 80, 10);
+        assertTrue(tailThreads() > 0);
+        tails.close();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (tailThreads() > 0 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(0, tailThreads());
+    }
+
+    private static long tailThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(t -> t.getName().equals("mvnd-log-tails") && t.isAlive())
+                .count();
+    }
+}
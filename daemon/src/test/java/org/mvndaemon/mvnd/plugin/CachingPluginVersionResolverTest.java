@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.plugin;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.model.Plugin;
+import org.apache.maven.plugin.version.DefaultPluginVersionRequest;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.impl.UpdatePolicyAnalyzer;
+import org.eclipse.aether.internal.impl.DefaultUpdatePolicyAnalyzer;
+import org.eclipse.aether.metadata.Metadata;
+import org.eclipse.aether.repository.LocalArtifactRegistration;
+import org.eclipse.aether.repository.LocalArtifactRequest;
+import org.eclipse.aether.repository.LocalArtifactResult;
+import org.eclipse.aether.repository.LocalMetadataRegistration;
+import org.eclipse.aether.repository.LocalMetadataRequest;
+import org.eclipse.aether.repository.LocalMetadataResult;
+import org.eclipse.aether.repository.LocalRepository;
+import org.eclipse.aether.repository.LocalRepositoryManager;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.repository.RepositoryPolicy;
+import org.eclipse.aether.util.repository.AuthenticationBuilder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mvndaemon.mvnd.plugin.CachingPluginVersionResolver.Key;
+import org.mvndaemon.mvnd.plugin.CachingPluginVersionResolver.SessionKey;
+
+public class CachingPluginVersionResolverTest {
+
+    final UpdatePolicyAnalyzer analyzer = new DefaultUpdatePolicyAnalyzer();
+
+    @Test
+    void expiresWithUpdateInterval() {
+        final DefaultRepositorySystemSession session = new DefaultRepositorySystemSession();
+        final List<RemoteRepository> repositories =
+                Collections.singletonList(repository("central", "https://repo.example.com/maven2", "interval:1"));
+        final long now = System.currentTimeMillis();
+
+        Assertions.assertTrue(CachingPluginVersionResolver.isUpToDate(analyzer, now, session, repositories));
+        Assertions.assertFalse(CachingPluginVersionResolver.isUpToDate(
+                analyzer, now - TimeUnit.MINUTES.toMillis(2), session, repositories));
+    }
+
+    @Test
+    void forceUpdate() {
+        final DefaultRepositorySystemSession session = new DefaultRepositorySystemSession();
+        final List<RemoteRepository> repositories = Collections.singletonList(
+                repository("central", "https://repo.example.com/maven2", RepositoryPolicy.UPDATE_POLICY_NEVER));
+        final long resolved = System.currentTimeMillis() - 1;
+        Assertions.assertTrue(CachingPluginVersionResolver.isUpToDate(analyzer, resolved, session, repositories));
+
+        // -U
+        session.setUpdatePolicy(RepositoryPolicy.UPDATE_POLICY_ALWAYS);
+        Assertions.assertFalse(CachingPluginVersionResolver.isUpToDate(analyzer, resolved, session, repositories));
+    }
+
+    @Test
+    void offline() {
+        final DefaultRepositorySystemSession session = new DefaultRepositorySystemSession();
+        session.setUpdatePolicy(RepositoryPolicy.UPDATE_POLICY_ALWAYS);
+        session.setOffline(true);
+        final List<RemoteRepository> repositories = Collections.singletonList(
+                repository("central", "https://repo.example.com/maven2", RepositoryPolicy.UPDATE_POLICY_ALWAYS));
+
+        Assertions.assertTrue(CachingPluginVersionResolver.isUpToDate(
+                analyzer, System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2), session, repositories));
+    }
+
+    @Test
+    void keyOnEffectiveRepositories(@TempDir Path tempDir) {
+        final RemoteRepository central =
+                repository("central", "https://repo.example.com/maven2", RepositoryPolicy.UPDATE_POLICY_DAILY);
+        final DefaultRepositorySystemSession session = session(tempDir);
+        final Key key = key(session, central);
+        Assertions.assertEquals(key, key(session(tempDir), central));
+
+        // same id, other URL
+        Assertions.assertNotEquals(
+                key,
+                key(
+                        session,
+                        repository(
+                                "central", "https://other.example.com/maven2", RepositoryPolicy.UPDATE_POLICY_DAILY)));
+
+        final DefaultRepositorySystemSession mirrored = session(tempDir);
+        mirrored.setMirrorSelector(repository -> repository("mirror", "https://mirror.example.com/maven2", null));
+        final Key mirroredKey = key(mirrored, central);
+        Assertions.assertNotEquals(key, mirroredKey);
+        final DefaultRepositorySystemSession otherMirror = session(tempDir);
+        otherMirror.setMirrorSelector(
+                repository -> repository("mirror", "https://other-mirror.example.com/maven2", null));
+        Assertions.assertNotEquals(mirroredKey, key(otherMirror, central));
+
+        final DefaultRepositorySystemSession authenticated = session(tempDir);
+        authenticated.setAuthenticationSelector(
+                repository -> new AuthenticationBuilder().addUsername("user").build());
+        Assertions.assertNotEquals(key, key(authenticated, central));
+    }
+
+    @Test
+    void sessionKeyDoesNotSelectMirrors(@TempDir Path tempDir) {
+        final RemoteRepository central =
+                repository("central", "https://repo.example.com/maven2", RepositoryPolicy.UPDATE_POLICY_DAILY);
+        final DefaultRepositorySystemSession session = session(tempDir);
+        session.setMirrorSelector(repository -> {
+            throw new AssertionError("The mirror of " + repository + " selected");
+        });
+        session.setAuthenticationSelector(repository -> {
+            throw new AssertionError("The authentication of " + repository + " selected");
+        });
+        final RemoteRepository sameCentral =
+                repository("central", "https://repo.example.com/maven2", RepositoryPolicy.UPDATE_POLICY_DAILY);
+        final RemoteRepository otherCentral =
+                repository("central", "https://other.example.com/maven2", RepositoryPolicy.UPDATE_POLICY_DAILY);
+        final SessionKey key = sessionKey(session, central);
+        Assertions.assertEquals(key, sessionKey(session, sameCentral));
+        Assertions.assertNotEquals(key, sessionKey(session, otherCentral));
+    }
+
+    static RemoteRepository repository(String id, String url, String updatePolicy) {
+        final RemoteRepository.Builder builder = new RemoteRepository.Builder(id, "default", url);
+        if (updatePolicy != null) {
+            builder.setPolicy(new RepositoryPolicy(true, updatePolicy, RepositoryPolicy.CHECKSUM_POLICY_WARN));
+        }
+        return builder.build();
+    }
+
+    static Key key(RepositorySystemSession session, RemoteRepository repository) {
+        return new Key(new DefaultPluginVersionRequest(plugin(), session, Collections.singletonList(repository)));
+    }
+
+    static SessionKey sessionKey(RepositorySystemSession session, RemoteRepository repository) {
+        return new SessionKey(
+                new DefaultPluginVersionRequest(plugin(), session, Collections.singletonList(repository)));
+    }
+
+    static Plugin plugin() {
+        final Plugin plugin = new Plugin();
+        plugin.setGroupId("org.apache.maven.plugins");
+        plugin.setArtifactId("maven-compiler-plugin");
+        return plugin;
+    }
+
+    static DefaultRepositorySystemSession session(Path localRepository) {
+        final DefaultRepositorySystemSession session = new DefaultRepositorySystemSession();
+        session.setLocalRepositoryManager(new LocalRepositoryManager() {
+            final LocalRepository repository = new LocalRepository(localRepository.toFile());
+
+            @Override
+            public LocalRepository getRepository() {
+                return repository;
+            }
+
+            @Override
+            public String getPathForLocalArtifact(Artifact artifact) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public String getPathForRemoteArtifact(Artifact artifact, RemoteRepository repository, String context) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public String getPathForLocalMetadata(Metadata metadata) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public String getPathForRemoteMetadata(Metadata metadata, RemoteRepository repository, String context) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public LocalArtifactResult find(RepositorySystemSession session, LocalArtifactRequest request) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void add(RepositorySystemSession session, LocalArtifactRegistration request) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public LocalMetadataResult find(RepositorySystemSession session, LocalMetadataRequest request) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void add(RepositorySystemSession session, LocalMetadataRegistration request) {
+                throw new UnsupportedOperationException();
+            }
+        });
+        return session;
+    }
+}
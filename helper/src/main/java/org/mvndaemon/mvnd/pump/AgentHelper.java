@@ -18,17 +18,150 @@
  */
 package org.mvndaemon.mvnd.pump;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.lang.instrument.Instrumentation;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ThreadFactory;
 
+/**
+ * Forwards the output of the processes forked by the mojos to the daemon's {@code System.out} and {@code System.err}.
+ * <p>
+ * The bytes are forwarded as they are, without decoding them, but only up to the last line end read so far: complete
+ * lines are written in a single call, so that they are not mixed with the output of other processes, and so that the
+ * daemon attributes each of them to the project the pump was started for.
+ * <p>
+ * The pumps run on virtual threads when the JVM supports them: these inherit the project of the thread that forked the
+ * process like platform threads do, but without costing two platform threads per forked process. Unlike the platform
+ * threads used otherwise, virtual threads are always daemon threads: they do not keep the JVM running, which is fine as
+ * the forked processes are only waited for, and their output pumped, while the daemon is building.
+ */
 public class AgentHelper {
 
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * The longest incomplete line kept while waiting for its end
+     */
+    private static final int MAX_PENDING = 64 * 1024;
+
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+
+    private static final boolean LF = Arrays.equals(LINE_SEPARATOR, new byte[] {'\n'});
+
+    private static final ThreadFactory THREAD_FACTORY = threadFactory();
+
+    private static volatile Instrumentation instrumentation;
+
+    /**
+     * Called by the agent, so that the daemon can tell how many classes its class loaders defined.
+     */
+    public static void setInstrumentation(Instrumentation instrumentation) {
+        AgentHelper.instrumentation = instrumentation;
+    }
+
+    /**
+     * @return the number of classes defined by the given class loader, or {@code -1} if the agent is not installed
+     */
+    public static int getDefinedClassCount(ClassLoader classLoader) {
+        Instrumentation inst = instrumentation;
+        if (inst == null) {
+            return -1;
+        }
+        int count = 0;
+        for (Class<?> clazz : inst.getInitiatedClasses(classLoader)) {
+            if (clazz.getClassLoader() == classLoader) {
+                count++;
+            }
+        }
+        return count;
+    }
+
     public static void pump(InputStream stream, PrintStream out) {
-        new Thread(() -> new BufferedReader(new InputStreamReader(stream))
-                        .lines()
-                        .forEach(out::println))
-                .start();
+        THREAD_FACTORY.newThread(() -> pumpLines(stream, out)).start();
+    }
+
+    static void pumpLines(InputStream stream, OutputStream out) {
+        byte[] buf = new byte[BUFFER_SIZE];
+        int len = 0;
+        try (InputStream in = stream) {
+            int read;
+            while ((read = in.read(buf, len, buf.length - len)) >= 0) {
+                // the pending bytes contain no line end, so only look at what has just been read
+                final int pending = len;
+                len += read;
+                int end = len;
+                while (end > pending && buf[end - 1] != '\n') {
+                    end--;
+                }
+                if (end > pending) {
+                    writeLines(out, buf, end);
+                    System.arraycopy(buf, end, buf, 0, len - end);
+                    len -= end;
+                } else if (len == buf.length) {
+                    if (buf.length < MAX_PENDING) {
+                        buf = Arrays.copyOf(buf, buf.length * 2);
+                    } else {
+                        writeLines(out, buf, len);
+                        len = 0;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // the process has been destroyed
+        }
+        try {
+            if (len > 0) {
+                // terminate the last line like println() would
+                buf = Arrays.copyOf(buf, len + LINE_SEPARATOR.length);
+                System.arraycopy(LINE_SEPARATOR, 0, buf, len, LINE_SEPARATOR.length);
+                writeLines(out, buf, buf.length);
+            }
+            out.flush();
+        } catch (IOException e) {
+            // nowhere to report it
+        }
+    }
+
+    /**
+     * Write the given lines with a single call. The lines are passed as they are unless the platform line separator
+     * is not {@code \n}, in which case the line ends are replaced with it, as the daemon splits the output on it.
+     */
+    private static void writeLines(OutputStream out, byte[] buf, int len) throws IOException {
+        if (LF) {
+            out.write(buf, 0, len);
+            return;
+        }
+        ByteArrayOutputStream normalized = new ByteArrayOutputStream(len + len / 16);
+        int start = 0;
+        for (int i = 0; i < len; i++) {
+            if (buf[i] == '\n') {
+                int end = i > start && buf[i - 1] == '\r' ? i - 1 : i;
+                normalized.write(buf, start, end - start);
+                normalized.write(LINE_SEPARATOR, 0, LINE_SEPARATOR.length);
+                start = i + 1;
+            }
+        }
+        normalized.write(buf, start, len - start);
+        normalized.writeTo(out);
+    }
+
+    /**
+     * @return a factory of virtual threads if available, which is only looked up reflectively as this class is
+     *         compiled for Java 17, or of platform threads otherwise
+     */
+    private static ThreadFactory threadFactory() {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "mvnd-pump-", 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return r -> new Thread(r, "mvnd-pump");
+        }
     }
 }
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.pump;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AgentHelperTest {
+
+    /**
+     * Records each write, like the daemon's output stream which splits what it gets into lines.
+     */
+    static class RecordingOutputStream extends OutputStream {
+        final List<String> writes = new ArrayList<>();
+        final CountDownLatch flushed;
+
+        RecordingOutputStream(int flushes) {
+            flushed = new CountDownLatch(flushes);
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            writes.add(new String(b, off, len, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void flush() {
+            flushed.countDown();
+        }
+    }
+
+    /**
+     * A process output delivering its content in chunks of random sizes.
+     */
+    static InputStream chunked(byte[] data, long seed) {
+        Random random = new Random(seed);
+        return new ByteArrayInputStream(data) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 1 + random.nextInt(100)));
+            }
+        };
+    }
+
+    static byte[] lines(String prefix, int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(prefix).append(' ').append(i).append(System.lineSeparator());
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void writesWholeLines() throws Exception {
+        RecordingOutputStream out = new RecordingOutputStream(2);
+        PrintStream printStream = new PrintStream(out, false);
+        AgentHelper.pump(chunked(lines("out", 10_000), 1), printStream);
+        AgentHelper.pump(chunked(lines("err", 10_000), 2), printStream);
+        assertTrue(out.flushed.await(30, TimeUnit.SECONDS));
+
+        int outLines = 0;
+        int errLines = 0;
+        for (String write : out.writes) {
+            assertTrue(write.endsWith(System.lineSeparator()), write);
+            for (String line : write.split(System.lineSeparator())) {
+                if (line.startsWith("out ")) {
+                    assertEquals("out " + outLines++, line);
+                } else {
+                    assertEquals("err " + errLines++, line);
+                }
+            }
+        }
+        assertEquals(10_000, outLines);
+        assertEquals(10_000, errLines);
+    }
+
+    @Test
+    void terminatesLastLine() {
+        RecordingOutputStream out = new RecordingOutputStream(1);
+        AgentHelper.pumpLines(new ByteArrayInputStream("foo\nbar".getBytes(StandardCharsets.UTF_8)), out);
+        String sep = System.lineSeparator();
+        assertEquals("foo" + sep + "bar" + sep, String.join("", out.writes));
+    }
+
+    /**
+     * Measures how fast a large process output is pumped. Only runs with {@code -Dmvnd.benchmark=true}; the number of
+     * lines can be set using {@code -Dmvnd.benchmark.lines}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "mvnd.benchmark", matches = "true")
+    void throughput() {
+        int count = Integer.getInteger("mvnd.benchmark.lines", 1_000_000);
+        byte[] data = lines("Running org.mvndaemon.mvnd.pump.AgentHelperTest some output line", count);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length + 1024);
+        long start = System.nanoTime();
+        AgentHelper.pumpLines(new ByteArrayInputStream(data), new PrintStream(out, false));
+        long nanos = System.nanoTime() - start;
+        assertEquals(data.length, out.size());
+        System.out.println(String.format(
+                "Pumped %d lines (%d MB) in %d ms: %d lines/s",
+                count,
+                data.length >> 20,
+                TimeUnit.NANOSECONDS.toMillis(nanos),
+                count * TimeUnit.SECONDS.toNanos(1) / nanos));
+    }
+}
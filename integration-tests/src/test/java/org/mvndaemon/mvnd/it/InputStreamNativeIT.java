@@ -22,8 +22,10 @@ import javax.inject.Inject;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
 import org.mvndaemon.mvnd.assertj.TestClientOutput;
 import org.mvndaemon.mvnd.client.Client;
 import org.mvndaemon.mvnd.client.DaemonParameters;
@@ -78,8 +80,6 @@ class InputStreamNativeIT {
                     } else {
                         daemonDispatch.accept(Message.inputEof());
                     }
-                } else if (message instanceof Message.RequestInputAvailable) {
-                    daemonDispatch.accept(Message.inputAvailableData(data.length()));
                 }
 
                 if (!(message instanceof Message.TransferEvent)) {
@@ -100,4 +100,71 @@ class InputStreamNativeIT {
         output.assertContainsMatchingSubsequence(
                 "Saw 10 bytes available from stdin. Actually read 10 bytes from stdin.");
     }
+
+    /**
+     * Stream a larger stdin than the window of the daemon: the daemon grants the client credits for the characters it
+     * may send ahead of the reads, so that piping a large input does not require a round trip per buffer refill.
+     */
+    @Test
+    void installPluginAndCountLargeInput() throws IOException, InterruptedException {
+        countInput(1024 * 1024);
+    }
+
+    /**
+     * A throughput benchmark of the stdin streaming. Only runs in the {@code benchmark} profile; the size of the input
+     * can be set using {@code -Dmvnd.benchmark.inputMiB}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "mvnd.benchmark", matches = "true")
+    void largeInputThroughput() throws IOException, InterruptedException {
+        final int size = Integer.getInteger("mvnd.benchmark.inputMiB", 16) * 1024 * 1024;
+        final long ms = TimeUnit.NANOSECONDS.toMillis(countInput(size));
+        System.out.println(String.format(
+                "Counted %d MiB of stdin in %d ms: %d MiB/s", size >> 20, ms, (size >> 20) * 1000L / Math.max(1, ms)));
+    }
+
+    /**
+     * @return the time it took to count the given number of bytes piped to the plugin, once it is installed
+     */
+    private long countInput(int size) throws IOException, InterruptedException {
+        final TestClientOutput output = new TestClientOutput() {
+            final String chunk = "0123456789abcdef".repeat(1024);
+            int sent = 0;
+
+            @Override
+            public void accept(Message message) {
+                if (message instanceof Message.RequestInput) {
+                    // honor the credit granted by the daemon, like the terminal input handler does
+                    int credit = ((Message.RequestInput) message).getBytesToRead();
+                    while (credit > 0 && sent < size) {
+                        int n = Math.min(Math.min(credit, chunk.length()), size - sent);
+                        String data = n == chunk.length() ? chunk : chunk.substring(0, n);
+                        daemonDispatch.accept(Message.inputResponse(data));
+                        credit -= n;
+                        sent += n;
+                    }
+                    if (sent >= size) {
+                        daemonDispatch.accept(Message.inputEof());
+                    }
+                }
+                if (!(message instanceof Message.TransferEvent)) {
+                    super.accept(message);
+                }
+            }
+
+            @Override
+            public byte[] nativeStdin() {
+                return chunk.repeat(size / chunk.length()).getBytes(StandardCharsets.UTF_8);
+            }
+        };
+        client.execute(output, "install").assertSuccess();
+
+        final long start = System.nanoTime();
+        client.execute(output, "org.mvndaemon.mvnd.test.input-stream:echo-maven-plugin:countbytes")
+                .assertSuccess();
+        final long nanos = System.nanoTime() - start;
+
+        output.assertContainsMatchingSubsequence("Actually read " + size + " bytes from stdin.");
+        return nanos;
+    }
 }
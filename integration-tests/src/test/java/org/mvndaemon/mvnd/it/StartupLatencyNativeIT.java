@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.mvndaemon.mvnd.it;
+
+import javax.inject.Inject;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.mvndaemon.mvnd.assertj.TestClientOutput;
+import org.mvndaemon.mvnd.client.Client;
+import org.mvndaemon.mvnd.common.DaemonInfo;
+import org.mvndaemon.mvnd.junit.MvndNativeTest;
+import org.mvndaemon.mvnd.junit.MvndTestExtension;
+import org.mvndaemon.mvnd.junit.TestRegistry;
+
+/**
+ * Measures the wall time of short client invocations against a warm daemon and prints its percentiles. The number
+ * of iterations can be set using {@code -Dmvnd.benchmark.iterations} and a regression threshold for the median
+ * using {@code -Dmvnd.benchmark.maxMedianMs}. Per phase timings can be obtained by running the client with
+ * {@code -Dmvnd.clientTimings=true}. The benchmark only runs when the {@code benchmark} profile is active.
+ */
+@MvndNativeTest(projectDir = MvndTestExtension.TEMP_EXTERNAL)
+class StartupLatencyNativeIT {
+
+    @Inject
+    Client client;
+
+    @Inject
+    TestRegistry registry;
+
+    @Test
+    @EnabledIfSystemProperty(named = "mvnd.benchmark", matches = "true")
+    void startupLatency() throws IOException, InterruptedException {
+        final int iterations = Integer.getInteger("mvnd.benchmark.iterations", 5);
+        final Long maxMedianMs = Long.getLong("mvnd.benchmark.maxMedianMs");
+
+        /* Warm up: start the daemon */
+        client.execute(new TestClientOutput(), "-v").assertSuccess();
+        final DaemonInfo d = registry.getAll().get(0);
+        registry.awaitIdle(d.getId());
+
+        final long[] times = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            final long start = System.nanoTime();
+            client.execute(new TestClientOutput(), "-v").assertSuccess();
+            times[i] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            registry.awaitIdle(d.getId());
+        }
+        Arrays.sort(times);
+
+        /* Only a single daemon should have been used */
+        Assertions.assertThat(registry.getAll()).hasSize(1);
+        final String summary = String.format(
+                "%s client startup latency over %d runs: p50=%dms, p90=%dms, p99=%dms, max=%dms",
+                isNative() ? "Native" : "JVM",
+                iterations,
+                percentile(times, 50),
+                percentile(times, 90),
+                percentile(times, 99),
+                times[iterations - 1]);
+        System.out.println(summary);
+        if (maxMedianMs != null) {
+            Assertions.assertThat(percentile(times, 50)).as(summary).isLessThanOrEqualTo(maxMedianMs);
+        }
+    }
+
+    static long percentile(long[] sorted, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    protected boolean isNative() {
+        return true;
+    }
+}